@@ -4,6 +4,7 @@
 
 package dendron;
 
+import java.io.PrintStream;
 import java.util.Map;
 
 /**
@@ -14,6 +15,7 @@ import java.util.Map;
  *     <li>uninitialized variable in expression</li>
  *     <li>premature end of statement</li>
  *     <li>extra tokens at end of statement</li>
+ *     <li>arithmetic overflow</li>
  * </ul>
  *
  * @author James Heliotis
@@ -31,7 +33,8 @@ public class Errors {
         ILLEGAL_VALUE( "illegal value encountered in source" ),
         UNINITIALIZED( "uninitialized variable in expression" ),
         PREMATURE_END( "premature end of statement" ),
-        EXTRA_TOKENS( "extra tokens at end of statement" );
+        EXTRA_TOKENS( "extra tokens at end of statement" ),
+        OVERFLOW( "arithmetic overflow" );
 
         private final String message;
 
@@ -40,6 +43,52 @@ public class Errors {
         }
     }
 
+    /**
+     * Thrown by {@link #report} in place of stopping the Java virtual
+     * machine, on threads that have asked for that with
+     * {@link #setThrowOnReport}. Its message is the text report
+     * would have printed.
+     */
+    public static class DendronAbort extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final Type type;
+
+        private DendronAbort( Type type, String message ) {
+            super( message );
+            this.type = type;
+        }
+
+        /**
+         * @return the kind of error reported
+         */
+        public Type getType() {
+            return this.type;
+        }
+    }
+
+    /** Which threads want errors thrown instead of exiting */
+    private static final ThreadLocal< Boolean > throwOnReport =
+            ThreadLocal.withInitial( () -> false );
+
+    /**
+     * Choose, for the current thread only, whether {@link #report} stops
+     * the program (the default) or throws a {@link DendronAbort}. This lets
+     * several programs run in one Java virtual machine.
+     * @param enabled true to throw instead of exiting
+     */
+    public static void setThrowOnReport( boolean enabled ) {
+        throwOnReport.set( enabled );
+    }
+
+    /**
+     * Find out whether {@link #report} throws on the current thread.
+     * @return true if it throws a {@link DendronAbort} instead of exiting
+     */
+    public static boolean throwsOnReport() {
+        return throwOnReport.get();
+    }
+
     /**
      * Report an error and stop the program. All output goes to standard error.
      *
@@ -47,10 +96,14 @@ public class Errors {
      * @param info if not null, an additional value to be printed after a colon
      */
     public static void report( Type type, Object info ) {
-        System.err.print( type.message );
+        String message = type.message;
         if ( info != null ) {
-            System.err.print( ": " + info );
+            message = message + ": " + info;
         }
+        if ( throwOnReport.get() ) {
+            throw new DendronAbort( type, message );
+        }
+        System.err.print( message );
         System.exit( DENDRON_ABORT );
     }
 
@@ -58,10 +111,20 @@ public class Errors {
      * Show on standard output the values of all the variables in the table.
      * @param table the program's symbol table
      */
-    public static void dump( Map< String, Integer > table ) {
-        System.out.println( "Symbol Table Contents\n=====================\n" );
+    public static void dump( Map< String, ? extends Number > table ) {
+        dump( table, System.out );
+    }
+
+    /**
+     * Show the values of all the variables in the table. The values
+     * may be of any integer type: Integer, Long or BigInteger.
+     * @param table the program's symbol table
+     * @param out where to show them
+     */
+    public static void dump( Map< String, ? extends Number > table, PrintStream out ) {
+        out.println( "Symbol Table Contents\n=====================\n" );
         for ( String ident: table.keySet() ) {
-            System.out.printf( "%12s : %11d\n", ident, table.get( ident ) );
+            out.printf( "%12s : %11d\n", ident, table.get( ident ) );
         }
     }
 }
@@ -0,0 +1,262 @@
+/*
+ * file: DendronBench.java
+ */
+
+package dendron.bench;
+
+import dendron.Errors;
+import dendron.machine.FastMachine;
+import dendron.machine.InstructionReader;
+import dendron.machine.Machine;
+import dendron.machine.NumericMode;
+import dendron.machine.Superinstructions;
+import dendron.tree.CompileCache;
+import dendron.tree.EditSession;
+import dendron.tree.ParseTree;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Benchmarks for each stage of running a Dendron program, so that
+ * interpreting the parse tree can be compared with compiling it and
+ * executing the instructions on the Machine:
+ * <ul>
+ *     <li>parse.list - build a ParseTree from a token list</li>
+ *     <li>parse.stream - build a ParseTree straight from source text</li>
+ *     <li>interpret - ParseTree.interpret()</li>
+ *     <li>emit - ParseTree.compile()</li>
+ *     <li>execute.legacy, execute.fast, execute.fused - Machine.execute
+ *         of the compiled instructions on each engine</li>
+ *     <li>fuse, execute.prefused - replace the default superinstruction
+ *         patterns, and run the result on the legacy engine, as when
+ *         the fusing is done once when a program is loaded</li>
+ *     <li>compile+execute - emit and execute together, the compiled
+ *         counterpart of interpret</li>
+ *     <li>interpret.optimized, compile+execute.optimized - the same after
+ *         ParseTree.optimize(), which folds constants and computes common
+ *         subexpressions only once</li>
+ *     <li>compile.optimized, compile.cached - get the optimized
+ *         instructions for the source text by parsing, optimizing and
+ *         compiling it, or from a warm CompileCache</li>
+ *     <li>edit.full, edit.incremental - show the result of adding a print
+ *         statement at the end of the program, by parsing and interpreting
+ *         it all again or with an EditSession</li>
+ *     <li>numeric.int, numeric.checked_int, numeric.long, numeric.big -
+ *         run the lowered program in each {@link NumericMode}</li>
+ * </ul>
+ * The inputs are the programs in the source directory, synthetic deep,
+ * wide, common-subexpression and bounded programs, and (for execution
+ * only) the assembly files in the assy directory. The numeric modes are
+ * compared only on the programs that do not overflow an int: the source
+ * programs and the bounded ones. Program output is discarded while
+ * timing.
+ *
+ * @see Harness
+ *
+ * @author William J. Reid (wjr3714)
+ */
+public class DendronBench {
+
+    /** Sizes of the generated programs */
+    private static final int[] DEEP = { 100, 1000, 100000 };
+    private static final int[] WIDE = { 100, 10000 };
+    private static final int[] COMMON = { 100, 10000 };
+    private static final int[] BOUNDED = { 100, 10000 };
+
+    /**
+     * Run the benchmarks.
+     * @param args optionally, the Project1 directory (default: the current
+     *             directory), then a regular expression choosing which
+     *             "benchmark:input" names to run
+     */
+    public static void main( String[] args ) throws IOException {
+        File home = new File( args.length > 0 ? args[ 0 ] : "." );
+        String filter = args.length > 1 ? args[ 1 ] : null;
+
+        Map< String, List< String > > sources = new LinkedHashMap<>();
+        Set< String > bounded = new HashSet<>();
+        for ( File file: Programs.list( new File( home, "source" ), ".txt" ) ) {
+            sources.put( file.getName(), Programs.read( file ) );
+            bounded.add( file.getName() );
+        }
+        for ( int depth: DEEP ) {
+            sources.put( "deep-" + depth, Programs.deep( depth ) );
+        }
+        for ( int statements: WIDE ) {
+            sources.put( "wide-" + statements, Programs.wide( statements ) );
+        }
+        for ( int statements: COMMON ) {
+            sources.put( "common-" + statements, Programs.common( statements ) );
+        }
+        for ( int statements: BOUNDED ) {
+            sources.put( "bounded-" + statements, Programs.bounded( statements ) );
+            bounded.add( "bounded-" + statements );
+        }
+
+        PrintStream console = System.out;
+        PrintStream sink = new PrintStream( OutputStream.nullOutputStream() );
+        Harness harness = new Harness( filter, console );
+        harness.header();
+        Path cacheDirectory = Files.createTempDirectory( "dendron-bench" );
+        CompileCache cache = new CompileCache( cacheDirectory );
+
+        // ParseTree.interpret and the Machine's error path write to System.out.
+        System.setOut( sink );
+        try {
+            for ( Map.Entry< String, List< String > > source: sources.entrySet() ) {
+                source( harness, source.getKey(), source.getValue(), sink );
+                edit( harness, source.getKey(), source.getValue() );
+                optimized( harness, source.getKey(), source.getValue(), sink, cache );
+                if ( bounded.contains( source.getKey() ) ) {
+                    numeric( harness, source.getKey(), source.getValue(), sink );
+                }
+            }
+            for ( File file: Programs.list( new File( home, "assy" ), ".denm" ) ) {
+                List< Machine.Instruction > program =
+                        new ArrayList<>( InstructionReader.assemble( file.getPath() ) );
+                execute( harness, file.getName(), program, sink );
+            }
+        }
+        finally {
+            System.setOut( console );
+            File[] entries = cacheDirectory.toFile().listFiles();
+            for ( File entry: entries == null ? new File[ 0 ] : entries ) {
+                entry.delete();
+            }
+            Files.delete( cacheDirectory );
+        }
+    }
+
+    /**
+     * Measure every stage on one source program.
+     */
+    private static void source( Harness harness, String input, List< String > tokens,
+                                PrintStream sink ) {
+        String text = Programs.text( tokens );
+        ParseTree tree = new ParseTree( tokens );
+        List< Machine.Instruction > program = tree.compile();
+
+        harness.measure( "parse.list", input, () -> new ParseTree( tokens ) );
+        harness.measure( "parse.stream", input,
+                () -> new ParseTree( new StringReader( text ) ) );
+        harness.measure( "interpret", input, () -> {
+            tree.interpret();
+            return tree;
+        } );
+        harness.measure( "emit", input, tree::compile );
+        execute( harness, input, program, sink );
+        harness.measure( "compile+execute", input, () -> {
+            List< Machine.Instruction > code = tree.compile();
+            Machine.execute( code, Machine.Engine.LEGACY, sink );
+            return code;
+        } );
+    }
+
+    /**
+     * Measure interpreting and running an optimized program, and getting
+     * its instructions with and without the compile cache.
+     */
+    private static void optimized( Harness harness, String input, List< String > tokens,
+                                   PrintStream sink, CompileCache cache ) {
+        ParseTree tree = new ParseTree( tokens );
+        tree.optimize();
+
+        harness.measure( "interpret.optimized", input, () -> {
+            tree.interpret();
+            return tree;
+        } );
+        harness.measure( "compile+execute.optimized", input, () -> {
+            List< Machine.Instruction > code = tree.compile();
+            Machine.execute( code, Machine.Engine.LEGACY, sink );
+            return code;
+        } );
+
+        String text = Programs.text( tokens );
+        harness.measure( "compile.optimized", input, () -> {
+            ParseTree parsed = new ParseTree( new StringReader( text ) );
+            parsed.optimize();
+            return parsed.compile();
+        } );
+        cache.compile( text );
+        harness.measure( "compile.cached", input, () -> cache.compile( text ) );
+    }
+
+    /**
+     * Measure bringing a program's results up to date after an edit at its
+     * end. The incremental benchmark alternately adds the statement and
+     * takes it away again.
+     */
+    private static void edit( Harness harness, String input, List< String > tokens ) {
+        List< String > edited = new ArrayList<>( tokens );
+        edited.addAll( Arrays.asList( "@", "1" ) );
+
+        harness.measure( "edit.full", input, () -> {
+            ParseTree tree = new ParseTree( edited );
+            tree.interpret();
+            return tree;
+        } );
+        EditSession session = new EditSession();
+        session.update( tokens );
+        boolean[] added = { false };
+        harness.measure( "edit.incremental", input, () -> {
+            added[ 0 ] = !added[ 0 ];
+            session.update( added[ 0 ] ? edited : tokens );
+            return session;
+        } );
+    }
+
+    /**
+     * Measure running a lowered program with each kind of arithmetic.
+     * Errors are thrown rather than stopping the benchmarks, so a program
+     * that does overflow only fails its checked_int line.
+     */
+    private static void numeric( Harness harness, String input, List< String > tokens,
+                                 PrintStream sink ) {
+        FastMachine program = FastMachine.lower( new ParseTree( tokens ).compile() );
+        Errors.setThrowOnReport( true );
+        try {
+            for ( NumericMode mode: NumericMode.values() ) {
+                harness.measure( "numeric." + mode.name().toLowerCase(), input, () -> {
+                    program.execute( mode, sink );
+                    return program;
+                } );
+            }
+        }
+        finally {
+            Errors.setThrowOnReport( false );
+        }
+    }
+
+    /**
+     * Measure running compiled instructions on each engine.
+     */
+    private static void execute( Harness harness, String input,
+                                 List< Machine.Instruction > program, PrintStream sink ) {
+        for ( Machine.Engine engine: Machine.Engine.values() ) {
+            harness.measure( "execute." + engine.name().toLowerCase(), input, () -> {
+                Machine.execute( program, engine, sink );
+                return program;
+            } );
+        }
+        Superinstructions fusion = Superinstructions.getDefault();
+        List< Machine.Instruction > fused = fusion.fuse( program );
+        harness.measure( "fuse", input, () -> fusion.fuse( program ) );
+        harness.measure( "execute.prefused", input, () -> {
+            Machine.execute( fused, Machine.Engine.LEGACY, sink );
+            return fused;
+        } );
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * file: Harness.java
+ */
+
+package dendron.bench;
+
+import java.io.PrintStream;
+import java.util.regex.Pattern;
+
+/**
+ * A small benchmark runner in the style of JMH, for timing the Dendron
+ * pipeline without outside libraries. Every benchmark gets the same
+ * treatment: a number of warmup iterations whose results are thrown
+ * away, then a number of measured iterations. Each iteration calls the
+ * benchmark repeatedly for a fixed length of time and records the
+ * average time per call. The report shows the mean over the measured
+ * iterations and a 99.9% confidence half-width.
+ *
+ * Every result a benchmark returns is folded into a field so that the
+ * JIT compiler cannot discard the work that produced it.
+ *
+ * Settings come from system properties:
+ * <ul>
+ *     <li>bench.warmup - warmup iterations (default 3)</li>
+ *     <li>bench.iterations - measured iterations (default 5)</li>
+ *     <li>bench.time - length of an iteration in milliseconds (default 200)</li>
+ * </ul>
+ *
+ * @author William J. Reid (wjr3714)
+ */
+public class Harness {
+
+    /**
+     * One operation to be timed.
+     */
+    public interface Benchmark {
+        /**
+         * Do the work being measured once.
+         * @return any value computed, so that it is not optimized away
+         * @throws Exception if the work fails; the benchmark is abandoned
+         */
+        Object run() throws Exception;
+    }
+
+    /** Student t values for a 99.9% two-sided interval, by degrees of freedom */
+    private static final double[] T_999 = {
+            0, 636.6, 31.60, 12.92, 8.610, 6.869, 5.959, 5.408, 5.041, 4.781, 4.587 };
+
+    private final int warmup;
+    private final int iterations;
+    private final long iterationNanos;
+    private final Pattern filter;
+    private final PrintStream report;
+
+    /** Where benchmark results are sunk */
+    private volatile int sink;
+
+    /**
+     * Create a harness configured from system properties.
+     * @param filter run only benchmarks whose "group:input" name contains
+     *               a match for this regular expression (null for all)
+     * @param report where results are printed
+     */
+    public Harness( String filter, PrintStream report ) {
+        this.warmup = Integer.getInteger( "bench.warmup", 3 );
+        this.iterations = Math.max( 1, Integer.getInteger( "bench.iterations", 5 ) );
+        this.iterationNanos = Integer.getInteger( "bench.time", 200 ) * 1_000_000L;
+        this.filter = filter == null ? null : Pattern.compile( filter );
+        this.report = report;
+    }
+
+    /**
+     * Print the heading of the results table.
+     */
+    public void header() {
+        this.report.printf( "# warmup %d x %d ms, measure %d x %d ms%n",
+                this.warmup, this.iterationNanos / 1_000_000,
+                this.iterations, this.iterationNanos / 1_000_000 );
+        this.report.printf( "%-26s %-28s %14s %12s %10s%n",
+                "benchmark", "input", "ns/op", "error", "ops" );
+    }
+
+    /**
+     * Time one benchmark and print a line of the results table.
+     * @param name what is being measured, e.g. "parse.list"
+     * @param input the program it is measured on
+     * @param benchmark the operation
+     */
+    public void measure( String name, String input, Benchmark benchmark ) {
+        if ( this.filter != null && !this.filter.matcher( name + ":" + input ).find() ) {
+            return;
+        }
+        try {
+            for ( int i = 0; i < this.warmup; ++i ) {
+                iteration( benchmark );
+            }
+            double[] nsPerOp = new double[ this.iterations ];
+            long ops = 0;
+            for ( int i = 0; i < this.iterations; ++i ) {
+                long[] result = iteration( benchmark );
+                nsPerOp[ i ] = (double) result[ 0 ] / result[ 1 ];
+                ops += result[ 1 ];
+            }
+            double mean = 0;
+            for ( double x: nsPerOp ) {
+                mean += x;
+            }
+            mean /= nsPerOp.length;
+            double error = Double.NaN;
+            if ( nsPerOp.length > 1 ) {
+                double squares = 0;
+                for ( double x: nsPerOp ) {
+                    squares += ( x - mean ) * ( x - mean );
+                }
+                int df = nsPerOp.length - 1;
+                double t = df < T_999.length ? T_999[ df ] : 3.291;
+                error = t * Math.sqrt( squares / df / nsPerOp.length );
+            }
+            this.report.printf( "%-26s %-28s %14.1f %12.1f %10d%n",
+                    name, input, mean, error, ops );
+        }
+        catch ( Exception e ) {
+            this.report.printf( "%-26s %-28s failed: %s%n", name, input, e );
+        }
+    }
+
+    /**
+     * Call the benchmark until the iteration time has passed.
+     * @return the elapsed nanoseconds and the number of calls
+     */
+    private long[] iteration( Benchmark benchmark ) throws Exception {
+        long ops = 0;
+        long start = System.nanoTime();
+        long deadline = start + this.iterationNanos;
+        long now;
+        do {
+            consume( benchmark.run() );
+            ++ops;
+            now = System.nanoTime();
+        } while ( now < deadline );
+        return new long[]{ now - start, ops };
+    }
+
+    private void consume( Object result ) {
+        this.sink ^= System.identityHashCode( result );
+    }
+}
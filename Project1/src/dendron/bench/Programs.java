@@ -0,0 +1,202 @@
+/*
+ * file: Programs.java
+ */
+
+package dendron.bench;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Scanner;
+
+/**
+ * Dendron source programs for the benchmarks: the ones in a source
+ * directory, and synthetic ones of any size.
+ *
+ * @author William J. Reid (wjr3714)
+ */
+public class Programs {
+
+    /** Do not instantiate this class. */
+    private Programs() {}
+
+    /**
+     * Read the tokens of a Dendron source file.
+     * @param file the source file
+     * @return its tokens, in order
+     * @throws FileNotFoundException if the file cannot be opened
+     */
+    public static List< String > read( File file ) throws FileNotFoundException {
+        List< String > tokens = new ArrayList<>();
+        try ( Scanner in = new Scanner( file ) ) {
+            in.forEachRemaining( tokens::add );
+        }
+        return tokens;
+    }
+
+    /**
+     * List the files with a given ending in a directory, sorted by name.
+     * @param dir the directory
+     * @param suffix the file name ending, e.g. ".txt"
+     * @return the files, or an empty list if the directory does not exist
+     */
+    public static List< File > list( File dir, String suffix ) {
+        File[] files = dir.listFiles( ( d, name ) -> name.endsWith( suffix ) );
+        if ( files == null ) {
+            return new ArrayList<>();
+        }
+        Arrays.sort( files );
+        return Arrays.asList( files );
+    }
+
+    /**
+     * A program with one deeply nested expression. Each level of nesting
+     * adds or multiplies a variable, so nothing can be folded away:
+     * <pre>
+     *     := x 3
+     *     @ + x * x + x * x ... x
+     * </pre>
+     * @param depth the number of binary operators in the expression
+     * @return the program's tokens
+     */
+    public static List< String > deep( int depth ) {
+        List< String > tokens = new ArrayList<>( 2 * depth + 8 );
+        tokens.addAll( Arrays.asList( ":=", "x", "3", "@" ) );
+        for ( int i = 0; i < depth; ++i ) {
+            tokens.add( i % 2 == 0 ? "+" : "*" );
+            tokens.add( "x" );
+        }
+        tokens.add( "x" );
+        return tokens;
+    }
+
+    /**
+     * A program with many short statements over a handful of variables:
+     * <pre>
+     *     := v0 1
+     *     ...
+     *     := v3 + v2 * v1 2
+     *     := v0 - v3 _ v2
+     *     ...
+     * </pre>
+     * @param statements the number of assignments
+     * @return the program's tokens
+     */
+    public static List< String > wide( int statements ) {
+        final int vars = 8;
+        List< String > tokens = new ArrayList<>( 8 * statements + 8 );
+        for ( int i = 0; i < statements; ++i ) {
+            String target = "v" + ( i % vars );
+            tokens.add( ":=" );
+            tokens.add( target );
+            if ( i < 3 ) {
+                tokens.add( Integer.toString( i + 1 ) );
+                continue;
+            }
+            String a = "v" + ( ( i - 1 ) % vars );
+            String b = "v" + ( ( i - 2 ) % vars );
+            String c = "v" + ( ( i - 3 ) % vars );
+            if ( i % 2 == 0 ) {
+                tokens.addAll( Arrays.asList( "+", a, "*", b, "2" ) );
+            }
+            else {
+                tokens.addAll( Arrays.asList( "-", a, "_", c ) );
+            }
+        }
+        tokens.add( "@" );
+        tokens.add( "v" + ( ( statements - 1 ) % vars ) );
+        return tokens;
+    }
+
+    /**
+     * A program that computes the same subexpressions again and again,
+     * with an occasional assignment to one of the variables they read:
+     * <pre>
+     *     := a 3
+     *     := b 4
+     *     := c * + a b - a b
+     *     := c + c / * + a b - a b # * a b
+     *     := a + a 1
+     *     ...
+     * </pre>
+     * @param statements the number of assignments after the first two
+     * @return the program's tokens
+     */
+    public static List< String > common( int statements ) {
+        List< String > sum = Arrays.asList( "+", "a", "b" );
+        List< String > difference = Arrays.asList( "-", "a", "b" );
+        List< String > product = Arrays.asList( "*", "a", "b" );
+        List< String > tokens = new ArrayList<>( 20 * statements + 8 );
+        tokens.addAll( Arrays.asList( ":=", "a", "3", ":=", "b", "4" ) );
+        for ( int i = 0; i < statements; ++i ) {
+            switch ( i % 4 ) {
+                case 0:
+                    tokens.addAll( Arrays.asList( ":=", "c", "*" ) );
+                    tokens.addAll( sum );
+                    tokens.addAll( difference );
+                    break;
+                case 3:
+                    tokens.addAll( Arrays.asList( ":=", "a", "+", "a", "1" ) );
+                    break;
+                default:
+                    tokens.addAll( Arrays.asList( ":=", "c", "+", "c", "/", "*" ) );
+                    tokens.addAll( sum );
+                    tokens.addAll( difference );
+                    tokens.add( "#" );
+                    tokens.addAll( product );
+                    break;
+            }
+        }
+        tokens.add( "@" );
+        tokens.add( "c" );
+        return tokens;
+    }
+
+    /**
+     * A program that uses every operator but keeps its values small, so
+     * that it runs without overflow in every numeric mode. Each new value
+     * is a weighted average or a geometric mean of two others:
+     * <pre>
+     *     := a 1000
+     *     := b 2000
+     *     := c 3000
+     *     := a / + * b 29 * c 3 32
+     *     := b # * a c
+     *     := c - / a 2 _ / b 2
+     *     ...
+     * </pre>
+     * @param statements the number of assignments after the first three
+     * @return the program's tokens
+     */
+    public static List< String > bounded( int statements ) {
+        List< String > tokens = new ArrayList<>( 14 * statements + 12 );
+        tokens.addAll( Arrays.asList( ":=", "a", "1000", ":=", "b", "2000", ":=", "c", "3000" ) );
+        for ( int i = 0; i < statements; ++i ) {
+            switch ( i % 3 ) {
+                case 0:
+                    tokens.addAll( Arrays.asList( ":=", "a", "/", "+", "*", "b", "29", "*", "c", "3", "32" ) );
+                    break;
+                case 1:
+                    tokens.addAll( Arrays.asList( ":=", "b", "#", "*", "a", "c" ) );
+                    break;
+                default:
+                    tokens.addAll( Arrays.asList( ":=", "c", "-", "/", "a", "2", "_", "/", "b", "2" ) );
+                    break;
+            }
+        }
+        tokens.add( "@" );
+        tokens.add( "c" );
+        return tokens;
+    }
+
+    /**
+     * Join tokens into source text.
+     * @param tokens a program's tokens
+     * @return the tokens separated by spaces
+     */
+    public static String text( List< String > tokens ) {
+        return String.join( " ", tokens );
+    }
+}
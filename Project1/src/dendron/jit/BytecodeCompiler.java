@@ -0,0 +1,497 @@
+/*
+ * file: BytecodeCompiler.java
+ */
+
+package dendron.jit;
+
+import dendron.machine.InstructionReader;
+import dendron.machine.Machine;
+import dendron.machine.Opcode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Translate a Dendron machine program into a JVM class, so that HotSpot
+ * can optimize the whole program instead of interpreting it one
+ * Machine.Instruction at a time.
+ *
+ * The Dendron machine and the JVM are both stack machines, so each
+ * instruction becomes one or two bytecodes. Variables become local int
+ * slots, and temporaries become the local slots after them. Because Dendron programs have no jumps, the compiler knows the
+ * stack depth and which variables have been assigned at every instruction:
+ * a LOAD of an unassigned variable, or an instruction that would pop an
+ * empty stack, is compiled into a call that reports the error and the
+ * method ends there. Straight-line code also means that no StackMapTable
+ * is needed.
+ *
+ * The generated class is a subclass of {@link CompiledProgram}, defined
+ * by its own class loader so that it can be collected when no longer used.
+ *
+ * @author William J. Reid (wjr3714)
+ */
+public class BytecodeCompiler {
+
+    private static final String SUPER = "dendron/jit/CompiledProgram";
+    private static final String RUNTIME = "dendron/jit/JitRuntime";
+
+    /** The largest method body the JVM accepts */
+    private static final int MAX_CODE = 65535;
+
+    /** Local 0 is "this" and local 1 is the values array. */
+    private static final int FIRST_LOCAL = 2;
+
+    /** Used to give each generated class a unique name */
+    private static final AtomicInteger classCount = new AtomicInteger();
+
+    private final ConstantPool pool = new ConstantPool();
+    private final ByteArrayOutputStream codeBytes = new ByteArrayOutputStream();
+    private final DataOutputStream code = new DataOutputStream( codeBytes );
+
+    /** Variable name to slot number, in order of first STORE */
+    private final Map< String, Integer > slots = new LinkedHashMap<>();
+
+    /** The local slot of temporary 0: the slots before it hold variables */
+    private int firstTemp;
+
+    /** The temporaries that have been stored so far */
+    private final BitSet tempsStored = new BitSet();
+
+    /** The number of temporaries the program uses */
+    private int temps = 0;
+
+    private int depth = 0;
+    private int maxDepth = 0;
+
+    /** Instances only live for the duration of one compile call. */
+    private BytecodeCompiler() {}
+
+    /**
+     * Compile a program into a new JVM class and create an instance of it.
+     *
+     * @param program a list of Machine instructions
+     * @return the compiled program, ready to execute
+     * @throws IllegalArgumentException if the program is too large
+     *         to fit in a single JVM method, or has superinstructions
+     *         (see {@link dendron.machine.Superinstructions#expand})
+     */
+    public static CompiledProgram compile( List< Machine.Instruction > program ) {
+        for ( Machine.Instruction instr: program ) {
+            if ( instr.opcode() == Opcode.FUSED ) {
+                throw new IllegalArgumentException(
+                        "Expand fused programs before compiling them: " + instr );
+            }
+        }
+        String name = "dendron/jit/DendronProgram" + classCount.incrementAndGet();
+        BytecodeCompiler compiler = new BytecodeCompiler();
+        byte[] classFile;
+        try {
+            classFile = compiler.translate( name, program );
+        }
+        catch ( IOException ioe ) {
+            // Cannot happen when writing to a byte array
+            throw new IllegalStateException( ioe );
+        }
+
+        try {
+            Class< ? > generated =
+                    new Loader().define( name.replace( '/', '.' ), classFile );
+            CompiledProgram result = generated.asSubclass( CompiledProgram.class )
+                    .getDeclaredConstructor().newInstance();
+            result.init( compiler.slots.keySet().toArray( new String[ 0 ] ),
+                         compiler.depth );
+            return result;
+        }
+        catch ( ReflectiveOperationException roe ) {
+            throw new IllegalStateException( "Could not load generated class", roe );
+        }
+    }
+
+    /**
+     * Build the whole class file.
+     */
+    private byte[] translate( String className, List< Machine.Instruction > program )
+            throws IOException {
+        int thisClass = pool.classRef( className );
+        int superClass = pool.classRef( SUPER );
+        int superInit = pool.methodRef( SUPER, "<init>", "()V" );
+        int codeAttr = pool.utf8( "Code" );
+
+        firstTemp = FIRST_LOCAL + variableCount( program );
+        emitBody( program );
+        if ( codeBytes.size() > MAX_CODE || firstTemp + temps > 0xFFFF ) {
+            throw new IllegalArgumentException(
+                    "Program too large to compile into one JVM method" );
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream( bytes );
+        out.writeInt( 0xCAFEBABE );
+        out.writeShort( 0 );
+        out.writeShort( 52 );                      // Java 8 class file
+        int initName = pool.utf8( "<init>" );
+        int initDesc = pool.utf8( "()V" );
+        int runName = pool.utf8( "run" );
+        int runDesc = pool.utf8( "([I)V" );
+        pool.writeTo( out );
+        out.writeShort( 0x0001 | 0x0010 | 0x0020 );  // public final super
+        out.writeShort( thisClass );
+        out.writeShort( superClass );
+        out.writeShort( 0 );                       // interfaces
+        out.writeShort( 0 );                       // fields
+        out.writeShort( 2 );                       // methods
+
+        // public <init>() { super(); }
+        out.writeShort( 0x0001 );
+        out.writeShort( initName );
+        out.writeShort( initDesc );
+        out.writeShort( 1 );
+        out.writeShort( codeAttr );
+        out.writeInt( 12 + 5 );
+        out.writeShort( 1 );                       // max stack
+        out.writeShort( 1 );                       // max locals
+        out.writeInt( 5 );
+        out.writeByte( 0x2a );                     // aload_0
+        out.writeByte( 0xb7 );                     // invokespecial
+        out.writeShort( superInit );
+        out.writeByte( 0xb1 );                     // return
+        out.writeShort( 0 );
+        out.writeShort( 0 );
+
+        // protected void run( int[] values ) { ... }
+        out.writeShort( 0x0004 );
+        out.writeShort( runName );
+        out.writeShort( runDesc );
+        out.writeShort( 1 );
+        out.writeShort( codeAttr );
+        out.writeInt( 12 + codeBytes.size() );
+        out.writeShort( maxDepth );
+        out.writeShort( firstTemp + temps );
+        out.writeInt( codeBytes.size() );
+        codeBytes.writeTo( out );
+        out.writeShort( 0 );                       // exception table
+        out.writeShort( 0 );                       // attributes
+
+        out.writeShort( 0 );                       // class attributes
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Translate the instructions into the body of the run method.
+     */
+    private void emitBody( List< Machine.Instruction > program ) throws IOException {
+        for ( Machine.Instruction instr: program ) {
+            switch ( instr.opcode() ) {
+                case PUSH:
+                    pushInt( ( (Machine.PushConst) instr ).getValue() );
+                    grow( 1 );
+                    break;
+                case LOAD: {
+                    String name = ( (Machine.Load) instr ).getName();
+                    Integer slot = slots.get( name );
+                    if ( slot == null ) {
+                        loadConstant( pool.string( name ) );
+                        grow( 1 );
+                        invokeStatic( "uninitialized", "(Ljava/lang/String;)V" );
+                        code.writeByte( 0xb1 );    // return
+                        return;
+                    }
+                    local( 0x15, FIRST_LOCAL + slot ); // iload
+                    grow( 1 );
+                    break;
+                }
+                case STORE: {
+                    if ( !available( 1 ) ) return;
+                    String name = ( (Machine.Store) instr ).getName();
+                    Integer slot = slots.get( name );
+                    if ( slot == null ) {
+                        slot = slots.size();
+                        slots.put( name, slot );
+                    }
+                    local( 0x36, FIRST_LOCAL + slot ); // istore
+                    depth -= 1;
+                    break;
+                }
+                case ADD:
+                    if ( !available( 2 ) ) return;
+                    code.writeByte( 0x60 );        // iadd
+                    depth -= 1;
+                    break;
+                case SUB:
+                    if ( !available( 2 ) ) return;
+                    code.writeByte( 0x64 );        // isub
+                    depth -= 1;
+                    break;
+                case MUL:
+                    if ( !available( 2 ) ) return;
+                    code.writeByte( 0x68 );        // imul
+                    depth -= 1;
+                    break;
+                case DIV:
+                    if ( !available( 2 ) ) return;
+                    invokeStatic( "divide", "(II)I" );
+                    depth -= 1;
+                    break;
+                case NEG:
+                    if ( !available( 1 ) ) return;
+                    code.writeByte( 0x74 );        // ineg
+                    break;
+                case SQRT:
+                    if ( !available( 1 ) ) return;
+                    invokeStatic( "sqrt", "(I)I" );
+                    break;
+                case PRINT:
+                    if ( !available( 1 ) ) return;
+                    invokeStatic( "print", "(I)V" );
+                    depth -= 1;
+                    break;
+                case DUP:
+                    if ( !available( 1 ) ) return;
+                    code.writeByte( 0x59 );        // dup
+                    grow( 1 );
+                    break;
+                case TSTORE: {
+                    if ( !available( 1 ) ) return;
+                    int temp = ( (Machine.TempStore) instr ).getIndex();
+                    tempsStored.set( temp );
+                    temps = Math.max( temps, temp + 1 );
+                    local( 0x36, firstTemp + temp ); // istore
+                    depth -= 1;
+                    break;
+                }
+                case TLOAD: {
+                    int temp = ( (Machine.TempLoad) instr ).getIndex();
+                    if ( tempsStored.get( temp ) ) {
+                        local( 0x15, firstTemp + temp ); // iload
+                    }
+                    else {
+                        // Never stored: the Machine reads 0, and the
+                        // verifier rejects reading an unset local.
+                        pushInt( 0 );
+                    }
+                    grow( 1 );
+                    break;
+                }
+            }
+        }
+
+        // Copy the variables out for the symbol table dump.
+        int index = 0;
+        for ( int slot: slots.values() ) {
+            code.writeByte( 0x2b );                // aload_1
+            pushInt( index++ );
+            local( 0x15, FIRST_LOCAL + slot );     // iload
+            code.writeByte( 0x4f );                // iastore
+        }
+        maxDepth = Math.max( maxDepth, depth + 3 );
+        code.writeByte( 0xb1 );                    // return
+    }
+
+    /**
+     * Count the distinct variables a program stores, which is the number
+     * of local slots needed before the temporaries.
+     */
+    private static int variableCount( List< Machine.Instruction > program ) {
+        Set< String > names = new HashSet<>();
+        for ( Machine.Instruction instr: program ) {
+            if ( instr.opcode() == Opcode.STORE ) {
+                names.add( ( (Machine.Store) instr ).getName() );
+            }
+        }
+        return names.size();
+    }
+
+    /**
+     * Check that an instruction has enough operands. If not, emit
+     * the call that fails the way the Machine would, and end the method.
+     * @return true if there are enough values on the stack
+     */
+    private boolean available( int needed ) throws IOException {
+        if ( depth >= needed ) {
+            return true;
+        }
+        invokeStatic( "underflow", "()V" );
+        code.writeByte( 0xb1 );                    // return
+        return false;
+    }
+
+    private void grow( int pushed ) {
+        depth += pushed;
+        maxDepth = Math.max( maxDepth, depth );
+    }
+
+    private void pushInt( int value ) throws IOException {
+        if ( value >= -1 && value <= 5 ) {
+            code.writeByte( 0x03 + value );        // iconst_<n>
+        }
+        else if ( value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE ) {
+            code.writeByte( 0x10 );                // bipush
+            code.writeByte( value );
+        }
+        else if ( value >= Short.MIN_VALUE && value <= Short.MAX_VALUE ) {
+            code.writeByte( 0x11 );                // sipush
+            code.writeShort( value );
+        }
+        else {
+            loadConstant( pool.integer( value ) );
+        }
+    }
+
+    /** Emit ldc, or ldc_w when the constant pool index needs two bytes. */
+    private void loadConstant( int index ) throws IOException {
+        if ( index > 0xFF ) {
+            code.writeByte( 0x13 );
+            code.writeShort( index );
+        }
+        else {
+            code.writeByte( 0x12 );
+            code.writeByte( index );
+        }
+    }
+
+    /** Emit iload or istore, with the wide prefix when the slot needs it. */
+    private void local( int opcode, int slot ) throws IOException {
+        if ( slot > 0xFF ) {
+            code.writeByte( 0xc4 );                // wide
+            code.writeByte( opcode );
+            code.writeShort( slot );
+        }
+        else {
+            code.writeByte( opcode );
+            code.writeByte( slot );
+        }
+    }
+
+    private void invokeStatic( String name, String descriptor ) throws IOException {
+        code.writeByte( 0xb8 );                    // invokestatic
+        code.writeShort( pool.methodRef( RUNTIME, name, descriptor ) );
+    }
+
+    /**
+     * The constant pool of the class being generated.
+     * Entries are shared when the same constant is requested twice.
+     */
+    private static class ConstantPool {
+        private final Map< String, Integer > indices = new HashMap<>();
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream entries = new DataOutputStream( bytes );
+        private int count = 1;
+
+        int utf8( String s ) throws IOException {
+            Integer index = indices.get( "U" + s );
+            if ( index == null ) {
+                entries.writeByte( 1 );
+                entries.writeUTF( s );
+                index = add( "U" + s );
+            }
+            return index;
+        }
+
+        int integer( int value ) throws IOException {
+            Integer index = indices.get( "I" + value );
+            if ( index == null ) {
+                entries.writeByte( 3 );
+                entries.writeInt( value );
+                index = add( "I" + value );
+            }
+            return index;
+        }
+
+        int classRef( String name ) throws IOException {
+            Integer index = indices.get( "C" + name );
+            if ( index == null ) {
+                int nameIndex = utf8( name );
+                entries.writeByte( 7 );
+                entries.writeShort( nameIndex );
+                index = add( "C" + name );
+            }
+            return index;
+        }
+
+        int string( String s ) throws IOException {
+            Integer index = indices.get( "S" + s );
+            if ( index == null ) {
+                int utf = utf8( s );
+                entries.writeByte( 8 );
+                entries.writeShort( utf );
+                index = add( "S" + s );
+            }
+            return index;
+        }
+
+        int methodRef( String owner, String name, String descriptor )
+                throws IOException {
+            String key = "M" + owner + "." + name + descriptor;
+            Integer index = indices.get( key );
+            if ( index == null ) {
+                int ownerIndex = classRef( owner );
+                int nameIndex = utf8( name );
+                int descIndex = utf8( descriptor );
+                int nameAndType = nameAndType( nameIndex, descIndex );
+                entries.writeByte( 10 );           // Methodref
+                entries.writeShort( ownerIndex );
+                entries.writeShort( nameAndType );
+                index = add( key );
+            }
+            return index;
+        }
+
+        private int nameAndType( int nameIndex, int descIndex ) throws IOException {
+            String key = "N" + nameIndex + ":" + descIndex;
+            Integer index = indices.get( key );
+            if ( index == null ) {
+                entries.writeByte( 12 );
+                entries.writeShort( nameIndex );
+                entries.writeShort( descIndex );
+                index = add( key );
+            }
+            return index;
+        }
+
+        private int add( String key ) {
+            indices.put( key, count );
+            return count++;
+        }
+
+        void writeTo( DataOutputStream out ) throws IOException {
+            out.writeShort( count );
+            entries.flush();
+            bytes.writeTo( out );
+        }
+    }
+
+    /**
+     * A class loader that holds a single generated class.
+     */
+    private static class Loader extends ClassLoader {
+        Loader() {
+            super( BytecodeCompiler.class.getClassLoader() );
+        }
+
+        Class< ? > define( String name, byte[] classFile ) {
+            return defineClass( name, classFile, 0, classFile.length );
+        }
+    }
+
+    /**
+     * Assemble, compile and run some Dendron machine code.
+     * @param args the name of the assembly language source file
+     */
+    public static void main( String[] args ) {
+        if ( args.length != 1 ) {
+            System.err.println( "Usage: java BytecodeCompiler assembly-code-file" );
+            System.exit( 1 );
+        }
+        compile( InstructionReader.assemble( args[ 0 ] ) ).execute();
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * file: CompiledProgram.java
+ */
+
+package dendron.jit;
+
+import dendron.Errors;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The superclass of every JVM class generated by the {@link BytecodeCompiler}.
+ * A subclass's {@link #run(int[])} method holds the whole Dendron program,
+ * with each variable kept in a local int slot. This class supplies the
+ * surrounding behavior of Machine.execute: the start message, the report on
+ * the stack and the symbol table dump.
+ *
+ * @author William J. Reid (wjr3714)
+ */
+public abstract class CompiledProgram {
+
+    /** Names of the variables the program assigns, in order of first assignment. */
+    private String[] names = new String[ 0 ];
+
+    /** How many values the program leaves on the stack. */
+    private int leftOver;
+
+    /**
+     * Create the program. Only generated subclasses call this.
+     */
+    protected CompiledProgram() {}
+
+    /**
+     * Record what the compiler learned about the program.
+     * @param names the assigned variables, in order of first assignment
+     * @param leftOver the number of values left on the stack at the end
+     */
+    void init( String[] names, int leftOver ) {
+        this.names = names;
+        this.leftOver = leftOver;
+    }
+
+    /**
+     * The generated program body.
+     * @param values where the final value of each variable is written,
+     *               in the same order as the names given to init
+     */
+    protected abstract void run( int[] values );
+
+    /**
+     * Run the program with the same output as Machine.execute.
+     */
+    public void execute() {
+        int[] values = new int[ this.names.length ];
+        System.out.println( "Executing compiled code..." );
+        run( values );
+        System.out.println( "Machine: execution ended with " +
+                this.leftOver + " items left on the stack." );
+        System.out.println();
+        Map< String, Integer > table = new HashMap<>();
+        for ( int i = 0; i < this.names.length; ++i ) {
+            table.put( this.names[ i ], values[ i ] );
+        }
+        Errors.dump( table );
+    }
+}
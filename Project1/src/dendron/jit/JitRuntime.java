@@ -0,0 +1,70 @@
+/*
+ * file: JitRuntime.java
+ */
+
+package dendron.jit;
+
+import dendron.Errors;
+import dendron.machine.NumericMode;
+
+import java.util.EmptyStackException;
+
+/**
+ * Helper operations called from generated code. Each one matches
+ * the behavior of the corresponding Machine instruction, including
+ * its error reports. They are small enough for HotSpot to inline.
+ *
+ * @author William J. Reid (wjr3714)
+ */
+public class JitRuntime {
+
+    /** Do not instantiate this class. */
+    private JitRuntime() {}
+
+    /**
+     * The PRINT instruction.
+     * @param value the value to display
+     */
+    public static void print( int value ) {
+        System.out.println( "*** " + value );
+    }
+
+    /**
+     * The DIV instruction, reporting division by zero.
+     * @param op1 the dividend
+     * @param op2 the divisor
+     * @return the quotient
+     */
+    public static int divide( int op1, int op2 ) {
+        if ( op2 == 0 ) {
+            String info = "Cannot divide by zero \n" + op1 + " / " + op2 ;
+            Errors.report( Errors.Type.DIVIDE_BY_ZERO, info );
+        }
+        return op1 / op2;
+    }
+
+    /**
+     * The SQRT instruction. Same arithmetic as Machine.SquareRoot.
+     * @param value the operand
+     * @return the integer square root, or 0 for a negative operand
+     */
+    public static int sqrt( int value ) {
+        return NumericMode.squareRoot( value );
+    }
+
+    /**
+     * Report a LOAD of a variable that has not been assigned yet.
+     * @param name the variable's name
+     */
+    public static void uninitialized( String name ) {
+        String info = name + " has not been initialized.";
+        Errors.report( Errors.Type.UNINITIALIZED, info );
+    }
+
+    /**
+     * Fail the way the Machine does when an instruction pops an empty stack.
+     */
+    public static void underflow() {
+        throw new EmptyStackException();
+    }
+}
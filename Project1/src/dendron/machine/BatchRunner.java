@@ -0,0 +1,256 @@
+/*
+ * file: BatchRunner.java
+ */
+
+package dendron.machine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import dendron.Errors;
+
+/**
+ * Runs many Dendron machine programs at once on a fixed pool of
+ * threads. Every program gets its own {@link Machine} (or FastMachine)
+ * and its own output buffer, so programs cannot see each other's
+ * variables and their output is not interleaved. When all are done the
+ * buffers are printed in the order the files were given, followed by
+ * the batch's throughput.
+ *
+ * An error that would normally stop the Java virtual machine only ends
+ * the program that caused it; the message is added to that program's
+ * output.
+ *
+ * @author William J. Reid (wjr3714)
+ */
+public class BatchRunner {
+
+    /**
+     * What running one program produced.
+     */
+    public static class Result {
+        private final String file;
+        private final String output;
+        private final int instructions;
+        private final boolean failed;
+
+        private Result( String file, String output, int instructions, boolean failed ) {
+            this.file = file;
+            this.output = output;
+            this.instructions = instructions;
+            this.failed = failed;
+        }
+
+        /**
+         * @return the program's file name
+         */
+        public String getFile() {
+            return this.file;
+        }
+
+        /**
+         * @return everything the program printed, including the final
+         *         report or the error that stopped it
+         */
+        public String getOutput() {
+            return this.output;
+        }
+
+        /**
+         * @return the number of instructions in the program
+         */
+        public int getInstructions() {
+            return this.instructions;
+        }
+
+        /**
+         * @return true if the program could not be loaded or ended
+         *         with an error
+         */
+        public boolean isFailed() {
+            return this.failed;
+        }
+    }
+
+    /** The threads the programs run on */
+    private final int threads;
+
+    /** The engine each program is run on */
+    private final Machine.Engine engine;
+
+    /**
+     * Create a batch runner.
+     * @param threads how many programs may run at the same time
+     * @param engine the execution engine to use
+     */
+    public BatchRunner( int threads, Machine.Engine engine ) {
+        this.threads = threads;
+        this.engine = engine;
+    }
+
+    /**
+     * Run a set of programs and wait for all of them to finish.
+     * @param files text (.denm) or binary ({@value BinaryInstructions#EXTENSION})
+     *              programs
+     * @return one Result per file, in the same order as the files
+     */
+    public List< Result > run( List< File > files ) {
+        ExecutorService pool = Executors.newFixedThreadPool( this.threads );
+        try {
+            List< Future< Result > > pending = new ArrayList<>( files.size() );
+            for ( File file: files ) {
+                pending.add( pool.submit( () -> runOne( file ) ) );
+            }
+            List< Result > results = new ArrayList<>( files.size() );
+            for ( Future< Result > future: pending ) {
+                results.add( future.get() );
+            }
+            return results;
+        }
+        catch ( InterruptedException ie ) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException( "Batch run interrupted", ie );
+        }
+        catch ( ExecutionException ee ) {
+            throw new IllegalStateException( "Batch run failed", ee.getCause() );
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Load and run one program, capturing what it prints.
+     * Runs on a pool thread.
+     */
+    private Result runOne( File file ) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream( buffer, false, StandardCharsets.UTF_8 );
+        Errors.setThrowOnReport( true );
+        int size = 0;
+        boolean failed = false;
+        try {
+            List< Machine.Instruction > program = load( file, out );
+            size = program.size();
+            Machine.execute( program, this.engine, out );
+        }
+        catch ( IOException ioe ) {
+            out.println( "Could not load " + file + ": " + ioe.getMessage() );
+            failed = true;
+        }
+        catch ( Errors.DendronAbort abort ) {
+            out.println( abort.getMessage() );
+            failed = true;
+        }
+        catch ( RuntimeException fault ) {
+            // e.g. an EmptyStackException from a malformed program
+            out.println( fault );
+            failed = true;
+        }
+        finally {
+            Errors.setThrowOnReport( false );
+        }
+        out.flush();
+        return new Result( file.getPath(), buffer.toString( StandardCharsets.UTF_8 ),
+                size, failed );
+    }
+
+    /**
+     * Read a text or binary program, reporting problems with a text
+     * program to that program's own output.
+     */
+    private static List< Machine.Instruction > load( File file, PrintStream out )
+            throws IOException {
+        if ( file.getName().endsWith( BinaryInstructions.EXTENSION ) ) {
+            return BinaryInstructions.load( file.toPath() );
+        }
+        List< Machine.Instruction > program = InstructionReader.assemble( file.getPath(), out );
+        if ( program == null ) {
+            throw new IOException( "cannot read file" );
+        }
+        return new ArrayList<>( program );
+    }
+
+    /**
+     * Run a batch of programs and report on them.
+     * @param args [-t threads] [-e legacy|fast] followed by program files
+     *             or directories of .denm and {@value BinaryInstructions#EXTENSION} files
+     */
+    public static void main( String[] args ) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        Machine.Engine engine = Machine.Engine.getDefault();
+        int next = 0;
+        try {
+            while ( next + 1 < args.length && args[ next ].startsWith( "-" ) ) {
+                if ( args[ next ].equals( "-t" ) ) {
+                    threads = Integer.parseInt( args[ next + 1 ] );
+                }
+                else if ( args[ next ].equals( "-e" ) ) {
+                    engine = Machine.Engine.forName( args[ next + 1 ] );
+                }
+                else {
+                    break;
+                }
+                next += 2;
+            }
+        }
+        catch ( NumberFormatException nfe ) {
+            threads = 0;
+        }
+        if ( next == args.length || threads < 1 ) {
+            System.err.println( "Usage: java BatchRunner [-t threads] [-e legacy|fast] " +
+                    "program-file-or-directory..." );
+            System.exit( 1 );
+        }
+        // Checked here rather than failing every program in the batch
+        if ( !engine.supports( NumericMode.getDefault() ) ) {
+            System.err.println( "The " + engine + " engine cannot run the "
+                    + NumericMode.getDefault() + " numeric mode; use -e fast" );
+            System.exit( 1 );
+        }
+
+        List< File > files = new ArrayList<>();
+        for ( String arg: Arrays.copyOfRange( args, next, args.length ) ) {
+            File file = new File( arg );
+            File[] listing = file.listFiles( ( dir, name ) ->
+                    name.endsWith( ".denm" ) || name.endsWith( BinaryInstructions.EXTENSION ) );
+            if ( listing != null ) {
+                Arrays.sort( listing );
+                files.addAll( Arrays.asList( listing ) );
+            }
+            else {
+                files.add( file );
+            }
+        }
+
+        long start = System.nanoTime();
+        List< Result > results = new BatchRunner( threads, engine ).run( files );
+        double seconds = ( System.nanoTime() - start ) / 1e9;
+
+        long instructions = 0;
+        int failures = 0;
+        for ( Result result: results ) {
+            System.out.println( "==== " + result.getFile() +
+                    ( result.isFailed() ? " (failed)" : "" ) );
+            System.out.print( result.getOutput() );
+            instructions += result.getInstructions();
+            if ( result.isFailed() ) {
+                ++failures;
+            }
+        }
+        System.out.printf( "%nRan %d programs (%d failed, %d instructions) " +
+                        "on %d threads, %s engine, in %.3f s%n",
+                results.size(), failures, instructions, threads, engine, seconds );
+        System.out.printf( "Throughput: %.1f programs/s, %.0f instructions/s%n",
+                results.size() / seconds, instructions / seconds );
+    }
+}
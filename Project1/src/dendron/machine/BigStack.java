@@ -0,0 +1,214 @@
+/*
+ * file: BigStack.java
+ */
+
+package dendron.machine;
+
+import dendron.Errors;
+
+import java.io.PrintStream;
+import java.math.BigInteger;
+import java.util.EmptyStackException;
+
+import static dendron.machine.FastMachine.*;
+
+/**
+ * The values of a run in {@link NumericMode#BIG}: values of any size, so
+ * no result ever overflows. Every arithmetic result is a new BigInteger;
+ * this cost is only paid by programs run in this mode.
+ *
+ * @see FastMachine
+ *
+ * @author William J. Reid (wjr3714)
+ */
+final class BigStack extends ValueStack {
+
+    private final BigInteger[] stack;
+    private final BigInteger[] vars;
+    private final BigInteger[] temps;
+
+    /**
+     * Create an empty stack.
+     * @param depth the most values the program ever has on the stack
+     * @param vars the number of variable slots
+     * @param temps the number of temporaries
+     */
+    BigStack( int depth, int vars, int temps ) {
+        this.stack = new BigInteger[ depth ];
+        this.vars = new BigInteger[ vars ];
+        this.temps = new BigInteger[ temps ];
+    }
+
+    /**
+     * Run a lowered program without profiling, then report on the final
+     * size of the stack and the contents of the symbol table. The
+     * operations are written out here over arrays and a stack pointer
+     * that are local to the loop, which lets the JIT compiler keep the
+     * pointer in a register and know that the arrays are distinct; the
+     * methods below, which the profiling loop calls, are slower.
+     * @param program the lowered program
+     * @param out where the program's output and final report are written
+     */
+    static void run( FastMachine program, PrintStream out ) {
+        int[] ops = program.ops;
+        int[] args = program.args;
+        BigInteger[] stack = new BigInteger[ program.maxDepth ];
+        BigInteger[] vars = new BigInteger[ program.names.length ];
+        BigInteger[] temps = new BigInteger[ program.temps ];
+        boolean[] defined = new boolean[ program.names.length ];
+        int sp = 0;
+
+        out.println( "Executing compiled code..." );
+        for ( int pc = 0; pc < ops.length; ++pc ) {
+            switch ( ops[ pc ] ) {
+                case PUSH:
+                    stack[ sp++ ] = BigInteger.valueOf( args[ pc ] );
+                    break;
+                case LOAD: {
+                    int slot = args[ pc ];
+                    if ( !defined[ slot ] ) {
+                        program.uninitialized( slot );
+                    }
+                    stack[ sp++ ] = vars[ slot ];
+                    break;
+                }
+                case STORE: {
+                    int slot = args[ pc ];
+                    vars[ slot ] = stack[ --sp ];
+                    defined[ slot ] = true;
+                    break;
+                }
+                case ADD:
+                    --sp;
+                    stack[ sp - 1 ] = stack[ sp - 1 ].add( stack[ sp ] );
+                    break;
+                case SUB:
+                    --sp;
+                    stack[ sp - 1 ] = stack[ sp - 1 ].subtract( stack[ sp ] );
+                    break;
+                case MUL:
+                    --sp;
+                    stack[ sp - 1 ] = stack[ sp - 1 ].multiply( stack[ sp ] );
+                    break;
+                case DIV: {
+                    BigInteger op2 = stack[ --sp ];
+                    BigInteger op1 = stack[ sp - 1 ];
+                    if ( op2.signum() == 0 ) {
+                        String info = "Cannot divide by zero \n" + op1 + " / " + op2 ;
+                        Errors.report( Errors.Type.DIVIDE_BY_ZERO, info );
+                    }
+                    stack[ sp - 1 ] = op1.divide( op2 );
+                    break;
+                }
+                case NEG:
+                    stack[ sp - 1 ] = stack[ sp - 1 ].negate();
+                    break;
+                case SQRT:
+                    stack[ sp - 1 ] = NumericMode.squareRoot( stack[ sp - 1 ] );
+                    break;
+                case PRINT:
+                    out.println( "*** " + stack[ --sp ] );
+                    break;
+                case DUP:
+                    stack[ sp ] = stack[ sp - 1 ];
+                    ++sp;
+                    break;
+                case TSTORE:
+                    temps[ args[ pc ] ] = stack[ --sp ];
+                    break;
+                case TLOAD: {
+                    // A temporary that was never stored holds 0, as in the other modes
+                    BigInteger value = temps[ args[ pc ] ];
+                    stack[ sp++ ] = value == null ? BigInteger.ZERO : value;
+                    break;
+                }
+                default:
+                    throw new EmptyStackException();
+            }
+        }
+        program.finish( out, sp,
+                ValueStack.symbolTable( program.names, defined, slot -> vars[ slot ] ) );
+    }
+
+    @Override
+    void push( int constant ) {
+        this.stack[ this.sp++ ] = BigInteger.valueOf( constant );
+    }
+
+    @Override
+    void load( int slot ) {
+        this.stack[ this.sp++ ] = this.vars[ slot ];
+    }
+
+    @Override
+    void store( int slot ) {
+        this.vars[ slot ] = this.stack[ --this.sp ];
+    }
+
+    @Override
+    void loadTemp( int temp ) {
+        // A temporary that was never stored holds 0, as in the other modes
+        BigInteger value = this.temps[ temp ];
+        this.stack[ this.sp++ ] = value == null ? BigInteger.ZERO : value;
+    }
+
+    @Override
+    void storeTemp( int temp ) {
+        this.temps[ temp ] = this.stack[ --this.sp ];
+    }
+
+    @Override
+    void duplicate() {
+        this.stack[ this.sp ] = this.stack[ this.sp - 1 ];
+        ++this.sp;
+    }
+
+    @Override
+    void add() {
+        BigInteger op2 = this.stack[ --this.sp ];
+        this.stack[ this.sp - 1 ] = this.stack[ this.sp - 1 ].add( op2 );
+    }
+
+    @Override
+    void subtract() {
+        BigInteger op2 = this.stack[ --this.sp ];
+        this.stack[ this.sp - 1 ] = this.stack[ this.sp - 1 ].subtract( op2 );
+    }
+
+    @Override
+    void multiply() {
+        BigInteger op2 = this.stack[ --this.sp ];
+        this.stack[ this.sp - 1 ] = this.stack[ this.sp - 1 ].multiply( op2 );
+    }
+
+    @Override
+    void divide() {
+        BigInteger op2 = this.stack[ --this.sp ];
+        BigInteger op1 = this.stack[ this.sp - 1 ];
+        if ( op2.signum() == 0 ) {
+            String info = "Cannot divide by zero \n" + op1 + " / " + op2 ;
+            Errors.report( Errors.Type.DIVIDE_BY_ZERO, info );
+        }
+        this.stack[ this.sp - 1 ] = op1.divide( op2 );
+    }
+
+    @Override
+    void negate() {
+        this.stack[ this.sp - 1 ] = this.stack[ this.sp - 1 ].negate();
+    }
+
+    @Override
+    void squareRoot() {
+        this.stack[ this.sp - 1 ] = NumericMode.squareRoot( this.stack[ this.sp - 1 ] );
+    }
+
+    @Override
+    void print( PrintStream out ) {
+        out.println( "*** " + this.stack[ --this.sp ] );
+    }
+
+    @Override
+    Number get( int slot ) {
+        return this.vars[ slot ];
+    }
+}
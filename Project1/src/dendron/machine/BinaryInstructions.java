@@ -0,0 +1,294 @@
+/*
+ * file: BinaryInstructions.java
+ */
+
+package dendron.machine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact binary form for Dendron machine programs, as an alternative
+ * to the text listings read by {@link InstructionReader}.
+ *
+ * Layout:
+ * <ul>
+ *     <li>the magic bytes "DENB" and a version byte</li>
+ *     <li>the variable name table: a count, then each name as a
+ *         length and its UTF-8 bytes</li>
+ *     <li>the instruction count, then each instruction as its opcode
+ *         byte, followed for PUSH by the constant, for LOAD and STORE
+ *         by an index into the name table, and for TLOAD and TSTORE by
+ *         the temporary's number</li>
+ * </ul>
+ * Counts, lengths and indices are unsigned varints (7 bits per byte);
+ * constants are zigzag-encoded varints so small negatives stay short.
+ *
+ * Loading maps the file into memory and decodes it in place. Each
+ * variable name is decoded once, and since instructions carry no state
+ * of their own a single LOAD or STORE object is shared for each name.
+ *
+ * @author William J. Reid (wjr3714)
+ */
+public class BinaryInstructions {
+
+    /** The file name extension for binary programs */
+    public static final String EXTENSION = ".denb";
+
+    private static final byte[] MAGIC = { 'D', 'E', 'N', 'B' };
+    private static final int VERSION = 1;
+
+    /** Do not instantiate this class. */
+    private BinaryInstructions() {}
+
+    /**
+     * Convert a program to the binary form.
+     * @param program a list of Machine instructions
+     * @return the encoded program
+     * @throws IllegalArgumentException if the program has superinstructions
+     * @see Superinstructions#expand
+     */
+    public static byte[] encode( List< Machine.Instruction > program ) {
+        Map< String, Integer > names = new HashMap<>();
+        List< String > table = new ArrayList<>();
+        ByteArrayOutputStream body = new ByteArrayOutputStream( program.size() * 2 );
+        writeVarint( body, program.size() );
+        for ( Machine.Instruction instr: program ) {
+            Opcode op = instr.opcode();
+            if ( op == Opcode.FUSED ) {
+                throw new IllegalArgumentException(
+                        "Expand fused programs before encoding them: " + instr );
+            }
+            body.write( op.ordinal() );
+            switch ( op ) {
+                case PUSH: {
+                    int value = ( (Machine.PushConst) instr ).getValue();
+                    writeVarint( body, ( value << 1 ) ^ ( value >> 31 ) );
+                    break;
+                }
+                case LOAD:
+                    writeVarint( body, index( names, table, ( (Machine.Load) instr ).getName() ) );
+                    break;
+                case STORE:
+                    writeVarint( body, index( names, table, ( (Machine.Store) instr ).getName() ) );
+                    break;
+                case TSTORE:
+                    writeVarint( body, ( (Machine.TempStore) instr ).getIndex() );
+                    break;
+                case TLOAD:
+                    writeVarint( body, ( (Machine.TempLoad) instr ).getIndex() );
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream( body.size() + 64 );
+        out.write( MAGIC, 0, MAGIC.length );
+        out.write( VERSION );
+        writeVarint( out, table.size() );
+        for ( String name: table ) {
+            byte[] bytes = name.getBytes( StandardCharsets.UTF_8 );
+            writeVarint( out, bytes.length );
+            out.write( bytes, 0, bytes.length );
+        }
+        byte[] instructions = body.toByteArray();
+        out.write( instructions, 0, instructions.length );
+        return out.toByteArray();
+    }
+
+    /**
+     * Write a program to a file in binary form.
+     * @param program a list of Machine instructions
+     * @param file where to write it
+     * @throws IOException if the file cannot be written
+     */
+    public static void write( List< Machine.Instruction > program, Path file )
+            throws IOException {
+        Files.write( file, encode( program ) );
+    }
+
+    /**
+     * Read a binary program by memory-mapping the file.
+     * @param file the binary program
+     * @return a list of Machine.Instruction objects, ready to execute
+     * @throws IOException if the file cannot be read or is not
+     *         a binary Dendron program
+     */
+    public static List< Machine.Instruction > load( Path file ) throws IOException {
+        try ( FileChannel channel = FileChannel.open( file, StandardOpenOption.READ ) ) {
+            return decode( channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() ) );
+        }
+    }
+
+    /**
+     * Decode a program in binary form.
+     * @param in the encoded program, positioned at its start
+     * @return a list of Machine.Instruction objects, ready to execute
+     * @throws IOException if the data is not a binary Dendron program
+     */
+    public static List< Machine.Instruction > decode( ByteBuffer in ) throws IOException {
+        try {
+            for ( byte b: MAGIC ) {
+                if ( in.get() != b ) {
+                    throw new IOException( "Not a binary Dendron program" );
+                }
+            }
+            int version = in.get();
+            if ( version != VERSION ) {
+                throw new IOException( "Unsupported binary program version " + version );
+            }
+
+            int nameCount = readVarint( in );
+            Machine.Load[] loads = new Machine.Load[ nameCount ];
+            Machine.Store[] stores = new Machine.Store[ nameCount ];
+            for ( int i = 0; i < nameCount; ++i ) {
+                byte[] bytes = new byte[ readVarint( in ) ];
+                in.get( bytes );
+                String name = new String( bytes, StandardCharsets.UTF_8 );
+                loads[ i ] = new Machine.Load( name );
+                stores[ i ] = new Machine.Store( name );
+            }
+
+            Opcode[] opcodes = Opcode.values();
+            Machine.Instruction[] nullary = new Machine.Instruction[ opcodes.length ];
+            for ( Opcode op: opcodes ) {
+                nullary[ op.ordinal() ] = operandFree( op );
+            }
+
+            int count = readVarint( in );
+            List< Machine.Instruction > program = new ArrayList<>( count );
+            for ( int i = 0; i < count; ++i ) {
+                int code = in.get() & 0xFF;
+                if ( code >= opcodes.length || opcodes[ code ] == Opcode.FUSED ) {
+                    throw new IOException( "Illegal opcode " + code );
+                }
+                switch ( opcodes[ code ] ) {
+                    case PUSH: {
+                        int zigzag = readVarint( in );
+                        program.add( new Machine.PushConst( ( zigzag >>> 1 ) ^ -( zigzag & 1 ) ) );
+                        break;
+                    }
+                    case LOAD:
+                        program.add( loads[ readVarint( in ) ] );
+                        break;
+                    case STORE:
+                        program.add( stores[ readVarint( in ) ] );
+                        break;
+                    case TSTORE:
+                        program.add( new Machine.TempStore( readVarint( in ) ) );
+                        break;
+                    case TLOAD:
+                        program.add( new Machine.TempLoad( readVarint( in ) ) );
+                        break;
+                    default:
+                        program.add( nullary[ code ] );
+                        break;
+                }
+            }
+            return program;
+        }
+        catch ( RuntimeException badData ) {
+            // Truncated buffer or a name index out of range
+            throw new IOException( "Corrupt binary Dendron program", badData );
+        }
+    }
+
+    /**
+     * Create the instruction for an opcode that has no operand.
+     * @return the instruction, or null for an opcode with an operand
+     */
+    private static Machine.Instruction operandFree( Opcode op ) {
+        switch ( op ) {
+            case ADD: return new Machine.Add();
+            case SUB: return new Machine.Subtract();
+            case MUL: return new Machine.Multiply();
+            case DIV: return new Machine.Divide();
+            case NEG: return new Machine.Negate();
+            case SQRT: return new Machine.SquareRoot();
+            case PRINT: return new Machine.Print();
+            case DUP: return new Machine.Duplicate();
+            default: return null;
+        }
+    }
+
+    /**
+     * Find the name table index for a variable, adding it if it is new.
+     */
+    private static int index( Map< String, Integer > names, List< String > table, String name ) {
+        Integer index = names.get( name );
+        if ( index == null ) {
+            index = table.size();
+            names.put( name, index );
+            table.add( name );
+        }
+        return index;
+    }
+
+    private static void writeVarint( ByteArrayOutputStream out, int value ) {
+        while ( ( value & ~0x7F ) != 0 ) {
+            out.write( ( value & 0x7F ) | 0x80 );
+            value >>>= 7;
+        }
+        out.write( value );
+    }
+
+    private static int readVarint( ByteBuffer in ) {
+        int value = 0;
+        for ( int shift = 0; shift < 35; shift += 7 ) {
+            byte b = in.get();
+            value |= ( b & 0x7F ) << shift;
+            if ( b >= 0 ) {
+                return value;
+            }
+        }
+        throw new IllegalStateException( "Malformed varint" );
+    }
+
+    /**
+     * Convert between text listings and binary programs. A file ending in
+     * {@value #EXTENSION} is converted to text; any other file is assembled
+     * and converted to binary.
+     * @param args the input file and the output file
+     */
+    public static void main( String[] args ) {
+        if ( args.length != 2 ) {
+            System.err.println( "Usage: java BinaryInstructions input-file output-file" );
+            System.exit( 1 );
+        }
+        try {
+            if ( args[ 0 ].endsWith( EXTENSION ) ) {
+                List< Machine.Instruction > program = load( Paths.get( args[ 0 ] ) );
+                try ( PrintWriter out = new PrintWriter(
+                        Files.newBufferedWriter( Paths.get( args[ 1 ] ) ) ) ) {
+                    for ( Machine.Instruction instr: program ) {
+                        out.println( instr );
+                    }
+                }
+            }
+            else {
+                List< Machine.Instruction > program = InstructionReader.assemble( args[ 0 ] );
+                if ( program == null ) {
+                    System.exit( 1 );
+                }
+                write( program, Paths.get( args[ 1 ] ) );
+            }
+        }
+        catch ( IOException ioe ) {
+            System.err.println( "Could not convert " + args[ 0 ] + ": " + ioe.getMessage() );
+            System.exit( 1 );
+        }
+    }
+}
@@ -0,0 +1,347 @@
+/*
+ * file: FastMachine.java
+ */
+
+package dendron.machine;
+
+import dendron.Errors;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.EmptyStackException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact form of a Dendron machine program, and the engine that runs it.
+ * The Machine.Instruction list is lowered once into parallel int arrays of
+ * opcodes and operands. Variables are resolved to slots at load time, and
+ * the value stack is a plain int array sized from the program itself, so
+ * execution does no boxing, hashing or locking.
+ *
+ * Output is identical to that of {@link Machine#execute(List)}.
+ *
+ * @see Machine.Engine
+ *
+ * @author William J. Reid (wjr3714)
+ */
+public class FastMachine {
+
+    // Lowered operation codes (kept as int constants so they can be switch labels),
+    // shared with the loops of the ValueStacks
+    static final int PUSH = 0;
+    static final int LOAD = 1;
+    static final int STORE = 2;
+    static final int ADD = 3;
+    static final int SUB = 4;
+    static final int MUL = 5;
+    static final int DIV = 6;
+    static final int NEG = 7;
+    static final int SQRT = 8;
+    static final int PRINT = 9;
+
+    static final int DUP = 10;
+
+    /** Raised where the legacy Machine would pop an empty stack. */
+    static final int UNDERFLOW = 11;
+
+    static final int TSTORE = 12;
+    static final int TLOAD = 13;
+
+    /** The Opcode of each lowered operation code, for profiling. */
+    private static final Opcode[] OPCODES = {
+            Opcode.PUSH, Opcode.LOAD, Opcode.STORE, Opcode.ADD, Opcode.SUB,
+            Opcode.MUL, Opcode.DIV, Opcode.NEG, Opcode.SQRT, Opcode.PRINT,
+            Opcode.DUP, null, Opcode.TSTORE, Opcode.TLOAD };
+
+    /** The operation code of each instruction. */
+    final int[] ops;
+
+    /**
+     * The operand of each instruction: a constant for PUSH, a slot for
+     * LOAD/STORE, a temporary's number for TLOAD/TSTORE.
+     */
+    final int[] args;
+
+    /** The variable name belonging to each slot, in order of first appearance. */
+    final String[] names;
+
+    /** The largest number of values ever on the stack. */
+    final int maxDepth;
+
+    /** The number of temporaries the program uses. */
+    final int temps;
+
+    /**
+     * Create a lowered program. Use {@link #lower(List)}.
+     */
+    private FastMachine( int[] ops, int[] args, String[] names, int maxDepth, int temps ) {
+        this.ops = ops;
+        this.args = args;
+        this.names = names;
+        this.maxDepth = maxDepth;
+        this.temps = temps;
+    }
+
+    /**
+     * Translate a list of Machine instructions to the compact form.
+     * Since Dendron programs have no jumps, the stack depth at every
+     * instruction is known here, so no bounds checks are needed at run time.
+     *
+     * @param program a list of Machine instructions
+     * @return the lowered program, ready to execute
+     * @throws IllegalArgumentException if the program has superinstructions
+     * @see Superinstructions#expand
+     */
+    public static FastMachine lower( List< Machine.Instruction > program ) {
+        int[] ops = new int[ program.size() ];
+        int[] args = new int[ program.size() ];
+        Map< String, Integer > slots = new HashMap<>();
+        int depth = 0;
+        int maxDepth = 0;
+        int temps = 0;
+        int pc = 0;
+
+        for ( Machine.Instruction instr: program ) {
+            Opcode opcode = instr.opcode();
+            int op;
+            switch ( opcode ) {
+                case PUSH:
+                    op = PUSH;
+                    args[ pc ] = ( (Machine.PushConst) instr ).getValue();
+                    break;
+                case LOAD:
+                    op = LOAD;
+                    args[ pc ] = slot( slots, ( (Machine.Load) instr ).getName() );
+                    break;
+                case STORE:
+                    op = STORE;
+                    args[ pc ] = slot( slots, ( (Machine.Store) instr ).getName() );
+                    break;
+                case ADD: op = ADD; break;
+                case SUB: op = SUB; break;
+                case MUL: op = MUL; break;
+                case DIV: op = DIV; break;
+                case NEG: op = NEG; break;
+                case SQRT: op = SQRT; break;
+                case DUP: op = DUP; break;
+                case TSTORE:
+                    op = TSTORE;
+                    args[ pc ] = ( (Machine.TempStore) instr ).getIndex();
+                    temps = Math.max( temps, args[ pc ] + 1 );
+                    break;
+                case TLOAD:
+                    op = TLOAD;
+                    args[ pc ] = ( (Machine.TempLoad) instr ).getIndex();
+                    temps = Math.max( temps, args[ pc ] + 1 );
+                    break;
+                case FUSED:
+                    throw new IllegalArgumentException(
+                            "Expand fused programs before lowering them: " + instr );
+                default: op = PRINT; break;
+            }
+
+            // The rest of the program can never run; stop where the legacy machine would fail.
+            if ( depth < opcode.getPops() ) {
+                ops[ pc++ ] = UNDERFLOW;
+                break;
+            }
+            ops[ pc++ ] = op;
+            depth += opcode.getPushes() - opcode.getPops();
+            maxDepth = Math.max( maxDepth, depth );
+        }
+
+        String[] names = new String[ slots.size() ];
+        for ( Map.Entry< String, Integer > entry: slots.entrySet() ) {
+            names[ entry.getValue() ] = entry.getKey();
+        }
+        return new FastMachine( Arrays.copyOf( ops, pc ),
+                Arrays.copyOf( args, pc ), names, maxDepth, temps );
+    }
+
+    /**
+     * Find the slot for a variable, assigning the next one if it is new.
+     */
+    private static int slot( Map< String, Integer > slots, String name ) {
+        Integer slot = slots.get( name );
+        if ( slot == null ) {
+            slot = slots.size();
+            slots.put( name, slot );
+        }
+        return slot;
+    }
+
+    /**
+     * Get the number of instructions in the lowered program.
+     * @return the instruction count
+     */
+    public int size() {
+        return this.ops.length;
+    }
+
+    /**
+     * Run the lowered program, reporting the final size of the stack
+     * and the contents of the symbol table just as Machine.execute does.
+     */
+    public void execute() {
+        execute( System.out );
+    }
+
+    /**
+     * Run the lowered program with its output going to a given stream.
+     * All run-time state is local to the call, so one lowered program
+     * may be run by several threads at once.
+     * @param out where the program's output and final report are written
+     */
+    public void execute( PrintStream out ) {
+        execute( out, (Profile) null );
+    }
+
+    /**
+     * Run the lowered program with the given kind of arithmetic.
+     * @param mode the kind of arithmetic to use
+     * @param out where the program's output and final report are written
+     */
+    public void execute( NumericMode mode, PrintStream out ) {
+        execute( mode, out, null );
+    }
+
+    /**
+     * Run the lowered program with its output going to a given stream,
+     * optionally recording a profile that is printed after the symbol
+     * table.
+     * @param out where the program's output and final report are written
+     * @param profile where to record the profile, or null not to profile
+     */
+    public void execute( PrintStream out, Profile profile ) {
+        execute( NumericMode.INT, out, profile );
+    }
+
+    /**
+     * Run the lowered program with the given kind of arithmetic,
+     * optionally recording a profile. An unprofiled run uses the loop
+     * written out for the mode's {@link ValueStack}, so it pays nothing
+     * for profiling or for the other modes.
+     * @param mode the kind of arithmetic to use
+     * @param out where the program's output and final report are written
+     * @param profile where to record the profile, or null not to profile
+     */
+    public void execute( NumericMode mode, PrintStream out, Profile profile ) {
+        if ( profile != null ) {
+            profile( ValueStack.create( mode, this ), out, profile );
+            return;
+        }
+        switch ( mode ) {
+            case CHECKED_INT:
+                CheckedIntStack.run( this, out );
+                break;
+            case LONG:
+                LongStack.run( this, out );
+                break;
+            case BIG:
+                BigStack.run( this, out );
+                break;
+            default:
+                IntStack.run( this, out );
+                break;
+        }
+    }
+
+    /**
+     * Run the lowered program, timing each instruction. This one loop
+     * serves every mode, leaving the operations to the mode's stack.
+     */
+    private void profile( ValueStack values, PrintStream out, Profile profile ) {
+        boolean[] defined = new boolean[ this.names.length ];
+
+        out.println( "Executing compiled code..." );
+        for ( int pc = 0; pc < this.ops.length; ++pc ) {
+            int op = this.ops[ pc ];
+            if ( op == LOAD ) {
+                profile.read( this.names[ this.args[ pc ] ] );
+            }
+            else if ( op == STORE ) {
+                profile.write( this.names[ this.args[ pc ] ] );
+            }
+            long start = System.nanoTime();
+            switch ( op ) {
+                case PUSH:
+                    values.push( this.args[ pc ] );
+                    break;
+                case LOAD: {
+                    int slot = this.args[ pc ];
+                    if ( !defined[ slot ] ) {
+                        uninitialized( slot );
+                    }
+                    values.load( slot );
+                    break;
+                }
+                case STORE: {
+                    int slot = this.args[ pc ];
+                    values.store( slot );
+                    defined[ slot ] = true;
+                    break;
+                }
+                case ADD:
+                    values.add();
+                    break;
+                case SUB:
+                    values.subtract();
+                    break;
+                case MUL:
+                    values.multiply();
+                    break;
+                case DIV:
+                    values.divide();
+                    break;
+                case NEG:
+                    values.negate();
+                    break;
+                case SQRT:
+                    values.squareRoot();
+                    break;
+                case PRINT:
+                    values.print( out );
+                    break;
+                case DUP:
+                    values.duplicate();
+                    break;
+                case TSTORE:
+                    values.storeTemp( this.args[ pc ] );
+                    break;
+                case TLOAD:
+                    values.loadTemp( this.args[ pc ] );
+                    break;
+                default:
+                    throw new EmptyStackException();
+            }
+            profile.executed( OPCODES[ op ], System.nanoTime() - start, values.sp );
+        }
+        finish( out, values.sp, values.symbolTable( this.names, defined ) );
+        profile.report( out );
+    }
+
+    /**
+     * Report a LOAD of a variable that has not been stored.
+     * @param slot the variable's slot
+     */
+    void uninitialized( int slot ) {
+        String info = this.names[ slot ] + " has not been initialized.";
+        Errors.report( Errors.Type.UNINITIALIZED, info );
+    }
+
+    /**
+     * Report on the final size of the stack and the contents of the
+     * symbol table, as Machine.execute does.
+     * @param out where to write the report
+     * @param sp the number of values left on the stack
+     * @param table the stored variables' values
+     */
+    void finish( PrintStream out, int sp, Map< String, ? extends Number > table ) {
+        out.println( "Machine: execution ended with " +
+                sp + " items left on the stack." );
+        out.println();
+        Errors.dump( table, out );
+    }
+}
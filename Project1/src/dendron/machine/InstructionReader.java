@@ -8,12 +8,15 @@ import dendron.machine.Machine;
 
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.function.Function;
 
 /**
  * Assemble instructions from a file.
  * This is a project debugging aid.
+ * The main program also runs binary programs (see {@link BinaryInstructions}).
  *
  * @author James Heliotis
  */
@@ -35,15 +38,35 @@ public class InstructionReader {
         put( "NEG", in -> new Machine.Negate() );
         put( "SQRT", in -> new Machine.SquareRoot() );
         put( "PRINT", in -> new Machine.Print() );
+        put( "DUP", in -> new Machine.Duplicate() );
+        put( "TSTORE", in -> { int t = in.nextInt();
+                               return new Machine.TempStore( t ); } );
+        put( "TLOAD", in -> { int t = in.nextInt();
+                              return new Machine.TempLoad( t ); } );
     }};
 
     /**
      * Read instructions from the named file and translate them
-     * to internal form.
+     * to internal form. Problems are reported on standard error.
      * @param assyFile the name of the text file containing the assembly code
      * @return a list of Machine.Instruction objects, ready to execute
      */
     public static List< Machine.Instruction > assemble( String assyFile ) {
+        return assemble( assyFile, System.err );
+    }
+
+    /**
+     * Read instructions from the named file and translate them
+     * to internal form, reporting problems to a stream of the caller's
+     * choosing, such as the output of one program among several
+     * running at once.
+     * @param assyFile the name of the text file containing the assembly code
+     * @param err where to report unknown instructions or an unreadable file
+     * @return a list of Machine.Instruction objects, ready to execute,
+     *         or null if the file could not be read
+     */
+    public static List< Machine.Instruction > assemble( String assyFile,
+                                                        PrintStream err ) {
         try ( FileInputStream fileStr = new FileInputStream( assyFile ) ) {
             List< Machine.Instruction > result = new LinkedList<>();
             Scanner in = new Scanner( fileStr );
@@ -53,28 +76,70 @@ public class InstructionReader {
                     result.add( gen.get( mnemonic ).apply( in ) );
                 }
                 else {
-                    System.err.println( "Illegal assembly instr " + mnemonic );
+                    err.println( "Illegal assembly instr " + mnemonic );
                 }
             }
             return result;
         }
         catch( IOException ioe ) {
-            System.err.println( "Could not open file " + assyFile );
+            err.println( "Could not open file " + assyFile );
         }
         return null;
     }
 
+    /**
+     * Read instructions from the named file, translate them
+     * to internal form and pass them through a peephole optimizer.
+     * @param assyFile the name of the text file containing the assembly code
+     * @param optimizer the optimizer to apply
+     * @return a list of Machine.Instruction objects, ready to execute
+     */
+    public static List< Machine.Instruction > assemble( String assyFile,
+                                                        Peephole optimizer ) {
+        List< Machine.Instruction > code = assemble( assyFile );
+        return code == null ? null : optimizer.optimize( code );
+    }
+
     /**
      * Assemble and execute some Dendron machine code.
-     * @param args the name of the assembly language source file
+     * @param args the name of the assembly language source file,
+     *             optionally followed by the engine to use (legacy or fast);
+     *             a leading -O runs the peephole optimizer first
      */
     public static void main( String[] args ) {
-        if ( args.length != 1 ) {
+        boolean optimize = args.length > 0 && args[ 0 ].equals( "-O" );
+        if ( optimize ) {
+            args = Arrays.copyOfRange( args, 1, args.length );
+        }
+        if ( args.length < 1 || args.length > 2 ) {
             System.err.println(
-                    "Usage: java InstructionReader assembly-code-file" );
+                    "Usage: java InstructionReader [-O] assembly-code-file [legacy|fast]" );
+            System.exit( 1 );
+        }
+        List< Machine.Instruction > code;
+        if ( args[ 0 ].endsWith( BinaryInstructions.EXTENSION ) ) {
+            try {
+                code = BinaryInstructions.load( Paths.get( args[ 0 ] ) );
+            }
+            catch ( IOException ioe ) {
+                System.err.println( "Could not load " + args[ 0 ] + ": " + ioe.getMessage() );
+                System.exit( 1 );
+                return;
+            }
+            if ( optimize ) {
+                code = new Peephole().optimize( code );
+            }
+        }
+        else {
+            code = optimize ? assemble( args[ 0 ], new Peephole() ) : assemble( args[ 0 ] );
+        }
+        Machine.Engine engine = args.length == 2 ?
+                Machine.Engine.forName( args[ 1 ] ) : Machine.Engine.getDefault();
+        if ( !engine.supports( NumericMode.getDefault() ) ) {
+            System.err.println( "The " + engine + " engine cannot run the "
+                    + NumericMode.getDefault() + " numeric mode; use fast" );
             System.exit( 1 );
         }
-        List< Machine.Instruction > code = assemble( args[ 0 ] );
-        Machine.execute( code );
+        Machine.execute( code, engine );
     }
 }
@@ -0,0 +1,209 @@
+/*
+ * file: LongStack.java
+ */
+
+package dendron.machine;
+
+import dendron.Errors;
+
+import java.io.PrintStream;
+import java.util.EmptyStackException;
+
+import static dendron.machine.FastMachine.*;
+
+/**
+ * The values of a run in {@link NumericMode#LONG}: 64-bit values, which
+ * wrap around on overflow as Java longs do. The stack, variables and
+ * temporaries are long arrays, so nothing is allocated while the program
+ * runs.
+ *
+ * @see FastMachine
+ *
+ * @author William J. Reid (wjr3714)
+ */
+final class LongStack extends ValueStack {
+
+    private final long[] stack;
+    private final long[] vars;
+    private final long[] temps;
+
+    /**
+     * Create an empty stack.
+     * @param depth the most values the program ever has on the stack
+     * @param vars the number of variable slots
+     * @param temps the number of temporaries
+     */
+    LongStack( int depth, int vars, int temps ) {
+        this.stack = new long[ depth ];
+        this.vars = new long[ vars ];
+        this.temps = new long[ temps ];
+    }
+
+    /**
+     * Run a lowered program without profiling, then report on the final
+     * size of the stack and the contents of the symbol table. The
+     * operations are written out here over arrays and a stack pointer
+     * that are local to the loop, which lets the JIT compiler keep the
+     * pointer in a register and know that the arrays are distinct; the
+     * methods below, which the profiling loop calls, are slower.
+     * @param program the lowered program
+     * @param out where the program's output and final report are written
+     */
+    static void run( FastMachine program, PrintStream out ) {
+        int[] ops = program.ops;
+        int[] args = program.args;
+        long[] stack = new long[ program.maxDepth ];
+        long[] vars = new long[ program.names.length ];
+        long[] temps = new long[ program.temps ];
+        boolean[] defined = new boolean[ program.names.length ];
+        int sp = 0;
+
+        out.println( "Executing compiled code..." );
+        for ( int pc = 0; pc < ops.length; ++pc ) {
+            switch ( ops[ pc ] ) {
+                case PUSH:
+                    stack[ sp++ ] = args[ pc ];
+                    break;
+                case LOAD: {
+                    int slot = args[ pc ];
+                    if ( !defined[ slot ] ) {
+                        program.uninitialized( slot );
+                    }
+                    stack[ sp++ ] = vars[ slot ];
+                    break;
+                }
+                case STORE: {
+                    int slot = args[ pc ];
+                    vars[ slot ] = stack[ --sp ];
+                    defined[ slot ] = true;
+                    break;
+                }
+                case ADD:
+                    --sp;
+                    stack[ sp - 1 ] = stack[ sp - 1 ] + stack[ sp ];
+                    break;
+                case SUB:
+                    --sp;
+                    stack[ sp - 1 ] = stack[ sp - 1 ] - stack[ sp ];
+                    break;
+                case MUL:
+                    --sp;
+                    stack[ sp - 1 ] = stack[ sp - 1 ] * stack[ sp ];
+                    break;
+                case DIV: {
+                    long op2 = stack[ --sp ];
+                    long op1 = stack[ sp - 1 ];
+                    if ( op2 == 0 ) {
+                        String info = "Cannot divide by zero \n" + op1 + " / " + op2 ;
+                        Errors.report( Errors.Type.DIVIDE_BY_ZERO, info );
+                    }
+                    stack[ sp - 1 ] = op1 / op2;
+                    break;
+                }
+                case NEG:
+                    stack[ sp - 1 ] = -stack[ sp - 1 ];
+                    break;
+                case SQRT:
+                    stack[ sp - 1 ] = NumericMode.squareRoot( stack[ sp - 1 ] );
+                    break;
+                case PRINT:
+                    out.println( "*** " + stack[ --sp ] );
+                    break;
+                case DUP:
+                    stack[ sp ] = stack[ sp - 1 ];
+                    ++sp;
+                    break;
+                case TSTORE:
+                    temps[ args[ pc ] ] = stack[ --sp ];
+                    break;
+                case TLOAD:
+                    stack[ sp++ ] = temps[ args[ pc ] ];
+                    break;
+                default:
+                    throw new EmptyStackException();
+            }
+        }
+        program.finish( out, sp,
+                ValueStack.symbolTable( program.names, defined, slot -> vars[ slot ] ) );
+    }
+
+    @Override
+    void push( int constant ) {
+        this.stack[ this.sp++ ] = constant;
+    }
+
+    @Override
+    void load( int slot ) {
+        this.stack[ this.sp++ ] = this.vars[ slot ];
+    }
+
+    @Override
+    void store( int slot ) {
+        this.vars[ slot ] = this.stack[ --this.sp ];
+    }
+
+    @Override
+    void loadTemp( int temp ) {
+        this.stack[ this.sp++ ] = this.temps[ temp ];
+    }
+
+    @Override
+    void storeTemp( int temp ) {
+        this.temps[ temp ] = this.stack[ --this.sp ];
+    }
+
+    @Override
+    void duplicate() {
+        this.stack[ this.sp ] = this.stack[ this.sp - 1 ];
+        ++this.sp;
+    }
+
+    @Override
+    void add() {
+        long op2 = this.stack[ --this.sp ];
+        this.stack[ this.sp - 1 ] += op2;
+    }
+
+    @Override
+    void subtract() {
+        long op2 = this.stack[ --this.sp ];
+        this.stack[ this.sp - 1 ] -= op2;
+    }
+
+    @Override
+    void multiply() {
+        long op2 = this.stack[ --this.sp ];
+        this.stack[ this.sp - 1 ] *= op2;
+    }
+
+    @Override
+    void divide() {
+        long op2 = this.stack[ --this.sp ];
+        long op1 = this.stack[ this.sp - 1 ];
+        if ( op2 == 0 ) {
+            String info = "Cannot divide by zero \n" + op1 + " / " + op2 ;
+            Errors.report( Errors.Type.DIVIDE_BY_ZERO, info );
+        }
+        this.stack[ this.sp - 1 ] = op1 / op2;
+    }
+
+    @Override
+    void negate() {
+        this.stack[ this.sp - 1 ] = -this.stack[ this.sp - 1 ];
+    }
+
+    @Override
+    void squareRoot() {
+        this.stack[ this.sp - 1 ] = NumericMode.squareRoot( this.stack[ this.sp - 1 ] );
+    }
+
+    @Override
+    void print( PrintStream out ) {
+        out.println( "*** " + this.stack[ --this.sp ] );
+    }
+
+    @Override
+    Number get( int slot ) {
+        return this.vars[ slot ];
+    }
+}
@@ -4,6 +4,8 @@
 
 package dendron.machine;
 
+import java.io.PrintStream;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Stack;
 import java.util.Map;
@@ -16,9 +18,11 @@ import dendron.Errors;
  * for variables (instead of general-purpose memory), and a
  * value stack on which calculations are performed.
  *
- * (Everything is static to avoid the need to master the subtleties
- * of nested class instantiation or to pass the symbol table and
- * stack into every instruction when it executes.)
+ * Each Machine object holds the state of one run: its stack, its
+ * symbol table and the stream its output goes to. The Machine is
+ * passed to every instruction when it executes. A Machine must only
+ * be used by one thread, but separate Machines may run programs
+ * at the same time.
  *
  *
  * @author James Heliotis
@@ -26,15 +30,39 @@ import dendron.Errors;
  */
 public class Machine {
 
-    /** Do not instantiate this class. */
-    private Machine() {}
+    /** The program's symbol table */
+    private final Map< String, Integer > table = new HashMap<>();
+
+    /** The value stack */
+    private final Stack< Integer > stack = new Stack<>();
+
+    /** Temporary values kept by TSTORE; not part of the symbol table */
+    private int[] temps = new int[ 0 ];
+
+    /** Where the program's output goes */
+    private final PrintStream out;
+
+    /**
+     * Create a Machine in a pristine state.
+     * @param out where the program's output and final report are written
+     */
+    public Machine( PrintStream out ) {
+        this.out = out;
+    }
 
     public static interface Instruction {
         /**
          * Run this instruction on the Machine, using the Machine's
          * value stack and symbol table.
+         * @param machine the Machine running the program
+         */
+        void execute( Machine machine );
+
+        /**
+         * Identify the operation this instruction performs.
+         * @return the instruction's operation code
          */
-        void execute();
+        Opcode opcode();
 
         /**
          * Show the instruction using text so it can be understood
@@ -45,16 +73,62 @@ public class Machine {
         String toString();
     }
 
-    private static Map< String, Integer > table = null;
-    private static Stack< Integer > stack = null;
-
     /**
-     * Reset the Machine to a pristine state.
-     * @see Machine#execute
+     * The ways a compiled program can be run.
+     * LEGACY executes the Instruction objects one at a time against
+     * the Machine's stack and symbol table; FAST first lowers them
+     * into a {@link FastMachine}; FUSED replaces common sequences of
+     * instructions with {@link Superinstructions} as the program is
+     * loaded, then executes it as LEGACY does.
      */
-    private static void reset() {
-        stack = new Stack<>();
-        table = new HashMap<>();
+    public enum Engine {
+        LEGACY, FAST, FUSED;
+
+        /**
+         * The name of the system property that selects the default engine.
+         */
+        public static final String PROPERTY = "dendron.engine";
+
+        /**
+         * Find the engine named by a string, ignoring case.
+         * @param name "legacy", "fast" or "fused"
+         * @return the engine, or LEGACY if the name is null or unknown
+         */
+        public static Engine forName( String name ) {
+            if ( name != null ) {
+                for ( Engine engine: values() ) {
+                    if ( engine.name().equalsIgnoreCase( name ) ) {
+                        return engine;
+                    }
+                }
+            }
+            return LEGACY;
+        }
+
+        /**
+         * Get the engine selected with -Ddendron.engine=...
+         * @return the selected engine; if none is, FAST when the
+         *         {@value NumericMode#PROPERTY} property selects a mode
+         *         other than INT, since only FAST runs those, and
+         *         otherwise LEGACY
+         */
+        public static Engine getDefault() {
+            String name = System.getProperty( PROPERTY );
+            if ( name == null && NumericMode.getDefault() != NumericMode.INT ) {
+                return FAST;
+            }
+            return forName( name );
+        }
+
+        /**
+         * Tell whether this engine can run programs with a kind of
+         * arithmetic. LEGACY and FUSED only know INT.
+         * @param mode the kind of arithmetic
+         * @return true if this engine runs programs in that mode
+         */
+        public boolean supports( NumericMode mode ) {
+            return this == FAST || mode == NumericMode.INT;
+        }
     }
 
     /**
@@ -78,18 +152,200 @@ public class Machine {
      * contained therein.
      * Report on the final size of the stack (should normally be empty)
      * and the contents of the symbol table.
+     * The engine used is the one selected by the
+     * {@value Engine#PROPERTY} system property.
      * @param program a list of Machine instructions
      */
     public static void execute( List< Instruction > program ) {
-        reset();
-        System.out.println("Executing compiled code...");
-        for ( Instruction instr: program ) {
-            instr.execute();
+        execute( program, Engine.getDefault() );
+    }
+
+    /**
+     * Run a "compiled" program on the given engine. Both engines
+     * produce the same output.
+     * @param program a list of Machine instructions
+     * @param engine the execution engine to use
+     */
+    public static void execute( List< Instruction > program, Engine engine ) {
+        execute( program, engine, System.out );
+    }
+
+    /**
+     * Run a "compiled" program on the given engine, on a new Machine
+     * whose output goes to the given stream. The run is profiled if the
+     * {@value Profile#PROPERTY} system property asks for it. If the
+     * {@value NumericMode#PROPERTY} system property selects a numeric
+     * mode other than INT, the program runs in that mode, which only
+     * the FAST engine can do.
+     * @param program a list of Machine instructions
+     * @param engine the execution engine to use
+     * @param out where the program's output and final report are written
+     * @throws IllegalArgumentException if the engine does not support the
+     *         selected numeric mode
+     */
+    public static void execute( List< Instruction > program, Engine engine,
+                                PrintStream out ) {
+        NumericMode mode = NumericMode.getDefault();
+        if ( !engine.supports( mode ) ) {
+            throw new IllegalArgumentException( "The " + engine
+                    + " engine cannot run the " + mode + " numeric mode; use FAST" );
+        }
+        if ( mode != NumericMode.INT ) {
+            execute( program, mode, out );
+        }
+        else {
+            execute( program, engine, out, Profile.fromProperty( engine ) );
+        }
+    }
+
+    /**
+     * Run a "compiled" program with the given kind of arithmetic. INT
+     * runs on the engine selected by the {@value Engine#PROPERTY} system
+     * property; the other modes run on the FAST engine. The run is
+     * profiled if the {@value Profile#PROPERTY} system property asks for
+     * it.
+     * @param program a list of Machine instructions
+     * @param mode the kind of arithmetic to use
+     * @param out where the program's output and final report are written
+     */
+    public static void execute( List< Instruction > program, NumericMode mode,
+                                PrintStream out ) {
+        if ( mode == NumericMode.INT ) {
+            Engine engine = Engine.getDefault();
+            execute( program, engine, out, Profile.fromProperty( engine ) );
+        }
+        else {
+            FastMachine.lower( program ).execute( mode, out,
+                    Profile.fromProperty( Engine.FAST ) );
+        }
+    }
+
+    /**
+     * Run a "compiled" program on the given engine, on a new Machine
+     * whose output goes to the given stream, optionally recording a
+     * profile of the run. The profile's hotspot table is printed after
+     * the symbol table. A profiled run on the FUSED engine is not fused,
+     * so that the profile shows the program's own instructions.
+     * @param program a list of Machine instructions
+     * @param engine the execution engine to use
+     * @param out where the program's output and final report are written
+     * @param profile where to record the profile, or null not to profile
+     */
+    public static void execute( List< Instruction > program, Engine engine,
+                                PrintStream out, Profile profile ) {
+        if ( engine == Engine.FAST ) {
+            FastMachine.lower( program ).execute( out, profile );
+        }
+        else if ( engine == Engine.FUSED && profile == null ) {
+            new Machine( out ).run( Superinstructions.getDefault().fuse( program ) );
+        }
+        else {
+            new Machine( out ).run( program, profile );
+        }
+    }
+
+    /**
+     * Run a program on this Machine by executing in order each
+     * instruction contained therein, then report on the final size
+     * of the stack and the contents of the symbol table.
+     * @param program a list of Machine instructions
+     */
+    public void run( List< Instruction > program ) {
+        run( program, null );
+    }
+
+    /**
+     * Run a program on this Machine, optionally recording a profile,
+     * then report on the final size of the stack and the contents of
+     * the symbol table, followed by the profile.
+     * @param program a list of Machine instructions
+     * @param profile where to record the profile, or null not to profile
+     */
+    public void run( List< Instruction > program, Profile profile ) {
+        out.println("Executing compiled code...");
+        if ( profile == null ) {
+            for ( Instruction instr: program ) {
+                instr.execute( this );
+            }
+        }
+        else {
+            profile( program, profile );
         }
-        System.out.println( "Machine: execution ended with " +
+        out.println( "Machine: execution ended with " +
                 stack.size() + " items left on the stack." );
-        System.out.println();
-        Errors.dump( table );
+        out.println();
+        Errors.dump( table, out );
+        if ( profile != null ) {
+            profile.report( out );
+        }
+    }
+
+    /**
+     * Execute the instructions, timing each one. This is a separate
+     * loop so that unprofiled runs pay nothing for profiling.
+     */
+    private void profile( List< Instruction > program, Profile profile ) {
+        for ( Instruction instr: program ) {
+            Opcode opcode = instr.opcode();
+            if ( opcode == Opcode.LOAD ) {
+                profile.read( ( (Load) instr ).getName() );
+            }
+            else if ( opcode == Opcode.STORE ) {
+                profile.write( ( (Store) instr ).getName() );
+            }
+            long start = System.nanoTime();
+            instr.execute( this );
+            profile.executed( opcode, System.nanoTime() - start, stack.size() );
+        }
+    }
+
+    /**
+     * Take the top value off the stack, for instructions defined
+     * outside this class.
+     * @return the value
+     */
+    int pop() {
+        return this.stack.pop();
+    }
+
+    /**
+     * Put a value on the stack.
+     * @param value the value
+     */
+    void push( int value ) {
+        this.stack.push( value );
+    }
+
+    /**
+     * Get the value of a variable, reporting it if it has none, as
+     * LOAD does.
+     * @param name the variable
+     * @return its value
+     */
+    int load( String name ) {
+        Integer value = this.table.get( name );
+        if ( value == null ) {
+            String info = name + " has not been initialized.";
+            Errors.report( Errors.Type.UNINITIALIZED, info );
+        }
+        return value;
+    }
+
+    /**
+     * Give a variable a value, as STORE does.
+     * @param name the variable
+     * @param value its new value
+     */
+    void store( String name, int value ) {
+        this.table.put( name, value );
+    }
+
+    /**
+     * Print a value, as PRINT does.
+     * @param value the value
+     */
+    void print( int value ) {
+        this.out.println( "*** " + value );
     }
 
     /**
@@ -100,10 +356,19 @@ public class Machine {
          * Run the microsteps for the ADD instruction.
          */
         @Override
-        public void execute() {
-            int op2 = stack.pop();
-            int op1 = stack.pop();
-            stack.push( op1 + op2 );
+        public void execute( Machine machine ) {
+            int op2 = machine.stack.pop();
+            int op1 = machine.stack.pop();
+            machine.stack.push( op1 + op2 );
+        }
+
+        /**
+         * Identify the ADD instruction.
+         * @return Opcode.ADD
+         */
+        @Override
+        public Opcode opcode() {
+            return Opcode.ADD;
         }
 
         /**
@@ -130,13 +395,31 @@ public class Machine {
         public Store( String ident ) {
             this.name = ident;
         }
+
+        /**
+         * Get the name of the variable this instruction assigns.
+         * @return the target variable's name
+         */
+        public String getName() {
+            return this.name;
+        }
+
         /**
          * Run the microsteps for the STORE instruction.
          */
         @Override
-        public void execute() {
-            table.put( this.name, stack.pop() );
+        public void execute( Machine machine ) {
+            machine.table.put( this.name, machine.stack.pop() );
+        }
+        /**
+         * Identify the STORE instruction.
+         * @return Opcode.STORE
+         */
+        @Override
+        public Opcode opcode() {
+            return Opcode.STORE;
         }
+
         /**
          * Show the STORE instruction as plain text.
          * @return "STORE" followed by the target variable name
@@ -156,10 +439,19 @@ public class Machine {
          * Run the microsteps for the SUBTRACT instruction.
          */
         @Override
-        public void execute() {
-            int op2 = stack.pop();
-            int op1 = stack.pop();
-            stack.push(op1 - op2);
+        public void execute( Machine machine ) {
+            int op2 = machine.stack.pop();
+            int op1 = machine.stack.pop();
+            machine.stack.push(op1 - op2);
+        }
+
+        /**
+         * Identify the SUBTRACT instruction.
+         * @return Opcode.SUB
+         */
+        @Override
+        public Opcode opcode() {
+            return Opcode.SUB;
         }
 
         /**
@@ -180,10 +472,19 @@ public class Machine {
          * Run the microsteps for the MULTIPLY instruction.
          */
         @Override
-        public void execute() {
-            int op2 = stack.pop();
-            int op1 = stack.pop();
-            stack.push(op1 * op2);
+        public void execute( Machine machine ) {
+            int op2 = machine.stack.pop();
+            int op1 = machine.stack.pop();
+            machine.stack.push(op1 * op2);
+        }
+
+        /**
+         * Identify the MULTIPLY instruction.
+         * @return Opcode.MUL
+         */
+        @Override
+        public Opcode opcode() {
+            return Opcode.MUL;
         }
 
         /**
@@ -204,12 +505,12 @@ public class Machine {
          * Run the microsteps for the DIVIDE instruction.
          */
         @Override
-        public void execute() {
-            int op2 = stack.pop();
-            int op1 = stack.pop();
+        public void execute( Machine machine ) {
+            int op2 = machine.stack.pop();
+            int op1 = machine.stack.pop();
 
             try{
-                stack.push(op1 / op2);
+                machine.stack.push(op1 / op2);
             }
             catch (ArithmeticException errorDivisionByZero){
                 String info = "Cannot divide by zero \n" + op1 + " / " + op2 ;
@@ -217,6 +518,15 @@ public class Machine {
             }
         }
 
+        /**
+         * Identify the DIVIDE instruction.
+         * @return Opcode.DIV
+         */
+        @Override
+        public Opcode opcode() {
+            return Opcode.DIV;
+        }
+
         /**
          * Show the DIVIDE instruction as plain text.
          * @return "DIV"
@@ -228,16 +538,25 @@ public class Machine {
     }
 
     /**
-     * The SQUAREROOT instruction
+     * The SQUAREROOT instruction, which takes the integer square root.
+     * The square root of a negative number is 0.
      */
     public static class SquareRoot implements Instruction{
         /**
          * Run the microsteps for the SQUAREROOT instruction.
          */
         @Override
-        public void execute() {
-            double op1 = stack.pop(); // Math.pow requires double as parameter
-            stack.push( (int) Math.pow(op1,0.5) ); // Our declared stack can only hold integers (rationale for casting)
+        public void execute( Machine machine ) {
+            machine.stack.push( NumericMode.squareRoot( machine.stack.pop() ) );
+        }
+
+        /**
+         * Identify the SQUAREROOT instruction.
+         * @return Opcode.SQRT
+         */
+        @Override
+        public Opcode opcode() {
+            return Opcode.SQRT;
         }
 
         /**
@@ -258,9 +577,18 @@ public class Machine {
          * Run the microsteps for the NEGATE instruction.
          */
         @Override
-        public void execute() {
-            int op1 = stack.pop() * (-1);
-            stack.push(op1);
+        public void execute( Machine machine ) {
+            int op1 = machine.stack.pop() * (-1);
+            machine.stack.push(op1);
+        }
+
+        /**
+         * Identify the NEGATE instruction.
+         * @return Opcode.NEG
+         */
+        @Override
+        public Opcode opcode() {
+            return Opcode.NEG;
         }
 
         /**
@@ -297,17 +625,34 @@ public class Machine {
             }
         }
 
+        /**
+         * Get the name of the variable this instruction reads.
+         * @return the target variable's name
+         */
+        public String getName() {
+            return this.varName;
+        }
+
         /**
          * Run the microsteps for the LOAD instruction.
          */
         @Override
-        public void execute() {
+        public void execute( Machine machine ) {
             // Error Check: Uninitialized variable.
-            if (table.get(varName) == null){
+            if (machine.table.get(varName) == null){
                 String info = varName + " has not been initialized.";
                 Errors.report(Errors.Type.UNINITIALIZED, info);
             }
-            stack.push(table.get(varName));
+            machine.stack.push(machine.table.get(varName));
+        }
+
+        /**
+         * Identify the LOAD instruction.
+         * @return Opcode.LOAD
+         */
+        @Override
+        public Opcode opcode() {
+            return Opcode.LOAD;
         }
 
         /**
@@ -335,12 +680,29 @@ public class Machine {
             this.constant = constant;
         }
 
+        /**
+         * Get the value this instruction pushes.
+         * @return the integer constant
+         */
+        public int getValue() {
+            return this.constant;
+        }
+
         /**
          * Run the microsteps for the PUSH instruction.
          */
         @Override
-        public void execute() {
-            stack.push(constant);
+        public void execute( Machine machine ) {
+            machine.stack.push(constant);
+        }
+
+        /**
+         * Identify the PUSH instruction.
+         * @return Opcode.PUSH
+         */
+        @Override
+        public Opcode opcode() {
+            return Opcode.PUSH;
         }
 
         /**
@@ -353,6 +715,152 @@ public class Machine {
         }
     }
 
+    /**
+     * The DUP instruction, which pushes a second copy of the top value.
+     */
+    public static class Duplicate implements Instruction {
+        /**
+         * Run the microsteps for the DUP instruction.
+         */
+        @Override
+        public void execute( Machine machine ) {
+            machine.stack.push( machine.stack.peek() );
+        }
+
+        /**
+         * Identify the DUP instruction.
+         * @return Opcode.DUP
+         */
+        @Override
+        public Opcode opcode() {
+            return Opcode.DUP;
+        }
+
+        /**
+         * Show the DUP instruction as plain text.
+         * @return "DUP"
+         */
+        @Override
+        public String toString() {
+            return "DUP";
+        }
+    }
+
+    /**
+     * Make sure a temporary exists. Temporaries start out as 0.
+     * @param index the temporary's number
+     */
+    private void reserveTemp( int index ) {
+        if ( index >= this.temps.length ) {
+            this.temps = Arrays.copyOf( this.temps, index + 1 );
+        }
+    }
+
+    /**
+     * The TSTORE instruction, which saves the top value in a numbered
+     * temporary so that it can be used again without recomputing it.
+     * Temporaries are not variables and do not appear in the symbol table.
+     */
+    public static class TempStore implements Instruction {
+        /** The number of the temporary */
+        private final int index;
+
+        /**
+         * Create a TSTORE instruction
+         * @param index the number of the temporary, 0 or more
+         */
+        public TempStore( int index ) {
+            this.index = index;
+        }
+
+        /**
+         * Get the number of the temporary this instruction writes.
+         * @return the temporary's number
+         */
+        public int getIndex() {
+            return this.index;
+        }
+
+        /**
+         * Run the microsteps for the TSTORE instruction.
+         */
+        @Override
+        public void execute( Machine machine ) {
+            int value = machine.stack.pop();
+            machine.reserveTemp( this.index );
+            machine.temps[ this.index ] = value;
+        }
+
+        /**
+         * Identify the TSTORE instruction.
+         * @return Opcode.TSTORE
+         */
+        @Override
+        public Opcode opcode() {
+            return Opcode.TSTORE;
+        }
+
+        /**
+         * Show the TSTORE instruction as plain text.
+         * @return "TSTORE" followed by the temporary's number
+         */
+        @Override
+        public String toString() {
+            return "TSTORE " + this.index;
+        }
+    }
+
+    /**
+     * The TLOAD instruction, which pushes the value saved in a temporary.
+     */
+    public static class TempLoad implements Instruction {
+        /** The number of the temporary */
+        private final int index;
+
+        /**
+         * Create a TLOAD instruction
+         * @param index the number of the temporary, 0 or more
+         */
+        public TempLoad( int index ) {
+            this.index = index;
+        }
+
+        /**
+         * Get the number of the temporary this instruction reads.
+         * @return the temporary's number
+         */
+        public int getIndex() {
+            return this.index;
+        }
+
+        /**
+         * Run the microsteps for the TLOAD instruction.
+         */
+        @Override
+        public void execute( Machine machine ) {
+            machine.reserveTemp( this.index );
+            machine.stack.push( machine.temps[ this.index ] );
+        }
+
+        /**
+         * Identify the TLOAD instruction.
+         * @return Opcode.TLOAD
+         */
+        @Override
+        public Opcode opcode() {
+            return Opcode.TLOAD;
+        }
+
+        /**
+         * Show the TLOAD instruction as plain text.
+         * @return "TLOAD" followed by the temporary's number
+         */
+        @Override
+        public String toString() {
+            return "TLOAD " + this.index;
+        }
+    }
+
     /**
      * The PRINT instruction
      */
@@ -366,8 +874,17 @@ public class Machine {
          * Run the microsteps for the PRINT instruction.
          */
         @Override
-        public void execute() {
-            System.out.println("*** " + stack.pop());
+        public void execute( Machine machine ) {
+            machine.out.println("*** " + machine.stack.pop());
+        }
+
+        /**
+         * Identify the PRINT instruction.
+         * @return Opcode.PRINT
+         */
+        @Override
+        public Opcode opcode() {
+            return Opcode.PRINT;
         }
 
         /**
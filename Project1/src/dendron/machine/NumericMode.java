@@ -0,0 +1,108 @@
+/*
+ * file: NumericMode.java
+ */
+
+package dendron.machine;
+
+import java.math.BigInteger;
+
+/**
+ * The kinds of integer arithmetic a Dendron machine program can be run
+ * with. Each mode has a ValueStack of its own, with the
+ * arithmetic written out for its value type, so no value is boxed and
+ * only the BIG mode allocates.
+ * <ul>
+ *     <li>INT - 32-bit values that silently wrap around on overflow, as
+ *         Dendron always has; run on the selected {@link Machine.Engine}</li>
+ *     <li>CHECKED_INT - 32-bit values; an operation whose result does not
+ *         fit is reported as an {@link dendron.Errors.Type#OVERFLOW}</li>
+ *     <li>LONG - 64-bit values that wrap around on overflow</li>
+ *     <li>BIG - values of any size, held in BigIntegers</li>
+ * </ul>
+ * Constants in a program are always 32-bit. In every mode SQRT takes
+ * the exact integer square root, and the square root of a negative
+ * number is 0.
+ *
+ * The modes belong to machine programs; a parse tree that is interpreted
+ * directly always uses INT arithmetic. Neither the tree optimizer nor the
+ * {@link Peephole} optimizer knows the mode a program will run in, so
+ * both only make rewrites that give the same result in every mode.
+ *
+ * @see Machine#execute(java.util.List, NumericMode, java.io.PrintStream)
+ *
+ * @author William J. Reid (wjr3714)
+ */
+public enum NumericMode {
+    INT, CHECKED_INT, LONG, BIG;
+
+    /**
+     * The name of the system property that selects the default mode.
+     */
+    public static final String PROPERTY = "dendron.numeric";
+
+    /**
+     * Find the mode named by a string, ignoring case. A '-' may be used
+     * in place of the '_', as in "checked-int".
+     * @param name "int", "checked_int", "long" or "big"
+     * @return the mode, or INT if the name is null or unknown
+     */
+    public static NumericMode forName( String name ) {
+        if ( name != null ) {
+            for ( NumericMode mode: values() ) {
+                if ( mode.name().equalsIgnoreCase( name.replace( '-', '_' ) ) ) {
+                    return mode;
+                }
+            }
+        }
+        return INT;
+    }
+
+    /**
+     * Get the mode selected with -Ddendron.numeric=...
+     * @return the selected mode (INT if not set)
+     */
+    public static NumericMode getDefault() {
+        return forName( System.getProperty( PROPERTY ) );
+    }
+
+    /**
+     * The integer square root of a 32-bit value. A double holds every
+     * int exactly and its square root is correctly rounded, so truncating
+     * it gives the exact answer.
+     * @param value the operand
+     * @return the largest r with r * r &lt;= value, or 0 if value is negative
+     */
+    public static int squareRoot( int value ) {
+        return value <= 0 ? 0 : (int) Math.sqrt( value );
+    }
+
+    /**
+     * The integer square root of a 64-bit value. Above 2^53 the double
+     * estimate can be off by one either way, so it is corrected, using
+     * division so that no square can overflow.
+     * @param value the operand
+     * @return the largest r with r * r &lt;= value, or 0 if value is negative
+     */
+    public static long squareRoot( long value ) {
+        if ( value <= 0 ) {
+            return 0;
+        }
+        long root = (long) Math.sqrt( (double) value );
+        while ( root > value / root ) {
+            --root;
+        }
+        while ( root + 1 <= value / ( root + 1 ) ) {
+            ++root;
+        }
+        return root;
+    }
+
+    /**
+     * The integer square root of a value of any size.
+     * @param value the operand
+     * @return the largest r with r * r &lt;= value, or 0 if value is negative
+     */
+    public static BigInteger squareRoot( BigInteger value ) {
+        return value.signum() <= 0 ? BigInteger.ZERO : value.sqrt();
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * file: Opcode.java
+ */
+
+package dendron.machine;
+
+/**
+ * The operation codes of the Dendron machine's instruction set.
+ * Each Machine.Instruction reports its opcode so that other tools
+ * (for example the FastMachine lowering) can examine a program
+ * without depending on the concrete instruction classes.
+ *
+ * {@link #FUSED} is not an operation of its own but the mark of a
+ * superinstruction, whose effect no single opcode describes. The tools
+ * that work from opcodes refuse it; a fused program must be given
+ * back its original instructions with {@link Superinstructions#expand}
+ * before they see it.
+ *
+ * @see Machine.Instruction#opcode()
+ *
+ * @author William J. Reid (wjr3714)
+ */
+public enum Opcode {
+    PUSH( "PUSH", 0, 1 ),
+    LOAD( "LOAD", 0, 1 ),
+    STORE( "STORE", 1, 0 ),
+    ADD( "ADD", 2, 1 ),
+    SUB( "SUB", 2, 1 ),
+    MUL( "MUL", 2, 1 ),
+    DIV( "DIV", 2, 1 ),
+    NEG( "NEG", 1, 1 ),
+    SQRT( "SQRT", 1, 1 ),
+    PRINT( "PRINT", 1, 0 ),
+    DUP( "DUP", 1, 2 ),
+    TSTORE( "TSTORE", 1, 0 ),
+    TLOAD( "TLOAD", 0, 1 ),
+    FUSED( "FUSED", 0, 0 );
+
+    /** The assembly language name of the operation. */
+    private final String mnemonic;
+
+    /** How many values the operation takes off the stack. */
+    private final int pops;
+
+    /** How many values the operation leaves on the stack. */
+    private final int pushes;
+
+    Opcode( String mnemonic, int pops, int pushes ) {
+        this.mnemonic = mnemonic;
+        this.pops = pops;
+        this.pushes = pushes;
+    }
+
+    /**
+     * Get the name used for this operation in assembly listings.
+     * @return the mnemonic, e.g. "PUSH"
+     */
+    public String getMnemonic() {
+        return this.mnemonic;
+    }
+
+    /**
+     * How many values must be on the stack for this operation to run?
+     * (DUP only reads its value, but it must be there.)
+     * @return the number of operands taken from the stack
+     */
+    public int getPops() {
+        return this.pops;
+    }
+
+    /**
+     * How many values does this operation put on the stack?
+     * @return the number of results pushed
+     */
+    public int getPushes() {
+        return this.pushes;
+    }
+}
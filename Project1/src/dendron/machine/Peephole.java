@@ -0,0 +1,361 @@
+/*
+ * file: Peephole.java
+ */
+
+package dendron.machine;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A peephole optimizer for Machine instruction lists. It slides a small
+ * window over the program and lets each {@link Rule} replace the
+ * instructions in it with a cheaper sequence that has the same effect.
+ *
+ * Rules are tried on the end of the optimized output each time an
+ * instruction is added, so a rewrite can enable another one further back
+ * (PUSH 2, PUSH 3, ADD, NEG becomes PUSH -5) without extra passes.
+ *
+ * Code after the first instruction that would pop an empty stack is
+ * copied unchanged so that a broken program still fails the same way.
+ *
+ * @author William J. Reid (wjr3714)
+ */
+public class Peephole {
+
+    /**
+     * One rewrite in the optimizer's rule set.
+     */
+    public interface Rule {
+        /**
+         * How many instructions does this rule look at?
+         * @return the size of the window
+         */
+        int length();
+
+        /**
+         * Try to rewrite a window of instructions.
+         * A rule must not return a sequence it would rewrite again.
+         *
+         * @param window the last length() instructions of the output
+         * @return the replacement instructions, or null if the rule
+         *         does not apply to this window
+         */
+        List< Machine.Instruction > rewrite( List< Machine.Instruction > window );
+    }
+
+    /**
+     * PUSH k followed by NEG or SQRT becomes a single PUSH. Negating the
+     * smallest int overflows, so it is left for run time, where the
+     * numeric mode decides what it gives.
+     */
+    public static final Rule FOLD_UNARY = new Rule() {
+        @Override
+        public int length() {
+            return 2;
+        }
+
+        @Override
+        public List< Machine.Instruction > rewrite( List< Machine.Instruction > window ) {
+            if ( window.get( 0 ).opcode() != Opcode.PUSH ) {
+                return null;
+            }
+            int k = constant( window.get( 0 ) );
+            switch ( window.get( 1 ).opcode() ) {
+                case NEG:
+                    return k == Integer.MIN_VALUE ? null : push( -k );
+                case SQRT:
+                    return push( NumericMode.squareRoot( k ) );
+                default:
+                    return null;
+            }
+        }
+    };
+
+    /**
+     * PUSH a, PUSH b and an arithmetic instruction become a single PUSH.
+     * Division by zero is left alone so that it is reported at run time,
+     * and so is any operation that overflows an int, so that the result
+     * is the same in every numeric mode.
+     */
+    public static final Rule FOLD_BINARY = new Rule() {
+        @Override
+        public int length() {
+            return 3;
+        }
+
+        @Override
+        public List< Machine.Instruction > rewrite( List< Machine.Instruction > window ) {
+            if ( window.get( 0 ).opcode() != Opcode.PUSH ||
+                 window.get( 1 ).opcode() != Opcode.PUSH ) {
+                return null;
+            }
+            long a = constant( window.get( 0 ) );
+            long b = constant( window.get( 1 ) );
+            long result;
+            switch ( window.get( 2 ).opcode() ) {
+                case ADD:
+                    result = a + b;
+                    break;
+                case SUB:
+                    result = a - b;
+                    break;
+                case MUL:
+                    result = a * b;
+                    break;
+                case DIV:
+                    if ( b == 0 ) {
+                        return null;
+                    }
+                    result = a / b;
+                    break;
+                default:
+                    return null;
+            }
+            return result == (int) result ? push( (int) result ) : null;
+        }
+    };
+
+    /**
+     * Adding or subtracting 0, and multiplying or dividing by 1, do nothing;
+     * multiplying or dividing by -1 is a NEG.
+     */
+    public static final Rule IDENTITY = new Rule() {
+        @Override
+        public int length() {
+            return 2;
+        }
+
+        @Override
+        public List< Machine.Instruction > rewrite( List< Machine.Instruction > window ) {
+            if ( window.get( 0 ).opcode() != Opcode.PUSH ) {
+                return null;
+            }
+            int k = constant( window.get( 0 ) );
+            Opcode op = window.get( 1 ).opcode();
+            if ( k == 0 && ( op == Opcode.ADD || op == Opcode.SUB ) ) {
+                return Collections.emptyList();
+            }
+            if ( k == 1 && ( op == Opcode.MUL || op == Opcode.DIV ) ) {
+                return Collections.emptyList();
+            }
+            if ( k == -1 && ( op == Opcode.MUL || op == Opcode.DIV ) ) {
+                return Collections.singletonList( new Machine.Negate() );
+            }
+            return null;
+        }
+    };
+
+    /**
+     * NEG NEG does nothing; NEG ADD is SUB and NEG SUB is ADD. These only
+     * hold when the negated value is not the smallest int, whose negation
+     * a CHECKED_INT run must report, so they are only applied to the
+     * negation of a square root, which is never negative.
+     */
+    public static final Rule NEGATION = new Rule() {
+        @Override
+        public int length() {
+            return 3;
+        }
+
+        @Override
+        public List< Machine.Instruction > rewrite( List< Machine.Instruction > window ) {
+            Machine.Instruction root = window.get( 0 );
+            if ( root.opcode() != Opcode.SQRT ||
+                 window.get( 1 ).opcode() != Opcode.NEG ) {
+                return null;
+            }
+            switch ( window.get( 2 ).opcode() ) {
+                case NEG:
+                    return Collections.singletonList( root );
+                case ADD:
+                    return Arrays.asList( root, new Machine.Subtract() );
+                case SUB:
+                    return Arrays.asList( root, new Machine.Add() );
+                default:
+                    return null;
+            }
+        }
+    };
+
+    /**
+     * STORE x, LOAD x becomes DUP, STORE x, and LOAD x, LOAD x becomes
+     * LOAD x, DUP, avoiding a symbol table lookup.
+     */
+    public static final Rule REUSE = new Rule() {
+        @Override
+        public int length() {
+            return 2;
+        }
+
+        @Override
+        public List< Machine.Instruction > rewrite( List< Machine.Instruction > window ) {
+            Machine.Instruction first = window.get( 0 );
+            Machine.Instruction second = window.get( 1 );
+            if ( second.opcode() != Opcode.LOAD ) {
+                return null;
+            }
+            String name = ( (Machine.Load) second ).getName();
+            if ( first.opcode() == Opcode.STORE &&
+                 ( (Machine.Store) first ).getName().equals( name ) ) {
+                return Arrays.asList( new Machine.Duplicate(), first );
+            }
+            if ( first.opcode() == Opcode.LOAD &&
+                 ( (Machine.Load) first ).getName().equals( name ) ) {
+                return Arrays.asList( first, new Machine.Duplicate() );
+            }
+            return null;
+        }
+    };
+
+    /** The rules used when none are specified. */
+    public static final List< Rule > DEFAULT_RULES = Collections.unmodifiableList(
+            Arrays.asList( FOLD_BINARY, FOLD_UNARY, IDENTITY, NEGATION, REUSE ) );
+
+    /** The rules this optimizer applies, tried in order */
+    private final List< Rule > rules;
+
+    /**
+     * Create an optimizer with the default rule set.
+     */
+    public Peephole() {
+        this( DEFAULT_RULES );
+    }
+
+    /**
+     * Create an optimizer with a chosen rule set.
+     * @param rules the rules to apply, tried in order
+     */
+    public Peephole( List< Rule > rules ) {
+        this.rules = new ArrayList<>( rules );
+    }
+
+    /**
+     * Optimize a program.
+     * @param program a list of Machine instructions
+     * @return a new list that has the same effect when executed
+     * @throws IllegalArgumentException if the program has superinstructions
+     * @see Superinstructions#expand
+     */
+    public List< Machine.Instruction > optimize( List< Machine.Instruction > program ) {
+        for ( Machine.Instruction instr: program ) {
+            if ( instr.opcode() == Opcode.FUSED ) {
+                throw new IllegalArgumentException(
+                        "Expand fused programs before optimizing them: " + instr );
+            }
+        }
+        List< Machine.Instruction > result = new ArrayList<>( program.size() );
+        int depth = 0;
+        int index = 0;
+        for ( Machine.Instruction instr: program ) {
+            Opcode op = instr.opcode();
+            if ( depth < op.getPops() ) {
+                break;
+            }
+            depth += op.getPushes() - op.getPops();
+            result.add( instr );
+            reduce( result );
+            ++index;
+        }
+        result.addAll( program.subList( index, program.size() ) );
+        return result;
+    }
+
+    /**
+     * Apply rules to the end of the output until none match.
+     */
+    private void reduce( List< Machine.Instruction > result ) {
+        boolean changed = true;
+        while ( changed ) {
+            changed = false;
+            for ( Rule rule: this.rules ) {
+                int start = result.size() - rule.length();
+                if ( start < 0 ) {
+                    continue;
+                }
+                List< Machine.Instruction > window = result.subList( start, result.size() );
+                List< Machine.Instruction > replacement = rule.rewrite( window );
+                if ( replacement != null ) {
+                    window.clear();
+                    result.addAll( replacement );
+                    changed = true;
+                    break;
+                }
+            }
+        }
+    }
+
+    private static int constant( Machine.Instruction push ) {
+        return ( (Machine.PushConst) push ).getValue();
+    }
+
+    private static List< Machine.Instruction > push( int value ) {
+        return Collections.singletonList( new Machine.PushConst( value ) );
+    }
+
+    /**
+     * Report, for each assembly file, how many instructions the default
+     * rules remove and how long the program takes to execute before and
+     * after optimization, on the engine chosen by -Ddendron.engine.
+     * Program output is discarded while timing.
+     *
+     * @param args assembly files, or directories of .denm files
+     */
+    public static void main( String[] args ) {
+        if ( args.length == 0 ) {
+            System.err.println( "Usage: java Peephole assembly-file-or-directory..." );
+            System.exit( 1 );
+        }
+        List< File > files = new ArrayList<>();
+        for ( String arg: args ) {
+            File file = new File( arg );
+            File[] listing = file.listFiles( ( dir, name ) -> name.endsWith( ".denm" ) );
+            if ( listing != null ) {
+                Arrays.sort( listing );
+                files.addAll( Arrays.asList( listing ) );
+            }
+            else {
+                files.add( file );
+            }
+        }
+
+        Peephole optimizer = new Peephole();
+        PrintStream sink = new PrintStream( OutputStream.nullOutputStream() );
+        System.out.printf( "%-28s %7s %7s %7s %12s %12s%n",
+                "file", "before", "after", "delta", "before(us)", "after(us)" );
+        for ( File file: files ) {
+            List< Machine.Instruction > before = InstructionReader.assemble( file.getPath() );
+            if ( before == null ) {
+                continue;
+            }
+            List< Machine.Instruction > after = optimizer.optimize( before );
+            double beforeTime = time( before, sink );
+            double afterTime = time( after, sink );
+            System.out.printf( "%-28s %7d %7d %7d %12.3f %12.3f%n", file.getName(),
+                    before.size(), after.size(), after.size() - before.size(),
+                    beforeTime, afterTime );
+        }
+    }
+
+    /**
+     * Measure the average execution time of a program, in microseconds.
+     */
+    private static double time( List< Machine.Instruction > program, PrintStream sink ) {
+        final int warmup = 2000;
+        final int runs = 10000;
+        Machine.Engine engine = Machine.Engine.getDefault();
+        for ( int i = 0; i < warmup; ++i ) {
+            Machine.execute( program, engine, sink );
+        }
+        long start = System.nanoTime();
+        for ( int i = 0; i < runs; ++i ) {
+            Machine.execute( program, engine, sink );
+        }
+        return ( System.nanoTime() - start ) / 1000.0 / runs;
+    }
+}
@@ -0,0 +1,317 @@
+/*
+ * file: Profile.java
+ */
+
+package dendron.machine;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * What a profiled run of a Dendron machine program did: how many times
+ * each opcode executed and how long it took in total, the deepest the
+ * value stack got, and how often each variable in the symbol table was
+ * read and written.
+ *
+ * Profiling is turned on with the {@value #PROPERTY} system property.
+ * Its value may be "true", to print a hotspot table after the symbol
+ * table dump, or the name of a file ending in ".csv" or ".json", to
+ * print the table and also export the profile to that file.
+ *
+ * The legacy Machine and FastMachine both run a profiled program in a
+ * loop kept apart from the ones for unprofiled runs, so profiling costs
+ * nothing when it is off. FastMachine's profiling loop serves every
+ * {@link NumericMode}. The times include the cost of reading the clock
+ * around every instruction, so they are better for comparing opcodes
+ * with each other than as absolute figures.
+ *
+ * @see Machine#execute(java.util.List, Machine.Engine, PrintStream)
+ *
+ * @author William J. Reid (wjr3714)
+ */
+public class Profile {
+
+    /** The name of the system property that turns profiling on. */
+    public static final String PROPERTY = "dendron.profile";
+
+    private static final Opcode[] OPCODES = Opcode.values();
+
+    /** The engine the profiled run used */
+    private final Machine.Engine engine;
+
+    /** The file the profile is exported to, or null */
+    private final Path export;
+
+    /** Executions of each opcode, indexed by ordinal */
+    private final long[] counts = new long[ OPCODES.length ];
+
+    /** Nanoseconds spent in each opcode, indexed by ordinal */
+    private final long[] nanos = new long[ OPCODES.length ];
+
+    /** The largest number of values on the stack after any instruction */
+    private int maxDepth = 0;
+
+    /** Reads and writes of each variable, in order of first access */
+    private final Map< String, long[] > accesses = new LinkedHashMap<>();
+
+    /**
+     * Create an empty profile.
+     * @param engine the engine whose run will be recorded
+     * @param export the file to export the profile to when it is
+     *               reported, or null to only print it
+     */
+    public Profile( Machine.Engine engine, Path export ) {
+        this.engine = engine;
+        this.export = export;
+    }
+
+    /**
+     * Create the profile asked for with the {@value #PROPERTY} system
+     * property.
+     * @param engine the engine the program will run on
+     * @return a new profile, or null if profiling is off
+     */
+    public static Profile fromProperty( Machine.Engine engine ) {
+        String value = System.getProperty( PROPERTY );
+        if ( value == null || value.equalsIgnoreCase( "false" ) ) {
+            return null;
+        }
+        if ( value.isEmpty() || value.equalsIgnoreCase( "true" ) ) {
+            return new Profile( engine, null );
+        }
+        return new Profile( engine, Paths.get( value ) );
+    }
+
+    /**
+     * Record one executed instruction.
+     * @param opcode the instruction's operation
+     * @param elapsed the nanoseconds it took
+     * @param depth the size of the stack afterwards
+     */
+    void executed( Opcode opcode, long elapsed, int depth ) {
+        this.counts[ opcode.ordinal() ]++;
+        this.nanos[ opcode.ordinal() ] += elapsed;
+        if ( depth > this.maxDepth ) {
+            this.maxDepth = depth;
+        }
+    }
+
+    /**
+     * Record a LOAD from the symbol table.
+     * @param name the variable read
+     */
+    void read( String name ) {
+        this.accesses.computeIfAbsent( name, n -> new long[ 2 ] )[ 0 ]++;
+    }
+
+    /**
+     * Record a STORE to the symbol table.
+     * @param name the variable written
+     */
+    void write( String name ) {
+        this.accesses.computeIfAbsent( name, n -> new long[ 2 ] )[ 1 ]++;
+    }
+
+    /**
+     * Get the number of times an opcode executed.
+     * @param opcode the operation
+     * @return its execution count
+     */
+    public long getCount( Opcode opcode ) {
+        return this.counts[ opcode.ordinal() ];
+    }
+
+    /**
+     * Get the time spent executing an opcode.
+     * @param opcode the operation
+     * @return the total nanoseconds
+     */
+    public long getNanos( Opcode opcode ) {
+        return this.nanos[ opcode.ordinal() ];
+    }
+
+    /**
+     * Get the deepest the value stack got.
+     * @return the largest number of values on the stack
+     */
+    public int getMaxDepth() {
+        return this.maxDepth;
+    }
+
+    /**
+     * Get the number of times a variable was read from the symbol table.
+     * @param name the variable
+     * @return the number of LOADs of it
+     */
+    public long getReads( String name ) {
+        long[] counts = this.accesses.get( name );
+        return counts == null ? 0 : counts[ 0 ];
+    }
+
+    /**
+     * Get the number of times a variable was written to the symbol table.
+     * @param name the variable
+     * @return the number of STOREs to it
+     */
+    public long getWrites( String name ) {
+        long[] counts = this.accesses.get( name );
+        return counts == null ? 0 : counts[ 1 ];
+    }
+
+    /**
+     * The opcodes that executed, those that took the most time first.
+     */
+    private Opcode[] hotspots() {
+        return Arrays.stream( OPCODES )
+                .filter( op -> this.counts[ op.ordinal() ] > 0 )
+                .sorted( Comparator.comparingLong( ( Opcode op ) -> this.nanos[ op.ordinal() ] )
+                        .reversed() )
+                .toArray( Opcode[]::new );
+    }
+
+    /**
+     * Print the hotspot table, then export the profile if a file was
+     * given for it.
+     * @param out where to print the table
+     */
+    public void report( PrintStream out ) {
+        long totalCount = 0;
+        long totalNanos = 0;
+        for ( int i = 0; i < OPCODES.length; ++i ) {
+            totalCount += this.counts[ i ];
+            totalNanos += this.nanos[ i ];
+        }
+
+        out.println();
+        out.println( "Profile (" + this.engine.name().toLowerCase() + " engine)" );
+        out.println( "=======" );
+        out.printf( "%-8s %12s %14s %10s %8s\n", "opcode", "count", "ns", "ns/op", "time" );
+        for ( Opcode op: hotspots() ) {
+            long count = this.counts[ op.ordinal() ];
+            long ns = this.nanos[ op.ordinal() ];
+            out.printf( "%-8s %12d %14d %10.1f %7.1f%%\n", op.getMnemonic(), count, ns,
+                    (double) ns / count, totalNanos == 0 ? 0.0 : 100.0 * ns / totalNanos );
+        }
+        out.printf( "%-8s %12d %14d\n", "total", totalCount, totalNanos );
+        out.println( "Maximum stack depth: " + this.maxDepth );
+        out.println( "Symbol table accesses:" );
+        for ( Map.Entry< String, long[] > entry: this.accesses.entrySet() ) {
+            out.printf( "%12s : %d reads, %d writes\n", entry.getKey(),
+                    entry.getValue()[ 0 ], entry.getValue()[ 1 ] );
+        }
+
+        if ( this.export != null ) {
+            try {
+                export( this.export );
+                out.println( "Profile written to " + this.export );
+            }
+            catch ( IOException ioe ) {
+                System.err.println( "Could not write profile to " + this.export +
+                        ": " + ioe.getMessage() );
+            }
+        }
+    }
+
+    /**
+     * Write the profile to a file, as JSON if its name ends in ".json"
+     * and as CSV otherwise.
+     * @param file the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void export( Path file ) throws IOException {
+        String text = file.toString().toLowerCase().endsWith( ".json" ) ? toJson() : toCsv();
+        Files.write( file, text.getBytes( StandardCharsets.UTF_8 ) );
+    }
+
+    /**
+     * Show the profile as CSV. Each line is a metric, a name, a count
+     * and (for opcodes) nanoseconds: "opcode" lines for the opcodes that
+     * executed, hottest first, "read" and "write" lines for the
+     * variables, and one "stack" line for the maximum depth.
+     * @return the CSV text, with a header line
+     */
+    public String toCsv() {
+        StringBuilder csv = new StringBuilder( "metric,name,count,nanos\n" );
+        for ( Opcode op: hotspots() ) {
+            csv.append( "opcode," ).append( op.getMnemonic() ).append( ',' )
+               .append( this.counts[ op.ordinal() ] ).append( ',' )
+               .append( this.nanos[ op.ordinal() ] ).append( '\n' );
+        }
+        for ( Map.Entry< String, long[] > entry: this.accesses.entrySet() ) {
+            String name = csvField( entry.getKey() );
+            csv.append( "read," ).append( name ).append( ',' )
+               .append( entry.getValue()[ 0 ] ).append( ",\n" );
+            csv.append( "write," ).append( name ).append( ',' )
+               .append( entry.getValue()[ 1 ] ).append( ",\n" );
+        }
+        csv.append( "stack,max," ).append( this.maxDepth ).append( ",\n" );
+        return csv.toString();
+    }
+
+    /**
+     * Show the profile as a JSON object.
+     * @return the JSON text
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder( "{\n" );
+        json.append( "  \"engine\": \"" ).append( this.engine.name().toLowerCase() ).append( "\",\n" );
+        json.append( "  \"maxStackDepth\": " ).append( this.maxDepth ).append( ",\n" );
+        json.append( "  \"opcodes\": [" );
+        String separator = "\n";
+        for ( Opcode op: hotspots() ) {
+            json.append( separator )
+                .append( "    { \"opcode\": \"" ).append( op.getMnemonic() )
+                .append( "\", \"count\": " ).append( this.counts[ op.ordinal() ] )
+                .append( ", \"nanos\": " ).append( this.nanos[ op.ordinal() ] ).append( " }" );
+            separator = ",\n";
+        }
+        json.append( "\n  ],\n  \"variables\": [" );
+        separator = "\n";
+        for ( Map.Entry< String, long[] > entry: this.accesses.entrySet() ) {
+            json.append( separator )
+                .append( "    { \"name\": " ).append( jsonString( entry.getKey() ) )
+                .append( ", \"reads\": " ).append( entry.getValue()[ 0 ] )
+                .append( ", \"writes\": " ).append( entry.getValue()[ 1 ] ).append( " }" );
+            separator = ",\n";
+        }
+        json.append( "\n  ]\n}\n" );
+        return json.toString();
+    }
+
+    /**
+     * Quote a CSV field if it needs it.
+     */
+    private static String csvField( String text ) {
+        if ( text.indexOf( ',' ) < 0 && text.indexOf( '"' ) < 0 ) {
+            return text;
+        }
+        return '"' + text.replace( "\"", "\"\"" ) + '"';
+    }
+
+    /**
+     * Write a string as a JSON string literal.
+     */
+    private static String jsonString( String text ) {
+        StringBuilder quoted = new StringBuilder( "\"" );
+        for ( char c: text.toCharArray() ) {
+            if ( c == '"' || c == '\\' ) {
+                quoted.append( '\\' ).append( c );
+            }
+            else if ( c < 0x20 ) {
+                quoted.append( String.format( "\\u%04x", (int) c ) );
+            }
+            else {
+                quoted.append( c );
+            }
+        }
+        return quoted.append( '"' ).toString();
+    }
+}
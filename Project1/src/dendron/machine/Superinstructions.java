@@ -0,0 +1,683 @@
+/*
+ * file: Superinstructions.java
+ */
+
+package dendron.machine;
+
+import dendron.Errors;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Superinstructions for the legacy Machine: single instructions that
+ * do the work of a short sequence of ordinary ones, such as
+ * LOAD a; LOAD b; ADD or PUSH k; MUL. A superinstruction costs one
+ * dispatch instead of two or three, and it passes its operands
+ * directly instead of through the value stack, so it also saves the
+ * boxing and synchronized Stack calls in between.
+ *
+ * Only some shapes of sequence can be fused (see {@link #fusible}):
+ * <ul>
+ *     <li>two operands (PUSH or LOAD) followed by ADD, SUB, MUL or DIV</li>
+ *     <li>an operand followed by an arithmetic operation, NEG, STORE,
+ *         PRINT or a second operand</li>
+ *     <li>an arithmetic operation followed by STORE</li>
+ *     <li>NEG followed by an arithmetic operation</li>
+ * </ul>
+ * Which of these are worth fusing is learned from a corpus of programs
+ * by {@link #train}. Dendron programs have no jumps, so each instruction
+ * runs exactly once and counting the sequences in the listings gives
+ * the same figures as profiling their execution. The default set was
+ * chosen by running {@link #main} on the programs in Project1/assy.
+ *
+ * A fused program gives exactly the same output and errors as the
+ * original. A superinstruction reports {@link Opcode#FUSED}, since no
+ * one opcode describes its effect, and the tools that work from opcodes
+ * refuse it: fused programs are for the Machine only, and
+ * {@link #expand} gives back the original instructions for the others.
+ *
+ * @see Machine.Engine#FUSED
+ *
+ * @author William J. Reid (wjr3714)
+ */
+public class Superinstructions {
+
+    /** The most instructions one superinstruction replaces */
+    public static final int MAX_LENGTH = 3;
+
+    /** Fuse nothing that saves fewer dispatches than this in a corpus */
+    public static final int MIN_SAVING = 4;
+
+    /** The set chosen by training on Project1/assy */
+    private static final Superinstructions DEFAULT = new Superinstructions( Arrays.asList(
+            Arrays.asList( Opcode.PUSH, Opcode.STORE ),
+            Arrays.asList( Opcode.PUSH, Opcode.PUSH ),
+            Arrays.asList( Opcode.PUSH, Opcode.NEG ),
+            Arrays.asList( Opcode.LOAD, Opcode.LOAD, Opcode.MUL ),
+            Arrays.asList( Opcode.LOAD, Opcode.LOAD, Opcode.SUB ),
+            Arrays.asList( Opcode.LOAD, Opcode.NEG ) ) );
+
+    /** The sequences to fuse, in the order they were chosen */
+    private final List< List< Opcode > > patterns;
+
+    /** For each first opcode, the patterns starting with it, longest first */
+    private final List< List< Opcode > >[] byFirst;
+
+    /**
+     * Create a set of superinstructions.
+     * @param patterns the opcode sequences to fuse
+     * @throws IllegalArgumentException if a sequence is not
+     *         {@link #fusible}
+     */
+    @SuppressWarnings( { "unchecked", "rawtypes" } )
+    public Superinstructions( List< List< Opcode > > patterns ) {
+        this.patterns = new ArrayList<>();
+        this.byFirst = new List[ Opcode.values().length ];
+        for ( List< Opcode > pattern: patterns ) {
+            if ( !fusible( pattern ) ) {
+                throw new IllegalArgumentException( "Cannot fuse " + pattern );
+            }
+            List< Opcode > copy = List.copyOf( pattern );
+            this.patterns.add( copy );
+            int first = copy.get( 0 ).ordinal();
+            if ( this.byFirst[ first ] == null ) {
+                this.byFirst[ first ] = new ArrayList<>();
+            }
+            this.byFirst[ first ].add( copy );
+            // Longest first; List.sort is stable, so equal lengths keep their order.
+            this.byFirst[ first ].sort( ( a, b ) -> b.size() - a.size() );
+        }
+    }
+
+    /**
+     * Get the set of superinstructions used by the FUSED engine.
+     * @return the set trained on Project1/assy
+     */
+    public static Superinstructions getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Get the sequences this set fuses.
+     * @return the opcode sequences, in the order they were chosen
+     */
+    public List< List< Opcode > > getPatterns() {
+        return Collections.unmodifiableList( this.patterns );
+    }
+
+    /**
+     * Check whether a sequence of opcodes has the shape of a
+     * superinstruction.
+     * @param sequence the opcodes
+     * @return true if the sequence can be fused
+     */
+    public static boolean fusible( List< Opcode > sequence ) {
+        if ( sequence.size() == 2 ) {
+            Opcode first = sequence.get( 0 );
+            Opcode second = sequence.get( 1 );
+            if ( operand( first ) ) {
+                return operand( second ) || arithmetic( second ) || second == Opcode.NEG ||
+                       second == Opcode.STORE || second == Opcode.PRINT;
+            }
+            return arithmetic( first ) && second == Opcode.STORE ||
+                   first == Opcode.NEG && arithmetic( second );
+        }
+        return sequence.size() == 3 && operand( sequence.get( 0 ) ) &&
+               operand( sequence.get( 1 ) ) && arithmetic( sequence.get( 2 ) );
+    }
+
+    private static boolean operand( Opcode opcode ) {
+        return opcode == Opcode.PUSH || opcode == Opcode.LOAD;
+    }
+
+    private static boolean arithmetic( Opcode opcode ) {
+        return opcode == Opcode.ADD || opcode == Opcode.SUB ||
+               opcode == Opcode.MUL || opcode == Opcode.DIV;
+    }
+
+    /**
+     * Replace every sequence this set fuses with a superinstruction.
+     * Sequences are matched from the start of the program, trying the
+     * longest pattern first at each instruction.
+     * @param program a list of Machine instructions
+     * @return a new list, in which some instructions are superinstructions
+     */
+    public List< Machine.Instruction > fuse( List< Machine.Instruction > program ) {
+        Machine.Instruction[] instructions = program.toArray( new Machine.Instruction[ 0 ] );
+        Opcode[] opcodes = opcodes( instructions );
+        List< Machine.Instruction > fused = new ArrayList<>( instructions.length );
+        int pc = 0;
+        while ( pc < instructions.length ) {
+            int length = match( opcodes, pc );
+            if ( length == 0 ) {
+                fused.add( instructions[ pc++ ] );
+            }
+            else {
+                fused.add( build( Arrays.copyOfRange( instructions, pc, pc + length ) ) );
+                pc += length;
+            }
+        }
+        return fused;
+    }
+
+    /**
+     * Get the opcode of each instruction, or null for a superinstruction,
+     * which is never fused again.
+     */
+    private static Opcode[] opcodes( Machine.Instruction[] instructions ) {
+        Opcode[] opcodes = new Opcode[ instructions.length ];
+        for ( int pc = 0; pc < instructions.length; ++pc ) {
+            Opcode opcode = instructions[ pc ].opcode();
+            opcodes[ pc ] = opcode == Opcode.FUSED ? null : opcode;
+        }
+        return opcodes;
+    }
+
+    /**
+     * Find the length of the longest pattern that matches the program
+     * at an instruction, or 0 if none does.
+     */
+    private int match( Opcode[] opcodes, int pc ) {
+        if ( opcodes[ pc ] == null ) {
+            return 0;
+        }
+        List< List< Opcode > > candidates = this.byFirst[ opcodes[ pc ].ordinal() ];
+        if ( candidates == null ) {
+            return 0;
+        }
+        for ( List< Opcode > pattern: candidates ) {
+            int length = pattern.size();
+            if ( pc + length > opcodes.length ) {
+                continue;
+            }
+            int i = 1;
+            while ( i < length && opcodes[ pc + i ] == pattern.get( i ) ) {
+                ++i;
+            }
+            if ( i == length ) {
+                return length;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Replace every superinstruction in a program by the instructions
+     * it was made from.
+     * @param program a list of Machine instructions, possibly fused
+     * @return a new list of ordinary instructions
+     */
+    public static List< Machine.Instruction > expand( List< Machine.Instruction > program ) {
+        List< Machine.Instruction > expanded = new ArrayList<>( program.size() * 2 );
+        for ( Machine.Instruction instr: program ) {
+            if ( instr instanceof Superinstruction ) {
+                expanded.addAll( ( (Superinstruction) instr ).getParts() );
+            }
+            else {
+                expanded.add( instr );
+            }
+        }
+        return expanded;
+    }
+
+    /**
+     * Choose the superinstructions for a corpus of programs. Each round
+     * counts the fusible sequences left in the corpus as fused so far
+     * and adds the one that saves the most dispatches, until none saves
+     * at least the given number.
+     * @param corpus the programs to learn from
+     * @param minSaving the fewest dispatches a new pattern must save
+     * @return the trained set
+     */
+    public static Superinstructions train( Collection< List< Machine.Instruction > > corpus,
+                                           long minSaving ) {
+        List< List< Opcode > > chosen = new ArrayList<>();
+        while ( true ) {
+            Superinstructions current = new Superinstructions( chosen );
+            Map< List< Opcode >, Long > counts = new HashMap<>();
+            for ( List< Machine.Instruction > program: corpus ) {
+                List< Machine.Instruction > fused = current.fuse( program );
+                for ( int length = 2; length <= MAX_LENGTH; ++length ) {
+                    count( fused, length, counts );
+                }
+            }
+
+            List< Opcode > best = null;
+            long bestSaving = 0;
+            for ( Map.Entry< List< Opcode >, Long > entry: counts.entrySet() ) {
+                List< Opcode > pattern = entry.getKey();
+                long saving = entry.getValue() * ( pattern.size() - 1 );
+                if ( fusible( pattern ) && !chosen.contains( pattern ) &&
+                     ( saving > bestSaving ||
+                       saving == bestSaving && best != null && compare( pattern, best ) < 0 ) ) {
+                    best = pattern;
+                    bestSaving = saving;
+                }
+            }
+            if ( best == null || bestSaving < minSaving ) {
+                return current;
+            }
+            chosen.add( best );
+        }
+    }
+
+    /**
+     * Order patterns by length, longest first, then by opcode, so that
+     * training always makes the same choice between equal savings.
+     */
+    private static int compare( List< Opcode > a, List< Opcode > b ) {
+        if ( a.size() != b.size() ) {
+            return b.size() - a.size();
+        }
+        for ( int i = 0; i < a.size(); ++i ) {
+            if ( a.get( i ) != b.get( i ) ) {
+                return a.get( i ).compareTo( b.get( i ) );
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Count the opcode sequences of one length made of ordinary
+     * instructions.
+     */
+    private static void count( List< Machine.Instruction > program, int length,
+                               Map< List< Opcode >, Long > counts ) {
+        Opcode[] opcodes = opcodes( program.toArray( new Machine.Instruction[ 0 ] ) );
+        for ( int pc = 0; pc + length <= opcodes.length; ++pc ) {
+            Opcode[] sequence = Arrays.copyOfRange( opcodes, pc, pc + length );
+            if ( !Arrays.asList( sequence ).contains( null ) ) {
+                counts.merge( Arrays.asList( sequence ), 1L, Long::sum );
+            }
+        }
+    }
+
+    /**
+     * Apply an arithmetic opcode, reporting division by zero as
+     * Machine.Divide does.
+     */
+    private static int apply( Opcode opcode, int op1, int op2 ) {
+        switch ( opcode ) {
+            case ADD:
+                return op1 + op2;
+            case SUB:
+                return op1 - op2;
+            case MUL:
+                return op1 * op2;
+            default:
+                if ( op2 == 0 ) {
+                    String info = "Cannot divide by zero \n" + op1 + " / " + op2 ;
+                    Errors.report( Errors.Type.DIVIDE_BY_ZERO, info );
+                }
+                return op1 / op2;
+        }
+    }
+
+    /**
+     * Make the superinstruction for a fusible window of instructions.
+     */
+    private static Machine.Instruction build( Machine.Instruction[] parts ) {
+        Opcode first = parts[ 0 ].opcode();
+        Opcode last = parts[ parts.length - 1 ].opcode();
+        if ( parts.length == 3 ) {
+            return new OperandsOperation( parts );
+        }
+        if ( first == Opcode.NEG ) {
+            return new NegateOperation( parts );
+        }
+        if ( arithmetic( first ) ) {
+            return new OperationStore( parts );
+        }
+        switch ( last ) {
+            case PUSH:
+            case LOAD:
+                return new OperandPair( parts );
+            case NEG:
+                return new OperandNegate( parts );
+            case STORE:
+                return new OperandStore( parts );
+            case PRINT:
+                return new OperandPrint( parts );
+            default:
+                return new OperandOperation( parts );
+        }
+    }
+
+    /**
+     * A single instruction doing the work of a sequence of others.
+     */
+    public static abstract class Superinstruction implements Machine.Instruction {
+        /** The instructions replaced */
+        private final Machine.Instruction[] parts;
+
+        Superinstruction( Machine.Instruction[] parts ) {
+            this.parts = parts;
+        }
+
+        /**
+         * Get the instructions this one replaces.
+         * @return the original instructions, in order
+         */
+        public List< Machine.Instruction > getParts() {
+            return Arrays.asList( this.parts.clone() );
+        }
+
+        /**
+         * Mark this instruction as a superinstruction. The opcodes of
+         * the instructions it replaces are those of {@link #getParts}.
+         * @return {@link Opcode#FUSED}
+         */
+        @Override
+        public Opcode opcode() {
+            return Opcode.FUSED;
+        }
+
+        /**
+         * Show the instructions replaced, separated by semicolons.
+         * @return e.g. "LOAD a; LOAD b; ADD"
+         */
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            for ( Machine.Instruction part: this.parts ) {
+                if ( text.length() > 0 ) {
+                    text.append( "; " );
+                }
+                text.append( part );
+            }
+            return text.toString();
+        }
+    }
+
+    /**
+     * A value taken from a PUSH or LOAD without going through the stack.
+     */
+    private static final class Operand {
+        /** The variable, or null for a constant */
+        private final String name;
+        private final int constant;
+
+        Operand( Machine.Instruction instr ) {
+            if ( instr.opcode() == Opcode.LOAD ) {
+                this.name = ( (Machine.Load) instr ).getName();
+                this.constant = 0;
+            }
+            else {
+                this.name = null;
+                this.constant = ( (Machine.PushConst) instr ).getValue();
+            }
+        }
+
+        int get( Machine machine ) {
+            return this.name == null ? this.constant : machine.load( this.name );
+        }
+    }
+
+    /** PUSH or LOAD twice, then an arithmetic operation */
+    private static final class OperandsOperation extends Superinstruction {
+        private final Operand left;
+        private final Operand right;
+        private final Opcode operation;
+
+        OperandsOperation( Machine.Instruction[] parts ) {
+            super( parts );
+            this.left = new Operand( parts[ 0 ] );
+            this.right = new Operand( parts[ 1 ] );
+            this.operation = parts[ 2 ].opcode();
+        }
+
+        @Override
+        public void execute( Machine machine ) {
+            int op1 = this.left.get( machine );
+            int op2 = this.right.get( machine );
+            machine.push( apply( this.operation, op1, op2 ) );
+        }
+    }
+
+    /** PUSH or LOAD, then an arithmetic operation with the value below it */
+    private static final class OperandOperation extends Superinstruction {
+        private final Operand right;
+        private final Opcode operation;
+
+        OperandOperation( Machine.Instruction[] parts ) {
+            super( parts );
+            this.right = new Operand( parts[ 0 ] );
+            this.operation = parts[ 1 ].opcode();
+        }
+
+        @Override
+        public void execute( Machine machine ) {
+            int op2 = this.right.get( machine );
+            int op1 = machine.pop();
+            machine.push( apply( this.operation, op1, op2 ) );
+        }
+    }
+
+    /** Two PUSHes or LOADs */
+    private static final class OperandPair extends Superinstruction {
+        private final Operand first;
+        private final Operand second;
+
+        OperandPair( Machine.Instruction[] parts ) {
+            super( parts );
+            this.first = new Operand( parts[ 0 ] );
+            this.second = new Operand( parts[ 1 ] );
+        }
+
+        @Override
+        public void execute( Machine machine ) {
+            machine.push( this.first.get( machine ) );
+            machine.push( this.second.get( machine ) );
+        }
+    }
+
+    /** PUSH or LOAD, then NEG */
+    private static final class OperandNegate extends Superinstruction {
+        private final Operand operand;
+
+        OperandNegate( Machine.Instruction[] parts ) {
+            super( parts );
+            this.operand = new Operand( parts[ 0 ] );
+        }
+
+        @Override
+        public void execute( Machine machine ) {
+            machine.push( -this.operand.get( machine ) );
+        }
+    }
+
+    /** PUSH or LOAD, then STORE */
+    private static final class OperandStore extends Superinstruction {
+        private final Operand operand;
+        private final String target;
+
+        OperandStore( Machine.Instruction[] parts ) {
+            super( parts );
+            this.operand = new Operand( parts[ 0 ] );
+            this.target = ( (Machine.Store) parts[ 1 ] ).getName();
+        }
+
+        @Override
+        public void execute( Machine machine ) {
+            machine.store( this.target, this.operand.get( machine ) );
+        }
+    }
+
+    /** PUSH or LOAD, then PRINT */
+    private static final class OperandPrint extends Superinstruction {
+        private final Operand operand;
+
+        OperandPrint( Machine.Instruction[] parts ) {
+            super( parts );
+            this.operand = new Operand( parts[ 0 ] );
+        }
+
+        @Override
+        public void execute( Machine machine ) {
+            machine.print( this.operand.get( machine ) );
+        }
+    }
+
+    /** An arithmetic operation, then STORE */
+    private static final class OperationStore extends Superinstruction {
+        private final Opcode operation;
+        private final String target;
+
+        OperationStore( Machine.Instruction[] parts ) {
+            super( parts );
+            this.operation = parts[ 0 ].opcode();
+            this.target = ( (Machine.Store) parts[ 1 ] ).getName();
+        }
+
+        @Override
+        public void execute( Machine machine ) {
+            int op2 = machine.pop();
+            int op1 = machine.pop();
+            machine.store( this.target, apply( this.operation, op1, op2 ) );
+        }
+    }
+
+    /** NEG, then an arithmetic operation with the value below */
+    private static final class NegateOperation extends Superinstruction {
+        private final Opcode operation;
+
+        NegateOperation( Machine.Instruction[] parts ) {
+            super( parts );
+            this.operation = parts[ 1 ].opcode();
+        }
+
+        @Override
+        public void execute( Machine machine ) {
+            int op2 = -machine.pop();
+            int op1 = machine.pop();
+            machine.push( apply( this.operation, op1, op2 ) );
+        }
+    }
+
+    /**
+     * Learn superinstructions from a corpus of assembly files, then show
+     * the most common sequences, the patterns chosen, and for each file
+     * how many dispatches fusion saves and how long the program takes to
+     * execute on the legacy Machine before and after. Program output is
+     * discarded while timing.
+     *
+     * @param args [-m min-saving] followed by assembly files, or
+     *             directories of .denm files
+     */
+    public static void main( String[] args ) {
+        int next = 0;
+        long minSaving = MIN_SAVING;
+        if ( args.length >= 2 && args[ 0 ].equals( "-m" ) ) {
+            minSaving = Long.parseLong( args[ 1 ] );
+            next = 2;
+        }
+        if ( next == args.length ) {
+            System.err.println( "Usage: java Superinstructions [-m min-saving] " +
+                                "assembly-file-or-directory..." );
+            System.exit( 1 );
+        }
+
+        Map< String, List< Machine.Instruction > > corpus = new LinkedHashMap<>();
+        for ( String arg: Arrays.copyOfRange( args, next, args.length ) ) {
+            File file = new File( arg );
+            File[] listing = file.listFiles( ( dir, name ) -> name.endsWith( ".denm" ) );
+            List< File > files = new ArrayList<>();
+            if ( listing != null ) {
+                Arrays.sort( listing );
+                files.addAll( Arrays.asList( listing ) );
+            }
+            else {
+                files.add( file );
+            }
+            for ( File f: files ) {
+                List< Machine.Instruction > program = InstructionReader.assemble( f.getPath() );
+                if ( program != null ) {
+                    corpus.put( f.getName(), program );
+                }
+            }
+        }
+
+        for ( int length = 2; length <= MAX_LENGTH; ++length ) {
+            Map< List< Opcode >, Long > counts = new HashMap<>();
+            for ( List< Machine.Instruction > program: corpus.values() ) {
+                count( program, length, counts );
+            }
+            System.out.println( "Most common " + length + "-instruction sequences:" );
+            counts.entrySet().stream()
+                  .sorted( Map.Entry.< List< Opcode >, Long >comparingByValue().reversed() )
+                  .limit( 10 )
+                  .forEach( entry -> System.out.printf( "%8d  %s%s%n", entry.getValue(),
+                          entry.getKey(), fusible( entry.getKey() ) ? "" : "  (not fusible)" ) );
+        }
+
+        Superinstructions trained = train( corpus.values(), minSaving );
+        System.out.println( "\nChosen superinstructions:" );
+        for ( List< Opcode > pattern: trained.getPatterns() ) {
+            System.out.println( "    " + pattern );
+        }
+
+        PrintStream sink = new PrintStream( OutputStream.nullOutputStream() );
+        System.out.printf( "%n%-28s %10s %10s %7s %12s %12s%n",
+                "file", "dispatches", "fused", "saved", "legacy(us)", "fused(us)" );
+        long before = 0;
+        long after = 0;
+        for ( Map.Entry< String, List< Machine.Instruction > > entry: corpus.entrySet() ) {
+            List< Machine.Instruction > program = entry.getValue();
+            List< Machine.Instruction > fused = trained.fuse( program );
+            before += program.size();
+            after += fused.size();
+            System.out.printf( "%-28s %10d %10d %6.1f%% %12.3f %12.3f%n", entry.getKey(),
+                    program.size(), fused.size(),
+                    100.0 * ( program.size() - fused.size() ) / program.size(),
+                    time( program, sink ), time( fused, sink ) );
+        }
+        System.out.printf( "%-28s %10d %10d %6.1f%%%n", "total", before, after,
+                before == 0 ? 0.0 : 100.0 * ( before - after ) / before );
+    }
+
+    /**
+     * Measure the average time to run a program on a new Machine, in
+     * microseconds.
+     */
+    private static double time( List< Machine.Instruction > program, PrintStream sink ) {
+        final int warmup = 2000;
+        final int runs = 10000;
+        boolean throwing = Errors.throwsOnReport();
+        Errors.setThrowOnReport( true );
+        try {
+            for ( int i = 0; i < warmup; ++i ) {
+                run( program, sink );
+            }
+            long start = System.nanoTime();
+            for ( int i = 0; i < runs; ++i ) {
+                run( program, sink );
+            }
+            return ( System.nanoTime() - start ) / 1000.0 / runs;
+        }
+        finally {
+            Errors.setThrowOnReport( throwing );
+        }
+    }
+
+    /**
+     * Run a program, ignoring the error that ends it, if any.
+     */
+    private static void run( List< Machine.Instruction > program, PrintStream sink ) {
+        try {
+            new Machine( sink ).run( program );
+        }
+        catch ( Errors.DendronAbort abort ) {
+            // Timed up to the error, as the program would run.
+        }
+    }
+}
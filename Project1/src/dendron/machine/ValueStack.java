@@ -0,0 +1,163 @@
+/*
+ * file: ValueStack.java
+ */
+
+package dendron.machine;
+
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * The values a lowered program works on while it runs, and the arithmetic
+ * done on them. There is one kind of ValueStack for each
+ * {@link NumericMode}, holding its values in arrays of its own type, so
+ * nothing is boxed and only the BIG mode allocates.
+ *
+ * Each kind also has a static run method, the loop for an unprofiled
+ * run, with the operations written out for its value type. A profiled
+ * run goes instead through {@link FastMachine}'s one profiling loop,
+ * which calls the operations here for any mode.
+ *
+ * @author William J. Reid (wjr3714)
+ */
+abstract class ValueStack {
+
+    /** The number of values on the stack. */
+    int sp;
+
+    /**
+     * Create the stack for a run of a lowered program with the given kind
+     * of arithmetic.
+     * @param mode the kind of arithmetic to use
+     * @param program the lowered program, which gives the sizes
+     * @return a new, empty stack
+     */
+    static ValueStack create( NumericMode mode, FastMachine program ) {
+        int depth = program.maxDepth;
+        int vars = program.names.length;
+        switch ( mode ) {
+            case CHECKED_INT:
+                return new CheckedIntStack( depth, vars, program.temps );
+            case LONG:
+                return new LongStack( depth, vars, program.temps );
+            case BIG:
+                return new BigStack( depth, vars, program.temps );
+            default:
+                return new IntStack( depth, vars, program.temps );
+        }
+    }
+
+    /**
+     * Push a constant.
+     * @param constant the value
+     */
+    abstract void push( int constant );
+
+    /**
+     * Push the value of a variable, which has been stored.
+     * @param slot the variable's slot
+     */
+    abstract void load( int slot );
+
+    /**
+     * Pop the top value into a variable.
+     * @param slot the variable's slot
+     */
+    abstract void store( int slot );
+
+    /**
+     * Push the value of a temporary, which is 0 if it was never stored.
+     * @param temp the temporary's number
+     */
+    abstract void loadTemp( int temp );
+
+    /**
+     * Pop the top value into a temporary.
+     * @param temp the temporary's number
+     */
+    abstract void storeTemp( int temp );
+
+    /**
+     * Push another copy of the top value.
+     */
+    abstract void duplicate();
+
+    /**
+     * Replace the top two values with their sum.
+     */
+    abstract void add();
+
+    /**
+     * Replace the top two values with the lower minus the top.
+     */
+    abstract void subtract();
+
+    /**
+     * Replace the top two values with their product.
+     */
+    abstract void multiply();
+
+    /**
+     * Replace the top two values with the lower divided by the top,
+     * reporting a division by zero.
+     */
+    abstract void divide();
+
+    /**
+     * Negate the top value.
+     */
+    abstract void negate();
+
+    /**
+     * Replace the top value with its integer square root.
+     */
+    abstract void squareRoot();
+
+    /**
+     * Pop the top value and print it.
+     * @param out where to print it
+     */
+    abstract void print( PrintStream out );
+
+    /**
+     * Get the value of a variable, for the final report.
+     * @param slot the variable's slot, which has been stored
+     * @return the value, boxed
+     */
+    abstract Number get( int slot );
+
+    /**
+     * Build the symbol table used for the final dump.
+     * @param names the variable belonging to each slot
+     * @param defined which slots have been stored
+     * @return a new table of the stored variables' values
+     * @see #symbolTable(String[], boolean[], IntFunction)
+     */
+    Map< String, Number > symbolTable( String[] names, boolean[] defined ) {
+        return symbolTable( names, defined, this::get );
+    }
+
+    /**
+     * Build the symbol table used for the final dump.
+     * Slots are numbered in the order variables first appear in the
+     * program, loaded or stored; only those that were stored are
+     * entered, so the table holds the same names and values as the
+     * legacy Machine's and the dump looks the same.
+     * @param names the variable belonging to each slot
+     * @param defined which slots have been stored
+     * @param values gives the value of a stored slot
+     * @return a new table of the stored variables' values
+     */
+    static Map< String, Number > symbolTable( String[] names, boolean[] defined,
+                                              IntFunction< Number > values ) {
+        Map< String, Number > table = new HashMap<>();
+        for ( int slot = 0; slot < names.length; ++slot ) {
+            if ( defined[ slot ] ) {
+                table.put( names[ slot ], values.apply( slot ) );
+            }
+        }
+        return table;
+    }
+}
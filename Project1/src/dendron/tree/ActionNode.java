@@ -5,6 +5,7 @@
 package dendron.tree;
 
 import java.util.Map;
+import java.util.Set;
 
 /**
  * A dendron.tree.DendronNode that performs an action but does not
@@ -21,4 +22,31 @@ public interface ActionNode extends DendronNode {
      * @param symTab the table where variable values are stored
      */
     void execute( Map< String, Integer > symTab );
+
+    /**
+     * Give each variable used by this action its slot in a frame,
+     * so that the action can be executed against the frame.
+     *
+     * @param frame the frame that will hold the variables' values
+     * @see ExpressionNode#resolve(Frame)
+     */
+    void resolve( Frame frame );
+
+    /**
+     * Perform the action represented by this node, using the
+     * slots chosen by {@link #resolve}.
+     *
+     * @param frame the frame the action was resolved against
+     */
+    void execute( Frame frame );
+
+    /**
+     * Build an equivalent action whose expressions are simplified.
+     *
+     * @param assigned the variables certain to have values before this
+     *                 action runs; updated with any variable it assigns
+     * @return the simplified action (this node if nothing changed)
+     * @see ExpressionNode#simplify(Set)
+     */
+    ActionNode simplify( Set< String > assigned );
 }
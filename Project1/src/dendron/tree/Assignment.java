@@ -2,9 +2,10 @@ package dendron.tree;
 
 import dendron.Errors;
 import dendron.machine.Machine;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
 
 /**
  * An ActionNode that represents the assignment of the value of an expression to a variable.
@@ -18,12 +19,21 @@ import java.util.Map;
  */
 public class Assignment implements ActionNode {
 
+    /** What a legal variable name looks like. */
+    private static final Pattern NAME = Pattern.compile("^[a-zA-Z].*");
+
     /** The name of the variable being assigned a new value. */
     private String ident;
 
     /** Expression on the right hand side of the of the assignment statement. */
     private ExpressionNode rhs;
 
+    /** The variable's slot in the frame, set by resolve. */
+    private int slot = -1;
+
+    /** Whether ident is a legal variable name, checked by resolve. */
+    private boolean legal;
+
     /**
      * Create an assignment node.
      * @param ident  The variable that is getting assigned a new value
@@ -34,6 +44,33 @@ public class Assignment implements ActionNode {
         this.rhs = rhs;
     }
 
+    /**
+     * Get the name of the variable being assigned.
+     *
+     * @return The variable's name
+     */
+    String getIdent() {
+        return ident;
+    }
+
+    /**
+     * Get the slot of the variable being assigned, once resolved.
+     *
+     * @return The variable's slot number
+     */
+    int getSlot() {
+        return slot;
+    }
+
+    /**
+     * Get the expression whose value is assigned.
+     *
+     * @return The right hand side
+     */
+    ExpressionNode getRhs() {
+        return rhs;
+    }
+
     /**
      * Evaluate the RHS expression. The result is then assigned to the variable.
      *
@@ -55,6 +92,50 @@ public class Assignment implements ActionNode {
 
     }
 
+    /**
+     * Resolve the RHS expression's variables, then the assigned variable's slot.
+     *
+     * @param frame The frame that will hold the variables' values
+     */
+    @Override
+    public void resolve(Frame frame) {
+        rhs.resolve(frame);
+        slot = frame.slot(ident);
+        legal = NAME.matcher(ident).matches();
+    }
+
+    /**
+     * Evaluate the RHS expression. The result is then stored in the variable's slot.
+     *
+     * @param frame The frame the assignment was resolved against
+     */
+    @Override
+    public void execute(Frame frame) {
+        if (!legal){
+            Errors.report(Errors.Type.UNINITIALIZED, null);
+        }
+        try{
+            frame.set(slot, rhs.evaluate(frame));
+        }
+        catch (NullPointerException nPexception){
+            String info = ident + " has not been initialized.";
+            Errors.report(Errors.Type.UNINITIALIZED, info);
+        }
+    }
+
+    /**
+     * Simplify the RHS expression. Afterwards the variable is known to have a value.
+     *
+     * @param assigned The variables certain to have values before this assignment; ident is added.
+     * @return The simplified assignment.
+     */
+    @Override
+    public ActionNode simplify(Set<String> assigned) {
+        ExpressionNode simplified = rhs.simplify(assigned);
+        assigned.add(ident);
+        return simplified == rhs ? this : new Assignment(ident, simplified);
+    }
+
     /**
      * The infix form of the assignment is the follwoing; a variable followed by an assignment arrow (":=") followed by
      * the infix form of the RHS expression.
@@ -74,16 +155,6 @@ public class Assignment implements ActionNode {
      */
     @Override
     public List<Machine.Instruction> emit() {
-
-        // Store assignment
-        Machine.Store storeInstruction = new Machine.Store(ident);
-
-        // Instructions list
-        ArrayList<Machine.Instruction> instructionsList = new ArrayList<>(rhs.emit());
-
-        // Generate list of instructions
-        instructionsList.add(storeInstruction);
-
-        return instructionsList;
+        return TreeWalk.emit(this);
     }
 }
@@ -36,6 +36,12 @@ public class BinaryOperation implements ExpressionNode {
     private ExpressionNode leftChild;
     private ExpressionNode rightChild;
 
+    /** The number of levels in the tree rooted here. */
+    private final int height;
+
+    /** The structural hash code, computed once from the operands' hash codes. */
+    private final int hash;
+
     /**
      * Create a Binary Operation node.
      * @param operator A string representation of the operand.
@@ -47,20 +53,100 @@ public class BinaryOperation implements ExpressionNode {
         this.operator = operator;
         this.leftChild = leftChild;
         this.rightChild = rightChild;
+        this.height = 1 + Math.max(TreeWalk.height(leftChild), TreeWalk.height(rightChild));
+        this.hash = 31 * (31 * operator.hashCode() + leftChild.hashCode()) + rightChild.hashCode();
+    }
+
+
+    /**
+     * Get the operator symbol.
+     * @return ADD, DIV, MUL or SUB
+     */
+    String getOperator() {
+        return operator;
+    }
+
+    /**
+     * Get the number of levels in the tree rooted here.
+     * @return One more than the height of the taller operand
+     */
+    int getHeight() {
+        return height;
+    }
+
+    /**
+     * Get the left operand.
+     * @return The left child
+     */
+    ExpressionNode getLeft() {
+        return leftChild;
     }
 
+    /**
+     * Get the right operand.
+     * @return The right child
+     */
+    ExpressionNode getRight() {
+        return rightChild;
+    }
 
     /**
-     * Compute the result of applying the operator to both operands.
+     * Compute the result of applying the operator to both operands. A very tall tree is walked with an explicit stack
+     * instead of by recursion, so any depth of nesting can be evaluated.
      *
      * @param symTab The symbol table, if needed, to fetch variable values
      * @return The result of the evaluation
      */
     @Override
     public int evaluate(Map<String, Integer> symTab) {
-
+        if (height > TreeWalk.MAX_RECURSION) {
+            return TreeWalk.evaluate(this, symTab);
+        }
         int leftSubNode = leftChild.evaluate(symTab);
-        int rightSubNode = rightChild.evaluate(symTab);
+        return apply(leftSubNode, rightChild.evaluate(symTab));
+    }
+
+    /**
+     * Resolve the variables of both operands.
+     *
+     * @param frame The frame that will hold the variables' values
+     */
+    @Override
+    public void resolve(Frame frame) {
+        if (height > TreeWalk.MAX_RECURSION) {
+            TreeWalk.resolve(this, frame);
+            return;
+        }
+        leftChild.resolve(frame);
+        rightChild.resolve(frame);
+    }
+
+    /**
+     * Compute the result of applying the operator to both operands. A very tall tree is walked with an explicit stack
+     * instead of by recursion, so any depth of nesting can be evaluated.
+     *
+     * @param frame The frame the expression was resolved against
+     * @return The result of the evaluation
+     */
+    @Override
+    public int evaluate(Frame frame) {
+        if (height > TreeWalk.MAX_RECURSION) {
+            return TreeWalk.evaluate(this, frame);
+        }
+        int leftSubNode = leftChild.evaluate(frame);
+        return apply(leftSubNode, rightChild.evaluate(frame));
+    }
+
+    /**
+     * Apply the operator to the operands' values. This is 32-bit arithmetic that wraps around on overflow, as
+     * {@link dendron.machine.NumericMode#INT} does; the tree is always interpreted this way, and the other numeric
+     * modes apply only when the compiled instructions are executed.
+     *
+     * @param leftSubNode The left operand's value
+     * @param rightSubNode The right operand's value
+     * @return The result
+     */
+    int apply(int leftSubNode, int rightSubNode) {
 
         // For default case in switch statement (need a return statement if a case is not provided).
         int empty = (int) Double.NaN;
@@ -87,6 +173,224 @@ public class BinaryOperation implements ExpressionNode {
 
     }
 
+    /**
+     * Check whether applying the operator to two values gives a result that fits in an int, by computing it with
+     * 64-bit arithmetic.
+     *
+     * @param leftValue The left operand's value
+     * @param rightValue The right operand's value, not 0 for division
+     * @return true if the operation does not overflow
+     */
+    private boolean fitsInt(long leftValue, long rightValue) {
+        long result;
+        switch (operator) {
+            case ADD:
+                result = leftValue + rightValue;
+                break;
+            case SUB:
+                result = leftValue - rightValue;
+                break;
+            case MUL:
+                result = leftValue * rightValue;
+                break;
+            default:
+                result = leftValue / rightValue;
+                break;
+        }
+        return result == (int) result;
+    }
+
+    /**
+     * Simplify both operands, then fold the operation if both are constants. Otherwise remove identities
+     * (x + 0, x - 0, 0 + x, x * 1, 1 * x, x / 1), turn multiplication or division by -1 into negation, absorb a
+     * negated right operand into the operator when the negation cannot overflow, and replace x * 2 by x + x. An
+     * operand is only dropped (x * 0, x - x) when evaluating it could not have reported an error, overflow included. Division by a constant zero is never folded so that it is
+     * still reported when the program runs, and neither is an operation whose result does not fit in an int, so that
+     * it gives the same result in every numeric mode. A very tall tree is walked with an explicit stack instead of by
+     * recursion, so any depth of nesting can be simplified.
+     *
+     * @param assigned The variables certain to have values when this expression is evaluated
+     * @return The simplified expression
+     */
+    @Override
+    public ExpressionNode simplify(Set<String> assigned) {
+        if (height > TreeWalk.MAX_RECURSION) {
+            return TreeWalk.simplify(this, assigned);
+        }
+        return simplify(leftChild.simplify(assigned), rightChild.simplify(assigned), assigned);
+    }
+
+    /**
+     * Simplify this operation given its simplified operands, as simplify does once it has simplified them.
+     *
+     * @param left The simplified left operand
+     * @param right The simplified right operand
+     * @param assigned The variables certain to have values when this expression is evaluated
+     * @return The simplified expression
+     */
+    ExpressionNode simplify(ExpressionNode left, ExpressionNode right, Set<String> assigned) {
+        // Constant folding
+        if (left instanceof Constant && right instanceof Constant
+                && !(operator.equals(DIV) && isConstant(right, 0))) {
+            int leftValue = ((Constant) left).getValue();
+            int rightValue = ((Constant) right).getValue();
+            if (fitsInt(leftValue, rightValue)) {
+                return new Constant(apply(leftValue, rightValue));
+            }
+        }
+
+        switch (operator) {
+            case ADD:
+                if (isConstant(right, 0)) {
+                    return left;
+                }
+                if (isConstant(left, 0)) {
+                    return right;
+                }
+                if (UnaryOperation.isRemovableNegation(right)) { // x + -y = x - y
+                    return new BinaryOperation(SUB, left, ((UnaryOperation) right).getOperand());
+                }
+                break;
+            case SUB:
+                if (isConstant(right, 0)) {
+                    return left;
+                }
+                if (isConstant(left, 0)) {
+                    return negate(right);
+                }
+                if (UnaryOperation.isRemovableNegation(right)) { // x - -y = x + y
+                    return new BinaryOperation(ADD, left, ((UnaryOperation) right).getOperand());
+                }
+                if (left instanceof Variable && right instanceof Variable
+                        && ((Variable) left).name.equals(((Variable) right).name) && cannotFail(left, assigned)) {
+                    return new Constant(0);
+                }
+                break;
+            case MUL:
+                if (isConstant(right, 1)) {
+                    return left;
+                }
+                if (isConstant(left, 1)) {
+                    return right;
+                }
+                if (isConstant(right, -1)) {
+                    return negate(left);
+                }
+                if (isConstant(left, -1)) {
+                    return negate(right);
+                }
+                if (isConstant(right, 0) && cannotFail(left, assigned)) {
+                    return right;
+                }
+                if (isConstant(left, 0) && cannotFail(right, assigned)) {
+                    return left;
+                }
+                // Strength reduction: x * 2 = x + x
+                if (isConstant(right, 2) && left instanceof Variable) {
+                    return new BinaryOperation(ADD, left, left);
+                }
+                if (isConstant(left, 2) && right instanceof Variable) {
+                    return new BinaryOperation(ADD, right, right);
+                }
+                break;
+            case DIV:
+                if (isConstant(right, 1)) {
+                    return left;
+                }
+                if (isConstant(right, -1)) {
+                    return negate(left);
+                }
+                break;
+        }
+
+        return left == leftChild && right == rightChild ? this : new BinaryOperation(operator, left, right);
+    }
+
+    /**
+     * Check if an expression is a particular constant.
+     */
+    private static boolean isConstant(ExpressionNode node, int value) {
+        return node instanceof Constant && ((Constant) node).getValue() == value;
+    }
+
+    /**
+     * Negate an expression, cancelling a negation that is already there if that cannot hide an overflow.
+     */
+    private static ExpressionNode negate(ExpressionNode node) {
+        return UnaryOperation.isRemovableNegation(node) ? ((UnaryOperation) node).getOperand()
+                : new UnaryOperation(UnaryOperation.NEG, node);
+    }
+
+    /**
+     * Check that evaluating an expression can never report an error, so it is safe to leave it out. Negation,
+     * addition, subtraction and multiplication can overflow an int, which a CHECKED_INT run reports, so an expression
+     * that uses them is kept.
+     *
+     * @param node The expression
+     * @param assigned The variables certain to have values
+     * @return true if the expression uses only constants, assigned variables, square roots and division by a constant
+     * other than 0 and -1; false for a Share, whose temporary is read later
+     */
+    static boolean cannotFail(ExpressionNode node, Set<String> assigned) {
+        // Each safe operator has one operand that could fail, so follow the chain of them down to a leaf.
+        while (true) {
+            if (node instanceof Share) {
+                return false;
+            }
+            else if (node instanceof Variable) {
+                return assigned.contains(((Variable) node).name);
+            }
+            else if (node instanceof UnaryOperation) {
+                UnaryOperation unary = (UnaryOperation) node;
+                if (!unary.getOperator().equals(UnaryOperation.SQRT)) {
+                    return false;
+                }
+                node = unary.getOperand();
+            }
+            else if (node instanceof BinaryOperation) {
+                BinaryOperation binary = (BinaryOperation) node;
+                if (!binary.getOperator().equals(DIV) || !(binary.getRight() instanceof Constant)
+                        || isConstant(binary.getRight(), 0) || isConstant(binary.getRight(), -1)) {
+                    return false;
+                }
+                node = binary.getLeft();
+            }
+            else {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Binary operations are equal when they have the same operator and equal operands, so that two copies of the same
+     * subexpression can be recognized. Operands that have been hash-consed are compared by identity first.
+     *
+     * @param other The object to compare with
+     * @return true if other is the same calculation
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof BinaryOperation)) {
+            return false;
+        }
+        BinaryOperation binary = (BinaryOperation) other;
+        return hash == binary.hash && operator.equals(binary.operator)
+                && leftChild.equals(binary.leftChild) && rightChild.equals(binary.rightChild);
+    }
+
+    /**
+     * Get the structural hash code, consistently with equals.
+     *
+     * @return The hash code
+     */
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
     /**
      * Show the code rooted at this node, using infix format, on standard output. Infix notation is when operators are
      * written in-between their operands. For example: ( X + Y )
@@ -102,45 +406,13 @@ public class BinaryOperation implements ExpressionNode {
 
     /**
      * Emit the necessary Machine instructions to compute of the binary operation. This is done by popping two values
-     * off the stack, applying the operator, and pushing the answer.
+     * off the stack, applying the operator, and pushing the answer. The operands' code comes first; all of it is
+     * written into one list of the right size.
      *
      * @return The Machine Instructions for this node required to perform the operation
      */
     @Override
     public List<Machine.Instruction> emit() {
-
-        // Contains the instructions for the operators: +, /, *, -
-        ArrayList<Machine.Instruction> instructionsList = new ArrayList<>();
-
-        // Add instructions for addition
-        if (this.operator.contains("+")){
-            instructionsList.addAll(leftChild.emit());
-            instructionsList.addAll(rightChild.emit());
-            Machine.Add addOperation = new Machine.Add();
-            instructionsList.add(addOperation);
-        }
-        // Add instructions for division
-        else if(this.operator.contains("/")) {
-            instructionsList.addAll(leftChild.emit());
-            instructionsList.addAll(rightChild.emit());
-            Machine.Divide divideOperation = new Machine.Divide();
-            instructionsList.add(divideOperation);
-        }
-        // Add instructions for multiplication
-        else if(this.operator.contains("*")) {
-            instructionsList.addAll(leftChild.emit());
-            instructionsList.addAll(rightChild.emit());
-            Machine.Multiply multiplyOperation = new Machine.Multiply();
-            instructionsList.add(multiplyOperation);
-        }
-        // Add instructions for subtraction
-        else if(this.operator.contains("-")) {
-            instructionsList.addAll(leftChild.emit());
-            instructionsList.addAll(rightChild.emit());
-            Machine.Subtract subtractOperation = new Machine.Subtract();
-            instructionsList.add(subtractOperation);
-        }
-
-        return instructionsList;
+        return TreeWalk.emit(this);
     }
 }
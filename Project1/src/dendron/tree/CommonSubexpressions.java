@@ -0,0 +1,356 @@
+package dendron.tree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Common subexpression elimination over a whole program. A subexpression computed again while none of the variables
+ * it reads has been assigned in between has the same value, so the first computation is wrapped in a {@link Share}
+ * that saves its value in a temporary, and each later one becomes a {@link TempRef} that reads it back. The
+ * interpreter and the compiled code both read the temporary instead of repeating the work.
+ *
+ * The program is hash-consed first (see {@link NodeTable}), so that equal subexpressions are the same node. Then two
+ * passes go through it in execution order, keeping track of which subexpressions are available: computed and not
+ * invalidated since. An assignment invalidates every available subexpression that reads the assigned variable. The
+ * first pass counts how often each computation is reused; the second, which repeats exactly the same decisions,
+ * rebuilds the tree. A value is shared only if that saves instructions: the DUP and TSTORE of the Share and a TLOAD for
+ * each reuse must cost less than computing it again every time. Temporaries are numbered from 0 and a number is freed
+ * after the last reuse of its value, so programs need only a few of them.
+ *
+ * @see ParseTree#optimize()
+ *
+ * @author William J. Reid (wjr3714)
+ */
+final class CommonSubexpressions {
+
+    /** What is known about a distinct subexpression. */
+    private static final class Info {
+        /** The variables it reads. */
+        final Set<String> variables;
+        /** The number of instructions that compute it. */
+        final int size;
+
+        Info(Set<String> variables, int size) {
+            this.variables = variables;
+            this.size = size;
+        }
+    }
+
+    /** One computation of a subexpression, and the later uses of its value. */
+    private static final class Entry {
+        /** The size of the computation. */
+        final int size;
+        /** How many times the value is reused, counted by the first pass. */
+        int reuses;
+        /** How many reuses are still to come, while rebuilding. */
+        int remaining;
+        /** The temporary holding the value, while rebuilding. */
+        int temp = -1;
+
+        Entry(int size) {
+            this.size = size;
+        }
+
+        /**
+         * Check whether sharing the value saves instructions.
+         */
+        boolean shared() {
+            return reuses * (size - 1) > 2;
+        }
+    }
+
+    /** Makes equal subexpressions the same node. */
+    private final NodeTable table = new NodeTable();
+
+    /** What is known about each canonical subexpression. */
+    private final Map<ExpressionNode, Info> infos = new IdentityHashMap<>();
+
+    /** The computations of the first pass, in execution order. */
+    private final List<Entry> entries = new ArrayList<>();
+
+    /** The available subexpressions and the computation that made each one available. */
+    private final Map<ExpressionNode, Entry> available = new IdentityHashMap<>();
+
+    /** For each variable, the available subexpressions that read it. */
+    private final Map<String, List<ExpressionNode>> readers = new HashMap<>();
+
+    /** The temporaries holding values that are still to be reused. */
+    private final BitSet live = new BitSet();
+
+    /** false in the first pass, true in the second. */
+    private boolean rebuilding;
+
+    /** The number of entries the second pass has reached. */
+    private int next;
+
+    /** The nodes an expression visit still has to reach, on top of the stack last. */
+    private ExpressionNode[] todo = new ExpressionNode[16];
+
+    /** For each node still to reach, whether its operands have already been visited. */
+    private boolean[] operandsDone = new boolean[16];
+
+    /** The number of nodes still to reach. */
+    private int pending;
+
+    /** Instances only live for the duration of one optimize call. */
+    private CommonSubexpressions() {}
+
+    /**
+     * Eliminate the common subexpressions of a program.
+     *
+     * @param program The program, which may already contain sharing from an earlier pass
+     * @return An equivalent program that computes each available value only once
+     */
+    static Program eliminate(Program program) {
+        CommonSubexpressions pass = new CommonSubexpressions();
+        List<ActionNode> actions = new ArrayList<>();
+        for (ActionNode action : program.getActions()) {
+            actions.add(pass.intern(action));
+        }
+        pass.statements(actions);
+        pass.available.clear();
+        pass.readers.clear();
+        pass.rebuilding = true;
+        return pass.statements(actions);
+    }
+
+    /**
+     * Hash-cons the expression of a statement.
+     */
+    private ActionNode intern(ActionNode action) {
+        if (action instanceof Assignment) {
+            Assignment assignment = (Assignment) action;
+            return new Assignment(assignment.getIdent(), table.intern(assignment.getRhs()));
+        }
+        else if (action instanceof Print) {
+            return new Print(table.intern(((Print) action).getPrintee()));
+        }
+        return action;
+    }
+
+    /**
+     * Make one pass through the statements, in order.
+     *
+     * @return The rebuilt program in the second pass
+     */
+    private Program statements(List<ActionNode> actions) {
+        Program result = new Program();
+        for (ActionNode action : actions) {
+            if (action instanceof Assignment) {
+                Assignment assignment = (Assignment) action;
+                ExpressionNode rhs = expression(assignment.getRhs());
+                result.addAction(new Assignment(assignment.getIdent(), rhs));
+                invalidate(assignment.getIdent());
+            }
+            else if (action instanceof Print) {
+                result.addAction(new Print(expression(((Print) action).getPrintee())));
+            }
+            else {
+                // Nothing is known about what other statements change.
+                available.clear();
+                readers.clear();
+                result.addAction(action);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Visit an expression in execution order, operands first. The walk keeps its own stack of the nodes still to visit
+     * and of the rebuilt operands, so expressions of any depth can be visited.
+     *
+     * @param root A canonical expression
+     * @return In the second pass, the expression with sharing added
+     */
+    private ExpressionNode expression(ExpressionNode root) {
+        List<ExpressionNode> results = new ArrayList<>();
+        push(root, false);
+        while (pending > 0) {
+            --pending;
+            ExpressionNode node = todo[pending];
+            todo[pending] = null;
+            if (operandsDone[pending]) {
+                results.add(computed(node, results));
+                continue;
+            }
+            ExpressionNode known = visit(node);
+            if (known != null) {
+                results.add(known);
+                continue;
+            }
+            push(node, true);
+            if (node instanceof BinaryOperation) {
+                BinaryOperation binary = (BinaryOperation) node;
+                push(binary.getRight(), false);
+                push(binary.getLeft(), false);
+            }
+            else {
+                push(((UnaryOperation) node).getOperand(), false);
+            }
+        }
+        return results.get(0);
+    }
+
+    /**
+     * Put a node on the stack of nodes still to visit.
+     *
+     * @param operandsDone true if its operands have been visited and it only has to be recorded
+     */
+    private void push(ExpressionNode node, boolean operandsDone) {
+        if (pending == todo.length) {
+            todo = Arrays.copyOf(todo, pending * 2);
+            this.operandsDone = Arrays.copyOf(this.operandsDone, pending * 2);
+        }
+        todo[pending] = node;
+        this.operandsDone[pending] = operandsDone;
+        pending++;
+    }
+
+    /**
+     * Start the visit of an expression, settling it at once if it is not a candidate or its value is available.
+     *
+     * @param node A canonical expression
+     * @return The expression to use in its place, or null if its operands have to be visited
+     */
+    private ExpressionNode visit(ExpressionNode node) {
+        if (!candidate(node)) {
+            return node;
+        }
+
+        Entry entry = available.get(node);
+        if (entry == null) {
+            return null;
+        }
+        if (!rebuilding) {
+            entry.reuses++;
+            return node;
+        }
+        if (!entry.shared()) {
+            return node;
+        }
+        TempRef ref = new TempRef(entry.temp, node);
+        if (--entry.remaining == 0) {
+            live.clear(entry.temp);
+        }
+        return ref;
+    }
+
+    /**
+     * Finish the visit of an expression whose operands have been visited: record the computation, which makes its
+     * value available.
+     *
+     * @param node A canonical expression
+     * @param results The visited operands, last on the list; they are removed
+     * @return In the second pass, the expression with sharing added
+     */
+    private ExpressionNode computed(ExpressionNode node, List<ExpressionNode> results) {
+        ExpressionNode result;
+        if (node instanceof BinaryOperation) {
+            BinaryOperation binary = (BinaryOperation) node;
+            ExpressionNode right = results.remove(results.size() - 1);
+            ExpressionNode left = results.remove(results.size() - 1);
+            result = left == binary.getLeft() && right == binary.getRight()
+                    ? node : new BinaryOperation(binary.getOperator(), left, right);
+        }
+        else {
+            UnaryOperation unary = (UnaryOperation) node;
+            ExpressionNode operand = results.remove(results.size() - 1);
+            result = operand == unary.getOperand() ? node : new UnaryOperation(unary.getOperator(), operand);
+        }
+
+        Info info = info(node);
+        Entry entry;
+        if (rebuilding) {
+            entry = entries.get(next++);
+        }
+        else {
+            entry = new Entry(info.size);
+            entries.add(entry);
+        }
+        available.put(node, entry);
+        for (String variable : info.variables) {
+            readers.computeIfAbsent(variable, v -> new ArrayList<>()).add(node);
+        }
+
+        if (rebuilding && entry.shared()) {
+            entry.temp = live.nextClearBit(0);
+            entry.remaining = entry.reuses;
+            live.set(entry.temp);
+            result = new Share(entry.temp, result);
+        }
+        return result;
+    }
+
+    /**
+     * A variable has been given a new value, so nothing that reads it is available any more.
+     */
+    private void invalidate(String variable) {
+        List<ExpressionNode> stale = readers.remove(variable);
+        if (stale != null) {
+            for (ExpressionNode node : stale) {
+                available.remove(node);
+            }
+        }
+    }
+
+    /**
+     * Check whether an expression is worth considering: one that takes at least three instructions to compute, which
+     * is a binary operation under any number of unary ones.
+     */
+    private static boolean candidate(ExpressionNode node) {
+        while (node instanceof UnaryOperation) {
+            node = ((UnaryOperation) node).getOperand();
+        }
+        return node instanceof BinaryOperation;
+    }
+
+    /**
+     * Find the variables a canonical expression reads and the size of its code. Operands that are candidates have
+     * always been visited, and so described, before the expression that uses them; any other operand is a leaf under
+     * a chain of unary operators, which is followed with a loop.
+     */
+    private Info info(ExpressionNode node) {
+        Info info = infos.get(node);
+        if (info != null) {
+            return info;
+        }
+        List<ExpressionNode> chain = new ArrayList<>();
+        ExpressionNode base = node;
+        while (base instanceof UnaryOperation && !infos.containsKey(base)) {
+            chain.add(base);
+            base = ((UnaryOperation) base).getOperand();
+        }
+        info = infos.get(base);
+        if (info == null) {
+            if (base instanceof Variable) {
+                info = new Info(Set.of(((Variable) base).name), 1);
+            }
+            else if (base instanceof BinaryOperation) {
+                Info left = info(((BinaryOperation) base).getLeft());
+                Info right = info(((BinaryOperation) base).getRight());
+                Set<String> variables = left.variables;
+                if (!variables.containsAll(right.variables)) {
+                    variables = new HashSet<>(left.variables);
+                    variables.addAll(right.variables);
+                }
+                info = new Info(variables, left.size + right.size + 1);
+            }
+            else {
+                info = new Info(Set.of(), 1);
+            }
+            infos.put(base, info);
+        }
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            info = new Info(info.variables, info.size + 1);
+            infos.put(chain.get(i), info);
+        }
+        return info;
+    }
+}
@@ -0,0 +1,251 @@
+package dendron.tree;
+
+import dendron.machine.BinaryInstructions;
+import dendron.machine.Machine;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An on-disk cache of compiled Dendron programs, so that a source program that has not changed since it was last run
+ * is not tokenized, parsed, optimized and compiled again. Each entry is the optimized instruction list in the compact
+ * form written by {@link BinaryInstructions}, in a file named for the SHA-256 hash of the compiler version and the
+ * source text. Changing a single character of the source, or raising {@link #COMPILER_VERSION}, gives a different
+ * name, so stale entries are never used; they are simply left behind.
+ *
+ * An entry is written to a temporary file and then renamed, so several processes can share a cache directory and
+ * none of them ever reads a half-written entry. An entry that cannot be read is treated as a miss and replaced, and
+ * a cache that cannot be written only costs the time to compile. Programs with errors are reported as usual and not
+ * cached.
+ *
+ * The cache directory is chosen with the {@value #PROPERTY} system property.
+ *
+ * @see ParseTree#optimize()
+ *
+ * @author William J. Reid (wjr3714)
+ */
+public class CompileCache {
+
+    /** The name of the system property giving the cache directory. */
+    public static final String PROPERTY = "dendron.cache";
+
+    /** The directory used when the property is "true" or empty. */
+    public static final String DEFAULT_DIRECTORY = ".dendron-cache";
+
+    /**
+     * The version of the compiler whose output is cached. Raise it whenever a change to the parser, the optimizer or
+     * the code generator changes the instructions produced for some program.
+     */
+    public static final int COMPILER_VERSION = 3;
+
+    /** The directory holding the entries. */
+    private final Path directory;
+
+    /** The number of programs found in the cache. */
+    private final AtomicLong hits = new AtomicLong();
+
+    /** The number of programs that had to be compiled. */
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Create a cache kept in a directory, which is created when the first entry is written.
+     *
+     * @param directory Where the entries are kept
+     */
+    public CompileCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Create the cache asked for with the {@value #PROPERTY} system property: the directory it names, or
+     * {@value #DEFAULT_DIRECTORY} if it is "true" or empty.
+     *
+     * @return A new cache, or null if the property is not set or is "false"
+     */
+    public static CompileCache fromProperty() {
+        String value = System.getProperty(PROPERTY);
+        if (value == null || value.equalsIgnoreCase("false")) {
+            return null;
+        }
+        if (value.isEmpty() || value.equalsIgnoreCase("true")) {
+            return new CompileCache(Paths.get(DEFAULT_DIRECTORY));
+        }
+        return new CompileCache(Paths.get(value));
+    }
+
+    /**
+     * Get the optimized machine instructions for a source file, from the cache if it holds them.
+     *
+     * @param source The Dendron source file
+     * @return The Machine.Instruction list
+     * @throws IOException If the source file cannot be read
+     */
+    public List<Machine.Instruction> compile(Path source) throws IOException {
+        return compile(new String(Files.readAllBytes(source), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Get the optimized machine instructions for a program, from the cache if it holds them. On a miss the program is
+     * parsed, optimized and compiled, and the result is stored.
+     *
+     * @param source The Dendron source text
+     * @return The Machine.Instruction list
+     */
+    public List<Machine.Instruction> compile(String source) {
+        Path entry = directory.resolve(key(source) + BinaryInstructions.EXTENSION);
+        try {
+            List<Machine.Instruction> program = BinaryInstructions.decode(ByteBuffer.wrap(Files.readAllBytes(entry)));
+            hits.incrementAndGet();
+            return program;
+        }
+        catch (NoSuchFileException absent) {
+            // The usual miss.
+        }
+        catch (IOException | RuntimeException unreadable) {
+            // A damaged entry, or one from an older binary format, is replaced.
+        }
+
+        misses.incrementAndGet();
+        ParseTree tree = new ParseTree(new StringReader(source));
+        tree.optimize();
+        List<Machine.Instruction> program = tree.compile();
+        store(entry, BinaryInstructions.encode(program));
+        return program;
+    }
+
+    /**
+     * Get the number of programs that were found in the cache.
+     *
+     * @return The hit count
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Get the number of programs that had to be compiled.
+     *
+     * @return The miss count
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Get the fraction of programs that were found in the cache.
+     *
+     * @return The hit rate from 0 to 1, or 0 if nothing has been compiled
+     */
+    public double getHitRate() {
+        long total = getHits() + getMisses();
+        return total == 0 ? 0 : (double) getHits() / total;
+    }
+
+    /**
+     * Get the directory holding the entries.
+     *
+     * @return The cache directory
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Describe the cache and its statistics.
+     *
+     * @return The directory, hits, misses and hit rate
+     */
+    @Override
+    public String toString() {
+        return String.format("compile cache %s: %d hits, %d misses (%.1f%% hit rate)",
+                directory, getHits(), getMisses(), 100 * getHitRate());
+    }
+
+    /**
+     * Find the name of the entry for some source text: the SHA-256 hash, in hexadecimal, of the compiler version
+     * followed by the text.
+     */
+    static String key(String source) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException missing) {
+            // Every Java platform is required to provide SHA-256.
+            throw new IllegalStateException(missing);
+        }
+        digest.update(("dendron " + COMPILER_VERSION + "\n").getBytes(StandardCharsets.UTF_8));
+        byte[] hash = digest.digest(source.getBytes(StandardCharsets.UTF_8));
+        StringBuilder hex = new StringBuilder(2 * hash.length);
+        for (byte b : hash) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Write an entry by way of a temporary file, so that it appears all at once.
+     */
+    private void store(Path entry, byte[] bytes) {
+        try {
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, "entry", ".tmp");
+            try {
+                Files.write(temporary, bytes);
+                try {
+                    Files.move(temporary, entry, StandardCopyOption.ATOMIC_MOVE);
+                }
+                catch (AtomicMoveNotSupportedException unsupported) {
+                    Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            finally {
+                Files.deleteIfExists(temporary);
+            }
+        }
+        catch (IOException ioe) {
+            System.err.println("Could not write to the compile cache " + directory + ": " + ioe.getMessage());
+        }
+    }
+
+    /**
+     * Run Dendron source files on the Machine, compiling each only if the cache does not already hold it, then print
+     * the cache's statistics on standard error.
+     *
+     * @param args [-d directory] followed by source files
+     */
+    public static void main(String[] args) {
+        int next = 0;
+        Path directory = Paths.get(DEFAULT_DIRECTORY);
+        if (args.length >= 2 && args[0].equals("-d")) {
+            directory = Paths.get(args[1]);
+            next = 2;
+        }
+        if (next == args.length) {
+            System.err.println("Usage: java CompileCache [-d directory] source-file...");
+            System.exit(1);
+        }
+
+        CompileCache cache = new CompileCache(directory);
+        for (int i = next; i < args.length; i++) {
+            try {
+                Machine.execute(cache.compile(Paths.get(args[i])));
+            }
+            catch (IOException ioe) {
+                System.err.println("Could not read " + args[i] + ": " + ioe.getMessage());
+            }
+        }
+        System.err.println(cache);
+    }
+}
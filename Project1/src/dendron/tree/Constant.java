@@ -4,6 +4,7 @@ import dendron.machine.Machine;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * An expression node representing a constant (integer value).
@@ -29,6 +30,15 @@ public class Constant implements ExpressionNode {
         this.value = value;
     }
 
+    /**
+     * Get the constant's value.
+     *
+     * @return The integer value.
+     */
+    int getValue() {
+        return value;
+    }
+
     /**
      * Evaluate the constant.
      *
@@ -40,6 +50,58 @@ public class Constant implements ExpressionNode {
         return value;
     }
 
+    /**
+     * A constant uses no variables.
+     *
+     * @param frame The frame being resolved (not used in this case).
+     */
+    @Override
+    public void resolve(Frame frame) {
+    }
+
+    /**
+     * Evaluate the constant.
+     *
+     * @param frame The variables' values (not used in this case).
+     * @return The constant's value.
+     */
+    @Override
+    public int evaluate(Frame frame) {
+        return value;
+    }
+
+    /**
+     * A constant is already as simple as it gets.
+     *
+     * @param assigned The variables known to have values (not used in this case).
+     * @return This node.
+     */
+    @Override
+    public ExpressionNode simplify(Set<String> assigned) {
+        return this;
+    }
+
+    /**
+     * Constants are equal when their values are.
+     *
+     * @param other The object to compare with
+     * @return true if other is a Constant with the same value
+     */
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Constant && ((Constant) other).value == value;
+    }
+
+    /**
+     * Hash the value, consistently with equals.
+     *
+     * @return The hash code
+     */
+    @Override
+    public int hashCode() {
+        return Integer.hashCode(value);
+    }
+
     /**
      * Print this Constant's value on standard output.
      */
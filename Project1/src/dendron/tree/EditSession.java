@@ -0,0 +1,298 @@
+package dendron.tree;
+
+import dendron.Errors;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs a Dendron program again each time it is edited, redoing only the work the edit requires. This is meant for an
+ * editor that shows the program's output as the user types.
+ *
+ * The program is split into statements, each beginning with ":=" or "@". When a new version arrives, the statements
+ * before the first changed token and after the last one are kept as they were parsed, and only the statements in
+ * between are parsed. Execution then resumes just before the first changed statement: every assignment that was run
+ * recorded what its variable held before, so undoing the assignments after that point, newest first, gives back the
+ * variables as they were there, and the output the later statements printed is discarded. Parsing therefore costs in
+ * proportion to the size of the change, and execution in proportion to the statements from the change to the end;
+ * an edit at the end of a program, the usual case while typing, costs only what the edited statements do.
+ *
+ * Errors do not stop the Java virtual machine while a session is updating; they are kept as the session's error. A
+ * version that cannot be parsed leaves the session showing the last version that could, and the next version is
+ * compared with that one. A run-time error stops execution at the statement that reported it, as the interpreter
+ * would.
+ *
+ * @see ParseTree
+ *
+ * @author William J. Reid (wjr3714)
+ */
+public class EditSession {
+
+    /** Program output kept in memory, which can be cut back to an earlier length. */
+    private static class Output extends ByteArrayOutputStream {
+        void truncate(int length) {
+            count = length;
+        }
+    }
+
+    /** The tokens of the current version. */
+    private List<String> source = new ArrayList<>();
+
+    /** The statements of the current version, in order. */
+    private List<ActionNode> statements = new ArrayList<>();
+
+    /** The index in source where each statement starts, and finally the number of tokens. */
+    private int[] starts = {0};
+
+
+    /** For each statement that has run, the length of the output before it. */
+    private int[] outputMarks = new int[16];
+
+    /** For each assignment that has run, the value its variable held before. */
+    private int[] previousValues = new int[16];
+
+    /** For each assignment that has run, whether its variable had a value before. */
+    private boolean[] previouslyDefined = new boolean[16];
+
+    /** The number of statements at the start of the program that have run without error. */
+    private int executed;
+
+    /** What the program has printed. */
+    private final Output output = new Output();
+
+    /** Where the variables live, across all versions; the program prints into output through it. */
+    private final Frame frame = new Frame(new PrintStream(output, true));
+
+    /** The error the last update reported, or null. */
+    private String error;
+
+    /** The number of statements the last update parsed. */
+    private int parsed;
+
+    /** The number of statements the last update executed. */
+    private int reexecuted;
+
+    /**
+     * Bring the session up to date with a new version of the program, reusing what is unchanged from the current
+     * one.
+     *
+     * @param program The tokens of the new version
+     */
+    public void update(List<String> program) {
+        boolean throwing = Errors.throwsOnReport();
+        Errors.setThrowOnReport(true);
+        try {
+            apply(program);
+        }
+        finally {
+            Errors.setThrowOnReport(throwing);
+        }
+    }
+
+    /**
+     * Get what the current version has printed, one line per print statement. An error that stopped it is not
+     * included; see {@link #getError()}.
+     *
+     * @return The output text
+     */
+    public String getOutput() {
+        return output.toString();
+    }
+
+    /**
+     * Get the error the last update reported while parsing or executing.
+     *
+     * @return The error message, or null if there was none
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * Get the values of the variables after the current version has run, for Errors.dump.
+     *
+     * @return A new symbol table holding every variable that has a value
+     */
+    public Map<String, Integer> getSymbolTable() {
+        return frame.toMap();
+    }
+
+    /**
+     * Get the number of statements in the current version.
+     *
+     * @return The statement count
+     */
+    public int getStatementCount() {
+        return statements.size();
+    }
+
+    /**
+     * Get the number of statements the last update had to parse.
+     *
+     * @return The statements parsed
+     */
+    public int getParsedCount() {
+        return parsed;
+    }
+
+    /**
+     * Get the number of statements the last update had to execute.
+     *
+     * @return The statements executed
+     */
+    public int getExecutedCount() {
+        return reexecuted;
+    }
+
+    /**
+     * Find the changed statements, parse them, undo the execution from the first of them on, and run from there.
+     */
+    private void apply(List<String> program) {
+        int[] newStarts = statementStarts(program);
+        int oldCount = starts.length - 1;
+        int newCount = newStarts.length - 1;
+
+        // The statements before the first changed token are kept.
+        int firstDifference = 0;
+        int shorter = Math.min(source.size(), program.size());
+        while (firstDifference < shorter && source.get(firstDifference).equals(program.get(firstDifference))) {
+            firstDifference++;
+        }
+        int prefix = 0;
+        while (prefix < oldCount && prefix < newCount && starts[prefix + 1] <= firstDifference
+                && starts[prefix + 1] == newStarts[prefix + 1]) {
+            prefix++;
+        }
+
+        // So are the statements after the last changed token.
+        int sameAtEnd = 0;
+        int limit = shorter - starts[prefix];
+        while (sameAtEnd < limit && source.get(source.size() - 1 - sameAtEnd)
+                .equals(program.get(program.size() - 1 - sameAtEnd))) {
+            sameAtEnd++;
+        }
+        int suffix = 0;
+        while (prefix + suffix < oldCount && prefix + suffix < newCount
+                && source.size() - starts[oldCount - suffix - 1] <= sameAtEnd
+                && source.size() - starts[oldCount - suffix - 1]
+                   == program.size() - newStarts[newCount - suffix - 1]) {
+            suffix++;
+        }
+
+        // Parse the statements in between. Nothing has changed yet if they have an error.
+        List<ActionNode> changed;
+        int from = newStarts[prefix];
+        int to = newStarts[newCount - suffix];
+        try {
+            changed = from == to ? new ArrayList<>() : parse(program.subList(from, to));
+        }
+        catch (Errors.DendronAbort abort) {
+            error = abort.getMessage();
+            parsed = 0;
+            reexecuted = 0;
+            return;
+        }
+        parsed = changed.size();
+
+        // Go back to the state before the first changed statement.
+        int resume = Math.min(prefix, executed);
+        for (int i = executed - 1; i >= resume; i--) {
+            ActionNode statement = statements.get(i);
+            if (statement instanceof Assignment) {
+                frame.restore(((Assignment) statement).getSlot(), previousValues[i], previouslyDefined[i]);
+            }
+        }
+        if (resume < oldCount) {
+            output.truncate(outputMarks[resume]);
+        }
+
+        List<ActionNode> updated = new ArrayList<>(prefix + changed.size() + suffix);
+        updated.addAll(statements.subList(0, prefix));
+        for (ActionNode statement : changed) {
+            statement.resolve(frame);
+            updated.add(statement);
+        }
+        updated.addAll(statements.subList(oldCount - suffix, oldCount));
+        statements = updated;
+        starts = newStarts;
+        source = new ArrayList<>(program);
+
+        execute(resume);
+    }
+
+    /**
+     * Parse some statements. Running out of tokens in the middle of one, as usually happens while the last statement
+     * is being typed, is reported as an error rather than failing.
+     */
+    private static List<ActionNode> parse(List<String> tokens) {
+        try {
+            return new ParseTree(tokens).getProgram().getActions();
+        }
+        catch (IndexOutOfBoundsException end) {
+            Errors.report(Errors.Type.PREMATURE_END, "The last statement is not finished.");
+            return null;
+        }
+    }
+
+    /**
+     * Run the statements from one index to the end, recording how to undo each one.
+     */
+    private void execute(int first) {
+        int count = statements.size();
+        if (outputMarks.length < count) {
+            int capacity = Math.max(count, outputMarks.length * 2);
+            outputMarks = Arrays.copyOf(outputMarks, capacity);
+            previousValues = Arrays.copyOf(previousValues, capacity);
+            previouslyDefined = Arrays.copyOf(previouslyDefined, capacity);
+        }
+
+        error = null;
+        executed = first;
+        reexecuted = 0;
+        try {
+            for (int i = first; i < count; i++) {
+                ActionNode statement = statements.get(i);
+                outputMarks[i] = output.size();
+                if (statement instanceof Assignment) {
+                    int slot = ((Assignment) statement).getSlot();
+                    previouslyDefined[i] = frame.isDefined(slot);
+                    previousValues[i] = previouslyDefined[i] ? frame.get(slot) : 0;
+                }
+                reexecuted++;
+                statement.execute(frame);
+                executed = i + 1;
+            }
+        }
+        catch (Errors.DendronAbort abort) {
+            error = abort.getMessage();
+        }
+        finally {
+            frame.getOutput().flush();
+        }
+    }
+
+    /**
+     * Find where each statement of a program starts: at the first token and at every ":=" or "@" after it.
+     *
+     * @return The starting indices, followed by the number of tokens
+     */
+    private static int[] statementStarts(List<String> program) {
+        int[] result = new int[16];
+        int count = 0;
+        int index = 0;
+        for (String token : program) {
+            if (index == 0 || token.equals(":=") || token.equals("@")) {
+                if (count + 1 >= result.length) {
+                    result = Arrays.copyOf(result, result.length * 2);
+                }
+                result[count++] = index;
+            }
+            index++;
+        }
+        result[count++] = program.size();
+        return Arrays.copyOf(result, count);
+    }
+}
@@ -5,6 +5,7 @@
 package dendron.tree;
 
 import java.util.Map;
+import java.util.Set;
 
 /**
  * An abstraction for all DendronNodes that can be evaluated to
@@ -21,4 +22,32 @@ public interface ExpressionNode extends DendronNode {
      * @return the result of the evaluation
      */
     int evaluate( Map< String, Integer > symTab );
+
+    /**
+     * Give each variable in this expression its slot in a frame,
+     * so that the expression can be evaluated against the frame.
+     *
+     * @param frame the frame that will hold the variables' values
+     */
+    void resolve( Frame frame );
+
+    /**
+     * Evaluate the expression represented by this node, fetching
+     * variable values from the slots chosen by {@link #resolve}.
+     *
+     * @param frame the frame the expression was resolved against
+     * @return the result of the evaluation
+     */
+    int evaluate( Frame frame );
+
+    /**
+     * Build an equivalent expression that does less work, by folding
+     * constant subtrees and removing algebraic identities. An operand
+     * is only discarded if evaluating it can never report an error.
+     *
+     * @param assigned the variables certain to have values whenever
+     *                 this expression is evaluated
+     * @return the simplified expression (this node if nothing changed)
+     */
+    ExpressionNode simplify( Set< String > assigned );
 }
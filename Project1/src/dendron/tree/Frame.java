@@ -0,0 +1,228 @@
+package dendron.tree;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The variables of a running Dendron program, kept in an array instead of a map. Before the tree is interpreted, a
+ * resolution pass gives each distinct variable name a slot number in the frame, and each Variable and Assignment
+ * node remembers the slot of its name. Reading or writing a variable is then an array access, with no hashing and
+ * no boxing.
+ *
+ * A map view of the variables is made only when it is asked for, for Errors.dump. Its entries are added in the order
+ * the variables were first given values, as the Machine's symbol table is filled.
+ *
+ * The frame also holds the numbered temporaries that Share nodes save repeated values in. They are not variables and
+ * never appear in the map view.
+ *
+ * Print statements write to the frame's output, standard output unless the frame was made with a stream of its own.
+ * A caller that keeps a program's output, as an EditSession does, gives the frame that stream instead of redirecting
+ * System.out, which would affect every thread of the Java virtual machine.
+ *
+ * @see ExpressionNode#resolve(Frame)
+ * @see ActionNode#resolve(Frame)
+ *
+ * @author William J. Reid (wjr3714)
+ */
+public class Frame {
+
+    /** The slot number given to each name. */
+    private final Map<String, Integer> slots = new HashMap<>();
+
+    /** The name of each slot. */
+    private String[] names = new String[8];
+
+    /** The value of each slot. */
+    private int[] values = new int[8];
+
+    /** Whether each slot has been given a value. */
+    private boolean[] defined = new boolean[8];
+
+    /** The slots in the order they were first given values. */
+    private int[] storeOrder = new int[8];
+
+    /** The number of slots. */
+    private int size;
+
+    /** The number of slots that have values. */
+    private int stored;
+
+    /** The values of the temporaries. */
+    private int[] temps = new int[0];
+
+    /** Where print statements write, or null for standard output. */
+    private final PrintStream output;
+
+    /**
+     * Make an empty frame whose program prints on standard output.
+     */
+    public Frame() {
+        this(null);
+    }
+
+    /**
+     * Make an empty frame whose program prints to a given stream.
+     *
+     * @param output Where print statements write, or null for standard output
+     */
+    public Frame(PrintStream output) {
+        this.output = output;
+    }
+
+    /**
+     * Get the stream print statements write to. Standard output is looked up each time, so a frame without a stream
+     * of its own follows System.setOut as the interpreter always has.
+     *
+     * @return The frame's output
+     */
+    public PrintStream getOutput() {
+        return output == null ? System.out : output;
+    }
+
+    /**
+     * Tell whether the frame was given a stream of its own, so that its output is kept by the caller rather than
+     * shown on the console.
+     *
+     * @return true iff print statements do not write to standard output
+     */
+    public boolean hasOwnOutput() {
+        return output != null;
+    }
+
+    /**
+     * Find the slot for a variable, adding one if the name is new. Called while resolving a tree, not while running
+     * it.
+     *
+     * @param name The variable's name
+     * @return The variable's slot number
+     */
+    public int slot(String name) {
+        Integer slot = slots.get(name);
+        if (slot == null) {
+            if (size == names.length) {
+                int capacity = size * 2;
+                names = Arrays.copyOf(names, capacity);
+                values = Arrays.copyOf(values, capacity);
+                defined = Arrays.copyOf(defined, capacity);
+                storeOrder = Arrays.copyOf(storeOrder, capacity);
+            }
+            slot = size++;
+            names[slot] = name;
+            slots.put(name, slot);
+        }
+        return slot;
+    }
+
+    /**
+     * Get the number of variables resolved in this frame.
+     *
+     * @return The number of slots
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the value of a variable.
+     *
+     * @param slot The variable's slot number
+     * @return The variable's value
+     * @throws NullPointerException if the variable has not been given a value, just as unboxing a missing symbol
+     * table entry does, so the interpreter reports it the same way
+     */
+    public int get(int slot) {
+        if (!defined[slot]) {
+            throw new NullPointerException(names[slot] + " has not been initialized.");
+        }
+        return values[slot];
+    }
+
+    /**
+     * Check whether a variable has been given a value.
+     *
+     * @param slot The variable's slot number
+     * @return true if it has a value
+     */
+    public boolean isDefined(int slot) {
+        return defined[slot];
+    }
+
+    /**
+     * Give a variable a value.
+     *
+     * @param slot The variable's slot number
+     * @param value The new value
+     */
+    public void set(int slot, int value) {
+        if (!defined[slot]) {
+            defined[slot] = true;
+            storeOrder[stored++] = slot;
+        }
+        values[slot] = value;
+    }
+
+    /**
+     * Undo the most recent set of a variable, putting back what it held before. Sets must be undone in the reverse
+     * of the order they were made.
+     *
+     * @param slot The variable's slot number
+     * @param value The value it had before
+     * @param wasDefined Whether it had a value before; if not, it is left without one
+     */
+    public void restore(int slot, int value, boolean wasDefined) {
+        if (wasDefined) {
+            values[slot] = value;
+        }
+        else if (defined[slot]) {
+            defined[slot] = false;
+            stored--;
+        }
+    }
+
+    /**
+     * Make room for a temporary. Called while resolving a tree, not while running it. Temporaries start out as 0.
+     *
+     * @param temp The temporary's number
+     */
+    public void reserveTemp(int temp) {
+        if (temp >= temps.length) {
+            temps = Arrays.copyOf(temps, temp + 1);
+        }
+    }
+
+    /**
+     * Get the value saved in a temporary.
+     *
+     * @param temp The temporary's number
+     * @return The value
+     */
+    public int getTemp(int temp) {
+        return temps[temp];
+    }
+
+    /**
+     * Save a value in a temporary.
+     *
+     * @param temp The temporary's number
+     * @param value The value
+     */
+    public void setTemp(int temp, int value) {
+        temps[temp] = value;
+    }
+
+    /**
+     * Make a symbol table holding the variables that have values, for Errors.dump.
+     *
+     * @return A new map from each variable's name to its value
+     */
+    public Map<String, Integer> toMap() {
+        Map<String, Integer> table = new HashMap<>();
+        for (int i = 0; i < stored; i++) {
+            int slot = storeOrder[i];
+            table.put(names[slot], values[slot]);
+        }
+        return table;
+    }
+}
@@ -0,0 +1,173 @@
+package dendron.tree;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Splits Dendron source text into typed tokens, one at a time, straight from a Reader. Tokens are separated by white
+ * space. Only the current token is held in memory, and each distinct variable name is kept once so the parse tree
+ * shares it.
+ *
+ * Token kinds are decided by looking at characters directly instead of matching regular expressions.
+ *
+ * @see StreamingParser
+ *
+ * @author William J. Reid (wjr3714)
+ */
+public class Lexer {
+
+    /** The kinds of token in the Dendron language. */
+    public enum Kind {
+        /** A name starting with a letter. */
+        VARIABLE,
+        /** Text starting with a digit. */
+        INTEGER,
+        /** One of + - * / */
+        BINARY_OPERATOR,
+        /** One of _ # */
+        UNARY_OPERATOR,
+        /** The assignment keyword := */
+        ASSIGN,
+        /** The print keyword @ */
+        PRINT,
+        /** Anything else. */
+        ILLEGAL
+    }
+
+    /** Size of the character buffer. */
+    private static final int BUFFER_SIZE = 8192;
+
+    /** The source of characters. */
+    private final Reader source;
+
+    /** Characters read from the source but not yet consumed. */
+    private final char[] buffer = new char[BUFFER_SIZE];
+
+    /** Position of the next unread character in the buffer. */
+    private int position;
+
+    /** Number of valid characters in the buffer. */
+    private int limit;
+
+    /** Collects the characters of the current token. */
+    private final StringBuilder text = new StringBuilder();
+
+    /** One copy of each variable name seen so far. */
+    private final Map<String, String> names = new HashMap<>();
+
+    /** The kind of the current token. */
+    private Kind kind;
+
+    /** The text of the current token. */
+    private String token;
+
+    /**
+     * Create a lexer that reads from a character stream. The lexer never closes the stream; whoever opened it does.
+     *
+     * @param source The Dendron source text.
+     */
+    public Lexer(Reader source) {
+        this.source = source;
+    }
+
+    /**
+     * Advance to the next token.
+     *
+     * @return true if there is one, false at the end of the source.
+     */
+    public boolean next() {
+        int c = read();
+        while (c >= 0 && Character.isWhitespace(c)) {
+            c = read();
+        }
+        if (c < 0) {
+            kind = null;
+            token = null;
+            return false;
+        }
+
+        text.setLength(0);
+        while (c >= 0 && !Character.isWhitespace(c)) {
+            text.append((char) c);
+            c = read();
+        }
+        classify();
+        return true;
+    }
+
+    /**
+     * Get the kind of the current token.
+     *
+     * @return The token's kind, or null at the end of the source.
+     */
+    public Kind kind() {
+        return kind;
+    }
+
+    /**
+     * Get the text of the current token.
+     *
+     * @return The token, or null at the end of the source.
+     */
+    public String text() {
+        return token;
+    }
+
+    /**
+     * Decide the kind of the token in the text buffer. The rules are the ones ParseTree applies to a token list.
+     */
+    private void classify() {
+        char first = text.charAt(0);
+        if ((first >= 'a' && first <= 'z') || (first >= 'A' && first <= 'Z')) {
+            kind = Kind.VARIABLE;
+            String name = text.toString();
+            token = names.computeIfAbsent(name, n -> n);
+            return;
+        }
+
+        token = text.toString();
+        if (first >= '0' && first <= '9') {
+            kind = Kind.INTEGER;
+        }
+        else if (text.length() == 1 && (first == '+' || first == '-' || first == '*' || first == '/')) {
+            kind = Kind.BINARY_OPERATOR;
+        }
+        else if (text.length() == 1 && (first == '_' || first == '#')) {
+            kind = Kind.UNARY_OPERATOR;
+        }
+        else if (text.length() == 1 && first == '@') {
+            kind = Kind.PRINT;
+        }
+        else if (text.length() == 2 && first == ':' && text.charAt(1) == '=') {
+            kind = Kind.ASSIGN;
+        }
+        else {
+            kind = Kind.ILLEGAL;
+        }
+    }
+
+    /**
+     * Read one character, refilling the buffer as needed.
+     *
+     * @return The character, or -1 at the end of the source.
+     */
+    private int read() {
+        if (position == limit) {
+            try {
+                limit = source.read(buffer, 0, buffer.length);
+            }
+            catch (IOException ioe) {
+                throw new UncheckedIOException(ioe);
+            }
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+}
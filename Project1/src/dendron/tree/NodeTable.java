@@ -0,0 +1,75 @@
+package dendron.tree;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hash-consing of expression trees. Every subtree passed through the table is replaced by the one node the table
+ * keeps for all structurally equal subtrees, so afterwards equal subexpressions are the same object and can be
+ * recognized by identity. Nodes are canonicalized bottom-up, so comparing a new node with the one in the table only
+ * compares operands by identity, and the walk uses an explicit stack so trees of any depth can be interned.
+ *
+ * Sharing left by an earlier common subexpression pass is removed: a Share is replaced by its expression and a
+ * TempRef by the expression whose value it reads.
+ *
+ * @see CommonSubexpressions
+ *
+ * @author William J. Reid (wjr3714)
+ */
+final class NodeTable {
+
+    /** The canonical node for each distinct subtree. */
+    private final Map<ExpressionNode, ExpressionNode> nodes = new HashMap<>();
+
+    /**
+     * Replace every subtree of an expression by its canonical node.
+     *
+     * @param root The expression
+     * @return The canonical node for the whole expression
+     */
+    ExpressionNode intern(ExpressionNode root) {
+        ExpressionNode[] results = new ExpressionNode[16];
+        int size = 0;
+        TreeWalk walk = new TreeWalk(root);
+        for (DendronNode next = walk.next(); next != null; next = walk.next()) {
+            ExpressionNode node = (ExpressionNode) next;
+            ExpressionNode result;
+            if (node instanceof BinaryOperation) {
+                BinaryOperation binary = (BinaryOperation) node;
+                ExpressionNode right = results[--size];
+                ExpressionNode left = results[--size];
+                result = left == binary.getLeft() && right == binary.getRight()
+                        ? canonical(binary) : canonical(new BinaryOperation(binary.getOperator(), left, right));
+            }
+            else if (node instanceof UnaryOperation) {
+                UnaryOperation unary = (UnaryOperation) node;
+                ExpressionNode operand = results[--size];
+                result = operand == unary.getOperand()
+                        ? canonical(unary) : canonical(new UnaryOperation(unary.getOperator(), operand));
+            }
+            else if (node instanceof Share) {
+                result = results[--size];
+            }
+            else if (node instanceof TempRef) {
+                result = intern(((TempRef) node).getOriginal());
+            }
+            else {
+                result = canonical(node);
+            }
+            if (size == results.length) {
+                results = Arrays.copyOf(results, size * 2);
+            }
+            results[size++] = result;
+        }
+        return results[0];
+    }
+
+    /**
+     * Find the node kept for a subtree whose operands are already canonical, keeping this one if it is the first.
+     */
+    private ExpressionNode canonical(ExpressionNode node) {
+        ExpressionNode existing = nodes.putIfAbsent(node, node);
+        return existing != null ? existing : node;
+    }
+}
@@ -5,7 +5,10 @@
 package dendron.tree;
 
 import dendron.Errors;
+import dendron.jit.BytecodeCompiler;
+import dendron.jit.CompiledProgram;
 import dendron.machine.Machine;
+import java.io.Reader;
 import java.util.*;
 
 /**
@@ -27,12 +30,15 @@ public class ParseTree {
     /** The token list (Strings). */
     private Program tokens;
 
-    /** The table where values are stored. */
-    private Map<String, Integer> symTab;
+    /** Where variable values are stored while the tree is interpreted. */
+    private Frame frame;
 
     /** The index that keeps track of the iterator or parser's location. */
     private int nodeIndex;
 
+    /** Operators still waiting for operands in the expression being parsed. */
+    private PendingOperators pending;
+
 
     /**
      * Parse the entire list of program tokens. The program is * sequence of actions (statements), each of which
@@ -42,8 +48,9 @@ public class ParseTree {
      */
     public ParseTree(List<String> program) {
         this.tokens = new Program();
-        this.symTab = new HashMap<>();
+        this.frame = new Frame();
         this.nodeIndex = 0;
+        this.pending = new PendingOperators();
 
 
         /*
@@ -110,6 +117,21 @@ public class ParseTree {
         while (program.size() != 0 && nodeIndex < program.size()) {
             this.tokens.addAction(parseAction(program));
         }
+        this.tokens.resolve(frame);
+    }
+
+    /**
+     * Parse a program straight from its source text in a single pass. Tokens are read and checked one at a time, so
+     * the whole token list is never held in memory. The same errors are reported as for a token list.
+     *
+     * @param source The Dendron source text
+     * @see Lexer
+     */
+    public ParseTree(Reader source) {
+        this.frame = new Frame();
+        this.nodeIndex = 0;
+        this.tokens = new StreamingParser(new Lexer(source)).parseProgram();
+        this.tokens.resolve(frame);
     }
 
     /**
@@ -149,49 +171,65 @@ public class ParseTree {
     }
 
     /**
-     * Parse the next expression in the list.
+     * Parse the next expression in the list. Operators waiting for their operands are kept in a PendingOperators
+     * list rather than in recursive calls, so there is no limit on how deeply expressions may be nested.
      *
      * @param program the list of tokens
      * @return a parse tree for this expression
      */
     private ExpressionNode parseExpr(List<String> program) {
+        while (true) {
+            ExpressionNode operand;
 
-        // Check is the node is a valid integer (Constant), otherwise, it must be a binary operation,
-        // unary operation or a variable.
-
-        // Check is the node is a valid integer (Constant).
-        try {
-            ExpressionNode constant = new Constant(Integer.parseInt(program.get(nodeIndex)));
-            nodeIndex++;
-            return constant;
-        }
-        // If not an integer, the expression node must be either a binary operation, unary operation or a variable.
-        catch (NumberFormatException exception) {
+            // Check is the node is a valid integer (Constant), otherwise, it must be a binary operation,
+            // unary operation or a variable.
 
-            // Variables: always strings starting with alphabetic characters.
-            if(program.get(nodeIndex).matches("^[a-zA-Z].*")) {
-                Variable var = new Variable(program.get(nodeIndex++));
-                return var;
-            }
-            // Unary Operation
-            else if (UnaryOperation.OPERATORS.contains(program.get(nodeIndex))) {
-                UnaryOperation unaryOperation = new UnaryOperation(program.get(nodeIndex++), parseExpr(program));
-                return unaryOperation;
+            // Check is the node is a valid integer (Constant).
+            try {
+                operand = new Constant(Integer.parseInt(program.get(nodeIndex)));
+                nodeIndex++;
             }
-             // Binary Operation
-            else if (BinaryOperation.OPERATORS.contains(program.get(nodeIndex))) {
-                BinaryOperation binaryOperation = new BinaryOperation(program.get(nodeIndex++), parseExpr(program), parseExpr(program));
-                return binaryOperation;
+            // If not an integer, the expression node must be either a binary operation, unary operation or a variable.
+            catch (NumberFormatException exception) {
+
+                // Variables: always strings starting with alphabetic characters.
+                if(program.get(nodeIndex).matches("^[a-zA-Z].*")) {
+                    operand = new Variable(program.get(nodeIndex++));
+                }
+                // Unary Operation: its operand follows
+                else if (UnaryOperation.OPERATORS.contains(program.get(nodeIndex))) {
+                    pending.push(program.get(nodeIndex++), true);
+                    continue;
+                }
+                // Binary Operation: its operands follow
+                else if (BinaryOperation.OPERATORS.contains(program.get(nodeIndex))) {
+                    pending.push(program.get(nodeIndex++), false);
+                    continue;
+                }
+                // Error Check: Unexpected token
+                else{
+                    String info = "Unexpected token '" + program.get(nodeIndex) + "' encountered while parsing through Dendron source file." ;
+                    Errors.report(Errors.Type.ILLEGAL_VALUE, info);
+                    return null;
+                }
             }
-            // Error Check: Unexpected token
-            else{
-                String info = "Unexpected token '" + program.get(nodeIndex) + "' encountered while parsing through Dendron source file." ;
-                Errors.report(Errors.Type.ILLEGAL_VALUE, info);
-                return null;
+
+            ExpressionNode expression = pending.reduce(operand);
+            if (expression != null) {
+                return expression;
             }
         }
     }
 
+    /**
+     * Get the root of the tree.
+     *
+     * @return The Program node
+     */
+    Program getProgram() {
+        return tokens;
+    }
+
     /**
      * Print the program the tree represents in a more typical infix style, and with one statement per line.
      *
@@ -203,24 +241,63 @@ public class ParseTree {
     }
 
     /**
-     * Run the program represented by the tree directly.
+     * Run the program represented by the tree directly. Variables live in slots of a frame that were chosen when the
+     * tree was built, so no symbol table lookups are made. Values are ints that wrap around on overflow whatever the
+     * {@value dendron.machine.NumericMode#PROPERTY} property says; only Machine.execute runs in the other modes.
      *
-     * @see dendron.tree.ActionNode#execute(Map)
+     * @see dendron.tree.ActionNode#execute(Frame)
      */
     public void interpret() {
         System.out.println("\n\nInterpreting the parse tree... ");
-        tokens.execute(symTab);
+        tokens.execute(frame);
         System.out.println("Interpretation complete.");
     }
 
+    /**
+     * Get the values of the variables after the tree has been interpreted, for Errors.dump.
+     *
+     * @return A new symbol table holding every variable that has a value
+     */
+    public Map<String, Integer> getSymbolTable() {
+        return frame.toMap();
+    }
+
+    /**
+     * Optimize the tree before it is interpreted or compiled: constant subtrees are folded and algebraic identities
+     * are simplified, then a value that is computed again before any variable it reads changes is saved in a
+     * temporary the first time and read back afterwards. Errors such as division by zero are still reported when the
+     * program runs. Expressions of any depth can be optimized, since tall ones are walked with an explicit stack.
+     *
+     * @return the number of machine instructions the optimization removed
+     * @see ExpressionNode#simplify(Set)
+     * @see CommonSubexpressions
+     */
+    public int optimize() {
+        int before = TreeWalk.size(tokens);
+        tokens = CommonSubexpressions.eliminate(tokens.simplify(new HashSet<>()));
+        tokens.resolve(frame);
+        return before - TreeWalk.size(tokens);
+    }
+
     /**
      * Build the list of machine instructions for the program represented by the tree.
      *
      * @return the Machine.Instruction list
-     * @see Machine.Instruction#execute()
+     * @see Machine.Instruction#execute(Machine)
      */
     public List<Machine.Instruction> compile() {
-        return new ArrayList<>(tokens.emit());
+        return tokens.emit();
+    }
+
+    /**
+     * Compile the program represented by the tree into a generated JVM class. Running the result gives the same
+     * output as executing the compile() instructions on the Machine.
+     *
+     * @return the compiled program
+     * @see BytecodeCompiler
+     */
+    public CompiledProgram compileToClass() {
+        return BytecodeCompiler.compile(compile());
     }
 
 }
\ No newline at end of file
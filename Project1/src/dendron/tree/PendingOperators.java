@@ -0,0 +1,72 @@
+package dendron.tree;
+
+import java.util.Arrays;
+
+/**
+ * The operators a prefix-notation parser has read but cannot build nodes for yet, because their operands have not
+ * all been parsed. Keeping them in arrays instead of on the Java call stack lets the parsers handle expressions
+ * nested to any depth.
+ *
+ * @see ParseTree
+ * @see StreamingParser
+ *
+ * @author William J. Reid (wjr3714)
+ */
+class PendingOperators {
+
+    /** The operators, innermost last. */
+    private String[] operators = new String[16];
+
+    /** Whether each operator is unary. */
+    private boolean[] unary = new boolean[16];
+
+    /** For each binary operator, its left operand once parsed (null until then). */
+    private ExpressionNode[] lefts = new ExpressionNode[16];
+
+    /** The number of waiting operators. */
+    private int size;
+
+    /**
+     * Remember an operator whose operands come next.
+     *
+     * @param operator A unary or binary operator symbol
+     * @param isUnary true for a unary operator, false for a binary one
+     */
+    void push(String operator, boolean isUnary) {
+        if (size == operators.length) {
+            operators = Arrays.copyOf(operators, size * 2);
+            unary = Arrays.copyOf(unary, size * 2);
+            lefts = Arrays.copyOf(lefts, size * 2);
+        }
+        operators[size] = operator;
+        unary[size] = isUnary;
+        lefts[size] = null;
+        size++;
+    }
+
+    /**
+     * Hand a complete operand to the innermost waiting operator, building every node that it completes.
+     *
+     * @param operand An expression that has just been parsed
+     * @return The whole expression if no operator is still waiting for an operand, otherwise null
+     */
+    ExpressionNode reduce(ExpressionNode operand) {
+        while (size > 0) {
+            int top = size - 1;
+            if (unary[top]) {
+                operand = new UnaryOperation(operators[top], operand);
+            }
+            else if (lefts[top] == null) {
+                lefts[top] = operand;
+                return null;
+            }
+            else {
+                operand = new BinaryOperation(operators[top], lefts[top], operand);
+                lefts[top] = null;
+            }
+            operators[top] = null;
+            size = top;
+        }
+        return operand;
+    }
+}
@@ -2,9 +2,10 @@ package dendron.tree;
 
 import dendron.Errors;
 import dendron.machine.Machine;
-import java.util.ArrayList;
+import java.io.PrintStream;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * An action node that represents the displaying of an expression.
@@ -29,6 +30,15 @@ public class Print implements ActionNode  {
         this.printee = printee;
     }
 
+    /**
+     * Get the expression to be printed.
+     *
+     * @return The printee
+     */
+    ExpressionNode getPrintee() {
+        return printee;
+    }
+
     /**
      * Evaluate the expression and display the result on the console.
      *
@@ -49,6 +59,54 @@ public class Print implements ActionNode  {
         }
     }
 
+    /**
+     * Resolve the variables of the expression to be printed.
+     *
+     * @param frame The frame that will hold the variables' values
+     */
+    @Override
+    public void resolve(Frame frame) {
+        printee.resolve(frame);
+    }
+
+    /**
+     * Evaluate the expression and display the result on the frame's output, the console unless the frame has a
+     * stream of its own.
+     *
+     * @param frame The frame the expression was resolved against
+     */
+    @Override
+    public void execute(Frame frame) {
+        PrintStream out = frame.getOutput();
+        try{
+            int p = printee.evaluate(frame);
+            // Precede the result by three equal signs (per JavaDocs)
+            out.println("=== " + p);
+        }
+        catch (NullPointerException nPexception){
+            if (frame.hasOwnOutput()){
+                // The caller keeps the output apart from the error, so the error names the variable itself.
+                Errors.report(Errors.Type.UNINITIALIZED, nPexception.getMessage());
+            }
+            System.out.print("\nThe variable '");
+            printee.infixDisplay();
+            System.out.print("' was not initialized (and is not in the symbol table). \nError type: ");
+            Errors.report(Errors.Type.UNINITIALIZED, null);
+        }
+    }
+
+    /**
+     * Simplify the expression to be printed.
+     *
+     * @param assigned The variables certain to have values before this statement
+     * @return The simplified print node.
+     */
+    @Override
+    public ActionNode simplify(Set<String> assigned) {
+        ExpressionNode simplified = printee.simplify(assigned);
+        return simplified == printee ? this : new Print(simplified);
+    }
+
     /**
      * Show this statement on standard output as the word "Print" followed by the infix form of the expression.
      */
@@ -66,9 +124,6 @@ public class Print implements ActionNode  {
      */
     @Override
     public List<Machine.Instruction> emit() {
-        Machine.Print printInstruction = new Machine.Print();
-        ArrayList<Machine.Instruction> instructionList = new ArrayList<>(printee.emit());
-        instructionList.add(printInstruction);
-        return instructionList;
+        return TreeWalk.emit(this);
     }
 }
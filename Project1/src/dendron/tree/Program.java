@@ -4,6 +4,7 @@ import dendron.machine.Machine;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * An ActionNode used to represent a sequence of other ActionNodes. This node is the root of the entire program tree.
@@ -35,6 +36,15 @@ public class Program implements ActionNode {
         rootNodes.add(newNode);
     }
 
+    /**
+     * Get the children of this Program node.
+     *
+     * @return The actions, in the order they execute
+     */
+    List<ActionNode> getActions() {
+        return rootNodes;
+    }
+
     /**
      * Execute each ActionNode in this object, in a First In, First Out (FIFO) fashion.
      *
@@ -49,31 +59,65 @@ public class Program implements ActionNode {
     }
 
     /**
-     * Show the infix displays of all children on standard output, in a First In, First Out (FIFO) fashion.
+     * Resolve each child in a First In, First Out (FIFO) fashion, so that slots are numbered in the order variables
+     * first appear.
+     *
+     * @param frame The frame that will hold the variables' values
      */
     @Override
-    public void infixDisplay() {
+    public void resolve(Frame frame) {
         for (ActionNode actionnode : rootNodes){
-            actionnode.infixDisplay();
+            actionnode.resolve(frame);
         }
     }
 
     /**
-     * Create a list of instructions emitted by each child, in a First In, First Out (FIFO) fashion.
+     * Execute each ActionNode in this object against the frame, in a First In, First Out (FIFO) fashion.
      *
-     * @return the concatenated Machine Instructions from all children.
+     * @param frame The frame the program was resolved against
      */
     @Override
-    public List<Machine.Instruction> emit() {
+    public void execute(Frame frame) {
+        for (ActionNode actionnode : rootNodes){
+            actionnode.execute(frame);
+        }
+    }
 
-        List<Machine.Instruction> instructionList = new ArrayList<>();
+    /**
+     * Simplify each child in a First In, First Out (FIFO) fashion, so that each one knows which variables the ones
+     * before it have assigned.
+     *
+     * @param assigned The variables certain to have values before the program runs
+     * @return A new Program made of the simplified children.
+     */
+    @Override
+    public Program simplify(Set<String> assigned) {
+        Program result = new Program();
+        for (ActionNode actionnode : rootNodes){
+            result.addAction(actionnode.simplify(assigned));
+        }
+        return result;
+    }
 
-        // Add instructions from all children
+    /**
+     * Show the infix displays of all children on standard output, in a First In, First Out (FIFO) fashion.
+     */
+    @Override
+    public void infixDisplay() {
         for (ActionNode actionnode : rootNodes){
-            instructionList.addAll(actionnode.emit());
+            actionnode.infixDisplay();
         }
+    }
 
-        return instructionList;
+    /**
+     * Create a list of instructions emitted by each child, in a First In, First Out (FIFO) fashion. They are all
+     * written into one list, sized for the whole program.
+     *
+     * @return the concatenated Machine Instructions from all children.
+     */
+    @Override
+    public List<Machine.Instruction> emit() {
+        return TreeWalk.emit(this);
     }
 
 }
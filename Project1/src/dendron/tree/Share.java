@@ -0,0 +1,137 @@
+package dendron.tree;
+
+import dendron.machine.Machine;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An expression whose value is used again later in the program. It is evaluated as usual, and its value is also saved
+ * in a numbered temporary, so that each later use (a {@link TempRef}) reads the temporary instead of evaluating the
+ * expression again. Share nodes are only made by the common subexpression pass.
+ *
+ * @see CommonSubexpressions
+ * @see TempRef
+ *
+ * @author William J. Reid (wjr3714)
+ */
+final class Share implements ExpressionNode {
+
+    /** The temporary the value is saved in. */
+    private final int temp;
+
+    /** The expression being shared. */
+    private final ExpressionNode expr;
+
+    /** The number of levels in the tree rooted here. */
+    private final int height;
+
+    /**
+     * Share the value of an expression.
+     *
+     * @param temp The number of the temporary to save the value in
+     * @param expr The expression
+     */
+    Share(int temp, ExpressionNode expr) {
+        this.temp = temp;
+        this.expr = expr;
+        this.height = 1 + TreeWalk.height(expr);
+    }
+
+    /**
+     * Get the number of the temporary the value is saved in.
+     * @return The temporary's number
+     */
+    int getTemp() {
+        return temp;
+    }
+
+    /**
+     * Get the number of levels in the tree rooted here.
+     * @return One more than the height of the expression
+     */
+    int getHeight() {
+        return height;
+    }
+
+    /**
+     * Get the expression being shared.
+     * @return The expression
+     */
+    ExpressionNode getExpression() {
+        return expr;
+    }
+
+    /**
+     * Evaluate the expression. A symbol table has no temporaries, so the uses of this value evaluate the expression
+     * again themselves.
+     *
+     * @param symTab The symbol table to fetch variable values
+     * @return The expression's value
+     */
+    @Override
+    public int evaluate(Map<String, Integer> symTab) {
+        return expr.evaluate(symTab);
+    }
+
+    /**
+     * Make room for the temporary and resolve the expression's variables.
+     *
+     * @param frame The frame that will hold the variables' values
+     */
+    @Override
+    public void resolve(Frame frame) {
+        if (height > TreeWalk.MAX_RECURSION) {
+            TreeWalk.resolve(this, frame);
+            return;
+        }
+        frame.reserveTemp(temp);
+        expr.resolve(frame);
+    }
+
+    /**
+     * Evaluate the expression and save its value in the temporary.
+     *
+     * @param frame The frame the expression was resolved against
+     * @return The expression's value
+     */
+    @Override
+    public int evaluate(Frame frame) {
+        if (height > TreeWalk.MAX_RECURSION) {
+            return TreeWalk.evaluate(this, frame);
+        }
+        int value = expr.evaluate(frame);
+        frame.setTemp(temp, value);
+        return value;
+    }
+
+    /**
+     * Simplifying undoes the sharing, since the expression may change; the common subexpression pass shares it again
+     * afterwards.
+     *
+     * @param assigned The variables certain to have values when this expression is evaluated
+     * @return The simplified expression, not shared
+     */
+    @Override
+    public ExpressionNode simplify(Set<String> assigned) {
+        return expr.simplify(assigned);
+    }
+
+    /**
+     * Show the shared expression, as it was written.
+     */
+    @Override
+    public void infixDisplay() {
+        expr.infixDisplay();
+    }
+
+    /**
+     * Emit the expression's code, then a DUP and a TSTORE that save a copy of its value.
+     *
+     * @return The Machine Instructions for this node
+     */
+    @Override
+    public List<Machine.Instruction> emit() {
+        return TreeWalk.emit(this);
+    }
+}
@@ -0,0 +1,173 @@
+package dendron.tree;
+
+import dendron.Errors;
+
+/**
+ * A single-pass parser that builds a Dendron parse tree while tokens are being read from a {@link Lexer}. The checks
+ * ParseTree makes over the whole token list before parsing (illegal tokens, what may follow ":=" and "@", premature
+ * end) are made here as each token arrives, with the same error reports. Memory use depends only on the size of the
+ * tree being built.
+ *
+ * @see ParseTree#ParseTree(java.io.Reader)
+ *
+ * @author William J. Reid (wjr3714)
+ */
+class StreamingParser {
+
+    /** Where the tokens come from. */
+    private final Lexer lexer;
+
+    /** Operators still waiting for operands in the expression being parsed. */
+    private final PendingOperators pending = new PendingOperators();
+
+    /**
+     * Create a parser.
+     *
+     * @param lexer The source of tokens.
+     */
+    StreamingParser(Lexer lexer) {
+        this.lexer = lexer;
+    }
+
+    /**
+     * Parse every statement in the source.
+     *
+     * @return The root of the parse tree.
+     */
+    Program parseProgram() {
+        Program program = new Program();
+        while (advance()) {
+            program.addAction(parseAction());
+        }
+        return program;
+    }
+
+    /**
+     * Parse the statement starting with the current token.
+     *
+     * @return a parse tree for the action
+     */
+    private ActionNode parseAction() {
+        String keyword = lexer.text();
+        switch (lexer.kind()) {
+            case ASSIGN:
+                if (!advance()) {
+                    String info = " '" + keyword + "' requires a variable to follow but none was provided.";
+                    Errors.report(Errors.Type.PREMATURE_END, info);
+                }
+                if (lexer.kind() != Lexer.Kind.VARIABLE) {
+                    String info = "A variable must always follow '" + keyword + "', and '" +
+                            lexer.text() + "' is not of type 'variable'.";
+                    Errors.report(Errors.Type.ILLEGAL_VALUE, info);
+                }
+                String ident = lexer.text();
+                return new Assignment(ident, parseExpr("The variable '" + ident + "' is called but not acted upon."));
+
+            case PRINT:
+                String premature = " '" + keyword + "' requires an expression containing a variable, " +
+                        "constant, unary or binary operator to follow but none was provided.";
+                if (!advance()) {
+                    Errors.report(Errors.Type.PREMATURE_END, premature);
+                }
+                if (lexer.kind() == Lexer.Kind.ASSIGN || lexer.kind() == Lexer.Kind.PRINT) {
+                    String info = "A variable, integer, unary or binary operator must always follow \nthe print " +
+                            "character '" + keyword + "', and the expression '" + lexer.text() +
+                            "' is not any of these types.";
+                    Errors.report(Errors.Type.ILLEGAL_VALUE, info);
+                }
+                return new Print(parseCurrentExpr(premature));
+
+            default:
+                unexpected();
+                return null;
+        }
+    }
+
+    /**
+     * Read the next token and parse the expression starting there.
+     *
+     * @param premature The message to report if the source ends first
+     * @return a parse tree for this expression
+     */
+    private ExpressionNode parseExpr(String premature) {
+        if (!advance()) {
+            Errors.report(Errors.Type.PREMATURE_END, premature);
+        }
+        return parseCurrentExpr(premature);
+    }
+
+    /**
+     * Parse the expression starting with the current token. Operators waiting for their operands are kept in a
+     * PendingOperators list rather than in recursive calls, so there is no limit on how deeply expressions may be
+     * nested.
+     *
+     * @param premature The message to report if the source ends first
+     * @return a parse tree for this expression
+     */
+    private ExpressionNode parseCurrentExpr(String premature) {
+        while (true) {
+            String token = lexer.text();
+            ExpressionNode operand;
+            switch (lexer.kind()) {
+                case INTEGER:
+                    try {
+                        operand = new Constant(Integer.parseInt(token));
+                    }
+                    catch (NumberFormatException exception) {
+                        unexpected();
+                        return null;
+                    }
+                    break;
+                case VARIABLE:
+                    operand = new Variable(token);
+                    break;
+                case UNARY_OPERATOR:
+                    pending.push(token, true);
+                    operand = null;
+                    break;
+                case BINARY_OPERATOR:
+                    pending.push(token, false);
+                    operand = null;
+                    break;
+                default:
+                    unexpected();
+                    return null;
+            }
+
+            if (operand != null) {
+                ExpressionNode expression = pending.reduce(operand);
+                if (expression != null) {
+                    return expression;
+                }
+            }
+            if (!advance()) {
+                Errors.report(Errors.Type.PREMATURE_END, premature);
+            }
+        }
+    }
+
+    /**
+     * Move to the next token, reporting it if it is not legal Dendron.
+     *
+     * @return true if there is another token
+     */
+    private boolean advance() {
+        if (!lexer.next()) {
+            return false;
+        }
+        if (lexer.kind() == Lexer.Kind.ILLEGAL) {
+            String info = "The token '" + lexer.text() + "' is not of the following types: variable, integer, " +
+                    "unary or binary operator.";
+            Errors.report(Errors.Type.ILLEGAL_VALUE, info);
+        }
+        return true;
+    }
+
+    /**
+     * Report a token that cannot appear where it was found.
+     */
+    private void unexpected() {
+        String info = "Unexpected token '" + lexer.text() + "' encountered while parsing through Dendron source file.";
+        Errors.report(Errors.Type.ILLEGAL_VALUE, info);
+    }
+}
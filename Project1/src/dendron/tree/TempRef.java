@@ -0,0 +1,115 @@
+package dendron.tree;
+
+import dendron.machine.Machine;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A use of a value that a {@link Share} node earlier in the program saved in a temporary. None of the variables the
+ * value depends on can have been assigned since it was saved, so reading the temporary gives the same result as
+ * evaluating the expression again.
+ *
+ * @see CommonSubexpressions
+ *
+ * @author William J. Reid (wjr3714)
+ */
+final class TempRef implements ExpressionNode {
+
+    /** The temporary holding the value. */
+    private final int temp;
+
+    /** The expression whose value the temporary holds. */
+    private final ExpressionNode original;
+
+    /**
+     * Refer to a saved value.
+     *
+     * @param temp The number of the temporary holding the value
+     * @param original The expression whose value it is
+     */
+    TempRef(int temp, ExpressionNode original) {
+        this.temp = temp;
+        this.original = original;
+    }
+
+    /**
+     * Get the number of the temporary holding the value.
+     * @return The temporary's number
+     */
+    int getTemp() {
+        return temp;
+    }
+
+    /**
+     * Get the expression whose value the temporary holds.
+     * @return The expression
+     */
+    ExpressionNode getOriginal() {
+        return original;
+    }
+
+    /**
+     * Evaluate the original expression, since a symbol table has no temporaries.
+     *
+     * @param symTab The symbol table to fetch variable values
+     * @return The expression's value
+     */
+    @Override
+    public int evaluate(Map<String, Integer> symTab) {
+        return original.evaluate(symTab);
+    }
+
+    /**
+     * Make room for the temporary.
+     *
+     * @param frame The frame that will hold the temporary
+     */
+    @Override
+    public void resolve(Frame frame) {
+        frame.reserveTemp(temp);
+    }
+
+    /**
+     * Read the saved value.
+     *
+     * @param frame The frame the expression was resolved against
+     * @return The value of the temporary
+     */
+    @Override
+    public int evaluate(Frame frame) {
+        return frame.getTemp(temp);
+    }
+
+    /**
+     * Simplifying undoes the sharing; the common subexpression pass shares the value again afterwards.
+     *
+     * @param assigned The variables certain to have values when this expression is evaluated
+     * @return The simplified original expression
+     */
+    @Override
+    public ExpressionNode simplify(Set<String> assigned) {
+        return original.simplify(assigned);
+    }
+
+    /**
+     * Show the original expression, as it was written.
+     */
+    @Override
+    public void infixDisplay() {
+        original.infixDisplay();
+    }
+
+    /**
+     * Emit a TLOAD instruction that pushes the saved value onto the stack.
+     *
+     * @return A list containing the instruction
+     */
+    @Override
+    public List<Machine.Instruction> emit() {
+        List<Machine.Instruction> instructionList = new ArrayList<>();
+        instructionList.add(new Machine.TempLoad(temp));
+        return instructionList;
+    }
+}
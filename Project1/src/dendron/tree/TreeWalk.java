@@ -0,0 +1,382 @@
+package dendron.tree;
+
+import dendron.machine.Machine;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Visits the nodes of a Dendron parse tree in post-order (operands before the operator that uses them) using an
+ * explicit stack instead of recursion, so that trees of any depth can be evaluated, resolved, simplified and compiled
+ * without running out of Java stack.
+ *
+ * Node types this class does not know about are treated as leaves and asked to evaluate or emit themselves.
+ *
+ * Walking a tree this way costs more than a recursive call for each node, so expression nodes no higher than
+ * {@link #MAX_RECURSION} levels still evaluate, resolve and simplify their operands recursively; only taller ones use
+ * the walk. Recursion therefore never goes deeper than that limit.
+ *
+ * @author William J. Reid (wjr3714)
+ */
+final class TreeWalk {
+
+    /** The tallest expression that is evaluated, resolved and simplified by recursion. */
+    static final int MAX_RECURSION = 256;
+
+    /** The nodes on the path from the root to the current node. */
+    private DendronNode[] path = new DendronNode[32];
+
+    /** For each node on the path, which child to visit next. */
+    private int[] nextChild = new int[32];
+
+    /** The length of the path. */
+    private int depth;
+
+    /**
+     * Start a walk of a tree.
+     *
+     * @param root The root of the tree
+     */
+    TreeWalk(DendronNode root) {
+        push(root);
+    }
+
+    /**
+     * Move to the next node in post-order.
+     *
+     * @return The node, or null once the whole tree has been visited
+     */
+    DendronNode next() {
+        while (depth > 0) {
+            int top = depth - 1;
+            DendronNode node = path[top];
+            DendronNode child = child(node, nextChild[top]);
+            if (child == null) {
+                path[top] = null;
+                depth = top;
+                return node;
+            }
+            nextChild[top]++;
+            push(child);
+        }
+        return null;
+    }
+
+    private void push(DendronNode node) {
+        if (depth == path.length) {
+            path = Arrays.copyOf(path, depth * 2);
+            nextChild = Arrays.copyOf(nextChild, depth * 2);
+        }
+        path[depth] = node;
+        nextChild[depth] = 0;
+        depth++;
+    }
+
+    /**
+     * Get a child of a node, in the order the children are evaluated.
+     *
+     * @return The child, or null if the node has no more children
+     */
+    private static DendronNode child(DendronNode node, int index) {
+        if (node instanceof BinaryOperation) {
+            BinaryOperation binary = (BinaryOperation) node;
+            return index == 0 ? binary.getLeft() : index == 1 ? binary.getRight() : null;
+        }
+        else if (node instanceof UnaryOperation) {
+            return index == 0 ? ((UnaryOperation) node).getOperand() : null;
+        }
+        else if (node instanceof Share) {
+            return index == 0 ? ((Share) node).getExpression() : null;
+        }
+        else if (node instanceof Assignment) {
+            return index == 0 ? ((Assignment) node).getRhs() : null;
+        }
+        else if (node instanceof Print) {
+            return index == 0 ? ((Print) node).getPrintee() : null;
+        }
+        else if (node instanceof Program) {
+            List<ActionNode> actions = ((Program) node).getActions();
+            return index < actions.size() ? actions.get(index) : null;
+        }
+        return null;
+    }
+
+    /**
+     * Get the number of levels in an expression tree, as recorded in its operator nodes when they were built.
+     *
+     * @param node The root of the expression
+     * @return 1 for a leaf, otherwise one more than the height of its tallest operand
+     */
+    static int height(ExpressionNode node) {
+        if (node instanceof BinaryOperation) {
+            return ((BinaryOperation) node).getHeight();
+        }
+        else if (node instanceof UnaryOperation) {
+            return ((UnaryOperation) node).getHeight();
+        }
+        else if (node instanceof Share) {
+            return ((Share) node).getHeight();
+        }
+        return 1;
+    }
+
+    /**
+     * Count the machine instructions a tree emits: one for each node, except that a Program emits none of its own and
+     * a Share emits two (DUP and TSTORE) after its expression's code.
+     *
+     * @param root The root of the tree
+     * @return The number of instructions
+     */
+    static int size(DendronNode root) {
+        TreeWalk walk = new TreeWalk(root);
+        int count = 0;
+        for (DendronNode node = walk.next(); node != null; node = walk.next()) {
+            if (node instanceof Share) {
+                count += 2;
+            }
+            else if (!(node instanceof Program)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Generate the machine instructions for a tree into a list sized to hold exactly them.
+     *
+     * @param root The root of the tree
+     * @return The Machine Instructions for the tree
+     */
+    static List<Machine.Instruction> emit(DendronNode root) {
+        List<Machine.Instruction> code = new ArrayList<>(size(root));
+        emit(root, code);
+        return code;
+    }
+
+    /**
+     * Append the machine instructions for a tree to a list.
+     *
+     * @param root The root of the tree
+     * @param code Where to add the instructions
+     */
+    static void emit(DendronNode root, List<Machine.Instruction> code) {
+        TreeWalk walk = new TreeWalk(root);
+        for (DendronNode node = walk.next(); node != null; node = walk.next()) {
+            if (node instanceof BinaryOperation) {
+                switch (((BinaryOperation) node).getOperator()) {
+                    case BinaryOperation.ADD:
+                        code.add(new Machine.Add());
+                        break;
+                    case BinaryOperation.SUB:
+                        code.add(new Machine.Subtract());
+                        break;
+                    case BinaryOperation.MUL:
+                        code.add(new Machine.Multiply());
+                        break;
+                    case BinaryOperation.DIV:
+                        code.add(new Machine.Divide());
+                        break;
+                }
+            }
+            else if (node instanceof UnaryOperation) {
+                switch (((UnaryOperation) node).getOperator()) {
+                    case UnaryOperation.NEG:
+                        code.add(new Machine.Negate());
+                        break;
+                    case UnaryOperation.SQRT:
+                        code.add(new Machine.SquareRoot());
+                        break;
+                }
+            }
+            else if (node instanceof Assignment) {
+                code.add(new Machine.Store(((Assignment) node).getIdent()));
+            }
+            else if (node instanceof Print) {
+                code.add(new Machine.Print());
+            }
+            else if (node instanceof Share) {
+                code.add(new Machine.Duplicate());
+                code.add(new Machine.TempStore(((Share) node).getTemp()));
+            }
+            else if (node instanceof TempRef) {
+                code.add(new Machine.TempLoad(((TempRef) node).getTemp()));
+            }
+            else if (!(node instanceof Program)) {
+                code.addAll(node.emit());
+            }
+        }
+    }
+
+    /**
+     * Give every variable in an expression its slot in a frame. Operands are kept on an explicit stack and visited
+     * left to right, so slots are numbered in the order the variables appear, as by the recursive resolvers.
+     *
+     * @param root The expression
+     * @param frame The frame that will hold the variables' values
+     */
+    static void resolve(ExpressionNode root, Frame frame) {
+        ExpressionNode[] stack = new ExpressionNode[32];
+        int size = 0;
+        stack[size++] = root;
+        while (size > 0) {
+            ExpressionNode node = stack[--size];
+            stack[size] = null;
+            if (size + 2 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            }
+            if (node instanceof BinaryOperation) {
+                stack[size++] = ((BinaryOperation) node).getRight();
+                stack[size++] = ((BinaryOperation) node).getLeft();
+            }
+            else if (node instanceof UnaryOperation) {
+                stack[size++] = ((UnaryOperation) node).getOperand();
+            }
+            else if (node instanceof Share) {
+                frame.reserveTemp(((Share) node).getTemp());
+                stack[size++] = ((Share) node).getExpression();
+            }
+            else {
+                node.resolve(frame);
+            }
+        }
+    }
+
+    /**
+     * Simplify an expression, keeping the simplified operands of the operators still being visited on an explicit
+     * stack. Each operator is simplified by its own rules once its operands have been, as by the recursive
+     * simplifiers, and a Share gives way to its simplified expression.
+     *
+     * @param root The expression
+     * @param assigned The variables certain to have values when the expression is evaluated
+     * @return The simplified expression
+     * @see ExpressionNode#simplify(Set)
+     */
+    static ExpressionNode simplify(ExpressionNode root, Set<String> assigned) {
+        TreeWalk walk = new TreeWalk(root);
+        ExpressionNode[] operands = new ExpressionNode[32];
+        int size = 0;
+        for (DendronNode node = walk.next(); node != null; node = walk.next()) {
+            ExpressionNode simplified;
+            if (node instanceof BinaryOperation) {
+                ExpressionNode right = operands[--size];
+                simplified = ((BinaryOperation) node).simplify(operands[--size], right, assigned);
+            }
+            else if (node instanceof UnaryOperation) {
+                simplified = ((UnaryOperation) node).simplify(operands[--size]);
+            }
+            else if (node instanceof Share) {
+                simplified = operands[--size];
+            }
+            else {
+                simplified = ((ExpressionNode) node).simplify(assigned);
+            }
+            if (size == operands.length) {
+                operands = Arrays.copyOf(operands, size * 2);
+            }
+            operands[size++] = simplified;
+        }
+        return operands[0];
+    }
+
+    /**
+     * Evaluate an expression, taking variable values from a frame.
+     *
+     * @param root The expression
+     * @param frame The frame the expression was resolved against
+     * @return The expression's value
+     */
+    static int evaluate(ExpressionNode root, Frame frame) {
+        return evaluate(root, frame, null);
+    }
+
+    /**
+     * Evaluate an expression, taking variable values from a symbol table.
+     *
+     * @param root The expression
+     * @param symTab The table where variable values are stored
+     * @return The expression's value
+     */
+    static int evaluate(ExpressionNode root, Map<String, Integer> symTab) {
+        return evaluate(root, null, symTab);
+    }
+
+    /**
+     * Evaluate an expression, keeping the operators whose operands are still being evaluated on an explicit stack.
+     * Exactly one of frame and symTab is used. Operands are evaluated left to right before their operator, as in the
+     * recursive evaluator, so errors are reported in the same order. Nothing is allocated for an expression that is
+     * a single constant or variable. A Share passes its expression's value up unchanged, saving it in the frame's
+     * temporary on the way.
+     */
+    private static int evaluate(ExpressionNode root, Frame frame, Map<String, Integer> symTab) {
+        ExpressionNode[] pending = null;
+        boolean[] leftDone = null;
+        int[] leftValues = null;
+        int depth = 0;
+        ExpressionNode node = root;
+        while (true) {
+            // Go down the left side of the tree to a leaf.
+            while (node instanceof BinaryOperation || node instanceof UnaryOperation || node instanceof Share) {
+                if (pending == null) {
+                    pending = new ExpressionNode[16];
+                    leftDone = new boolean[16];
+                    leftValues = new int[16];
+                }
+                else if (depth == pending.length) {
+                    pending = Arrays.copyOf(pending, depth * 2);
+                    leftDone = Arrays.copyOf(leftDone, depth * 2);
+                    leftValues = Arrays.copyOf(leftValues, depth * 2);
+                }
+                pending[depth] = node;
+                leftDone[depth] = false;
+                depth++;
+                if (node instanceof BinaryOperation) {
+                    node = ((BinaryOperation) node).getLeft();
+                }
+                else if (node instanceof UnaryOperation) {
+                    node = ((UnaryOperation) node).getOperand();
+                }
+                else {
+                    node = ((Share) node).getExpression();
+                }
+            }
+
+            int value;
+            if (node instanceof Constant) {
+                value = ((Constant) node).getValue();
+            }
+            else {
+                value = frame != null ? node.evaluate(frame) : node.evaluate(symTab);
+            }
+
+            // Go back up, applying each operator whose operands are known, until one needs its right operand.
+            while (true) {
+                if (depth == 0) {
+                    return value;
+                }
+                int top = depth - 1;
+                ExpressionNode operator = pending[top];
+                if (operator instanceof UnaryOperation) {
+                    value = ((UnaryOperation) operator).apply(value);
+                }
+                else if (operator instanceof Share) {
+                    if (frame != null) {
+                        frame.setTemp(((Share) operator).getTemp(), value);
+                    }
+                }
+                else if (!leftDone[top]) {
+                    leftDone[top] = true;
+                    leftValues[top] = value;
+                    node = ((BinaryOperation) operator).getRight();
+                    break;
+                }
+                else {
+                    value = ((BinaryOperation) operator).apply(leftValues[top], value);
+                }
+                pending[top] = null;
+                depth = top;
+            }
+        }
+    }
+}
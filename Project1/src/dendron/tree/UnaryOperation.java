@@ -1,6 +1,7 @@
 package dendron.tree;
 
 import dendron.machine.Machine;
+import dendron.machine.NumericMode;
 import java.util.*;
 
 /**
@@ -30,6 +31,12 @@ public class UnaryOperation implements ExpressionNode {
     /** The operand. */
     private ExpressionNode expr;
 
+    /** The number of levels in the tree rooted here. */
+    private final int height;
+
+    /** The structural hash code, computed once from the operand's hash code. */
+    private final int hash;
+
     /**
      * Create Unary Operation Node.
      * @param operator The string representation of the operation.
@@ -39,8 +46,34 @@ public class UnaryOperation implements ExpressionNode {
         assert OPERATORS.contains(operator) && expr != null;
         this.operator = operator;
         this.expr = expr;
+        this.height = 1 + TreeWalk.height(expr);
+        this.hash = 31 * operator.hashCode() + expr.hashCode();
+    }
+
+
+    /**
+     * Get the string representation of the operation.
+     * @return NEG or SQRT
+     */
+    String getOperator() {
+        return operator;
     }
 
+    /**
+     * Get the number of levels in the tree rooted here.
+     * @return One more than the height of the operand
+     */
+    int getHeight() {
+        return height;
+    }
+
+    /**
+     * Get the operand.
+     * @return The expression the operator is applied to
+     */
+    ExpressionNode getOperand() {
+        return expr;
+    }
 
     /**
      * Compute the result of evaluating the expression and applying the operator to it.
@@ -49,8 +82,46 @@ public class UnaryOperation implements ExpressionNode {
      */
     @Override
     public int evaluate(Map<String, Integer> symTab) {
+        if (height > TreeWalk.MAX_RECURSION) {
+            return TreeWalk.evaluate(this, symTab);
+        }
+        return apply(expr.evaluate(symTab));
+    }
+
+    /**
+     * Resolve the operand's variables.
+     *
+     * @param frame The frame that will hold the variables' values
+     */
+    @Override
+    public void resolve(Frame frame) {
+        if (height > TreeWalk.MAX_RECURSION) {
+            TreeWalk.resolve(this, frame);
+            return;
+        }
+        expr.resolve(frame);
+    }
 
-        int unaryExpression = expr.evaluate(symTab);
+    /**
+     * Compute the result of evaluating the expression and applying the operator to it.
+     * @param frame The frame the expression was resolved against
+     * @return The result of the evaluation
+     */
+    @Override
+    public int evaluate(Frame frame) {
+        if (height > TreeWalk.MAX_RECURSION) {
+            return TreeWalk.evaluate(this, frame);
+        }
+        return apply(expr.evaluate(frame));
+    }
+
+    /**
+     * Apply the operator to the operand's value.
+     *
+     * @param unaryExpression The operand's value
+     * @return The result
+     */
+    int apply(int unaryExpression) {
 
         // For default case (need a return statement if a case is not provided).
         int empty = (int) Double.NaN;
@@ -59,13 +130,96 @@ public class UnaryOperation implements ExpressionNode {
             return unaryExpression * -1;
         }
         else if (operator.equals(SQRT)){
-            return (int) Math.sqrt(unaryExpression);
+            return NumericMode.squareRoot(unaryExpression);
         }
         else{
             return empty;
         }
     }
 
+    /**
+     * Simplify the operand, then fold the operation if the operand is a constant, unless that would overflow an int
+     * (the negation of the smallest int), which is left for the program's numeric mode to decide. A double negation
+     * is replaced by the operand itself when the inner negation cannot overflow. A very tall tree is walked with an
+     * explicit stack instead of by recursion, so any depth of nesting can be simplified.
+     *
+     * @param assigned The variables certain to have values when this expression is evaluated
+     * @return The simplified expression
+     */
+    @Override
+    public ExpressionNode simplify(Set<String> assigned) {
+        if (height > TreeWalk.MAX_RECURSION) {
+            return TreeWalk.simplify(this, assigned);
+        }
+        return simplify(expr.simplify(assigned));
+    }
+
+    /**
+     * Simplify this operation given its simplified operand, as simplify does once it has simplified it.
+     *
+     * @param operand The simplified operand
+     * @return The simplified expression
+     */
+    ExpressionNode simplify(ExpressionNode operand) {
+        // Constant folding
+        if (operand instanceof Constant
+                && !(operator.equals(NEG) && ((Constant) operand).getValue() == Integer.MIN_VALUE)) {
+            return new Constant(apply(((Constant) operand).getValue()));
+        }
+
+        // --x = x
+        if (operator.equals(NEG) && isRemovableNegation(operand)) {
+            return ((UnaryOperation) operand).getOperand();
+        }
+
+        return operand == expr ? this : new UnaryOperation(operator, operand);
+    }
+
+    /**
+     * Check if an expression is a negation that the optimizer may cancel against another or absorb into an operator.
+     * Only the negation of a square root qualifies: any other operand could be the smallest int, and a CHECKED_INT
+     * run must still report the overflow of negating it.
+     *
+     * @param node The expression
+     * @return true if node negates a value that is never negative
+     */
+    static boolean isRemovableNegation(ExpressionNode node) {
+        if (!(node instanceof UnaryOperation) || !((UnaryOperation) node).getOperator().equals(NEG)) {
+            return false;
+        }
+        ExpressionNode operand = ((UnaryOperation) node).getOperand();
+        return operand instanceof UnaryOperation && ((UnaryOperation) operand).getOperator().equals(SQRT);
+    }
+
+    /**
+     * Unary operations are equal when they have the same operator and equal operands, so that two copies of the same
+     * subexpression can be recognized.
+     *
+     * @param other The object to compare with
+     * @return true if other is the same calculation
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof UnaryOperation)) {
+            return false;
+        }
+        UnaryOperation unary = (UnaryOperation) other;
+        return hash == unary.hash && operator.equals(unary.operator) && expr.equals(unary.expr);
+    }
+
+    /**
+     * Get the structural hash code, consistently with equals.
+     *
+     * @return The hash code
+     */
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
     /**
      * Print, on standard output, the infixDisplay of the child nodes preceded by the operator.
      * Note: without an intervening blank.
@@ -77,27 +231,14 @@ public class UnaryOperation implements ExpressionNode {
     }
 
     /**
-     * Emit the necessary Machine instructions to compute of the unary operation. This is done by popping two values
-     * off the stack, applying the operator, and pushing the answer.
+     * Emit the necessary Machine instructions to compute of the unary operation. This is done by popping a value
+     * off the stack, applying the operator, and pushing the answer. The operand's code comes first; all of it is
+     * written into one list of the right size.
      *
      * @return The Machine Instructions for this node required to perform the operation
      */
     @Override
     public List<Machine.Instruction> emit() {
-
-        ArrayList<Machine.Instruction> instructionList = new ArrayList<>();
-
-        if(this.operator.contains("_")){
-            instructionList.addAll(expr.emit());
-            Machine.Negate negate = new Machine.Negate();
-            instructionList.add(negate);
-        }
-        else if(this.operator.contains("#")){
-            instructionList.addAll(expr.emit());
-            Machine.SquareRoot squareRoot = new Machine.SquareRoot();
-            instructionList.add(squareRoot);
-        }
-
-        return instructionList;
+        return TreeWalk.emit(this);
     }
 }
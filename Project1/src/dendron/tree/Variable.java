@@ -4,6 +4,7 @@ import dendron.machine.Machine;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * The ExpressionNode for a variable.
@@ -20,6 +21,9 @@ public class Variable implements ExpressionNode {
     /** The name of the variable. */
     public String name;
 
+    /** The variable's slot in the frame, set by resolve. */
+    private int slot = -1;
+
     /**
      * Set the name for the new variable.
      * @param name The name of the variable.
@@ -40,6 +44,59 @@ public class Variable implements ExpressionNode {
         return symTab.get(name);
     }
 
+    /**
+     * Look up the variable's slot.
+     *
+     * @param frame The frame that will hold the variable's value
+     */
+    @Override
+    public void resolve(Frame frame) {
+        slot = frame.slot(name);
+    }
+
+    /**
+     * Evaluate a variable by reading its slot.
+     *
+     * @param frame The frame the variable was resolved against
+     * @return The variable's current value
+     */
+    @Override
+    public int evaluate(Frame frame) {
+        return frame.get(slot);
+    }
+
+    /**
+     * A variable cannot be simplified.
+     *
+     * @param assigned The variables known to have values (not used in this case).
+     * @return This node.
+     */
+    @Override
+    public ExpressionNode simplify(Set<String> assigned) {
+        return this;
+    }
+
+    /**
+     * Variables are equal when they have the same name.
+     *
+     * @param other The object to compare with
+     * @return true if other is a Variable with the same name
+     */
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Variable && ((Variable) other).name.equals(name);
+    }
+
+    /**
+     * Hash the name, consistently with equals.
+     *
+     * @return The hash code
+     */
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+
     /**
      * Print on standard output the Variable's name.
      */
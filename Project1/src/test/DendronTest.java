@@ -154,6 +154,12 @@ public class DendronTest {
 
         ParseTree tree = new ParseTree( tokenList );
 
+        if ( Boolean.getBoolean( "dendron.optimize" ) ) {
+            int removed = tree.optimize();
+            System.out.println( "\nOptimizer removed " + removed +
+                                " instruction(s)." );
+        }
+
         tree.displayProgram();
 
         tree.interpret();
@@ -0,0 +1,250 @@
+package edu.rit.cs.graph;
+
+import edu.rit.cs.graph.csrgraph.CsrSearch;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Answers many ThreeDegrees queries at once. Pairs of actors are read one per line and handed out in chunks to a pool
+ * of worker threads. All the workers search the same loaded graph, which is never changed, and each has its own
+ * search and so its own record of visited nodes. The answers are written in the order the pairs were read, each chunk
+ * as soon as it and all the chunks before it are done, and only a few chunks per worker are ever waiting, so memory
+ * use does not grow with the length of the input.
+ *
+ * Each pair is either the two names separated by a tab, or four words, the first and last names of each actor. Each
+ * answer is a line of three tab-separated fields: the two names and then the result, which is one of
+ * <ul>
+ *     <li>the names along a shortest path, separated by " - ", if one of at most ThreeDegrees.MAX_HOPS hops exists</li>
+ *     <li>{@value #TOO_FAR} if the actors are connected only by longer paths</li>
+ *     <li>{@value #NOT_CONNECTED} if they are not connected at all</li>
+ *     <li>{@value #UNKNOWN} if either name is not an actor in the data set</li>
+ * </ul>
+ * A line that is not a pair is answered with itself and {@value #INVALID}, and blank lines are skipped. Telling
+ * {@value #TOO_FAR} from {@value #NOT_CONNECTED} takes no search, only the connected components numbered when the data
+ * set was loaded.
+ *
+ * @author William J. Reid (wjr3714)
+ */
+public class BatchQueries {
+
+    /** The result for actors connected only by paths of more than ThreeDegrees.MAX_HOPS hops. */
+    public static final String TOO_FAR = "too far";
+
+    /** The result for actors not connected at all. */
+    public static final String NOT_CONNECTED = "not connected";
+
+    /** The result for a name that is not an actor in the data set. */
+    public static final String UNKNOWN = "unknown";
+
+    /** The result for a line that is not a pair of names. */
+    public static final String INVALID = "invalid";
+
+    /** The number of pairs handed to a worker at a time. */
+    private static final int CHUNK_SIZE = 64;
+
+    /** The most chunks per worker read ahead of the one being written. */
+    private static final int CHUNKS_IN_FLIGHT = 4;
+
+    /** The data set searched. */
+    private final ThreeDegrees data;
+
+    /** The number of worker threads. */
+    private final int workers;
+
+    /** Each worker's own search, made the first time the worker needs it. */
+    private final ThreadLocal<CsrSearch> searches;
+
+    /**
+     * Prepare to answer queries about a data set.
+     *
+     * @param data The data set
+     * @param workers The number of threads to search with, at least 1
+     */
+    public BatchQueries(ThreeDegrees data, int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("There must be at least one worker, not " + workers);
+        }
+        this.data = data;
+        this.workers = workers;
+        this.searches = ThreadLocal.withInitial(data::newSearch);
+    }
+
+    /**
+     * Answer a file of pairs of actors, writing the answers to standard output and the throughput to standard error.
+     *
+     * @param args The data set file, the file of pairs or - for standard input (the default), and the number of
+     *             workers (by default, the number of processors)
+     * @throws IOException If the file of pairs cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 3) {
+            System.err.println("Usage: java ThreeDegrees [data-file [pairs-file|-] [workers]]");
+            System.exit(1);
+        }
+        int workers = Runtime.getRuntime().availableProcessors();
+        if (args.length > 2) {
+            try {
+                workers = Integer.parseInt(args[2]);
+            }
+            catch (NumberFormatException exception) {
+                workers = 0;
+            }
+            if (workers < 1) {
+                System.err.println("The number of workers must be a positive integer, not " + args[2]);
+                System.exit(1);
+            }
+        }
+
+        ThreeDegrees data = new ThreeDegrees(args[0]);
+        BatchQueries queries = new BatchQueries(data, workers);
+        boolean stdin = args.length < 2 || args[1].equals("-");
+        try (BufferedReader in = stdin
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Paths.get(args[1]), StandardCharsets.UTF_8)) {
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+            long start = System.nanoTime();
+            long count = queries.run(in, out);
+            out.flush();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.err.printf("%d queries with %d workers in %.3f s: %.0f queries/s%n",
+                    count, workers, seconds, count / seconds);
+        }
+    }
+
+    /**
+     * Answer every pair read, writing the answers in the same order. The writer is not flushed.
+     *
+     * @param in Where to read the pairs
+     * @param out Where to write the answers
+     * @return The number of lines answered
+     * @throws IOException If a pair cannot be read or an answer written
+     */
+    public long run(BufferedReader in, Writer out) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        Deque<Future<String>> pending = new ArrayDeque<>();
+        long count = 0;
+        try {
+            List<String> chunk = new ArrayList<>(CHUNK_SIZE);
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                chunk.add(line);
+                count++;
+                if (chunk.size() == CHUNK_SIZE) {
+                    List<String> lines = chunk;
+                    pending.add(pool.submit(() -> answer(lines)));
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                    if (pending.size() >= CHUNKS_IN_FLIGHT * workers) {
+                        out.write(next(pending));
+                    }
+                }
+            }
+            if (!chunk.isEmpty()) {
+                List<String> lines = chunk;
+                pending.add(pool.submit(() -> answer(lines)));
+            }
+            while (!pending.isEmpty()) {
+                out.write(next(pending));
+            }
+        }
+        finally {
+            pool.shutdownNow();
+        }
+        return count;
+    }
+
+    /**
+     * Wait for the oldest chunk still pending and get its answers.
+     */
+    private static String next(Deque<Future<String>> pending) throws IOException {
+        try {
+            return pending.remove().get();
+        }
+        catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for answers");
+        }
+        catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Answer a chunk of lines with this thread's search.
+     *
+     * @return The answers, one line each
+     */
+    private String answer(List<String> lines) {
+        CsrSearch search = searches.get();
+        StringBuilder answers = new StringBuilder();
+        for (String line : lines) {
+            String[] pair = parse(line);
+            if (pair == null) {
+                answers.append(line.trim()).append('\t').append(INVALID);
+            }
+            else {
+                answers.append(pair[0]).append('\t').append(pair[1]).append('\t').append(answer(pair, search));
+            }
+            answers.append(System.lineSeparator());
+        }
+        return answers.toString();
+    }
+
+    /**
+     * Answer one pair of names.
+     */
+    private String answer(String[] pair, CsrSearch search) {
+        if (!data.hasActor(pair[0]) || !data.hasActor(pair[1])) {
+            return UNKNOWN;
+        }
+        List<String> path = data.findPath(pair[0], pair[1], search);
+        if (path.isEmpty()) {
+            return data.isConnected(pair[0], pair[1]) ? TOO_FAR : NOT_CONNECTED;
+        }
+        return String.join(" - ", path);
+    }
+
+    /**
+     * Split a line into two names: at a tab if it has one, otherwise into two words each.
+     *
+     * @return The names, or null if the line is not a pair
+     */
+    static String[] parse(String line) {
+        int tab = line.indexOf('\t');
+        if (tab >= 0) {
+            String first = line.substring(0, tab).trim();
+            String second = line.substring(tab + 1).trim();
+            if (first.isEmpty() || second.isEmpty() || second.indexOf('\t') >= 0) {
+                return null;
+            }
+            return new String[]{first, second};
+        }
+        String[] words = line.trim().split("\\s+");
+        if (words.length != 4) {
+            return null;
+        }
+        return new String[]{words[0] + " " + words[1], words[2] + " " + words[3]};
+    }
+}
@@ -0,0 +1,157 @@
+package edu.rit.cs.graph;
+
+import java.util.*;
+
+/**
+ * Finds a shortest path between two nodes of a graph whose edges go both ways, searching breadth-first from both ends
+ * at once and never further than a given number of edges. Each round expands one whole level of whichever frontier is
+ * smaller, so a search through a highly connected node costs roughly the square root of what a one-sided search would,
+ * and a search that would need more edges than allowed stops as soon as that is known instead of exploring the rest of
+ * the component.
+ *
+ * A search object keeps its maps between searches, so it should be used by one thread at a time.
+ *
+ * @param <NodeType> The type of the graph's nodes
+ * @author William J. Reid (wjr3714)
+ */
+public class BidirectionalSearch<NodeType> {
+
+    /** The graph being searched. */
+    private final Graph<NodeType> graph;
+
+    /** For each node reached from the start, the node it was reached from. */
+    private final Map<NodeType, NodeType> forwardParents = new HashMap<>();
+
+    /** For each node reached from the end, the node it was reached from. */
+    private final Map<NodeType, NodeType> backwardParents = new HashMap<>();
+
+    /** Where the level last expanded touched the other side, or null. */
+    private NodeType lastMeeting;
+
+    /** Whether the last search ran out of nodes on one side, which means no path of any length exists. */
+    private boolean exhausted;
+
+    /** The number of nodes the last search expanded. */
+    private int expanded;
+
+    /**
+     * Create a search over a graph in which every edge has a matching edge in the other direction.
+     *
+     * @param graph The graph to search
+     */
+    public BidirectionalSearch(Graph<NodeType> graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Find a shortest path between two nodes that uses no more than a given number of edges. A search that stops at
+     * that limit says nothing about longer paths; to learn whether the nodes are connected at all, search again with
+     * Integer.MAX_VALUE edges and ask {@link #isExhausted()}.
+     *
+     * @param startNode The first node of the path
+     * @param endNode The last node of the path
+     * @param maxEdges The most edges the path may have
+     * @return The nodes of the path in order from startNode to endNode, or an empty list if there is no such path
+     */
+    public List<NodeType> findPath(NodeType startNode, NodeType endNode, int maxEdges) {
+        forwardParents.clear();
+        backwardParents.clear();
+        exhausted = false;
+        expanded = 0;
+
+        forwardParents.put(startNode, startNode);
+        backwardParents.put(endNode, endNode);
+        if (startNode.equals(endNode)) {
+            return buildPath(startNode, startNode, endNode);
+        }
+
+        List<NodeType> forward = new ArrayList<>();
+        List<NodeType> backward = new ArrayList<>();
+        forward.add(startNode);
+        backward.add(endNode);
+
+        // Each round adds one edge to the longest path either side could take part in.
+        for (int edges = 1; edges <= maxEdges; edges++) {
+            if (forward.size() <= backward.size()) {
+                forward = expand(forward, forwardParents, backwardParents);
+            }
+            else {
+                backward = expand(backward, backwardParents, forwardParents);
+            }
+            if (lastMeeting != null) {
+                return buildPath(lastMeeting, startNode, endNode);
+            }
+            if (forward.isEmpty() || backward.isEmpty()) {
+                exhausted = true;
+                break;
+            }
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Tell whether the last search explored everything reachable from one of its ends without meeting the other end,
+     * so that the two nodes are not connected by a path of any length.
+     *
+     * @return true iff the last search proved there is no path at all
+     */
+    public boolean isExhausted() {
+        return exhausted;
+    }
+
+    /**
+     * Get the number of nodes whose neighbors the last search examined, a measure of its work.
+     *
+     * @return The expanded node count
+     */
+    public int getExpandedCount() {
+        return expanded;
+    }
+
+    /**
+     * Expand every node of one frontier, stopping at the first neighbor the other side has already reached. Every node
+     * the other side has reached is the same distance from its end, so any such neighbor completes a shortest path.
+     *
+     * @return The next frontier
+     */
+    private List<NodeType> expand(List<NodeType> frontier, Map<NodeType, NodeType> parents,
+                                  Map<NodeType, NodeType> otherParents) {
+        lastMeeting = null;
+        List<NodeType> next = new ArrayList<>();
+        for (NodeType node : frontier) {
+            expanded++;
+            for (NodeType neighbor : graph.getNeighbors(node)) {
+                if (!parents.containsKey(neighbor)) {
+                    parents.put(neighbor, node);
+                    if (otherParents.containsKey(neighbor)) {
+                        lastMeeting = neighbor;
+                        return next;
+                    }
+                    next.add(neighbor);
+                }
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Join the path from the start to the meeting node with the path from the meeting node to the end.
+     */
+    private List<NodeType> buildPath(NodeType meeting, NodeType startNode, NodeType endNode) {
+        List<NodeType> path = new ArrayList<>();
+        NodeType currentNode = meeting;
+        while (!currentNode.equals(startNode)) {
+            path.add(currentNode);
+            currentNode = forwardParents.get(currentNode);
+        }
+        path.add(startNode);
+        Collections.reverse(path);
+
+        currentNode = meeting;
+        while (!currentNode.equals(endNode)) {
+            currentNode = backwardParents.get(currentNode);
+            path.add(currentNode);
+        }
+        return path;
+    }
+}
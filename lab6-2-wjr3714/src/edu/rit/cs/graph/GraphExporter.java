@@ -0,0 +1,198 @@
+package edu.rit.cs.graph;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.function.Function;
+
+/**
+ * Writes out the nodes and edges of any Graph a node at a time, so that however large the graph is, nothing the size
+ * of the graph is ever built in memory. Three formats are written:
+ * <ul>
+ *     <li>{@link Format#TEXT}, the form of LinkedGraph.toString: a line for each node, its name, a colon and the
+ *         names of its neighbors separated by commas</li>
+ *     <li>{@link Format#DOT}, a GraphViz directed graph, with a statement for each node and one for each edge</li>
+ *     <li>{@link Format#EDGES}, an edge list: a line for each edge, the names of its ends separated by a tab</li>
+ * </ul>
+ * Nodes are written in the order the graph's getNodes gives them, and neighbors in the order of getNeighbors. Names come
+ * from the graph's getNodeName unless a naming function is given, as it must be when a node's neighbors belong to
+ * another graph, like those of the actor and movie graphs ThreeDegrees builds from a data file.
+ *
+ * @author William J. Reid (wjr3714)
+ */
+public class GraphExporter {
+
+    /**
+     * The formats a graph can be written in.
+     */
+    public enum Format {
+        /** A line for each node and its neighbors, as LinkedGraph.toString writes. */
+        TEXT,
+        /** A GraphViz directed graph. */
+        DOT,
+        /** A line for each edge. */
+        EDGES
+    }
+
+    /** The size of the buffer put in front of the destination. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * This class is not instantiated.
+     */
+    private GraphExporter() {
+    }
+
+    /**
+     * Write the graph of a movie data set, movies and actors together, to standard output or a file.
+     *
+     * @param args The movie data file or snapshot, the format (text, dot or edges), and optionally the output file
+     * @throws IOException If the output cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("Usage: java GraphExporter movie-file text|dot|edges [output-file]");
+            System.exit(1);
+        }
+        Format format = null;
+        for (Format candidate : Format.values()) {
+            if (candidate.name().equalsIgnoreCase(args[1])) {
+                format = candidate;
+            }
+        }
+        if (format == null) {
+            System.err.println("Unknown format " + args[1] + "; use text, dot or edges.");
+            System.exit(1);
+        }
+
+        Graph<?> graph = new ThreeDegrees(args[0]).getMovieGraph();
+        if (args.length > 2) {
+            try (OutputStream out = Files.newOutputStream(Paths.get(args[2]))) {
+                write(graph, format, out);
+            }
+        }
+        else {
+            write(graph, format, System.out);
+        }
+    }
+
+    /**
+     * Write a graph to a stream in UTF-8, naming nodes with the graph's getNodeName. The stream is flushed but not
+     * closed.
+     *
+     * @param graph The graph
+     * @param format How to write it
+     * @param out Where to write it
+     * @param <NodeType> The type of the graph's nodes
+     * @throws IOException If the stream cannot be written
+     */
+    public static <NodeType> void write(Graph<NodeType> graph, Format format, OutputStream out) throws IOException {
+        write(graph, graph::getNodeName, format, out);
+    }
+
+    /**
+     * Write a graph to a writer, naming nodes with the graph's getNodeName. The writer is flushed but not closed.
+     *
+     * @param graph The graph
+     * @param format How to write it
+     * @param out Where to write it
+     * @param <NodeType> The type of the graph's nodes
+     * @throws IOException If the writer cannot be written to
+     */
+    public static <NodeType> void write(Graph<NodeType> graph, Format format, Writer out) throws IOException {
+        write(graph, graph::getNodeName, format, out);
+    }
+
+    /**
+     * Write a graph to a stream in UTF-8. The stream is flushed but not closed.
+     *
+     * @param graph The graph
+     * @param names Gives the name of each node and neighbor
+     * @param format How to write it
+     * @param out Where to write it
+     * @param <NodeType> The type of the graph's nodes
+     * @throws IOException If the stream cannot be written
+     */
+    public static <NodeType> void write(Graph<NodeType> graph, Function<? super NodeType, String> names,
+                                        Format format, OutputStream out) throws IOException {
+        write(graph, names, format, new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Write a graph to a writer. The writer is flushed but not closed.
+     *
+     * @param graph The graph
+     * @param names Gives the name of each node and neighbor
+     * @param format How to write it
+     * @param out Where to write it
+     * @param <NodeType> The type of the graph's nodes
+     * @throws IOException If the writer cannot be written to
+     */
+    public static <NodeType> void write(Graph<NodeType> graph, Function<? super NodeType, String> names,
+                                        Format format, Writer out) throws IOException {
+        Writer buffered = out instanceof BufferedWriter ? out : new BufferedWriter(out, BUFFER_SIZE);
+        if (format == Format.DOT) {
+            buffered.write("digraph {\n");
+        }
+        for (NodeType node : graph.getNodes()) {
+            String name = names.apply(node);
+            switch (format) {
+                case TEXT:
+                    buffered.write(name);
+                    buffered.write(": ");
+                    String separator = "";
+                    for (NodeType neighbor : graph.getNeighbors(node)) {
+                        buffered.write(separator);
+                        buffered.write(names.apply(neighbor));
+                        separator = ", ";
+                    }
+                    buffered.write('\n');
+                    break;
+                case DOT:
+                    buffered.write("    ");
+                    writeDotName(buffered, name);
+                    buffered.write(";\n");
+                    for (NodeType neighbor : graph.getNeighbors(node)) {
+                        buffered.write("    ");
+                        writeDotName(buffered, name);
+                        buffered.write(" -> ");
+                        writeDotName(buffered, names.apply(neighbor));
+                        buffered.write(";\n");
+                    }
+                    break;
+                case EDGES:
+                    for (NodeType neighbor : graph.getNeighbors(node)) {
+                        buffered.write(name);
+                        buffered.write('\t');
+                        buffered.write(names.apply(neighbor));
+                        buffered.write('\n');
+                    }
+                    break;
+            }
+        }
+        if (format == Format.DOT) {
+            buffered.write("}\n");
+        }
+        buffered.flush();
+    }
+
+    /**
+     * Write a name as a quoted GraphViz identifier, escaping the characters that would end it.
+     */
+    private static void writeDotName(Writer out, String name) throws IOException {
+        out.write('"');
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.write('\\');
+            }
+            out.write(c);
+        }
+        out.write('"');
+    }
+}
@@ -0,0 +1,284 @@
+package edu.rit.cs.graph;
+
+import edu.rit.cs.graph.csrgraph.CsrGraph;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads a movie data file in a single pass. Each line holds a one-word movie title followed by the first and last
+ * names of its cast; a word left over at the end of a line is ignored, as are blank lines.
+ *
+ * The file is read through a channel in large blocks and split into words without regular expressions. Every name is
+ * interned as it is read: a name is looked up by its bytes in a hash table, and only a name not seen before becomes a
+ * String. Each distinct name gets a dense integer id, in order of first appearance, so a handler can keep its own
+ * state for each name in an array indexed by id. A movie and its cast are passed to the handler by id as each line is
+ * read, so building a graph from the file takes time in proportion to the size of the file.
+ *
+ * @author William J. Reid (wjr3714)
+ */
+public class MovieFileReader {
+
+    /**
+     * What to do with each line of a movie file.
+     */
+    public interface Handler {
+
+        /**
+         * Take in one movie and its cast.
+         *
+         * @param movie The id of the movie's title
+         * @param cast The ids of the actors' names; only the first castSize entries are meaningful, and the array is
+         *             reused for the next line
+         * @param castSize The number of actors
+         */
+        void movie(int movie, int[] cast, int castSize);
+    }
+
+    /** The size of the blocks read from the file. */
+    private static final int BLOCK_SIZE = 1 << 16;
+
+    /** The names, by id. */
+    private final List<String> names = new ArrayList<>();
+
+    /** The UTF-8 bytes of every name, one after another. */
+    private byte[] pool = new byte[BLOCK_SIZE];
+
+    /** The number of bytes of pool in use. */
+    private int poolSize;
+
+    /** Where each name's bytes start in pool, by id, followed by where the next name will start. */
+    private int[] starts = new int[1024];
+
+    /** The hash table: one more than the id of a name, or 0 for an empty entry. Its length is a power of two. */
+    private int[] table = new int[2048];
+
+    /** The start and end of each word of the line being split. */
+    private int[] words = new int[64];
+
+    /** The ids of the cast of the line being split. */
+    private int[] cast = new int[32];
+
+    /** The number of lines that held a movie. */
+    private int movieCount;
+
+    /**
+     * Read a movie file, passing each movie and its cast to a handler. A reader can read several files, and names are
+     * given the same ids in all of them.
+     *
+     * @param file The movie data file
+     * @param handler What to do with each movie
+     * @throws IOException If the file cannot be read
+     */
+    public void read(Path file, Handler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE);
+            boolean atEnd = false;
+            while (!atEnd) {
+                atEnd = channel.read(buffer) < 0;
+                byte[] bytes = buffer.array();
+                int limit = buffer.position();
+                int lineStart = 0;
+                for (int i = 0; i < limit; i++) {
+                    if (bytes[i] == '\n') {
+                        line(bytes, lineStart, i, handler);
+                        lineStart = i + 1;
+                    }
+                }
+                if (atEnd && lineStart < limit) {
+                    line(bytes, lineStart, limit, handler);
+                    lineStart = limit;
+                }
+
+                // Keep the partial line for the next block, in a larger buffer if it already fills this one.
+                buffer.limit(limit).position(lineStart);
+                if (lineStart == 0 && limit == buffer.capacity()) {
+                    ByteBuffer larger = ByteBuffer.allocate(2 * buffer.capacity());
+                    larger.put(buffer);
+                    buffer = larger;
+                }
+                else {
+                    buffer.compact();
+                }
+            }
+        }
+    }
+
+    /**
+     * Read a movie file into an undirected graph with a node for each movie and each actor and an edge each way
+     * between a movie and each of its actors, the same graph as ThreeDegrees builds. The node ids are the name ids.
+     *
+     * @param file The movie data file
+     * @return The graph, in compressed sparse row form
+     * @throws IOException If the file cannot be read
+     */
+    public CsrGraph readGraph(Path file) throws IOException {
+        CsrGraph.Builder builder = new CsrGraph.Builder();
+        read(file, (movie, cast, castSize) -> {
+            // Ids are handed out in order, so each new name is the next node.
+            while (builder.getNodeCount() < getNameCount()) {
+                builder.addNode(getName(builder.getNodeCount()));
+            }
+            for (int i = 0; i < castSize; i++) {
+                builder.addEdge(movie, cast[i]);
+                builder.addEdge(cast[i], movie);
+            }
+        });
+        return builder.build();
+    }
+
+    /**
+     * Get the number of distinct names read so far, which is one more than the largest id.
+     *
+     * @return The name count
+     */
+    public int getNameCount() {
+        return names.size();
+    }
+
+    /**
+     * Get the name with a given id.
+     *
+     * @param id The name's id
+     * @return The name
+     */
+    public String getName(int id) {
+        return names.get(id);
+    }
+
+    /**
+     * Get the number of movies read so far, counting a title each time it appears.
+     *
+     * @return The movie count
+     */
+    public int getMovieCount() {
+        return movieCount;
+    }
+
+    /**
+     * Split one line into words, intern the title and the names, and pass them to the handler.
+     */
+    private void line(byte[] bytes, int from, int to, Handler handler) {
+        int wordCount = 0;
+        int i = from;
+        while (i < to) {
+            while (i < to && isSpace(bytes[i])) {
+                i++;
+            }
+            if (i == to) {
+                break;
+            }
+            int start = i;
+            while (i < to && !isSpace(bytes[i])) {
+                i++;
+            }
+            words = ensure(words, 2 * wordCount + 2);
+            words[2 * wordCount] = start;
+            words[2 * wordCount + 1] = i;
+            wordCount++;
+        }
+        if (wordCount == 0) {
+            return;
+        }
+
+        int movie = intern(bytes, words[0], words[1] - words[0]);
+        int castSize = (wordCount - 1) / 2;
+        cast = ensure(cast, castSize);
+        for (int actor = 0; actor < castSize; actor++) {
+            // An actor's name is the first and last name with the whitespace between them made a single space.
+            int first = 2 * (2 * actor + 1);
+            int last = first + 2;
+            cast[actor] = internName(bytes, words[first], words[first + 1], words[last], words[last + 1]);
+        }
+        movieCount++;
+        handler.movie(movie, cast, castSize);
+    }
+
+    /**
+     * Intern a first and last name joined by a single space.
+     */
+    private int internName(byte[] bytes, int firstStart, int firstEnd, int lastStart, int lastEnd) {
+        if (lastStart == firstEnd + 1 && bytes[firstEnd] == ' ') {
+            return intern(bytes, firstStart, lastEnd - firstStart);
+        }
+        byte[] joined = new byte[firstEnd - firstStart + 1 + lastEnd - lastStart];
+        System.arraycopy(bytes, firstStart, joined, 0, firstEnd - firstStart);
+        joined[firstEnd - firstStart] = ' ';
+        System.arraycopy(bytes, lastStart, joined, firstEnd - firstStart + 1, lastEnd - lastStart);
+        return intern(joined, 0, joined.length);
+    }
+
+    /**
+     * Find the id of the name held in some bytes, giving it a new id if it has not been seen before.
+     */
+    private int intern(byte[] bytes, int from, int length) {
+        int hash = 0;
+        for (int i = from; i < from + length; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        int mask = table.length - 1;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (table[slot] != 0) {
+            int id = table[slot] - 1;
+            if (starts[id + 1] - starts[id] == length
+                    && Arrays.equals(pool, starts[id], starts[id] + length, bytes, from, from + length)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        int id = names.size();
+        names.add(new String(bytes, from, length, StandardCharsets.UTF_8));
+        if (poolSize + length > pool.length) {
+            pool = Arrays.copyOf(pool, Math.max(2 * pool.length, poolSize + length));
+        }
+        System.arraycopy(bytes, from, pool, poolSize, length);
+        poolSize += length;
+        starts = ensure(starts, id + 2);
+        starts[id + 1] = poolSize;
+        table[slot] = id + 1;
+        if (2 * names.size() > table.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    /**
+     * Double the size of the hash table.
+     */
+    private void rehash() {
+        table = new int[2 * table.length];
+        int mask = table.length - 1;
+        for (int id = 0; id < names.size(); id++) {
+            int hash = 0;
+            for (int i = starts[id]; i < starts[id + 1]; i++) {
+                hash = 31 * hash + pool[i];
+            }
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = id + 1;
+        }
+    }
+
+    /**
+     * Make sure an array has room for some number of entries.
+     */
+    private static int[] ensure(int[] array, int length) {
+        return length <= array.length ? array : Arrays.copyOf(array, Math.max(length, 2 * array.length));
+    }
+
+    /**
+     * Tell whether a byte is whitespace, as the \s of a regular expression would.
+     */
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == '\f' || b == 0x0B;
+    }
+}
@@ -0,0 +1,222 @@
+package edu.rit.cs.graph;
+
+import edu.rit.cs.graph.csrgraph.CsrGraph;
+import edu.rit.cs.graph.csrgraph.CsrSearch;
+import edu.rit.cs.graph.csrgraph.LabelIndex;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds the label index of a movie data file or snapshot, which ThreeDegrees then uses to look paths up instead of
+ * searching for them, and checks it against the search: for each pair of actors checked, the index must find a path
+ * exactly when the search does, of the same length, made of edges of the graph. The times taken to build, write and
+ * load the index, and to answer the checked pairs both ways, are reported.
+ *
+ * @see LabelIndex
+ * @author William J. Reid (wjr3714)
+ */
+public class MovieIndex {
+
+    /** The most pairs of actors checked; with fewer actors than this allows, every ordered pair is checked. */
+    private static final int MAX_PAIRS = 100000;
+
+    /** The most differences reported by a check. */
+    private static final int MAX_REPORTED = 10;
+
+    /**
+     * Build, save and check the index of a data set.
+     *
+     * @param args The movie data file or snapshot, and optionally the index file; by default the index is written
+     *             next to the data set with the extension changed to .csrl, where ThreeDegrees looks for it
+     * @throws IOException If a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: java MovieIndex movie-file [index-file]");
+            System.exit(1);
+        }
+        Path data = Paths.get(args[0]);
+        Path indexFile = args.length > 1 ? Paths.get(args[1]) : defaultIndex(data);
+
+        CsrGraph graph = new ThreeDegrees(data.toString()).getMovieGraph();
+
+        long start = System.nanoTime();
+        LabelIndex built = LabelIndex.build(graph, id -> isActor(graph, id), ThreeDegrees.MAX_HOPS);
+        long buildTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        built.write(indexFile);
+        long writeTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        LabelIndex index = LabelIndex.load(indexFile, graph);
+        long loadTime = System.nanoTime() - start;
+
+        int actors = 0;
+        for (int id = 0; id < graph.getNodeCount(); id++) {
+            actors += index.isIndexed(id) ? 1 : 0;
+        }
+        System.out.printf("built the index of %s (%d actors, %d entries, %.1f per actor) in %.1f ms%n", data,
+                actors, index.getEntryCount(), (double) index.getEntryCount() / actors, buildTime / 1e6);
+        System.out.printf("wrote %s (%.1f MB) in %.1f ms%n", indexFile, Files.size(indexFile) / 1e6,
+                writeTime / 1e6);
+        System.out.printf("mapped %s in %.3f ms%n", indexFile, loadTime / 1e6);
+
+        int differences = check(index, graph, System.out);
+        if (differences == 0) {
+            System.out.println("The index agrees with the search.");
+        }
+        else {
+            System.out.println(differences + " pairs on which the index and the search differ.");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Compare the paths an index finds between actors with those a search finds, reporting the first few differences
+     * and the time each takes per pair.
+     *
+     * @param index The index
+     * @param graph The graph it was built from
+     * @param report Where to describe the differences and the times
+     * @return The number of pairs on which the two differ
+     */
+    public static int check(LabelIndex index, CsrGraph graph, PrintStream report) {
+        int maxHops = index.getMaxHops();
+        int[][] pairs = pairs(graph);
+        CsrSearch search = new CsrSearch(graph);
+
+        int differences = 0;
+        int found = 0;
+        for (int[] pair : pairs) {
+            int[] expected = search.findPath(pair[0], pair[1], 2 * maxHops);
+            int[] path = index.findPath(pair[0], pair[1], maxHops);
+            int distance = index.distance(pair[0], pair[1]);
+            String difference = null;
+            if (path.length != expected.length) {
+                difference = "a path of " + (path.length - 1) + " edges instead of " + (expected.length - 1);
+            }
+            else if (distance != (path.length == 0 ? -1 : path.length / 2)) {
+                difference = "a distance of " + distance + " hops with a path of " + (path.length - 1) + " edges";
+            }
+            else if (path.length > 0 && !isPath(graph, path, pair[0], pair[1])) {
+                difference = "the path " + names(graph, path) + ", which is not one";
+            }
+            if (path.length > 0) {
+                found++;
+            }
+            if (difference != null) {
+                if (differences < MAX_REPORTED) {
+                    report.println(graph.getName(pair[0]) + " to " + graph.getName(pair[1]) + ": " + difference);
+                }
+                differences++;
+            }
+        }
+
+        // Time both again, the second time round so that both are compiled.
+        long indexTime = 0;
+        long searchTime = 0;
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            for (int[] pair : pairs) {
+                index.findPath(pair[0], pair[1], maxHops);
+            }
+            indexTime = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int[] pair : pairs) {
+                search.findPath(pair[0], pair[1], 2 * maxHops);
+            }
+            searchTime = System.nanoTime() - start;
+        }
+        report.printf("checked %d pairs (%d with a path): index %.2f us, search %.2f us per pair%n",
+                pairs.length, found, indexTime / 1e3 / pairs.length, searchTime / 1e3 / pairs.length);
+        return differences;
+    }
+
+    /**
+     * Name the index of a data set: the same name with the extension changed.
+     *
+     * @param data The movie data file or snapshot
+     * @return Where its index is by default
+     */
+    static Path defaultIndex(Path data) {
+        String name = data.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return data.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + LabelIndex.EXTENSION);
+    }
+
+    /**
+     * Choose the pairs of actors to check: every ordered pair of distinct actors, or a random sample if there are too
+     * many.
+     */
+    private static int[][] pairs(CsrGraph graph) {
+        int[] actors = new int[graph.getNodeCount()];
+        int actorCount = 0;
+        for (int id = 0; id < graph.getNodeCount(); id++) {
+            if (isActor(graph, id)) {
+                actors[actorCount++] = id;
+            }
+        }
+        if ((long) actorCount * (actorCount - 1) <= MAX_PAIRS) {
+            int[][] pairs = new int[actorCount * (actorCount - 1)][];
+            int count = 0;
+            for (int i = 0; i < actorCount; i++) {
+                for (int j = 0; j < actorCount; j++) {
+                    if (i != j) {
+                        pairs[count++] = new int[]{actors[i], actors[j]};
+                    }
+                }
+            }
+            return pairs;
+        }
+        int[][] pairs = new int[MAX_PAIRS][];
+        Random random = new Random(1);
+        for (int count = 0; count < MAX_PAIRS; ) {
+            int first = actors[random.nextInt(actorCount)];
+            int second = actors[random.nextInt(actorCount)];
+            if (first != second) {
+                pairs[count++] = new int[]{first, second};
+            }
+        }
+        return pairs;
+    }
+
+    /**
+     * Tell whether a node is an actor, whose name, unlike a movie's, has a space in it.
+     */
+    private static boolean isActor(CsrGraph graph, int id) {
+        return graph.getName(id).indexOf(' ') >= 0;
+    }
+
+    /**
+     * Tell whether a list of nodes is a path of the graph between two given nodes.
+     */
+    private static boolean isPath(CsrGraph graph, int[] path, int start, int end) {
+        if (path[0] != start || path[path.length - 1] != end) {
+            return false;
+        }
+        for (int i = 1; i < path.length; i++) {
+            if (!graph.getNeighbors(graph.getNode(path[i - 1])).contains(graph.getNode(path[i]))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the names of a list of nodes.
+     */
+    private static List<String> names(CsrGraph graph, int[] path) {
+        String[] names = new String[path.length];
+        for (int i = 0; i < path.length; i++) {
+            names[i] = graph.getName(path[i]);
+        }
+        return Arrays.asList(names);
+    }
+}
@@ -0,0 +1,127 @@
+package edu.rit.cs.graph;
+
+import edu.rit.cs.graph.csrgraph.CsrGraph;
+import edu.rit.cs.graph.csrgraph.CsrSnapshot;
+import edu.rit.cs.graph.linkedgraph.LinkedGraph;
+import edu.rit.cs.graph.linkedgraph.LinkedNode;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Converts a movie data file to a snapshot that ThreeDegrees can start from without parsing, then checks that the
+ * snapshot holds the same graph as the LinkedGraph that ThreeDegrees builds from the text: the same names, and for
+ * each name the same neighbors. The times taken to load the text, to write the snapshot and to load it are reported.
+ *
+ * @see CsrSnapshot
+ * @author William J. Reid (wjr3714)
+ */
+public class MovieSnapshot {
+
+    /** The most differences reported by a check. */
+    private static final int MAX_REPORTED = 10;
+
+    /**
+     * Convert a movie data file and check the result.
+     *
+     * @param args The movie data file, and optionally the snapshot file; by default the snapshot is written next to
+     *             the data file with the extension changed to .csrg
+     * @throws IOException If a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: java MovieSnapshot movie-file [snapshot-file]");
+            System.exit(1);
+        }
+        Path text = Paths.get(args[0]);
+        Path snapshot = args.length > 1 ? Paths.get(args[1]) : defaultSnapshot(text);
+
+        long start = System.nanoTime();
+        ThreeDegrees loaded = new ThreeDegrees(text.toString());
+        long textTime = System.nanoTime() - start;
+        if (loaded.getLinkedGraph() == null) {
+            System.err.println(text + " is already a snapshot.");
+            System.exit(1);
+        }
+
+        start = System.nanoTime();
+        CsrSnapshot.write(loaded.getMovieGraph(), snapshot);
+        long writeTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        CsrGraph mapped = CsrSnapshot.load(snapshot);
+        long mapTime = System.nanoTime() - start;
+
+        System.out.printf("loaded %s in %.1f ms%n", text, textTime / 1e6);
+        System.out.printf("wrote %s (%d nodes, %d edges, %.1f MB) in %.1f ms%n", snapshot, mapped.getNodeCount(),
+                mapped.getEdgeCount(), Files.size(snapshot) / 1e6, writeTime / 1e6);
+        System.out.printf("mapped %s in %.3f ms%n", snapshot, mapTime / 1e6);
+
+        int differences = check(mapped, loaded.getLinkedGraph(), System.out);
+        if (differences == 0) {
+            System.out.println("The snapshot matches the LinkedGraph.");
+        }
+        else {
+            System.out.println(differences + " differences between the snapshot and the LinkedGraph.");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Compare a compressed graph with a LinkedGraph, reporting the first few differences.
+     *
+     * @param graph The compressed graph
+     * @param expected The LinkedGraph it should match
+     * @param report Where to describe the differences
+     * @return The number of nodes that differ, counting a difference in the number of nodes as one
+     */
+    public static int check(CsrGraph graph, LinkedGraph expected, PrintStream report) {
+        int differences = 0;
+        int nodeCount = 0;
+        for (LinkedNode node : expected.getNodes()) {
+            nodeCount++;
+            int id = graph.getId(node.getName());
+            String difference = null;
+            if (id < 0) {
+                difference = node.getName() + " is missing";
+            }
+            else {
+                Set<String> want = new TreeSet<>();
+                for (LinkedNode neighbor : node.getNeighbors()) {
+                    want.add(neighbor.getName());
+                }
+                Set<String> have = new TreeSet<>();
+                for (int edge = graph.firstEdge(id); edge < graph.endEdge(id); edge++) {
+                    have.add(graph.getName(graph.target(edge)));
+                }
+                if (!have.equals(want) || have.size() != graph.getDegree(id)) {
+                    difference = node.getName() + " has neighbors " + have + " instead of " + want;
+                }
+            }
+            if (difference != null) {
+                if (differences < MAX_REPORTED) {
+                    report.println(difference);
+                }
+                differences++;
+            }
+        }
+        if (nodeCount != graph.getNodeCount()) {
+            report.println("The snapshot has " + graph.getNodeCount() + " nodes instead of " + nodeCount);
+            differences++;
+        }
+        return differences;
+    }
+
+    /**
+     * Name the snapshot of a data file: the same name with the extension changed.
+     */
+    private static Path defaultSnapshot(Path text) {
+        String name = text.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return text.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + CsrSnapshot.EXTENSION);
+    }
+}
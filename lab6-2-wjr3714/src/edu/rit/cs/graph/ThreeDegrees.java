@@ -1,9 +1,17 @@
 package edu.rit.cs.graph;
 
+import edu.rit.cs.graph.csrgraph.CsrGraph;
+import edu.rit.cs.graph.csrgraph.CsrNode;
+import edu.rit.cs.graph.csrgraph.CsrSearch;
+import edu.rit.cs.graph.csrgraph.CsrSnapshot;
+import edu.rit.cs.graph.csrgraph.LabelIndex;
 import edu.rit.cs.graph.linkedgraph.LinkedGraph;
 import edu.rit.cs.graph.linkedgraph.LinkedNode;
-import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 
 /**
@@ -11,10 +19,20 @@ import java.util.*;
  * series of actors that appeared in a movie together. More generally, this class can be used to find the degrees of
  * separation (the path) between two actors (provided an appropriate data set).
  *
+ * The data set is either a movie data file or a snapshot of one written by {@link MovieSnapshot}. A snapshot is mapped
+ * into memory and checked rather than parsed, so the program starts much sooner on a large data set; only the
+ * compressed graph that paths are searched in is available then, not the LinkedGraphs. If a label index built by
+ * {@link MovieIndex} lies beside the data set, paths are looked up in it rather than searched for. Either way, the
+ * connected components of the graph are numbered in one pass over its edges when it is loaded, so that actors who are
+ * not connected at all can be told from those who are only too far apart without a search.
+ *
  * @author William J. Reid (wjr3714)
  */
 public class ThreeDegrees {
 
+    /** The most actor-to-actor hops (movies shared) a reported path may have. */
+    public static final int MAX_HOPS = 3;
+
     /** Graph of Movies (with actor neighbors) &  Graph of Actors (with movie neighbors)*/
     private LinkedGraph graph;
 
@@ -24,12 +42,31 @@ public class ThreeDegrees {
     /** Graph of Actors (with movie neighbors) */
     private LinkedGraph graphActors;
 
+    /** The same graph as graph, in compressed form. Paths are searched in it, and it is all a snapshot holds. */
+    private CsrGraph movieGraph;
+
+    /** Finds paths in movieGraph, keeping its search state between queries so that a query allocates only its path. */
+    private CsrSearch search;
+
+    /** For each node of movieGraph, the number of its connected component, found once when the graph is loaded. */
+    private int[] components;
+
+    /** The distance index of movieGraph, or null if there is none or it turned out not to match. */
+    private volatile LabelIndex index;
+
     /**
      * Prompts user for data set file, builds a graph from the data set, asks for the staring and ending nodes, and
      * outputs the path from the staring to the ending node (if one exists) to command line.
-     * @param args Command Line Arguments
+     * Given arguments instead, it answers a whole file of pairs at once; see {@link BatchQueries#main}.
+     * @param args Command Line Arguments: none, or the data set file, the file of pairs and the number of workers.
+     * @throws IOException If the file of pairs cannot be read in batch mode.
      */
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+
+        if (args.length > 0){
+            BatchQueries.main(args);
+            return;
+        }
 
         //    Prompts the user for the name of an input file.
         Scanner scanner = new Scanner(System.in);
@@ -39,6 +76,9 @@ public class ThreeDegrees {
         // Reads the file contents into a graph data structure.
         ThreeDegrees dataGraph = new ThreeDegrees(fileName);
 
+        // Ask user for type of graph display
+        dataGraph.DisplayGraph();
+
         while (true){
 
             //  Prompts the user for two names to try connecting.
@@ -52,7 +92,7 @@ public class ThreeDegrees {
 
             //  If either name is not found in the graph, then the program should print a message to that effect, and request two
             //  new names for the next search.
-            if (!dataGraph.graphActors.hasNode(startingNode)){
+            if (!dataGraph.hasActor(startingNode)){
                 System.out.println(startingNode + " is not known in the " + fileName + " dataset.");
                 continue;
             }
@@ -67,7 +107,7 @@ public class ThreeDegrees {
 
             // If either name is not found in the graph, then the program should print a message to that effect, and request two
             // new names for the next search.
-            if (!dataGraph.graphActors.hasNode(endingNode)){
+            if (!dataGraph.hasActor(endingNode)){
                 System.out.println(endingNode + " is not known in the " + fileName + " dataset.");
                 continue;
             }
@@ -76,22 +116,22 @@ public class ThreeDegrees {
                 continue;
             }
 
-            List<LinkedNode> path;
-            path = dataGraph.BreathFirstSearch(startingNode, endingNode);
+            List<String> path;
+            path = dataGraph.findPath(startingNode, endingNode);
 
-            if (path.size() <= 7){
+            if (path.size() > 0 || !dataGraph.isConnected(startingNode, endingNode)){
                 if (path.size() == 0){
                     System.out.println("No path exists between " + startingNode + " and " + endingNode +".");
                 }
                 for (int i = 0; i < path.size(); i+=2){
                     if (i ==0){
-                        System.out.println(path.get(i).getName() + " was in " + path.get(i+1).getName());
+                        System.out.println(path.get(i) + " was in " + path.get(i+1));
                     }
                     else if (i == path.size()-1){
-                        System.out.println("with " + path.get(i).getName() + ".");
+                        System.out.println("with " + path.get(i) + ".");
                     }
                     else{
-                        System.out.println("with " + path.get(i).getName() + " who was in " + path.get(i+1).getName());
+                        System.out.println("with " + path.get(i) + " who was in " + path.get(i+1));
                     }
                 }
             }
@@ -103,17 +143,150 @@ public class ThreeDegrees {
     }
 
 
+    /**
+     * Find a shortest path between two actors that takes no more than MAX_HOPS movies, looking it up in the index if
+     * there is one and otherwise searching from both actors at once. The path alternates actor and movie nodes,
+     * starting and ending with the actors.
+     *
+     * @param startingNode The name of the first actor.
+     * @param endingNode The name of the second actor.
+     * @return The names along the path from the first actor to the second, or an empty list if there is none within
+     *         MAX_HOPS hops; then isConnected tells whether there is none at all.
+     * @see CsrSearch
+     * @see LabelIndex
+     */
+    public List<String> findPath(String startingNode, String endingNode){
+        return findPath(startingNode, endingNode, search);
+    }
+
+    /**
+     * Find a shortest path between two actors as findPath does, but with a search of the caller's own, so that several
+     * threads can search the same data set at once.
+     *
+     * @param startingNode The name of the first actor.
+     * @param endingNode The name of the second actor.
+     * @param search A search made by newSearch, used by one thread at a time.
+     * @return The names along the path from the first actor to the second, or an empty list if there is none within
+     *         MAX_HOPS hops; then isConnected tells whether there is none at all.
+     */
+    public List<String> findPath(String startingNode, String endingNode, CsrSearch search){
+        int start = movieGraph.getId(startingNode);
+        int end = movieGraph.getId(endingNode);
+        int[] ids = null;
+        LabelIndex index = this.index;
+        if (index != null){
+            try {
+                ids = index.findPath(start, end, MAX_HOPS);
+            }
+            catch (IllegalStateException exception){
+                // The fingerprint makes this unlikely, but a wrong index is no reason to fail a query.
+                System.err.println("Not using the index: " + exception.getMessage());
+                this.index = null;
+            }
+        }
+
+        // The index holds every path of up to MAX_HOPS hops, so an empty answer from it is as good as a search's.
+        if (ids == null){
+            ids = search.findPath(start, end, 2 * MAX_HOPS);
+        }
+        List<String> path = new ArrayList<>(ids.length);
+        for (int id : ids){
+            path.add(movieGraph.getName(id));
+        }
+        return path;
+    }
+
+    /**
+     * Tell whether two actors are connected by a path of any length. The answer comes from the components numbered
+     * when the data set was loaded, so it takes no search, and together with findPath it tells actors that are too far
+     * apart from actors that are not connected at all.
+     *
+     * @param startingNode The name of the first actor.
+     * @param endingNode The name of the second actor.
+     * @return true iff some path joins the two actors.
+     */
+    public boolean isConnected(String startingNode, String endingNode){
+        return components[movieGraph.getId(startingNode)] == components[movieGraph.getId(endingNode)];
+    }
+
+    /**
+     * Make a search of the data set for one thread's use. The graph is never changed once loaded, so any number of
+     * threads may search it at once as long as each has its own search.
+     *
+     * @return A new search, which keeps its own record of the nodes it has visited.
+     */
+    public CsrSearch newSearch(){
+        return new CsrSearch(movieGraph);
+    }
+
+    /**
+     * Tell whether an actor is in the data set. Actors are named with a first and a last name, and movies with a
+     * single word, so a name with a space in it is an actor's.
+     *
+     * @param name The actor's name.
+     * @return true iff the actor appears in some movie.
+     */
+    public boolean hasActor(String name){
+        return name.indexOf(' ') >= 0 && movieGraph.hasNode(name);
+    }
+
+    /**
+     * Get the names of all the actors in the data set.
+     *
+     * @return The actor names, in no particular order.
+     */
+    public List<String> getActorNames(){
+        List<String> names = new ArrayList<>();
+        for (int id = 0; id < movieGraph.getNodeCount(); id++){
+            if (movieGraph.getName(id).indexOf(' ') >= 0){
+                names.add(movieGraph.getName(id));
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Get the graph of movies and actors that paths are searched in.
+     *
+     * @return The graph, in compressed form.
+     */
+    public CsrGraph getMovieGraph(){
+        return movieGraph;
+    }
+
+    /**
+     * Get the distance index paths are looked up in.
+     *
+     * @return The index, or null if the data set has none.
+     */
+    public LabelIndex getIndex(){
+        return index;
+    }
+
+    /**
+     * Get the graph of movies and actors as a LinkedGraph.
+     *
+     * @return The graph, or null if the data set was loaded from a snapshot.
+     */
+    LinkedGraph getLinkedGraph(){
+        return graph;
+    }
+
     /**
      * Visits all neighbors of the initial searchKey (node) provided in a breadth-first search manner. The search stops
      * only when the target node (end node) is reached or if all possible routs have been exhausted and no path was found
      * connecting the start node and end node. The nodes the have been visited and the path taken to visit these nodes
-     * is recorded in a HashMap.
+     * is recorded in a HashMap. There is no limit on the length of the path; findPath is the bounded search main uses.
+     * It needs the LinkedGraph, so it cannot be used on a data set loaded from a snapshot.
      *
      * @param startingNode The starting location of the breadth-first search.
      * @param endingNode The target (end location) of the breadth-first search.
      * @return The path from the starting location to the ending location, provided that a path exists.
      */
-    private List<LinkedNode> BreathFirstSearch(String startingNode, String endingNode){
+    public List<LinkedNode> BreathFirstSearch(String startingNode, String endingNode){
+        if (graph == null){
+            throw new IllegalStateException("A data set loaded from a snapshot has no LinkedGraph to search.");
+        }
 
         // Create Starting & Ending Node from String
         LinkedNode startNode = graph.getNode(startingNode);
@@ -169,94 +342,121 @@ public class ThreeDegrees {
     /**
      * Reads the data file and builds an undirected graph from the data set fed.
      * If an actor or movie are in the same line in the data file, then an edge must be constructed to connect them.
-     * @param fileName The data file from which to build the graph.
+     * The file is read once, and each name is looked up by its id from the reader rather than by searching the graphs,
+     * so loading takes time in proportion to the size of the file. A snapshot is mapped into memory instead.
+     * @param fileName The data file or snapshot from which to build the graph.
+     * @see MovieFileReader
+     * @see CsrSnapshot
      */
-    private ThreeDegrees(String fileName) {
-
-        try {
-            File dataFile = new File(fileName);// Requires absolute path to be provided.
-            Scanner scanner = new Scanner(dataFile);
+    public ThreeDegrees(String fileName) {
 
-            // Create graphs
-            graph = new LinkedGraph();
-            graphMovies = new LinkedGraph();
-            graphActors = new LinkedGraph();
-
-            // Read the entire file
-            while (scanner.hasNextLine()) {
+        Path file = Paths.get(fileName);
+        if (CsrSnapshot.isSnapshot(file)){
+            try {
+                movieGraph = CsrSnapshot.load(file);
+            }
+            catch (IOException exception){
+                System.err.println(exception.getMessage());
+                System.exit(0);
+            }
+            components = movieGraph.componentIds();
+            search = newSearch();
+            openIndex(file);
+            return;
+        }
 
-                String line = scanner.nextLine();
+        // Create graphs
+        graph = new LinkedGraph();
+        graphMovies = new LinkedGraph();
+        graphActors = new LinkedGraph();
 
-                // Array contains an entry for each word in file.
-                ArrayList movieANDactor = new ArrayList<>(Arrays.asList(line.split("\\s+")));
+        // The node for each name id in each graph, filled in as names are first seen.
+        MovieFileReader reader = new MovieFileReader();
+        List<LinkedNode> nodes = new ArrayList<>();
+        List<LinkedNode> movieNodes = new ArrayList<>();
+        List<LinkedNode> actorNodes = new ArrayList<>();
+        CsrGraph.Builder builder = new CsrGraph.Builder();
 
-                // Join actor's FirstName & LastName into single index entry of Array.
-                ArrayList<String> movieActor = new ArrayList<>();
-                for (int i = 0; i < movieANDactor.size(); i += 2) {
-                    if (i == 0) {
-                        movieActor.add(i, (String) movieANDactor.get(i));
-                    } else if (i % 2 == 0) {
-                        movieActor.add(i - (i - 1), movieANDactor.get(i - 1) + " " + movieANDactor.get(i));
-                    }
+        try {
+            reader.read(file, (movie, cast, castSize) -> {
+                // Ids are handed out in order, so each new name is the next node of the compressed graph.
+                while (builder.getNodeCount() < reader.getNameCount()) {
+                    builder.addNode(reader.getName(builder.getNodeCount()));
                 }
 
+                LinkedNode movieNode = node(nodes, graph, reader, movie);
+                LinkedNode movieOnly = node(movieNodes, graphMovies, reader, movie);
+                for (int i = 0; i < castSize; i++) {
 
-                // Create Graph of Movies & Graph of Actors
-                LinkedNode movieNode;
-                LinkedNode actorNode;
-                for (int i = 0; i < movieActor.size(); i++){
+                    // Combination of movieGraph + actorGraph = graph
+                    LinkedNode actorNode = node(nodes, graph, reader, cast[i]);
+                    movieNode.addNeighbor(actorNode);
+                    actorNode.addNeighbor(movieNode);
 
-                    // Create graph of Movies (Each movie node has actor neighbors)
-                    if (i == 0) {
-                        movieNode = graphMovies.makeNode(movieActor.get(i));
-                        for (int j = 1; j < movieActor.size(); j++) {
-                            movieNode.addNeighbor(graphActors.makeNode(movieActor.get(j)));
-                        }
-                    }
+                    // Graph of Movies (Each movie node has actor neighbors) & graph of Actors (Each actor node has
+                    // movie neighbors)
+                    LinkedNode actorOnly = node(actorNodes, graphActors, reader, cast[i]);
+                    movieOnly.addNeighbor(actorOnly);
+                    actorOnly.addNeighbor(movieOnly);
 
-                    // Create graph of Actors (Each actor node has movie neighbors)
-                    else{
-                        actorNode = graphActors.getNode(movieActor.get(i));
-                        for (LinkedNode node : graphMovies.getNodes()){
-                            if (graphMovies.getNeighbors(node).contains(actorNode)){
-                                actorNode.addNeighbor(node);
-                            }
-                        }
-                    }
-                }
-
-                // Combinination of movieGraph + actorGraph = graph
-                for (String s : movieActor) {
-                    if (!graph.hasNode(s)) {
-                        graph.makeNode(s);
-                    }
-                }
-                for (int k = 0; k < movieActor.size(); k++) {
-                    LinkedNode node = graph.getNode(movieActor.get(k));
-
-                    // Add actor neighbors to movie nodes
-                    if (k == 0) {
-                        for (int j = 1; j < movieActor.size(); j++) {
-                            node.addNeighbor(graph.getNode(movieActor.get(j)));
-                        }
-                    }
-                    else {
-                        // Add movie neighbor to actor node.
-                        node.addNeighbor(graph.getNode(movieActor.get(0)));
-                    }
+                    builder.addEdge(movie, cast[i]);
+                    builder.addEdge(cast[i], movie);
                 }
-            }
-
-            // Ask user for type of graph display
-            DisplayGraph();
-
-            scanner.close();
+            });
         }
-        catch (FileNotFoundException exception){
+        catch (NoSuchFileException exception){
             System.err.println("File " + fileName + " does not exist. \nSuggestion: Provide the absolute path " +
                     "instead of the relative path to the data file.");
             System.exit(0);
         }
+        catch (IOException exception){
+            System.err.println("File " + fileName + " could not be read: " + exception.getMessage());
+            System.exit(0);
+        }
+
+        movieGraph = builder.build();
+        components = movieGraph.componentIds();
+        search = newSearch();
+        openIndex(file);
+    }
+
+    /**
+     * Loads the label index saved beside a data set, if there is one. An index that cannot be used, such as one built
+     * for an older version of the data, is reported and ignored, and paths are searched for instead.
+     *
+     * @param file The data file or snapshot.
+     */
+    private void openIndex(Path file){
+        Path indexFile = MovieIndex.defaultIndex(file);
+        if (Files.exists(indexFile)){
+            try {
+                index = LabelIndex.load(indexFile, movieGraph);
+            }
+            catch (IOException exception){
+                System.err.println("Not using the index: " + exception.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Gets the node in a graph for a name id, making it the first time the name is seen.
+     *
+     * @param nodes The graph's nodes by name id, with null for names it does not have yet.
+     * @param graph The graph the node belongs to.
+     * @param reader The reader that gave out the id.
+     * @param id The name id.
+     * @return The node.
+     */
+    private static LinkedNode node(List<LinkedNode> nodes, LinkedGraph graph, MovieFileReader reader, int id) {
+        while (nodes.size() <= id) {
+            nodes.add(null);
+        }
+        LinkedNode node = nodes.get(id);
+        if (node == null) {
+            node = graph.makeNode(reader.getName(id));
+            nodes.set(id, node);
+        }
+        return node;
     }
 
     /**
@@ -277,14 +477,31 @@ public class ThreeDegrees {
 
         int userInput = scanner.nextInt();
 
-        if (userInput == 1){
-            System.out.println("\n"+graphActors);
-        }
-        else if (userInput == 2){
-            System.out.println("\n"+graphMovies);
+        if (graph == null){
+            // A snapshot has only the combined graph; actors are the nodes whose names have a space.
+            if (userInput >= 1 && userInput <= 3){
+                System.out.println();
+                for (CsrNode node : movieGraph.getNodes()){
+                    boolean actor = node.getName().indexOf(' ') >= 0;
+                    if (userInput == 3 || actor == (userInput == 1)){
+                        System.out.println(node);
+                    }
+                }
+                System.out.println();
+            }
         }
-        else if (userInput == 3){
-            System.out.println("\n"+graph);
+        else if (userInput >= 1 && userInput <= 3){
+            // Written a node at a time rather than as one string, which for a large data set may not fit in memory.
+            // The neighbors of the actors are in the movie graph and the other way round, so nodes name themselves.
+            System.out.println();
+            try {
+                GraphExporter.write(userInput == 1 ? graphActors : userInput == 2 ? graphMovies : graph,
+                        LinkedNode::getName, GraphExporter.Format.TEXT, System.out);
+            }
+            catch (IOException exception){
+                System.err.println("Could not display the graph: " + exception.getMessage());
+            }
+            System.out.println();
         }
     }
 }
\ No newline at end of file
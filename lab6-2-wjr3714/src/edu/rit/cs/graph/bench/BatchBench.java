@@ -0,0 +1,120 @@
+package edu.rit.cs.graph.bench;
+
+import edu.rit.cs.graph.BatchQueries;
+import edu.rit.cs.graph.ThreeDegrees;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures the throughput of BatchQueries as the number of workers grows, from one up to twice the number of
+ * processors, on the same random actor pairs. The answers of every run are checked against those of the single-worker
+ * run, which must match line for line since answers come out in input order.
+ *
+ * With no arguments it uses a synthetic file of {@value #SYNTHETIC_MOVIES} movies.
+ *
+ * @author William J. Reid (wjr3714)
+ */
+public class BatchBench {
+
+    /** The number of movies in the default synthetic file. */
+    private static final int SYNTHETIC_MOVIES = 100000;
+
+    /** The number of pairs queried in each run. */
+    private static final int PAIRS = 50000;
+
+    /** The number of untimed runs before the timed ones, so that the searches are compiled. */
+    private static final int WARMUP_RUNS = 2;
+
+    /** The number of times each worker count is run; the fastest is reported. */
+    private static final int RUNS = 3;
+
+    /**
+     * Run the measurements.
+     *
+     * @param args A movie data file or snapshot, or none for the default
+     * @throws IOException If the synthetic file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        String file;
+        Path synthetic = null;
+        if (args.length == 0) {
+            synthetic = Files.createTempFile("movies", ".txt");
+            MovieData.write(synthetic, SYNTHETIC_MOVIES, SYNTHETIC_MOVIES / 2, 1);
+            file = synthetic.toString();
+        }
+        else {
+            file = args[0];
+        }
+
+        try {
+            ThreeDegrees data = new ThreeDegrees(file);
+            String pairs = pairs(data.getActorNames());
+            int processors = Runtime.getRuntime().availableProcessors();
+            System.out.printf("%d processors, %d pairs on %s%n", processors, PAIRS, Path.of(file).getFileName());
+            System.out.printf("%8s %10s %12s %8s %10s%n", "workers", "time(ms)", "queries/s", "speedup", "matches");
+
+            String expected = run(new BatchQueries(data, 1), pairs);
+            for (int i = 0; i < WARMUP_RUNS; i++) {
+                run(new BatchQueries(data, 1), pairs);
+            }
+            long single = 0;
+            for (int workers = 1; workers <= 2 * processors; workers *= 2) {
+                BatchQueries queries = new BatchQueries(data, workers);
+                long best = Long.MAX_VALUE;
+                boolean matches = true;
+                for (int i = 0; i < RUNS; i++) {
+                    long start = System.nanoTime();
+                    String answers = run(queries, pairs);
+                    best = Math.min(best, System.nanoTime() - start);
+                    matches &= answers.equals(expected);
+                }
+                if (workers == 1) {
+                    single = best;
+                }
+                System.out.printf("%8d %10.1f %12.0f %7.2fx %10s%n",
+                        workers, best / 1e6, PAIRS / (best / 1e9), (double) single / best, matches ? "yes" : "NO");
+            }
+        }
+        finally {
+            if (synthetic != null) {
+                Files.deleteIfExists(synthetic);
+            }
+        }
+    }
+
+    /**
+     * Answer all the pairs.
+     *
+     * @return The answers
+     */
+    private static String run(BatchQueries queries, String pairs) throws IOException {
+        StringWriter out = new StringWriter();
+        queries.run(new BufferedReader(new StringReader(pairs)), out);
+        return out.toString();
+    }
+
+    /**
+     * Choose random pairs of distinct actors, one tab-separated pair per line.
+     */
+    private static String pairs(List<String> actors) {
+        Collections.sort(actors);
+        Random random = new Random(1);
+        List<String> lines = new ArrayList<>();
+        while (lines.size() < PAIRS) {
+            String first = actors.get(random.nextInt(actors.size()));
+            String second = actors.get(random.nextInt(actors.size()));
+            if (!first.equals(second)) {
+                lines.add(first + "\t" + second);
+            }
+        }
+        return String.join("\n", lines) + "\n";
+    }
+}
@@ -0,0 +1,172 @@
+package edu.rit.cs.graph.bench;
+
+import edu.rit.cs.graph.BidirectionalSearch;
+import edu.rit.cs.graph.ThreeDegrees;
+import edu.rit.cs.graph.csrgraph.CsrGraph;
+import edu.rit.cs.graph.csrgraph.CsrNode;
+import edu.rit.cs.graph.csrgraph.CsrSearch;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares BidirectionalSearch, which keeps its state in hash maps of node objects, with the reusable CsrSearch
+ * context, which keeps it in arrays indexed by id, on the same random actor pairs of the same compressed graph. It
+ * reports the time and the heap allocated per query, and checks that both find paths of the same length and agree on
+ * which pairs are not connected at all.
+ *
+ * With no arguments it uses the bundled movie files and a synthetic file of {@value #SYNTHETIC_MOVIES} movies.
+ *
+ * @author William J. Reid (wjr3714)
+ */
+public class ContextBench {
+
+    /** The number of movies in the default synthetic file. */
+    private static final int SYNTHETIC_MOVIES = 100000;
+
+    /** The most pairs queried on one file. */
+    private static final int MAX_PAIRS = 5000;
+
+    /** The least number of queries each search answers before timing starts, so that both are compiled. */
+    private static final int WARMUP_QUERIES = 50000;
+
+    /** The least number of queries each search answers while it is timed. */
+    private static final int TIMED_QUERIES = 50000;
+
+    /**
+     * Run the comparison.
+     *
+     * @param args Movie data files or snapshots, or none for the defaults
+     * @throws IOException If the synthetic file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        List<String> files = new ArrayList<>();
+        Path synthetic = null;
+        if (args.length == 0) {
+            files.add("src/moviefiles/movies-0.txt");
+            files.add("src/moviefiles/mymovies.txt");
+            synthetic = Files.createTempFile("movies", ".txt");
+            MovieData.write(synthetic, SYNTHETIC_MOVIES, SYNTHETIC_MOVIES / 2, 1);
+            files.add(synthetic.toString());
+        }
+        else {
+            Collections.addAll(files, args);
+        }
+
+        try {
+            System.out.printf("%-30s %8s %12s %12s %14s %14s %10s%n",
+                    "file", "pairs", "maps(us)", "context(us)", "maps(B/query)", "context(B/q)", "mismatches");
+            for (String file : files) {
+                compare(file);
+            }
+        }
+        finally {
+            if (synthetic != null) {
+                Files.deleteIfExists(synthetic);
+            }
+        }
+    }
+
+    /**
+     * Time both searches on one file and print a line of results.
+     */
+    private static void compare(String file) {
+        ThreeDegrees data = new ThreeDegrees(file);
+        CsrGraph graph = data.getMovieGraph();
+        int[][] pairs = pairs(graph, data.getActorNames());
+        BidirectionalSearch<CsrNode> maps = new BidirectionalSearch<>(graph);
+        CsrSearch context = new CsrSearch(graph);
+
+        int mismatches = 0;
+        for (int[] pair : pairs) {
+            int length = maps.findPath(graph.getNode(pair[0]), graph.getNode(pair[1]), 2 * ThreeDegrees.MAX_HOPS)
+                    .size();
+            if (length != context.findPath(pair[0], pair[1], 2 * ThreeDegrees.MAX_HOPS).length
+                    || maps.isExhausted() != context.isExhausted()) {
+                mismatches++;
+            }
+        }
+
+        int warmup = Math.max(1, WARMUP_QUERIES / pairs.length);
+        int passes = Math.max(5, TIMED_QUERIES / pairs.length);
+        for (int i = 0; i < warmup; i++) {
+            withMaps(maps, graph, pairs);
+            withContext(context, pairs);
+        }
+        long mapsTime = 0;
+        long contextTime = 0;
+        long mapsBytes = 0;
+        long contextBytes = 0;
+        for (int i = 0; i < passes; i++) {
+            long bytes = allocated();
+            long start = System.nanoTime();
+            withMaps(maps, graph, pairs);
+            mapsTime += System.nanoTime() - start;
+            mapsBytes += allocated() - bytes;
+            bytes = allocated();
+            start = System.nanoTime();
+            withContext(context, pairs);
+            contextTime += System.nanoTime() - start;
+            contextBytes += allocated() - bytes;
+        }
+
+        double queries = (double) passes * pairs.length;
+        System.out.printf("%-30s %8d %12.2f %12.2f %14.0f %14.0f %10d%n",
+                Path.of(file).getFileName(), pairs.length, mapsTime / queries / 1000, contextTime / queries / 1000,
+                mapsBytes / queries, contextBytes / queries, mismatches);
+    }
+
+    /**
+     * Choose random pairs of distinct actors, as ids.
+     */
+    private static int[][] pairs(CsrGraph graph, List<String> actors) {
+        Collections.sort(actors);
+        int count = (int) Math.min(MAX_PAIRS, (long) actors.size() * (actors.size() - 1));
+        int[][] pairs = new int[count][];
+        Random random = new Random(1);
+        for (int i = 0; i < count; ) {
+            int first = graph.getId(actors.get(random.nextInt(actors.size())));
+            int second = graph.getId(actors.get(random.nextInt(actors.size())));
+            if (first != second) {
+                pairs[i++] = new int[]{first, second};
+            }
+        }
+        return pairs;
+    }
+
+    /**
+     * Answer every pair with the search that keeps hash maps.
+     */
+    private static int withMaps(BidirectionalSearch<CsrNode> search, CsrGraph graph, int[][] pairs) {
+        int found = 0;
+        for (int[] pair : pairs) {
+            found += search.findPath(graph.getNode(pair[0]), graph.getNode(pair[1]), 2 * ThreeDegrees.MAX_HOPS)
+                    .size();
+        }
+        return found;
+    }
+
+    /**
+     * Answer every pair with the reusable context.
+     */
+    private static int withContext(CsrSearch search, int[][] pairs) {
+        int found = 0;
+        for (int[] pair : pairs) {
+            found += search.findPath(pair[0], pair[1], 2 * ThreeDegrees.MAX_HOPS).length;
+        }
+        return found;
+    }
+
+    /**
+     * Get the number of bytes this thread has allocated so far.
+     */
+    private static long allocated() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,163 @@
+package edu.rit.cs.graph.bench;
+
+import edu.rit.cs.graph.MovieFileReader;
+import edu.rit.cs.graph.ThreeDegrees;
+import edu.rit.cs.graph.csrgraph.CsrGraph;
+import edu.rit.cs.graph.linkedgraph.LinkedGraph;
+import edu.rit.cs.graph.linkedgraph.LinkedNode;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Measures how long it takes to load movie data files: reading and interning the names alone with MovieFileReader,
+ * building the ThreeDegrees graphs, and building a CsrGraph. Each file is loaded a few times and the fastest time is
+ * reported. It also reports the heap each kind of graph of movies and actors holds on to, per edge; the names
+ * themselves, which both share, are not counted.
+ *
+ * With no arguments it uses the bundled movie files and a synthetic file of {@value #SYNTHETIC_MOVIES} lines.
+ *
+ * @author William J. Reid (wjr3714)
+ */
+public class LoadBench {
+
+    /** The number of lines in the default synthetic file. */
+    private static final int SYNTHETIC_MOVIES = 1000000;
+
+    /** The number of times each file is loaded. */
+    private static final int RUNS = 3;
+
+    /** The fewest edges a graph must have for its size to be reported. */
+    private static final int MIN_MEASURED_EDGES = 10000;
+
+    /** Keeps the most recently built graph reachable while the heap is measured. */
+    private static Object loaded;
+
+    /**
+     * Run the measurements.
+     *
+     * @param args Movie data files, or none for the defaults
+     * @throws IOException If a file cannot be read or the synthetic file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        List<String> files = new ArrayList<>();
+        Path synthetic = null;
+        if (args.length == 0) {
+            files.add("src/moviefiles/movies-0.txt");
+            files.add("src/moviefiles/mymovies.txt");
+            synthetic = Files.createTempFile("movies", ".txt");
+            MovieData.write(synthetic, SYNTHETIC_MOVIES, SYNTHETIC_MOVIES / 2, 1);
+            files.add(synthetic.toString());
+        }
+        else {
+            Collections.addAll(files, args);
+        }
+
+        try {
+            System.out.printf("%-30s %9s %9s %10s %11s %10s %12s %12s%n",
+                    "file", "lines", "names", "read(ms)", "graphs(ms)", "csr(ms)", "linked(B/e)", "csr(B/e)");
+            for (String file : files) {
+                measure(file);
+            }
+        }
+        finally {
+            if (synthetic != null) {
+                Files.deleteIfExists(synthetic);
+            }
+        }
+    }
+
+    /**
+     * Load one file several ways and print a line of results.
+     */
+    private static void measure(String file) throws IOException {
+        MovieFileReader reader = null;
+        long readTime = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            reader = new MovieFileReader();
+            reader.read(Paths.get(file), (movie, cast, castSize) -> { });
+            readTime = Math.min(readTime, System.nanoTime() - start);
+        }
+
+        int lines = reader.getMovieCount();
+        int names = reader.getNameCount();
+
+        long graphTime = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            loaded = null;
+            long start = System.nanoTime();
+            loaded = new ThreeDegrees(file);
+            graphTime = Math.min(graphTime, System.nanoTime() - start);
+        }
+        loaded = null;
+
+        CsrGraph csr = null;
+        long csrTime = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            csr = null;
+            long start = System.nanoTime();
+            csr = reader.readGraph(Paths.get(file));
+            csrTime = Math.min(csrTime, System.nanoTime() - start);
+        }
+        int edges = csr.getEdgeCount();
+        csr = null;
+
+        // The reader keeps the names, so reading the file again with it makes no new Strings.
+        long before = usedHeap();
+        loaded = linkedGraph(reader, file);
+        long linkedBytes = usedHeap() - before;
+        loaded = null;
+        before = usedHeap();
+        loaded = reader.readGraph(Paths.get(file));
+        long csrBytes = usedHeap() - before;
+        loaded = null;
+
+        System.out.printf("%-30s %9d %9d %10.2f %11.2f %10.2f %12s %12s%n",
+                Paths.get(file).getFileName(), lines, names, readTime / 1e6, graphTime / 1e6, csrTime / 1e6,
+                perEdge(linkedBytes, edges), perEdge(csrBytes, edges));
+    }
+
+    /**
+     * Format the bytes a graph holds per edge, if the graph is large enough for the heap to measure it.
+     */
+    private static String perEdge(long bytes, int edges) {
+        return edges < MIN_MEASURED_EDGES ? "-" : String.format("%.1f", (double) bytes / edges);
+    }
+
+    /**
+     * Build the combined graph of movies and actors that ThreeDegrees searches, as a LinkedGraph.
+     */
+    private static LinkedGraph linkedGraph(MovieFileReader reader, String file) throws IOException {
+        LinkedGraph graph = new LinkedGraph();
+        LinkedNode[] nodes = new LinkedNode[reader.getNameCount()];
+        reader.read(Paths.get(file), (movie, cast, castSize) -> {
+            if (nodes[movie] == null) {
+                nodes[movie] = graph.makeNode(reader.getName(movie));
+            }
+            for (int i = 0; i < castSize; i++) {
+                if (nodes[cast[i]] == null) {
+                    nodes[cast[i]] = graph.makeNode(reader.getName(cast[i]));
+                }
+                graph.addNeighbor(nodes[movie], nodes[cast[i]]);
+                graph.addNeighbor(nodes[cast[i]], nodes[movie]);
+            }
+        });
+        return graph;
+    }
+
+    /**
+     * Find how much of the heap is in use, after collecting the garbage.
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,89 @@
+package edu.rit.cs.graph.bench;
+
+import edu.rit.cs.graph.Graph;
+import edu.rit.cs.graph.linkedgraph.LinkedGraph;
+import edu.rit.cs.graph.linkedgraph.LinkedNode;
+import java.util.Random;
+
+/**
+ * Measures LinkedGraph.getNodeName, the lookup of a node's name, on graphs of growing size, next to the scan of every
+ * node that it used to do. The indexed lookup should take the same time however large the graph is, and the scan time
+ * in proportion to it. The scan is only timed on the smaller graphs, and on fewer lookups.
+ *
+ * @author William J. Reid (wjr3714)
+ */
+public class LookupBench {
+
+    /** The sizes of the graphs measured. */
+    private static final int[] SIZES = {1000, 10000, 100000, 1000000};
+
+    /** The largest graph the scan is timed on. */
+    private static final int MAX_SCANNED = 100000;
+
+    /** The number of indexed lookups timed on each graph. */
+    private static final int LOOKUPS = 5000000;
+
+    /** The number of scans timed on each graph. */
+    private static final int SCANS = 200;
+
+    /** The number of times each measurement is made; the fastest is reported. */
+    private static final int RUNS = 5;
+
+    /** Keeps the results of the lookups alive so that they are not optimized away. */
+    private static int sink;
+
+    /**
+     * Run the measurements.
+     *
+     * @param args Not used
+     */
+    public static void main(String[] args) {
+        System.out.printf("%10s %14s %14s%n", "nodes", "indexed(ns)", "scan(ns)");
+        for (int size : SIZES) {
+            LinkedGraph graph = new LinkedGraph();
+            for (int i = 0; i < size; i++) {
+                graph.makeNode("node" + i);
+            }
+            LinkedNode[] targets = new LinkedNode[1024];
+            Random random = new Random(size);
+            for (int i = 0; i < targets.length; i++) {
+                targets[i] = graph.getNode(random.nextInt(size));
+            }
+
+            long indexed = Long.MAX_VALUE;
+            for (int run = 0; run < RUNS; run++) {
+                long start = System.nanoTime();
+                for (int i = 0; i < LOOKUPS; i++) {
+                    sink += graph.getNodeName(targets[i & (targets.length - 1)]).length();
+                }
+                indexed = Math.min(indexed, System.nanoTime() - start);
+            }
+
+            String scan = "-";
+            if (size <= MAX_SCANNED) {
+                long scanned = Long.MAX_VALUE;
+                for (int run = 0; run < RUNS; run++) {
+                    long start = System.nanoTime();
+                    for (int i = 0; i < SCANS; i++) {
+                        sink += scanName(graph, targets[i & (targets.length - 1)]).length();
+                    }
+                    scanned = Math.min(scanned, System.nanoTime() - start);
+                }
+                scan = String.format("%.1f", (double) scanned / SCANS);
+            }
+            System.out.printf("%10d %14.1f %14s%n", size, (double) indexed / LOOKUPS, scan);
+        }
+    }
+
+    /**
+     * Find a node's name the way getNodeName used to, by comparing the node with every node of the graph.
+     */
+    private static String scanName(LinkedGraph graph, LinkedNode node) {
+        for (LinkedNode candidate : graph.getNodes()) {
+            if (candidate.equals(node)) {
+                return candidate.getName();
+            }
+        }
+        return Graph.UNFOUND_NODE_NAME;
+    }
+}
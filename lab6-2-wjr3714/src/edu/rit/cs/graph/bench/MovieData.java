@@ -0,0 +1,72 @@
+package edu.rit.cs.graph.bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+/**
+ * Writes synthetic movie data files in the format ThreeDegrees reads: one movie per line, a one-word title followed by
+ * the first and last names of its cast. Casts are drawn from a fixed pool of actors, a few of whom appear far more
+ * often than the rest, as in real credits, so that the actor graph has the hubs and long tails that make path searches
+ * expensive. The same seed always gives the same file.
+ *
+ * @author William J. Reid (wjr3714)
+ */
+public class MovieData {
+
+    /** The smallest number of actors in a movie. */
+    private static final int MIN_CAST = 2;
+
+    /** The largest number of actors in a movie. */
+    private static final int MAX_CAST = 6;
+
+    /**
+     * Write a synthetic data file.
+     *
+     * @param file Where to write it
+     * @param movies The number of movies (lines)
+     * @param actors The number of distinct actors to cast from
+     * @param seed The seed for the random choices
+     * @throws IOException If the file cannot be written
+     */
+    public static void write(Path file, int movies, int actors, long seed) throws IOException {
+        Random random = new Random(seed);
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            StringBuilder line = new StringBuilder();
+            for (int movie = 0; movie < movies; movie++) {
+                line.setLength(0);
+                line.append("Movie_").append(movie);
+                int cast = MIN_CAST + random.nextInt(MAX_CAST - MIN_CAST + 1);
+                for (int i = 0; i < cast; i++) {
+                    // Squaring a uniform choice favours the low-numbered actors.
+                    double u = random.nextDouble();
+                    int actor = (int) (u * u * actors);
+                    line.append(" First").append(actor).append(" Last").append(actor);
+                }
+                out.write(line.toString());
+                out.newLine();
+            }
+        }
+    }
+
+    /**
+     * Write a synthetic data file with one actor for every two movies.
+     *
+     * @param args The file name, the number of movies, and optionally the number of actors and the seed
+     * @throws IOException If the file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: java MovieData file movies [actors [seed]]");
+            System.exit(1);
+        }
+        int movies = Integer.parseInt(args[1]);
+        int actors = args.length > 2 ? Integer.parseInt(args[2]) : Math.max(1, movies / 2);
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 1;
+        write(Paths.get(args[0]), movies, actors, seed);
+    }
+}
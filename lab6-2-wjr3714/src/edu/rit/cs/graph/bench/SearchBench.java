@@ -0,0 +1,164 @@
+package edu.rit.cs.graph.bench;
+
+import edu.rit.cs.graph.ThreeDegrees;
+import edu.rit.cs.graph.linkedgraph.LinkedNode;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the one-sided, unbounded ThreeDegrees.BreathFirstSearch with the bounded bidirectional
+ * ThreeDegrees.findPath on the same actor pairs, and checks that both give paths of the same length whenever one of
+ * at most ThreeDegrees.MAX_HOPS hops exists. Small files are queried on every ordered pair of actors, larger ones on a
+ * random sample.
+ *
+ * With no arguments it uses the bundled movie files and a synthetic file of {@value #SYNTHETIC_MOVIES} movies.
+ *
+ * @author William J. Reid (wjr3714)
+ */
+public class SearchBench {
+
+    /** The number of movies in the default synthetic file. */
+    private static final int SYNTHETIC_MOVIES = 3000;
+
+    /** The most pairs queried on one file. */
+    private static final int MAX_PAIRS = 2000;
+
+    /** The least number of queries each search answers before timing starts, so that both are compiled. */
+    private static final int WARMUP_QUERIES = 20000;
+
+    /** The least number of queries each search answers while it is timed. */
+    private static final int TIMED_QUERIES = 10000;
+
+    /**
+     * Run the comparison.
+     *
+     * @param args Movie data files, or none for the defaults
+     * @throws IOException If the synthetic file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        List<String> files = new ArrayList<>();
+        Path synthetic = null;
+        if (args.length == 0) {
+            files.add("src/moviefiles/movies-0.txt");
+            files.add("src/moviefiles/mymovies.txt");
+            synthetic = Files.createTempFile("movies", ".txt");
+            MovieData.write(synthetic, SYNTHETIC_MOVIES, SYNTHETIC_MOVIES / 2, 1);
+            files.add(synthetic.toString());
+        }
+        else {
+            Collections.addAll(files, args);
+        }
+
+        try {
+            System.out.printf("%-30s %8s %12s %12s %8s %10s%n",
+                    "file", "pairs", "bfs(us)", "bidir(us)", "speedup", "mismatches");
+            for (String file : files) {
+                compare(file);
+            }
+        }
+        finally {
+            if (synthetic != null) {
+                Files.deleteIfExists(synthetic);
+            }
+        }
+    }
+
+    /**
+     * Time both searches on one file and print a line of results.
+     */
+    private static void compare(String file) {
+        ThreeDegrees data = new ThreeDegrees(file);
+        List<String[]> pairs = pairs(data.getActorNames());
+
+        int mismatches = 0;
+        for (String[] pair : pairs) {
+            if (bounded(data.BreathFirstSearch(pair[0], pair[1])) != data.findPath(pair[0], pair[1]).size()) {
+                mismatches++;
+            }
+        }
+
+        int warmup = Math.max(1, WARMUP_QUERIES / pairs.size());
+        int passes = Math.max(5, TIMED_QUERIES / pairs.size());
+        for (int i = 0; i < warmup; i++) {
+            breadthFirst(data, pairs);
+            bidirectional(data, pairs);
+        }
+        long breadthFirstTime = 0;
+        long bidirectionalTime = 0;
+        for (int i = 0; i < passes; i++) {
+            long start = System.nanoTime();
+            breadthFirst(data, pairs);
+            breadthFirstTime += System.nanoTime() - start;
+            start = System.nanoTime();
+            bidirectional(data, pairs);
+            bidirectionalTime += System.nanoTime() - start;
+        }
+
+        double queries = (double) passes * pairs.size();
+        System.out.printf("%-30s %8d %12.2f %12.2f %7.1fx %10d%n",
+                Path.of(file).getFileName(), pairs.size(), breadthFirstTime / queries / 1000,
+                bidirectionalTime / queries / 1000, (double) breadthFirstTime / bidirectionalTime, mismatches);
+    }
+
+    /**
+     * Choose the pairs to query: every ordered pair of distinct actors, or a random sample if there are too many.
+     */
+    private static List<String[]> pairs(List<String> actors) {
+        Collections.sort(actors);
+        List<String[]> pairs = new ArrayList<>();
+        if ((long) actors.size() * (actors.size() - 1) <= MAX_PAIRS) {
+            for (String first : actors) {
+                for (String second : actors) {
+                    if (!first.equals(second)) {
+                        pairs.add(new String[]{first, second});
+                    }
+                }
+            }
+        }
+        else {
+            Random random = new Random(1);
+            while (pairs.size() < MAX_PAIRS) {
+                String first = actors.get(random.nextInt(actors.size()));
+                String second = actors.get(random.nextInt(actors.size()));
+                if (!first.equals(second)) {
+                    pairs.add(new String[]{first, second});
+                }
+            }
+        }
+        return pairs;
+    }
+
+    /**
+     * The length of a path as ThreeDegrees reports it: 0 if it is longer than MAX_HOPS hops.
+     */
+    private static int bounded(List<LinkedNode> path) {
+        return path.size() <= 2 * ThreeDegrees.MAX_HOPS + 1 ? path.size() : 0;
+    }
+
+    /**
+     * Answer every pair with the one-sided search, as main used to.
+     */
+    private static int breadthFirst(ThreeDegrees data, List<String[]> pairs) {
+        int found = 0;
+        for (String[] pair : pairs) {
+            found += bounded(data.BreathFirstSearch(pair[0], pair[1])) > 0 ? 1 : 0;
+        }
+        return found;
+    }
+
+    /**
+     * Answer every pair with the bounded bidirectional search.
+     */
+    private static int bidirectional(ThreeDegrees data, List<String[]> pairs) {
+        int found = 0;
+        for (String[] pair : pairs) {
+            found += data.findPath(pair[0], pair[1]).size() > 0 ? 1 : 0;
+        }
+        return found;
+    }
+}
@@ -0,0 +1,549 @@
+package edu.rit.cs.graph.csrgraph;
+
+import edu.rit.cs.graph.Graph;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable graph in compressed sparse row form. The nodes are numbered from 0, and the neighbors of node v are
+ * targets[offsets[v]] up to targets[offsets[v + 1]], in increasing order and without repeats. An edge therefore costs
+ * one int, where a {@link edu.rit.cs.graph.linkedgraph.LinkedNode} spends a tree entry and a pointer on it, and
+ * following the edges of a node reads one contiguous run of memory.
+ *
+ * A CsrGraph is made with a {@link Builder}. Since it cannot change, it can be shared by any number of threads.
+ * Code written for the Graph interface sees {@link CsrNode}s, which are made as they are asked for; code that needs
+ * speed can use the int ids and the firstEdge, endEdge and target methods directly. The Graph methods that would
+ * change the graph throw UnsupportedOperationException.
+ *
+ * @author William J. Reid (wjr3714)
+ */
+public class CsrGraph implements Graph< CsrNode > {
+
+    /**
+     * Collects the nodes and edges of a CsrGraph. Nodes get ids in the order they are added.
+     */
+    public static class Builder {
+
+        /** The names, by id. */
+        private String[] names = new String[16];
+
+        /** The id of each name. */
+        private final Map< String, Integer > ids = new HashMap<>();
+
+        /** The source of each edge added. */
+        private int[] sources = new int[16];
+
+        /** The target of each edge added. */
+        private int[] destinations = new int[16];
+
+        /** The number of edges added, counting repeats. */
+        private int edgeCount;
+
+        /**
+         * Add a node, or find the one that already has a name.
+         *
+         * @param name The node's name
+         * @return The node's id
+         */
+        public int addNode( String name ) {
+            Integer id = this.ids.get( name );
+            if ( id != null ) {
+                return id;
+            }
+            int newId = this.ids.size();
+            if ( newId == this.names.length ) {
+                this.names = Arrays.copyOf( this.names, 2 * newId );
+            }
+            this.names[ newId ] = name;
+            this.ids.put( name, newId );
+            return newId;
+        }
+
+        /**
+         * Add an edge from one node to another. Edges are directional, so for a two-way connection addEdge must be
+         * called twice, the second time with the arguments reversed. Adding an edge more than once has the same
+         * effect as adding it once.
+         *
+         * @param from The id of the source node
+         * @param to The id of the destination node
+         */
+        public void addEdge( int from, int to ) {
+            if ( from < 0 || from >= getNodeCount() || to < 0 || to >= getNodeCount() ) {
+                throw new IndexOutOfBoundsException( "no node " + ( from < 0 || from >= getNodeCount() ? from : to ) );
+            }
+            if ( this.edgeCount == this.sources.length ) {
+                this.sources = Arrays.copyOf( this.sources, 2 * this.edgeCount );
+                this.destinations = Arrays.copyOf( this.destinations, 2 * this.edgeCount );
+            }
+            this.sources[ this.edgeCount ] = from;
+            this.destinations[ this.edgeCount ] = to;
+            this.edgeCount++;
+        }
+
+        /**
+         * Get the number of nodes added so far.
+         *
+         * @return The node count
+         */
+        public int getNodeCount() {
+            return this.ids.size();
+        }
+
+        /**
+         * Make the graph. The builder can go on being used afterwards; the graph does not change.
+         *
+         * @return A graph with the nodes and edges added so far
+         */
+        public CsrGraph build() {
+            int nodeCount = getNodeCount();
+
+            // Count the edges leaving each node, then place each edge in its node's row.
+            int[] offsets = new int[ nodeCount + 1 ];
+            for ( int i = 0; i < this.edgeCount; i++ ) {
+                offsets[ this.sources[ i ] + 1 ]++;
+            }
+            for ( int node = 0; node < nodeCount; node++ ) {
+                offsets[ node + 1 ] += offsets[ node ];
+            }
+            int[] next = Arrays.copyOf( offsets, nodeCount );
+            int[] targets = new int[ this.edgeCount ];
+            for ( int i = 0; i < this.edgeCount; i++ ) {
+                targets[ next[ this.sources[ i ] ]++ ] = this.destinations[ i ];
+            }
+
+            // Sort each row and drop repeated edges, closing up the gaps.
+            int kept = 0;
+            for ( int node = 0; node < nodeCount; node++ ) {
+                int from = offsets[ node ];
+                int to = offsets[ node + 1 ];
+                Arrays.sort( targets, from, to );
+                offsets[ node ] = kept;
+                for ( int edge = from; edge < to; edge++ ) {
+                    if ( edge == from || targets[ edge ] != targets[ edge - 1 ] ) {
+                        targets[ kept++ ] = targets[ edge ];
+                    }
+                }
+            }
+            offsets[ nodeCount ] = kept;
+
+            return new CsrGraph( Arrays.copyOf( this.names, nodeCount ), offsets, Arrays.copyOf( targets, kept ) );
+        }
+    }
+
+    /** The names, by id. A graph loaded from a snapshot fills this in as names are first asked for. */
+    private final String[] names;
+
+    /** The UTF-8 bytes of the names not yet in names, or null if every name is there. */
+    private final ByteBuffer nameBytes;
+
+    /** Where each name starts in nameBytes, followed by the number of bytes, or null with nameBytes. */
+    private final IntBuffer nameOffsets;
+
+    /**
+     * An open-addressing hash table of the names: one more than the id of a node, or 0 for an empty entry. Its length
+     * is a power of two at least twice the number of nodes.
+     */
+    private final IntBuffer index;
+
+    /** Where each node's neighbors start in targets, followed by the number of edges. */
+    private final IntBuffer offsets;
+
+    /** The neighbors of every node, one row after another. */
+    private final IntBuffer targets;
+
+    /**
+     * Create a graph from its arrays, which it takes over.
+     *
+     * @param names The names, by id, all different
+     * @param offsets Where each node's neighbors start in targets, followed by the number of edges
+     * @param targets The neighbors of every node, each row in increasing order without repeats
+     */
+    CsrGraph( String[] names, int[] offsets, int[] targets ) {
+        this.names = names;
+        this.nameBytes = null;
+        this.nameOffsets = null;
+        this.offsets = IntBuffer.wrap( offsets );
+        this.targets = IntBuffer.wrap( targets );
+        int[] table = new int[ indexLength( names.length ) ];
+        int mask = table.length - 1;
+        for ( int id = 0; id < names.length; id++ ) {
+            int slot = slot( names[ id ] ) & mask;
+            while ( table[ slot ] != 0 ) {
+                slot = ( slot + 1 ) & mask;
+            }
+            table[ slot ] = id + 1;
+        }
+        this.index = IntBuffer.wrap( table );
+    }
+
+    /**
+     * Create a graph over buffers that already hold all of its parts, as a {@link CsrSnapshot} does. Nothing is
+     * copied, and each name is decoded the first time it is needed.
+     *
+     * @param nodeCount The number of nodes
+     * @param offsets Where each node's neighbors start in targets, followed by the number of edges
+     * @param targets The neighbors of every node, each row in increasing order without repeats
+     * @param index The hash table of the names, laid out as this class lays it out
+     * @param nameOffsets Where each name starts in nameBytes, followed by the number of bytes
+     * @param nameBytes The UTF-8 bytes of the names, one after another
+     */
+    CsrGraph( int nodeCount, IntBuffer offsets, IntBuffer targets, IntBuffer index, IntBuffer nameOffsets,
+              ByteBuffer nameBytes ) {
+        this.names = new String[ nodeCount ];
+        this.nameBytes = nameBytes;
+        this.nameOffsets = nameOffsets;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.index = index;
+    }
+
+    /**
+     * Find the length of the name index for some number of nodes: the smallest power of two that is at least twice
+     * as large.
+     *
+     * @param nodeCount The number of nodes
+     * @return The index length
+     */
+    static int indexLength( int nodeCount ) {
+        return Integer.highestOneBit( Math.max( 1, 2 * nodeCount - 1 ) ) << 1;
+    }
+
+    /**
+     * Spread a name's hash code so that its low bits choose its place in the index. String.hashCode is the same in
+     * every Java virtual machine, so an index saved in a snapshot stays valid.
+     */
+    private static int slot( String name ) {
+        int hash = name.hashCode();
+        return hash ^ ( hash >>> 16 );
+    }
+
+    /**
+     * Get the graph's offsets, for writing a snapshot.
+     *
+     * @return A read-only view of where each node's neighbors start, followed by the number of edges
+     */
+    IntBuffer offsets() {
+        return this.offsets.asReadOnlyBuffer();
+    }
+
+    /**
+     * Get the graph's targets, for writing a snapshot.
+     *
+     * @return A read-only view of every node's neighbors
+     */
+    IntBuffer targets() {
+        return this.targets.asReadOnlyBuffer();
+    }
+
+    /**
+     * Get the graph's name index, for writing a snapshot.
+     *
+     * @return A read-only view of the hash table of the names
+     */
+    IntBuffer index() {
+        return this.index.asReadOnlyBuffer();
+    }
+
+    /**
+     * Get the number of nodes.
+     *
+     * @return The node count; the ids are 0 up to one less than it
+     */
+    public int getNodeCount() {
+        return this.names.length;
+    }
+
+    /**
+     * Get the number of edges.
+     *
+     * @return The edge count, counting each direction of a two-way connection
+     */
+    public int getEdgeCount() {
+        return this.targets.limit();
+    }
+
+    /**
+     * Look up the id of a node by its name.
+     *
+     * @param nodeName The node's name
+     * @return The id, or -1 if there is no such node
+     */
+    public int getId( String nodeName ) {
+        int mask = this.index.limit() - 1;
+        int slot = slot( nodeName ) & mask;
+        while ( this.index.get( slot ) != 0 ) {
+            int id = this.index.get( slot ) - 1;
+            if ( getName( id ).equals( nodeName ) ) {
+                return id;
+            }
+            slot = ( slot + 1 ) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Get the name of a node.
+     *
+     * @param id The node's id
+     * @return The name
+     */
+    public String getName( int id ) {
+        String name = this.names[ id ];
+        if ( name == null ) {
+            // Strings are immutable, so threads that decode the same name at once do no harm.
+            int start = this.nameOffsets.get( id );
+            byte[] bytes = new byte[ this.nameOffsets.get( id + 1 ) - start ];
+            this.nameBytes.duplicate().position( start ).get( bytes );
+            name = new String( bytes, StandardCharsets.UTF_8 );
+            this.names[ id ] = name;
+        }
+        return name;
+    }
+
+    /**
+     * Get the number of neighbors a node has.
+     *
+     * @param id The node's id
+     * @return The node's degree
+     */
+    public int getDegree( int id ) {
+        return this.offsets.get( id + 1 ) - this.offsets.get( id );
+    }
+
+    /**
+     * Get the index of a node's first edge. Its edges are firstEdge(id) up to, but not including, endEdge(id).
+     *
+     * @param id The node's id
+     * @return The index of the first edge
+     */
+    public int firstEdge( int id ) {
+        return this.offsets.get( id );
+    }
+
+    /**
+     * Get the index just past a node's last edge.
+     *
+     * @param id The node's id
+     * @return The index after the last edge
+     */
+    public int endEdge( int id ) {
+        return this.offsets.get( id + 1 );
+    }
+
+    /**
+     * Get the node an edge leads to.
+     *
+     * @param edge The edge's index
+     * @return The id of the destination node
+     */
+    public int target( int edge ) {
+        return this.targets.get( edge );
+    }
+
+    /**
+     * Number the connected components of the graph, taking each edge to join its two nodes whichever way it points.
+     * Two nodes are joined by a path of some length iff they get the same number, which a search can only prove by
+     * exploring a whole component. The components are found by union-find in one pass over the edges, so it is
+     * worth doing once when the graph is loaded and keeping the result.
+     *
+     * @return For each node id, the smallest id in its component
+     */
+    public int[] componentIds() {
+        int[] roots = new int[ getNodeCount() ];
+        for ( int id = 0; id < roots.length; id++ ) {
+            roots[ id ] = id;
+        }
+        // Each set's root is its smallest id, so every node's entry is at most its own id.
+        for ( int id = 0; id < roots.length; id++ ) {
+            for ( int edge = firstEdge( id ); edge < endEdge( id ); edge++ ) {
+                int root = find( roots, id );
+                int other = find( roots, target( edge ) );
+                if ( root < other ) {
+                    roots[ other ] = root;
+                }
+                else if ( other < root ) {
+                    roots[ root ] = other;
+                }
+            }
+        }
+        // In increasing order, each entry points at a smaller id whose entry is already its root.
+        for ( int id = 0; id < roots.length; id++ ) {
+            roots[ id ] = roots[ roots[ id ] ];
+        }
+        return roots;
+    }
+
+    /**
+     * Find the root of a node's set, halving the path to it on the way.
+     */
+    private static int find( int[] roots, int id ) {
+        while ( roots[ id ] != id ) {
+            roots[ id ] = roots[ roots[ id ] ];
+            id = roots[ id ];
+        }
+        return id;
+    }
+
+    /**
+     * Get the node object for an id.
+     *
+     * @param id The node's id
+     * @return A view of the node
+     */
+    public CsrNode getNode( int id ) {
+        if ( id < 0 || id >= getNodeCount() ) {
+            throw new IndexOutOfBoundsException( "no node " + id );
+        }
+        return new CsrNode( this, id );
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Iterable< CsrNode > getNodes() {
+        return () -> new Iterator< CsrNode >() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < getNodeCount();
+            }
+
+            @Override
+            public CsrNode next() {
+                if ( !hasNext() ) {
+                    throw new NoSuchElementException();
+                }
+                return new CsrNode( CsrGraph.this, next++ );
+            }
+        };
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean hasNode( String nodeName ) {
+        return getId( nodeName ) >= 0;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public CsrNode getNode( String nodeName ) {
+        int id = getId( nodeName );
+        return id < 0 ? null : new CsrNode( this, id );
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getNodeName( CsrNode node ) {
+        return node.getGraph() == this ? node.getName() : UNFOUND_NODE_NAME;
+    }
+
+    /**
+     * A CsrGraph cannot be changed; use a {@link Builder}.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void addNeighbor( CsrNode node, CsrNode neighbor ) {
+        throw new UnsupportedOperationException( "a CsrGraph cannot be changed; use CsrGraph.Builder" );
+    }
+
+    /**
+     * Get the neighbors of a node as a set backed by the graph's arrays. Looking one up is a binary search.
+     *
+     * @param node The node whose neighbors are sought
+     * @return An unmodifiable set of the node's neighbors, in order of id
+     */
+    @Override
+    public Set< CsrNode > getNeighbors( CsrNode node ) {
+        int from = firstEdge( node.getId() );
+        int to = endEdge( node.getId() );
+        return new AbstractSet< CsrNode >() {
+            @Override
+            public int size() {
+                return to - from;
+            }
+
+            @Override
+            public boolean contains( Object o ) {
+                return o instanceof CsrNode && ( (CsrNode) o ).getGraph() == CsrGraph.this
+                        && hasEdge( from, to, ( (CsrNode) o ).getId() );
+            }
+
+            @Override
+            public Iterator< CsrNode > iterator() {
+                return new Iterator< CsrNode >() {
+                    private int edge = from;
+
+                    @Override
+                    public boolean hasNext() {
+                        return edge < to;
+                    }
+
+                    @Override
+                    public CsrNode next() {
+                        if ( !hasNext() ) {
+                            throw new NoSuchElementException();
+                        }
+                        return new CsrNode( CsrGraph.this, target( edge++ ) );
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Tell whether a row of edges, which is in increasing order, leads to a node.
+     */
+    private boolean hasEdge( int from, int to, int id ) {
+        int low = from;
+        int high = to - 1;
+        while ( low <= high ) {
+            int middle = ( low + high ) >>> 1;
+            int target = target( middle );
+            if ( target < id ) {
+                low = middle + 1;
+            }
+            else if ( target > id ) {
+                high = middle - 1;
+            }
+            else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A CsrGraph cannot be changed; use a {@link Builder}.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public CsrNode makeNode( String nodeName ) {
+        throw new UnsupportedOperationException( "a CsrGraph cannot be changed; use CsrGraph.Builder" );
+    }
+
+    /**
+     * Generate a string associated with the graph, one line for each node in order of id, in the form LinkedGraph
+     * uses.
+     *
+     * @return String associated with the graph
+     */
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        for ( int id = 0; id < getNodeCount(); id++ ) {
+            result.append( new CsrNode( this, id ) ).append( '\n' );
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,108 @@
+package edu.rit.cs.graph.csrgraph;
+
+import java.util.Set;
+
+/**
+ * A node of a {@link CsrGraph}, as seen by code written for the {@link edu.rit.cs.graph.Graph} interface. The graph
+ * itself keeps only int ids; a CsrNode is made whenever one is asked for, and two CsrNodes for the same id of the
+ * same graph are equal.
+ *
+ * @author William J. Reid (wjr3714)
+ */
+public final class CsrNode {
+
+    /** The graph the node belongs to. */
+    private final CsrGraph graph;
+
+    /** The node's id in the graph. */
+    private final int id;
+
+    /**
+     * Create the view of one node.
+     *
+     * @param graph The graph the node belongs to
+     * @param id The node's id in the graph
+     */
+    CsrNode( CsrGraph graph, int id ) {
+        this.graph = graph;
+        this.id = id;
+    }
+
+    /**
+     * Get the graph the node belongs to.
+     *
+     * @return The graph
+     */
+    CsrGraph getGraph() {
+        return this.graph;
+    }
+
+    /**
+     * Get the node's id, from 0 to one less than the graph's node count.
+     *
+     * @return The id
+     */
+    public int getId() {
+        return this.id;
+    }
+
+    /**
+     * Get the name associated with this node.
+     *
+     * @return The name
+     */
+    public String getName() {
+        return this.graph.getName( this.id );
+    }
+
+    /**
+     * Get the neighbors of this node.
+     *
+     * @return An unmodifiable set of the node's neighbors, in order of id
+     */
+    public Set< CsrNode > getNeighbors() {
+        return this.graph.getNeighbors( this );
+    }
+
+    /**
+     * Generate a string associated with the node, including the name of the node followed by the names of its
+     * neighbors, as LinkedNode does.
+     *
+     * @return String associated with the node
+     */
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder( getName() ).append( ": " );
+        for ( int edge = this.graph.firstEdge( this.id ); edge < this.graph.endEdge( this.id ); edge++ ) {
+            if ( edge > this.graph.firstEdge( this.id ) ) {
+                result.append( ", " );
+            }
+            result.append( this.graph.getName( this.graph.target( edge ) ) );
+        }
+        return result.toString();
+    }
+
+    /**
+     * Compare this node to some other object.
+     *
+     * @param o The object being compared to this node
+     * @return true iff the other object is a node of the same graph with the same id
+     */
+    @Override
+    public boolean equals( Object o ) {
+        if ( this == o ) return true;
+        if ( !( o instanceof CsrNode ) ) return false;
+        CsrNode other = (CsrNode) o;
+        return this.graph == other.graph && this.id == other.id;
+    }
+
+    /**
+     * Compute a hash code for this node.
+     *
+     * @return The node's id
+     */
+    @Override
+    public int hashCode() {
+        return this.id;
+    }
+}
@@ -0,0 +1,234 @@
+package edu.rit.cs.graph.csrgraph;
+
+import java.util.Arrays;
+
+/**
+ * A reusable context for bounded bidirectional breadth-first searches of a {@link CsrGraph}, working on int ids. It
+ * finds the same shortest paths as {@link edu.rit.cs.graph.BidirectionalSearch}, but keeps its state in arrays
+ * indexed by id that are allocated once, so that a search allocates nothing but the path it returns.
+ *
+ * A node counts as reached by a side of the current search when its stamp holds that side's mark for the current
+ * epoch; starting a search moves to the next epoch instead of clearing the arrays, so a search costs time in
+ * proportion to the nodes it visits, not to the size of the graph. Each side's frontier is a ring buffer of ids.
+ * The context holds about four ints per node of the graph, and should be used by one thread at a time.
+ *
+ * @author William J. Reid (wjr3714)
+ */
+public class CsrSearch {
+
+    /** The path returned when there is none. */
+    private static final int[] NO_PATH = new int[ 0 ];
+
+    /** The side that searches from the start node. */
+    private static final int FORWARD = 0;
+
+    /** The side that searches from the end node. */
+    private static final int BACKWARD = 1;
+
+    /** The graph being searched. */
+    private final CsrGraph graph;
+
+    /** For each node, 2 * epoch + side if that side of the current search has reached it. */
+    private final int[] stamps;
+
+    /** For each node reached by the current search, the node it was reached from on its side. */
+    private final int[] parents;
+
+    /** The frontier of each side, as a ring buffer. */
+    private final int[][] queues;
+
+    /** Where each side's frontier starts in its queue. */
+    private final int[] heads = new int[ 2 ];
+
+    /** The number of nodes in each side's frontier. */
+    private final int[] sizes = new int[ 2 ];
+
+    /** The current epoch; stamps from earlier epochs mean nothing. */
+    private int epoch;
+
+    /** Where the last level expanded met the other side: the node on the forward side, or -1. */
+    private int forwardMeeting;
+
+    /** The neighbor of forwardMeeting that the backward side had reached. */
+    private int backwardMeeting;
+
+    /** Whether the last search ran out of nodes on one side, which means no path of any length exists. */
+    private boolean exhausted;
+
+    /** The number of nodes the last search expanded. */
+    private int expanded;
+
+    /**
+     * Create a search context for a graph in which every edge has a matching edge in the other direction.
+     *
+     * @param graph The graph to search
+     */
+    public CsrSearch( CsrGraph graph ) {
+        int nodeCount = graph.getNodeCount();
+        this.graph = graph;
+        this.stamps = new int[ nodeCount ];
+        this.parents = new int[ nodeCount ];
+        this.queues = new int[][]{ new int[ nodeCount ], new int[ nodeCount ] };
+    }
+
+    /**
+     * Get the graph this context searches.
+     *
+     * @return The graph
+     */
+    public CsrGraph getGraph() {
+        return this.graph;
+    }
+
+    /**
+     * Find a shortest path between two nodes that uses no more than a given number of edges. A search that stops at
+     * that limit says nothing about longer paths; to learn whether the nodes are connected at all, search again with
+     * {@code Integer.MAX_VALUE} edges and ask {@link #isExhausted()}.
+     *
+     * @param start The id of the first node of the path
+     * @param end The id of the last node of the path
+     * @param maxEdges The most edges the path may have
+     * @return The ids of the nodes of the path in order from start to end, or an empty array if there is no such path
+     */
+    public int[] findPath( int start, int end, int maxEdges ) {
+        checkId( start );
+        checkId( end );
+        nextEpoch();
+        this.exhausted = false;
+        this.expanded = 0;
+        this.forwardMeeting = -1;
+        if ( start == end ) {
+            return new int[]{ start };
+        }
+
+        this.sizes[ FORWARD ] = 0;
+        this.sizes[ BACKWARD ] = 0;
+        reach( FORWARD, start, start );
+        reach( BACKWARD, end, end );
+
+        // Each round adds one edge to the longest path either side could take part in.
+        for ( int edges = 1; edges <= maxEdges; edges++ ) {
+            expand( this.sizes[ FORWARD ] <= this.sizes[ BACKWARD ] ? FORWARD : BACKWARD );
+            if ( this.forwardMeeting >= 0 ) {
+                return buildPath();
+            }
+            if ( this.sizes[ FORWARD ] == 0 || this.sizes[ BACKWARD ] == 0 ) {
+                this.exhausted = true;
+                break;
+            }
+        }
+        return NO_PATH;
+    }
+
+    /**
+     * Tell whether the last search explored everything reachable from one of its ends without meeting the other end,
+     * so that the two nodes are not connected by a path of any length.
+     *
+     * @return true iff the last search proved there is no path at all
+     */
+    public boolean isExhausted() {
+        return this.exhausted;
+    }
+
+    /**
+     * Get the number of nodes whose neighbors the last search examined, a measure of its work.
+     *
+     * @return The expanded node count
+     */
+    public int getExpandedCount() {
+        return this.expanded;
+    }
+
+    /**
+     * Make sure an id is that of a node of the graph.
+     */
+    private void checkId( int id ) {
+        if ( id < 0 || id >= this.stamps.length ) {
+            throw new IndexOutOfBoundsException( "no node " + id );
+        }
+    }
+
+    /**
+     * Start a new epoch, clearing the stamps only when the epoch numbers run out.
+     */
+    private void nextEpoch() {
+        if ( this.epoch >= Integer.MAX_VALUE / 2 ) {
+            Arrays.fill( this.stamps, 0 );
+            this.epoch = 0;
+        }
+        // Epoch 0 is never used, so that the zeroes of a new array mean unreached.
+        this.epoch++;
+    }
+
+    /**
+     * Mark a node as reached by one side and add it to that side's frontier.
+     */
+    private void reach( int side, int node, int parent ) {
+        this.stamps[ node ] = 2 * this.epoch + side;
+        this.parents[ node ] = parent;
+        int[] queue = this.queues[ side ];
+        queue[ ( this.heads[ side ] + this.sizes[ side ] ) % queue.length ] = node;
+        this.sizes[ side ]++;
+    }
+
+    /**
+     * Expand every node of one side's frontier, stopping at the first neighbor the other side has already reached.
+     * Every node the other side has reached is the same distance from its end, so any such neighbor completes a
+     * shortest path.
+     */
+    private void expand( int side ) {
+        int own = 2 * this.epoch + side;
+        int other = 2 * this.epoch + ( 1 - side );
+        int[] queue = this.queues[ side ];
+        for ( int count = this.sizes[ side ]; count > 0; count-- ) {
+            int node = queue[ this.heads[ side ] ];
+            this.heads[ side ] = ( this.heads[ side ] + 1 ) % queue.length;
+            this.sizes[ side ]--;
+            this.expanded++;
+            int endEdge = this.graph.endEdge( node );
+            for ( int edge = this.graph.firstEdge( node ); edge < endEdge; edge++ ) {
+                int neighbor = this.graph.target( edge );
+                int stamp = this.stamps[ neighbor ];
+                if ( stamp == other ) {
+                    this.forwardMeeting = side == FORWARD ? node : neighbor;
+                    this.backwardMeeting = side == FORWARD ? neighbor : node;
+                    return;
+                }
+                if ( stamp != own ) {
+                    reach( side, neighbor, node );
+                }
+            }
+        }
+    }
+
+    /**
+     * Join the path from the start to the forward meeting node with the path from the backward one to the end.
+     */
+    private int[] buildPath() {
+        int forwardLength = chainLength( this.forwardMeeting );
+        int[] path = new int[ forwardLength + chainLength( this.backwardMeeting ) ];
+        int node = this.forwardMeeting;
+        for ( int i = forwardLength - 1; i >= 0; i-- ) {
+            path[ i ] = node;
+            node = this.parents[ node ];
+        }
+        node = this.backwardMeeting;
+        for ( int i = forwardLength; i < path.length; i++ ) {
+            path[ i ] = node;
+            node = this.parents[ node ];
+        }
+        return path;
+    }
+
+    /**
+     * Count the nodes from a node back to the end of the search it was reached from, counting both.
+     */
+    private int chainLength( int node ) {
+        int length = 1;
+        while ( this.parents[ node ] != node ) {
+            node = this.parents[ node ];
+            length++;
+        }
+        return length;
+    }
+}
@@ -0,0 +1,257 @@
+package edu.rit.cs.graph.csrgraph;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Saves a {@link CsrGraph} to a file and maps it back into memory. Loading a snapshot maps the file and checks it;
+ * the graph then works directly on the mapped pages, so nothing is parsed or copied, and the bytes of the names are
+ * read in only as they are used. Names are decoded the first time they are needed.
+ *
+ * A snapshot is little-endian. It starts with a header of six ints:
+ * <ul>
+ *     <li>the magic number {@value #MAGIC}, whose bytes are "CSRG" in ASCII</li>
+ *     <li>the format version, {@value #VERSION}</li>
+ *     <li>the number of nodes, n</li>
+ *     <li>the number of edges, m</li>
+ *     <li>the length of the name index, k</li>
+ *     <li>the number of bytes in the names, b</li>
+ * </ul>
+ * followed by the graph's n + 1 offsets, its m targets, its k index entries and n + 1 name offsets, all ints, and
+ * finally the b bytes of the names in UTF-8. A file whose header does not match its size is rejected, and so is one
+ * whose arrays could lead a query out of bounds: loading makes one pass over the ints to check that the offsets never
+ * decrease, that every target and index entry names a node, and that the rows of targets are in increasing order.
+ * That costs time in proportion to the size of the graph, but far less than a search that explores all of it.
+ *
+ * @author William J. Reid (wjr3714)
+ */
+public class CsrSnapshot {
+
+    /** The first four bytes of a snapshot. */
+    public static final int MAGIC = 0x47525343;
+
+    /** The version of the format written, the only one read. Raise it whenever the layout changes. */
+    public static final int VERSION = 1;
+
+    /** The usual file name extension of a snapshot. */
+    public static final String EXTENSION = ".csrg";
+
+    /** The number of bytes in the header. */
+    private static final int HEADER_SIZE = 6 * Integer.BYTES;
+
+    /**
+     * This class is not instantiated.
+     */
+    private CsrSnapshot() {
+    }
+
+    /**
+     * Write a graph to a snapshot file, replacing the file if it exists.
+     *
+     * @param graph The graph
+     * @param file Where to write it
+     * @throws IOException If the file cannot be written
+     */
+    public static void write( CsrGraph graph, Path file ) throws IOException {
+        int nodeCount = graph.getNodeCount();
+        byte[][] names = new byte[ nodeCount ][];
+        int nameByteCount = 0;
+        for ( int id = 0; id < nodeCount; id++ ) {
+            names[ id ] = graph.getName( id ).getBytes( StandardCharsets.UTF_8 );
+            nameByteCount += names[ id ].length;
+        }
+        IntBuffer index = graph.index();
+
+        try ( OutputStream out = new BufferedOutputStream( Files.newOutputStream( file ), 1 << 16 ) ) {
+            ByteBuffer buffer = ByteBuffer.allocate( 1 << 16 ).order( ByteOrder.LITTLE_ENDIAN );
+            putInt( out, buffer, MAGIC );
+            putInt( out, buffer, VERSION );
+            putInt( out, buffer, nodeCount );
+            putInt( out, buffer, graph.getEdgeCount() );
+            putInt( out, buffer, index.limit() );
+            putInt( out, buffer, nameByteCount );
+            putInts( out, buffer, graph.offsets() );
+            putInts( out, buffer, graph.targets() );
+            putInts( out, buffer, index );
+            int nameOffset = 0;
+            for ( int id = 0; id < nodeCount; id++ ) {
+                putInt( out, buffer, nameOffset );
+                nameOffset += names[ id ].length;
+            }
+            putInt( out, buffer, nameOffset );
+            flush( out, buffer );
+            for ( byte[] name : names ) {
+                out.write( name );
+            }
+        }
+    }
+
+    /**
+     * Map a snapshot file into memory as a graph. The file must not be changed while the graph is in use.
+     *
+     * @param file The snapshot
+     * @return The graph it holds
+     * @throws IOException If the file cannot be read or is not a valid snapshot of this version
+     */
+    public static CsrGraph load( Path file ) throws IOException {
+        ByteBuffer map;
+        try ( FileChannel channel = FileChannel.open( file, StandardOpenOption.READ ) ) {
+            if ( channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE ) {
+                throw new IOException( file + " is not a graph snapshot: it is " + channel.size() + " bytes long" );
+            }
+            map = channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() ).order( ByteOrder.LITTLE_ENDIAN );
+        }
+
+        int magic = map.getInt( 0 );
+        int version = map.getInt( 4 );
+        int nodeCount = map.getInt( 8 );
+        int edgeCount = map.getInt( 12 );
+        int indexLength = map.getInt( 16 );
+        int nameByteCount = map.getInt( 20 );
+        if ( magic != MAGIC ) {
+            throw new IOException( file + " is not a graph snapshot" );
+        }
+        if ( version != VERSION ) {
+            throw new IOException( file + " is a version " + version + " snapshot; only version " + VERSION +
+                    " can be read" );
+        }
+        long expected = HEADER_SIZE + Integer.BYTES * ( 2L * nodeCount + 2 + edgeCount + indexLength ) + nameByteCount;
+        if ( nodeCount < 0 || edgeCount < 0 || nameByteCount < 0 || indexLength != CsrGraph.indexLength( nodeCount )
+                || expected != map.capacity() ) {
+            throw new IOException( file + " is damaged: its header does not match its size" );
+        }
+
+        int position = HEADER_SIZE;
+        IntBuffer offsets = ints( map, position, nodeCount + 1 );
+        position += Integer.BYTES * ( nodeCount + 1 );
+        IntBuffer targets = ints( map, position, edgeCount );
+        position += Integer.BYTES * edgeCount;
+        IntBuffer index = ints( map, position, indexLength );
+        position += Integer.BYTES * indexLength;
+        IntBuffer nameOffsets = ints( map, position, nodeCount + 1 );
+        position += Integer.BYTES * ( nodeCount + 1 );
+        ByteBuffer nameBytes = map.position( position ).slice();
+
+        if ( offsets.get( 0 ) != 0 || offsets.get( nodeCount ) != edgeCount || nameOffsets.get( 0 ) != 0
+                || nameOffsets.get( nodeCount ) != nameByteCount ) {
+            throw new IOException( file + " is damaged: its arrays do not match its header" );
+        }
+        String problem = check( nodeCount, offsets, targets, index, nameOffsets );
+        if ( problem != null ) {
+            throw new IOException( file + " is damaged: " + problem );
+        }
+        return new CsrGraph( nodeCount, offsets, targets, index, nameOffsets, nameBytes );
+    }
+
+    /**
+     * Check that the arrays of a snapshot are consistent with each other, so that no query of the graph can index
+     * outside them or loop forever. The first and last offsets have already been checked against the header.
+     *
+     * @return What is wrong, or null if nothing is
+     */
+    private static String check( int nodeCount, IntBuffer offsets, IntBuffer targets, IntBuffer index,
+                                 IntBuffer nameOffsets ) {
+        for ( int id = 0; id < nodeCount; id++ ) {
+            int first = offsets.get( id );
+            int end = offsets.get( id + 1 );
+            if ( end < first || end > targets.limit() ) {
+                return "the edges of node " + id + " run from " + first + " to " + end;
+            }
+            int previous = -1;
+            for ( int edge = first; edge < end; edge++ ) {
+                int target = targets.get( edge );
+                if ( target <= previous || target >= nodeCount ) {
+                    return "edge " + edge + " of node " + id + " leads to " + target;
+                }
+                previous = target;
+            }
+            if ( nameOffsets.get( id + 1 ) < nameOffsets.get( id ) ) {
+                return "the name of node " + id + " ends before it starts";
+            }
+        }
+        // Each node is in the index at most once, so it has an empty slot, which ends every lookup.
+        int used = 0;
+        for ( int slot = 0; slot < index.limit(); slot++ ) {
+            int entry = index.get( slot );
+            if ( entry < 0 || entry > nodeCount ) {
+                return "its name index refers to node " + ( entry - 1 );
+            }
+            if ( entry != 0 ) {
+                used++;
+            }
+        }
+        if ( used > nodeCount ) {
+            return "its name index has " + used + " entries for " + nodeCount + " nodes";
+        }
+        return null;
+    }
+
+    /**
+     * Tell whether a file starts the way a snapshot does.
+     *
+     * @param file The file to look at
+     * @return true iff the file exists and starts with the magic number
+     */
+    public static boolean isSnapshot( Path file ) {
+        try ( FileChannel channel = FileChannel.open( file, StandardOpenOption.READ ) ) {
+            ByteBuffer start = ByteBuffer.allocate( Integer.BYTES ).order( ByteOrder.LITTLE_ENDIAN );
+            while ( start.hasRemaining() && channel.read( start ) >= 0 ) {
+                // Keep reading until the magic number is in or the file ends.
+            }
+            return !start.hasRemaining() && start.getInt( 0 ) == MAGIC;
+        }
+        catch ( IOException ioe ) {
+            return false;
+        }
+    }
+
+    /**
+     * Get a view of some ints of a mapped file.
+     */
+    static IntBuffer ints( ByteBuffer map, int position, int count ) {
+        return map.position( position ).slice().order( ByteOrder.LITTLE_ENDIAN ).asIntBuffer().limit( count ).slice();
+    }
+
+    /**
+     * Write an int by way of a buffer.
+     */
+    static void putInt( OutputStream out, ByteBuffer buffer, int value ) throws IOException {
+        if ( buffer.remaining() < Integer.BYTES ) {
+            flush( out, buffer );
+        }
+        buffer.putInt( value );
+    }
+
+    /**
+     * Write all of the ints of an IntBuffer by way of a buffer.
+     */
+    static void putInts( OutputStream out, ByteBuffer buffer, IntBuffer values ) throws IOException {
+        IntBuffer rest = values.duplicate().position( 0 );
+        while ( rest.hasRemaining() ) {
+            if ( buffer.remaining() < Integer.BYTES ) {
+                flush( out, buffer );
+            }
+            int count = Math.min( rest.remaining(), buffer.remaining() / Integer.BYTES );
+            buffer.asIntBuffer().put( rest.duplicate().limit( rest.position() + count ) );
+            rest.position( rest.position() + count );
+            buffer.position( buffer.position() + count * Integer.BYTES );
+        }
+    }
+
+    /**
+     * Write what a buffer holds and empty it.
+     */
+    static void flush( OutputStream out, ByteBuffer buffer ) throws IOException {
+        out.write( buffer.array(), 0, buffer.position() );
+        buffer.clear();
+    }
+}
@@ -0,0 +1,625 @@
+package edu.rit.cs.graph.csrgraph;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * A distance index of a two-sided {@link CsrGraph}, such as one of actors and the movies they were in, made by pruned
+ * landmark labeling. For two nodes of the indexed side it answers whether they are within a given number of hops of
+ * each other, a hop being a step to another node of the same side through a node of the other side, and finds a
+ * shortest path between them, without searching the graph.
+ *
+ * Every indexed node has a label: a list of hubs, each with the node's distance in hops to it and the node one hop
+ * closer to it. The labels are built by a breadth-first search from every indexed node in turn, most connected first,
+ * that stops at the index's maximum number of hops and does not go past a node whose distance to the search's root
+ * the labels made so far already give. What remains is enough that, for any two nodes no further apart than the
+ * maximum, some hub on a shortest path between them is in both labels, so their distance is the smallest sum of
+ * distances to a hub they share. Following the nodes recorded for that hub from both ends gives the path, since every
+ * node on the way has the same hub in its label; the node linking each hop is found by merging the neighbors of its
+ * two ends. The other side has no labels, which keeps the index to the nodes that are queried.
+ *
+ * Hubs are numbered by rank, the order they were searched from. Each label is kept in groups by distance, and each
+ * group in order of rank, so that a query tries the sums of distances from the smallest up and stops at the first
+ * pair of groups with a hub in common. Most of a label is its furthest hubs, and those are only ever looked up by
+ * binary search, for the node at the other end of the query itself; only the nearer groups are merged.
+ *
+ * An index can be saved to a file and mapped back into memory as a {@link CsrSnapshot} is. The file is little-endian
+ * and starts with a header of eight ints:
+ * <ul>
+ *     <li>the magic number {@value #MAGIC}, whose bytes are "CSRL" in ASCII</li>
+ *     <li>the format version, {@value #VERSION}</li>
+ *     <li>the number of nodes of the graph, n</li>
+ *     <li>the number of edges of the graph, m</li>
+ *     <li>the maximum number of hops</li>
+ *     <li>the number of label entries, k</li>
+ *     <li>the low and then the high half of the fingerprint of the graph, a hash of its edges</li>
+ * </ul>
+ * followed by n * (h + 1) + 1 offsets, where h is the maximum number of hops, such that the entries of node v at
+ * distance d start at offset v * (h + 1) + d, then the k entries, each the rank of a hub, and the k nodes one hop
+ * closer to the hubs, all ints. An index is only loaded for a graph with the same numbers of nodes and edges and the same
+ * fingerprint, so one left beside a data file that has since been edited is not used.
+ *
+ * An index never changes once made, so any number of threads may use it at once.
+ *
+ * @author William J. Reid (wjr3714)
+ */
+public class LabelIndex {
+
+    /** The first four bytes of an index file. */
+    public static final int MAGIC = 0x4C525343;
+
+    /** The version of the format written, the only one read. Raise it whenever the layout changes. */
+    public static final int VERSION = 2;
+
+    /** The usual file name extension of an index. */
+    public static final String EXTENSION = ".csrl";
+
+    /** The largest maximum number of hops an index can have, the most that fits in the distance bits of a hub. */
+    public static final int MAX_HOPS = 7;
+
+    /** The number of low bits that hold the distance of a hub while the index is built. */
+    private static final int DISTANCE_BITS = 3;
+
+    /** Selects the distance bits of a hub while the index is built. */
+    private static final int DISTANCE_MASK = ( 1 << DISTANCE_BITS ) - 1;
+
+    /** The number of bytes in the header. */
+    private static final int HEADER_SIZE = 8 * Integer.BYTES;
+
+    /** The multiplier of the fingerprint hash, the 64-bit FNV prime. */
+    private static final long FINGERPRINT_PRIME = 0x100000001B3L;
+
+    /** The path returned when there is none. */
+    private static final int[] NO_PATH = new int[ 0 ];
+
+    /** The graph indexed. */
+    private final CsrGraph graph;
+
+    /** The greatest distance, in hops, the index knows. */
+    private final int maxHops;
+
+    /** Where the entries of each node at each distance start, followed by the number of entries. */
+    private final IntBuffer offsets;
+
+    /** The rank of each hub of every label, grouped by node and then by distance, each group in order of rank. */
+    private final IntBuffer entries;
+
+    /** For each entry, the node one hop closer to the hub, or the hub itself. */
+    private final IntBuffer parents;
+
+    /**
+     * Create an index from its parts.
+     */
+    private LabelIndex( CsrGraph graph, int maxHops, IntBuffer offsets, IntBuffer entries, IntBuffer parents ) {
+        this.graph = graph;
+        this.maxHops = maxHops;
+        this.offsets = offsets;
+        this.entries = entries;
+        this.parents = parents;
+    }
+
+    /**
+     * Build the index of a graph whose edges all join a node of the indexed side to one of the other side, and each
+     * have a matching edge in the other direction.
+     *
+     * @param graph The graph
+     * @param indexed Tells, given a node's id, whether the node is on the indexed side
+     * @param maxHops The greatest distance, in hops, the index is to know, at most {@value #MAX_HOPS}
+     * @return The index
+     */
+    public static LabelIndex build( CsrGraph graph, IntPredicate indexed, int maxHops ) {
+        if ( maxHops < 0 || maxHops > MAX_HOPS ) {
+            throw new IllegalArgumentException( "The maximum number of hops must be from 0 to " + MAX_HOPS + ", not "
+                    + maxHops );
+        }
+        int nodeCount = graph.getNodeCount();
+        if ( nodeCount > Integer.MAX_VALUE >>> DISTANCE_BITS ) {
+            throw new IllegalArgumentException( "A graph of " + nodeCount + " nodes is too large to index" );
+        }
+        int[] order = byDegree( graph, indexed );
+        int[][] labels = new int[ nodeCount ][];
+        int[][] labelParents = new int[ nodeCount ][];
+        int[] sizes = new int[ nodeCount ];
+
+        // The search from each root needs the root's distance to each of its hubs, by rank, and its own queue.
+        int[] rootDistances = new int[ order.length ];
+        Arrays.fill( rootDistances, Integer.MAX_VALUE / 2 );
+        int[] queue = new int[ nodeCount ];
+        int[] distances = new int[ nodeCount ];
+        int[] searchParents = new int[ nodeCount ];
+        int[] seen = new int[ nodeCount ];
+
+        long entryCount = 0;
+        for ( int rank = 0; rank < order.length; rank++ ) {
+            int root = order[ rank ];
+            for ( int i = 0; i < sizes[ root ]; i++ ) {
+                rootDistances[ labels[ root ][ i ] >>> DISTANCE_BITS ] = labels[ root ][ i ] & DISTANCE_MASK;
+            }
+
+            int head = 0;
+            int tail = 0;
+            queue[ tail++ ] = root;
+            seen[ root ] = rank + 1;
+            distances[ root ] = 0;
+            searchParents[ root ] = root;
+            while ( head < tail ) {
+                int node = queue[ head++ ];
+                int distance = distances[ node ];
+                if ( covered( labels[ node ], sizes[ node ], rootDistances, distance ) ) {
+                    continue;
+                }
+                if ( sizes[ node ] == 0 ) {
+                    labels[ node ] = new int[ 4 ];
+                    labelParents[ node ] = new int[ 4 ];
+                }
+                else if ( sizes[ node ] == labels[ node ].length ) {
+                    labels[ node ] = Arrays.copyOf( labels[ node ], 2 * sizes[ node ] );
+                    labelParents[ node ] = Arrays.copyOf( labelParents[ node ], 2 * sizes[ node ] );
+                }
+                labels[ node ][ sizes[ node ] ] = rank << DISTANCE_BITS | distance;
+                labelParents[ node ][ sizes[ node ] ] = searchParents[ node ];
+                sizes[ node ]++;
+                entryCount++;
+                if ( distance == maxHops ) {
+                    continue;
+                }
+
+                // A link already passed through by this search has had all its other ends queued.
+                for ( int edge = graph.firstEdge( node ); edge < graph.endEdge( node ); edge++ ) {
+                    int link = graph.target( edge );
+                    if ( seen[ link ] == rank + 1 ) {
+                        continue;
+                    }
+                    seen[ link ] = rank + 1;
+                    for ( int linkEdge = graph.firstEdge( link ); linkEdge < graph.endEdge( link ); linkEdge++ ) {
+                        int neighbor = graph.target( linkEdge );
+                        if ( seen[ neighbor ] != rank + 1 ) {
+                            seen[ neighbor ] = rank + 1;
+                            distances[ neighbor ] = distance + 1;
+                            searchParents[ neighbor ] = node;
+                            queue[ tail++ ] = neighbor;
+                        }
+                    }
+                }
+            }
+
+            for ( int i = 0; i < sizes[ root ]; i++ ) {
+                rootDistances[ labels[ root ][ i ] >>> DISTANCE_BITS ] = Integer.MAX_VALUE / 2;
+            }
+        }
+        if ( entryCount > Integer.MAX_VALUE - 8 ) {
+            throw new IllegalStateException( "The index would have " + entryCount + " entries, too many to store" );
+        }
+
+        // Each label was made in order of rank, so sorting it into groups by distance keeps each group in order.
+        int groups = maxHops + 1;
+        int[] offsets = new int[ nodeCount * groups + 1 ];
+        for ( int node = 0; node < nodeCount; node++ ) {
+            for ( int i = 0; i < sizes[ node ]; i++ ) {
+                offsets[ node * groups + ( labels[ node ][ i ] & DISTANCE_MASK ) + 1 ]++;
+            }
+        }
+        for ( int group = 1; group < offsets.length; group++ ) {
+            offsets[ group ] += offsets[ group - 1 ];
+        }
+        int[] entries = new int[ (int) entryCount ];
+        int[] parents = new int[ (int) entryCount ];
+        int[] next = new int[ groups ];
+        for ( int node = 0; node < nodeCount; node++ ) {
+            System.arraycopy( offsets, node * groups, next, 0, groups );
+            for ( int i = 0; i < sizes[ node ]; i++ ) {
+                int entry = next[ labels[ node ][ i ] & DISTANCE_MASK ]++;
+                entries[ entry ] = labels[ node ][ i ] >>> DISTANCE_BITS;
+                parents[ entry ] = labelParents[ node ][ i ];
+            }
+            labels[ node ] = null;
+            labelParents[ node ] = null;
+        }
+        return new LabelIndex( graph, maxHops, IntBuffer.wrap( offsets ), IntBuffer.wrap( entries ),
+                IntBuffer.wrap( parents ) );
+    }
+
+    /**
+     * Order the indexed nodes of a graph by decreasing degree, the ones with more neighbors being on more shortest
+     * paths.
+     *
+     * @return The ids of the indexed nodes, most connected first, ties in order of id
+     */
+    private static int[] byDegree( CsrGraph graph, IntPredicate indexed ) {
+        int nodeCount = graph.getNodeCount();
+        int maxDegree = 0;
+        int indexedCount = 0;
+        for ( int id = 0; id < nodeCount; id++ ) {
+            if ( indexed.test( id ) ) {
+                maxDegree = Math.max( maxDegree, graph.getDegree( id ) );
+                indexedCount++;
+            }
+        }
+        int[] starts = new int[ maxDegree + 2 ];
+        for ( int id = 0; id < nodeCount; id++ ) {
+            if ( indexed.test( id ) ) {
+                starts[ maxDegree - graph.getDegree( id ) + 1 ]++;
+            }
+        }
+        for ( int degree = 1; degree < starts.length; degree++ ) {
+            starts[ degree ] += starts[ degree - 1 ];
+        }
+        int[] order = new int[ indexedCount ];
+        for ( int id = 0; id < nodeCount; id++ ) {
+            if ( indexed.test( id ) ) {
+                order[ starts[ maxDegree - graph.getDegree( id ) ]++ ] = id;
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Tell whether a node's label already gives a distance to the current root no greater than the one just found.
+     */
+    private static boolean covered( int[] label, int size, int[] rootDistances, int distance ) {
+        for ( int i = 0; i < size; i++ ) {
+            if ( rootDistances[ label[ i ] >>> DISTANCE_BITS ] + ( label[ i ] & DISTANCE_MASK ) <= distance ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Write the index to a file, replacing the file if it exists.
+     *
+     * @param file Where to write it
+     * @throws IOException If the file cannot be written
+     */
+    public void write( Path file ) throws IOException {
+        try ( OutputStream out = new BufferedOutputStream( Files.newOutputStream( file ), 1 << 16 ) ) {
+            ByteBuffer buffer = ByteBuffer.allocate( 1 << 16 ).order( ByteOrder.LITTLE_ENDIAN );
+            CsrSnapshot.putInt( out, buffer, MAGIC );
+            CsrSnapshot.putInt( out, buffer, VERSION );
+            CsrSnapshot.putInt( out, buffer, this.graph.getNodeCount() );
+            CsrSnapshot.putInt( out, buffer, this.graph.getEdgeCount() );
+            CsrSnapshot.putInt( out, buffer, this.maxHops );
+            CsrSnapshot.putInt( out, buffer, getEntryCount() );
+            long fingerprint = fingerprint( this.graph );
+            CsrSnapshot.putInt( out, buffer, (int) fingerprint );
+            CsrSnapshot.putInt( out, buffer, (int) ( fingerprint >>> 32 ) );
+            CsrSnapshot.putInts( out, buffer, this.offsets );
+            CsrSnapshot.putInts( out, buffer, this.entries );
+            CsrSnapshot.putInts( out, buffer, this.parents );
+            CsrSnapshot.flush( out, buffer );
+        }
+    }
+
+    /**
+     * Map an index file into memory. The file must not be changed while the index is in use.
+     *
+     * @param file The index file
+     * @param graph The graph the index was built from
+     * @return The index
+     * @throws IOException If the file cannot be read, is not a valid index of this version, or was not built for
+     *                     this graph
+     */
+    public static LabelIndex load( Path file, CsrGraph graph ) throws IOException {
+        ByteBuffer map;
+        try ( FileChannel channel = FileChannel.open( file, StandardOpenOption.READ ) ) {
+            if ( channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE ) {
+                throw new IOException( file + " is not a label index: it is " + channel.size() + " bytes long" );
+            }
+            map = channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() ).order( ByteOrder.LITTLE_ENDIAN );
+        }
+
+        int magic = map.getInt( 0 );
+        int version = map.getInt( 4 );
+        int nodeCount = map.getInt( 8 );
+        int edgeCount = map.getInt( 12 );
+        int maxHops = map.getInt( 16 );
+        int entryCount = map.getInt( 20 );
+        long fingerprint = map.getInt( 24 ) & 0xFFFFFFFFL | (long) map.getInt( 28 ) << 32;
+        if ( magic != MAGIC ) {
+            throw new IOException( file + " is not a label index" );
+        }
+        if ( version != VERSION ) {
+            throw new IOException( file + " is a version " + version + " label index; only version " + VERSION +
+                    " can be read" );
+        }
+        if ( nodeCount != graph.getNodeCount() || edgeCount != graph.getEdgeCount() ) {
+            throw new IOException( file + " is the index of a graph of " + nodeCount + " nodes and " + edgeCount +
+                    " edges, not of this one of " + graph.getNodeCount() + " nodes and " + graph.getEdgeCount() );
+        }
+        if ( fingerprint != fingerprint( graph ) ) {
+            throw new IOException( file + " is the index of a different graph of the same size" );
+        }
+        long offsetCount = (long) nodeCount * ( maxHops + 1 ) + 1;
+        long expected = HEADER_SIZE + Integer.BYTES * ( offsetCount + 2L * entryCount );
+        if ( maxHops < 0 || maxHops > MAX_HOPS || entryCount < 0 || expected != map.capacity() ) {
+            throw new IOException( file + " is damaged: its header does not match its size" );
+        }
+
+        int position = HEADER_SIZE;
+        IntBuffer offsets = CsrSnapshot.ints( map, position, (int) offsetCount );
+        position += Integer.BYTES * (int) offsetCount;
+        IntBuffer entries = CsrSnapshot.ints( map, position, entryCount );
+        position += Integer.BYTES * entryCount;
+        IntBuffer parents = CsrSnapshot.ints( map, position, entryCount );
+
+        if ( offsets.get( 0 ) != 0 || offsets.get( (int) offsetCount - 1 ) != entryCount ) {
+            throw new IOException( file + " is damaged: its offsets do not match its header" );
+        }
+        return new LabelIndex( graph, maxHops, offsets, entries, parents );
+    }
+
+    /**
+     * Hash the edges of a graph, so that an index can tell the graph it was built from from another of the same size.
+     * Every edge is hashed in order, which takes time in proportion to the size of the graph but is still small next
+     * to reading it.
+     */
+    private static long fingerprint( CsrGraph graph ) {
+        long hash = 0xCBF29CE484222325L;
+        for ( int id = 0; id < graph.getNodeCount(); id++ ) {
+            hash = ( hash ^ graph.endEdge( id ) ) * FINGERPRINT_PRIME;
+        }
+        for ( int edge = 0; edge < graph.getEdgeCount(); edge++ ) {
+            hash = ( hash ^ graph.target( edge ) ) * FINGERPRINT_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Get the greatest distance the index knows.
+     *
+     * @return The maximum number of hops
+     */
+    public int getMaxHops() {
+        return this.maxHops;
+    }
+
+    /**
+     * Get the total size of the labels.
+     *
+     * @return The number of label entries
+     */
+    public int getEntryCount() {
+        return this.entries.limit();
+    }
+
+    /**
+     * Tell whether a node is on the indexed side of the graph, so that it can be asked about.
+     *
+     * @param id The node's id
+     * @return true iff the node has a label
+     */
+    public boolean isIndexed( int id ) {
+        checkId( id );
+        return this.offsets.get( group( id, 1 ) ) > this.offsets.get( group( id, 0 ) );
+    }
+
+    /**
+     * Find the distance between two indexed nodes.
+     *
+     * @param start The id of one node
+     * @param end The id of the other node
+     * @return The number of hops on a shortest path between them, or -1 if it is greater than the maximum
+     */
+    public int distance( int start, int end ) {
+        checkId( start );
+        checkId( end );
+        long meeting = meeting( start, end );
+        return meeting < 0 ? -1 : startHops( meeting ) + endHops( meeting );
+    }
+
+    /**
+     * Find a shortest path between two indexed nodes that takes no more than a given number of hops.
+     *
+     * @param start The id of the first node of the path
+     * @param end The id of the last node of the path
+     * @param maxHops The most hops the path may take, no more than the index's maximum
+     * @return The ids of the nodes of the path in order from start to end, the nodes that link the hops included, or
+     *         an empty array if there is no such path
+     * @throws IllegalStateException If the path leads along an edge the graph does not have, which can only happen
+     *                               when the index was built from another graph
+     */
+    public int[] findPath( int start, int end, int maxHops ) {
+        if ( maxHops > this.maxHops ) {
+            throw new IllegalArgumentException( "The index knows paths of up to " + this.maxHops + " hops, not "
+                    + maxHops );
+        }
+        checkId( start );
+        checkId( end );
+        long meeting = meeting( start, end );
+        if ( meeting < 0 || startHops( meeting ) + endHops( meeting ) > maxHops ) {
+            return NO_PATH;
+        }
+        int startHops = startHops( meeting );
+        int hops = startHops + endHops( meeting );
+        int hub = this.entries.get( (int) meeting );
+
+        // Every node on the way to a hub has the hub in its label, one hop nearer, with the next hop toward it.
+        int[] path = new int[ 2 * hops + 1 ];
+        int node = start;
+        int entry = (int) meeting;
+        for ( int i = 0; i < startHops; i++ ) {
+            int next = this.parents.get( entry );
+            path[ 2 * i ] = node;
+            path[ 2 * i + 1 ] = link( node, next );
+            node = next;
+            entry = find( node, startHops - i - 1, hub );
+        }
+        path[ 2 * startHops ] = node;
+        node = end;
+        entry = find( end, hops - startHops, hub );
+        for ( int i = hops; i > startHops; i-- ) {
+            int next = this.parents.get( entry );
+            path[ 2 * i ] = node;
+            path[ 2 * i - 1 ] = link( node, next );
+            node = next;
+            entry = find( node, i - startHops - 1, hub );
+        }
+        return path;
+    }
+
+    /**
+     * Find a hub through which two nodes are closest, trying the groups of their labels in order of total distance.
+     *
+     * @return The index of the hub's entry in the first node's label, with the first node's distance to the hub in
+     *         bits 40 and up and the second node's in bits 32 to 39, or -1 if they are further apart than the maximum
+     */
+    private long meeting( int start, int end ) {
+        for ( int hops = 0; hops <= this.maxHops; hops++ ) {
+            for ( int startHops = 0; startHops <= hops; startHops++ ) {
+                int entry = common( group( start, startHops ), group( end, hops - startHops ) );
+                if ( entry >= 0 ) {
+                    return (long) startHops << 40 | (long) ( hops - startHops ) << 32 | entry;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get the first node's distance to the hub from the result of meeting.
+     */
+    private static int startHops( long meeting ) {
+        return (int) ( meeting >>> 40 );
+    }
+
+    /**
+     * Get the second node's distance to the hub from the result of meeting.
+     */
+    private static int endHops( long meeting ) {
+        return (int) ( meeting >>> 32 ) & 0xFF;
+    }
+
+    /**
+     * Find a hub that two groups of entries have in common. When one group is much smaller than the other, as the
+     * group of a node's own entry always is, each of its hubs is looked for by binary search; otherwise the two are
+     * merged.
+     *
+     * @param first The number of the first group
+     * @param second The number of the second group
+     * @return The index of the shared hub's entry in the first group, or -1 if there is none
+     */
+    private int common( int first, int second ) {
+        int i = this.offsets.get( first );
+        int iEnd = this.offsets.get( first + 1 );
+        int j = this.offsets.get( second );
+        int jEnd = this.offsets.get( second + 1 );
+        if ( iEnd - i < ( jEnd - j ) >> 3 ) {
+            for ( ; i < iEnd; i++ ) {
+                if ( search( j, jEnd, this.entries.get( i ) ) >= 0 ) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        if ( jEnd - j < ( iEnd - i ) >> 3 ) {
+            for ( ; j < jEnd; j++ ) {
+                int entry = search( i, iEnd, this.entries.get( j ) );
+                if ( entry >= 0 ) {
+                    return entry;
+                }
+            }
+            return -1;
+        }
+        while ( i < iEnd && j < jEnd ) {
+            int a = this.entries.get( i );
+            int b = this.entries.get( j );
+            if ( a < b ) {
+                i++;
+            }
+            else if ( a > b ) {
+                j++;
+            }
+            else {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Find a hub among a node's entries at a given distance.
+     *
+     * @return The index of the entry, or -1 if the hub is not there
+     */
+    private int find( int node, int distance, int hub ) {
+        int group = group( node, distance );
+        return search( this.offsets.get( group ), this.offsets.get( group + 1 ), hub );
+    }
+
+    /**
+     * Find a hub in a range of entries by binary search.
+     *
+     * @return The index of the entry, or -1 if the hub is not in the range
+     */
+    private int search( int from, int to, int hub ) {
+        int low = from;
+        int high = to - 1;
+        while ( low <= high ) {
+            int middle = ( low + high ) >>> 1;
+            int rank = this.entries.get( middle );
+            if ( rank < hub ) {
+                low = middle + 1;
+            }
+            else if ( rank > hub ) {
+                high = middle - 1;
+            }
+            else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get the number of the group of a node's entries at a given distance.
+     */
+    private int group( int node, int distance ) {
+        return node * ( this.maxHops + 1 ) + distance;
+    }
+
+    /**
+     * Find a node of the other side that links two nodes one hop apart, by merging their neighbors.
+     *
+     * @return The id of the linking node with the smallest id
+     */
+    private int link( int from, int to ) {
+        int i = this.graph.firstEdge( from );
+        int iEnd = this.graph.endEdge( from );
+        int j = this.graph.firstEdge( to );
+        int jEnd = this.graph.endEdge( to );
+        while ( i < iEnd && j < jEnd ) {
+            int a = this.graph.target( i );
+            int b = this.graph.target( j );
+            if ( a < b ) {
+                i++;
+            }
+            else if ( a > b ) {
+                j++;
+            }
+            else {
+                return a;
+            }
+        }
+        throw new IllegalStateException( "The index does not match the graph: " + from + " and " + to +
+                " are not linked" );
+    }
+
+    /**
+     * Make sure an id is that of a node of the graph.
+     */
+    private void checkId( int id ) {
+        if ( id < 0 || id >= this.graph.getNodeCount() ) {
+            throw new IndexOutOfBoundsException( "no node " + id );
+        }
+    }
+}
@@ -2,8 +2,10 @@ package edu.rit.cs.graph.linkedgraph;
 
 import edu.rit.cs.graph.Graph;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -19,6 +21,10 @@ import java.util.Set;
  * are passed in as arguments. That means that carelessly coded clients
  * of this class could experience {@link ClassCastException}s.
  *
+ * Every node the graph makes gets the next id, counting from 0. Along
+ * with the map from names to nodes, the graph keeps a list of its
+ * nodes by id, so that both directions of lookup take constant time.
+ *
  * @author James Heliotis
  */
 public class LinkedGraph implements Graph< LinkedNode > {
@@ -29,11 +35,18 @@ public class LinkedGraph implements Graph< LinkedNode > {
      */
     private final Map< String, LinkedNode > nodeMap;
 
+    /**
+     * Every node the graph has made, by id. This is the reverse of
+     * nodeMap, and is kept up to date by makeNode.
+     */
+    private final List< LinkedNode > nodesById;
+
     /**
      * Create an empty graph.
      */
     public LinkedGraph() {
         this.nodeMap = new HashMap<>();
+        this.nodesById = new ArrayList<>();
     }
 
     /** {@inheritDoc} */
@@ -66,15 +79,37 @@ public class LinkedGraph implements Graph< LinkedNode > {
         return this.nodeMap.get( nodeName );
     }
 
+    /**
+     * Look up a node by its id.
+     *
+     * @param id the id the graph gave the node
+     * @return the node, or null if the graph has made no node with that id
+     */
+    public LinkedNode getNode( int id ) {
+        return id >= 0 && id < this.nodesById.size() ? this.nodesById.get( id ) : null;
+    }
+
+    /**
+     * Get the number of nodes the graph has made, one more than the
+     * largest id. A node replaced by making another of the same name
+     * keeps its id, so this can be more than the number of names.
+     *
+     * @return the node count
+     */
+    public int getNodeCount() {
+        return this.nodesById.size();
+    }
+
     /** {@inheritDoc} */
     @Override
     public String getNodeName( LinkedNode node ) {
-        for ( String key: this.nodeMap.keySet() ) {
-            if ( this.nodeMap.get( key ).equals( node ) ) {
-                return key;
-            }
+        if ( getNode( node.getId() ) == node ) {
+            return node.getName();
         }
-        return UNFOUND_NODE_NAME;
+        // Nodes with the same name are equal, so one made elsewhere is
+        // looked up by its name.
+        return this.nodeMap.containsKey( node.getName() ) ?
+                node.getName() : UNFOUND_NODE_NAME;
     }
 
     /** {@inheritDoc} */
@@ -92,8 +127,9 @@ public class LinkedGraph implements Graph< LinkedNode > {
     /** {@inheritDoc} */
     @Override
     public LinkedNode makeNode( String name ) {
-        LinkedNode result = new LinkedNode( name );
+        LinkedNode result = new LinkedNode( name, this.nodesById.size() );
         this.nodeMap.put( name, result );
+        this.nodesById.add( result );
         return result;
     }
 
@@ -101,17 +137,19 @@ public class LinkedGraph implements Graph< LinkedNode > {
      * Generate a string associated with the graph. The string
      * is comprised of one line for each node in the graph, which is
      * unconventionally large for a method overriding the
-     * {@link Object#toString()} method.
+     * {@link Object#toString()} method. To write a large graph out
+     * without building the whole string, use
+     * {@link edu.rit.cs.graph.GraphExporter} instead.
      *
      * @return string associated with the graph.
      */
     @Override
     public String toString() {
-        String result = "";
-        for ( String name : this.nodeMap.keySet() ) {
-            result = result + this.nodeMap.get( name ) + "\n";
+        StringBuilder result = new StringBuilder();
+        for ( LinkedNode node : this.nodeMap.values() ) {
+            result.append( node ).append( '\n' );
         }
-        return result;
+        return result.toString();
     }
 
 }
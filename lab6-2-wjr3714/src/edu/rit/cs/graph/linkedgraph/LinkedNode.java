@@ -10,6 +10,10 @@ import java.util.*;
  * This class does not define equals or hashCode. It is making the
  * assumption that each node is described by exactly one Node object.
  *
+ * A node made by a {@link LinkedGraph} also has an id, a small integer
+ * that the graph gives out in order, so that algorithms can keep
+ * per-node state in arrays instead of maps.
+ *
  * @author atd Aaron T Deever
  * @author jeh James E Heliotis
  * @editor William J. Reid (wjr3714)
@@ -26,13 +30,31 @@ public class LinkedNode {
      */
     private Set< LinkedNode > neighbors;
 
+    /*
+     * Position of this node among the nodes its graph has made, or -1.
+     */
+    private final int id;
+
     /**
      * Constructor.  Initialized with an empty list of neighbors.
+     * The node belongs to no graph, so its id is -1.
      *
      * @param name string representing the name associated with the node.
      */
     public LinkedNode(String name) {
+        this( name, -1 );
+    }
+
+    /**
+     * Constructor for a node made by a graph.  Initialized with an
+     * empty list of neighbors.
+     *
+     * @param name string representing the name associated with the node.
+     * @param id the number of nodes the graph made before this one.
+     */
+    LinkedNode( String name, int id ) {
         this.name = name;
+        this.id = id;
         //this.neighbors = new HashSet<>();
         this.neighbors = new TreeSet<>(
                 Comparator.comparing( LinkedNode::getName ) );
@@ -47,6 +69,17 @@ public class LinkedNode {
         return this.name;
     }
 
+    /**
+     * Get the id of this node: 0 for the first node its graph made, 1 for
+     * the next, and so on. Ids never change, so they can index arrays
+     * of per-node state sized by {@link LinkedGraph#getNodeCount()}.
+     *
+     * @return id, or -1 if the node was not made by a graph.
+     */
+    public int getId() {
+        return this.id;
+    }
+
     /**
      * Add a neighbor to this node.  Checks if already present, and does not
      * duplicate in this case.